@@ -0,0 +1,20 @@
+package com.zalando.lite;
+
+/**
+ * A pricing rule for a whole cart, applied by {@link DiscountManager#priceCart} after
+ * every line has been priced with the line {@link Discount} rules.
+ *
+ * Cart rules see the cart subtotal, so they can express things a line rule cannot,
+ * such as "10% off orders over €100" ({@link SpendThresholdDiscount}).
+ */
+public abstract class CartDiscount {
+
+    /**
+     * Applies the discount to a cart and returns the new cart total.
+     *
+     * @param customer the customer buying
+     * @param subtotalCents the cart total so far, in cents
+     * @return the discounted cart total, in cents
+     */
+    public abstract long applyDiscount(Customer customer, long subtotalCents);
+}
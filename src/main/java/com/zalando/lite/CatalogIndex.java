@@ -0,0 +1,170 @@
+package com.zalando.lite;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Secondary indexes over the product catalog, by category and by size.
+ *
+ * Each category and each size maps to the set of products that have it, so a
+ * catalog query only touches the matching products instead of every product
+ * in the inventory. Keys are case-insensitive ("Shoes" and "shoes" match),
+ * the same way the discount rules compare categories.
+ *
+ * The index is kept up to date by {@link InventoryManager} when products are
+ * added or removed and when their category or sizes are replaced.
+ * All methods are synchronized, so queries are safe while the catalog changes.
+ *
+ * Concepts reinforced:
+ * - Inverted (secondary) indexes
+ * - Nested collections: {@code Map<String, Set<Product>>}
+ * - Incremental maintenance
+ */
+public class CatalogIndex {
+
+    // Products grouped by normalized category name
+    private final Map<String, Set<Product>> byCategory = new HashMap<>();
+
+    // Products grouped by normalized size label
+    private final Map<String, Set<Product>> bySize = new HashMap<>();
+
+    /**
+     * Indexes a product under its current category and sizes.
+     *
+     * @param product the product to index
+     */
+    public synchronized void add(Product product) {
+        addTo(byCategory, product.getCategory(), product);
+        addSizes(product, product.getAvailableSizes());
+    }
+
+    /**
+     * Removes a product from all indexes.
+     *
+     * @param product the product to remove
+     */
+    public synchronized void remove(Product product) {
+        removeFrom(byCategory, product.getCategory(), product);
+        removeSizes(product, product.getAvailableSizes());
+    }
+
+    /**
+     * Moves a product from its old category bucket to its current one.
+     *
+     * @param product the product that changed
+     * @param oldCategory the category it was indexed under
+     */
+    public synchronized void categoryChanged(Product product, String oldCategory) {
+        removeFrom(byCategory, oldCategory, product);
+        addTo(byCategory, product.getCategory(), product);
+    }
+
+    /**
+     * Moves a product from its old size buckets to its current ones.
+     *
+     * @param product the product that changed
+     * @param oldSizes the sizes it was indexed under
+     */
+    public synchronized void sizesChanged(Product product, List<String> oldSizes) {
+        removeSizes(product, oldSizes);
+        addSizes(product, product.getAvailableSizes());
+    }
+
+    /**
+     * Returns all products in the given category.
+     *
+     * @param category the category to look up (case-insensitive)
+     * @return matching products, or an empty list if none exist
+     */
+    public synchronized List<Product> findByCategory(String category) {
+        return copyOf(byCategory.get(normalize(category)));
+    }
+
+    /**
+     * Returns all products offered in the given size.
+     *
+     * @param size the size to look up (case-insensitive)
+     * @return matching products, or an empty list if none exist
+     */
+    public synchronized List<Product> findBySize(String size) {
+        return copyOf(bySize.get(normalize(size)));
+    }
+
+    /**
+     * Returns all products in the given category that are offered in the given size.
+     *
+     * Walks the smaller of the two buckets and checks membership in the other,
+     * so the cost depends on the smaller result set, not on the catalog size.
+     *
+     * @param category the category to look up (case-insensitive)
+     * @param size the size to look up (case-insensitive)
+     * @return matching products, or an empty list if none exist
+     */
+    public synchronized List<Product> findByCategoryAndSize(String category, String size) {
+        Set<Product> inCategory = byCategory.get(normalize(category));
+        Set<Product> inSize = bySize.get(normalize(size));
+        if (inCategory == null || inSize == null) {
+            return new ArrayList<>();
+        }
+        Set<Product> smaller = inCategory.size() <= inSize.size() ? inCategory : inSize;
+        Set<Product> larger = smaller == inCategory ? inSize : inCategory;
+
+        List<Product> matches = new ArrayList<>();
+        for (Product product : smaller) {
+            if (larger.contains(product)) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
+
+    private void addSizes(Product product, List<String> sizes) {
+        if (sizes != null) {
+            for (String size : sizes) {
+                addTo(bySize, size, product);
+            }
+        }
+    }
+
+    private void removeSizes(Product product, List<String> sizes) {
+        if (sizes != null) {
+            for (String size : sizes) {
+                removeFrom(bySize, size, product);
+            }
+        }
+    }
+
+    private static void addTo(Map<String, Set<Product>> index, String key, Product product) {
+        if (key != null) {
+            index.computeIfAbsent(normalize(key), k -> new LinkedHashSet<>()).add(product);
+        }
+    }
+
+    private static void removeFrom(Map<String, Set<Product>> index, String key, Product product) {
+        if (key == null) {
+            return;
+        }
+        String normalized = normalize(key);
+        Set<Product> bucket = index.get(normalized);
+        if (bucket != null) {
+            bucket.remove(product);
+            if (bucket.isEmpty()) {
+                index.remove(normalized); // Don't keep empty buckets around
+            }
+        }
+    }
+
+    private static List<Product> copyOf(Set<Product> bucket) {
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+
+    // Index keys ignore case and surrounding whitespace
+    private static String normalize(String key) {
+        return key == null ? null : key.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,14 +2,53 @@ package com.zalando.lite;
 
 public class CategoryDiscount extends Discount{
 
+    private final String category;
+    private final int percentOff;
+
+    // 20% off on shoes
+    public CategoryDiscount() {
+        this("Shoes", 20);
+    }
+
+    /**
+     * Creates a discount for every product in one category.
+     *
+     * @param category the category (any letter case)
+     * @param percentOff the discount in percent
+     */
+    public CategoryDiscount(String category, int percentOff) {
+        if (category == null) {
+            throw new IllegalArgumentException("Category must not be null.");
+        }
+        if (percentOff < 0 || percentOff > 100) {
+            throw new IllegalArgumentException("Discount must be between 0 and 100 percent.");
+        }
+        this.category = category;
+        this.percentOff = percentOff;
+    }
 
     @Override
-    public double applyDiscount(Customer customer, Product product, double currentPrice) {
+    public long applyDiscount(Customer customer, Product product, long currentPriceCents) {
 
-        String category = product.getCategory();
-        if(category != null && "Shoes".equalsIgnoreCase(category)) {
-            return currentPrice * 0.80; // 20% off on shoes
+        String productCategory = product.getCategory();
+        if(productCategory != null && category.equalsIgnoreCase(productCategory)) {
+            return Money.percentOff(currentPriceCents, percentOff);
         }
-        return currentPrice;
+        return currentPriceCents;
+    }
+
+    @Override
+    public long applyEligible(Customer customer, Product product, long currentPriceCents) {
+        return Money.percentOff(currentPriceCents, percentOff); // Category already matched
+    }
+
+    @Override
+    public String getCategory() {
+        return category;
+    }
+
+    // Returns the discount in percent
+    public int getPercentOff() {
+        return percentOff;
     }
 }
@@ -1,5 +1,7 @@
 package com.zalando.lite;
 
+import com.zalando.lite.annotations.VIP;
+
 import java.util.List;
 
 /**
@@ -27,8 +29,8 @@ public class Customer {
     // Email address (used for contact or login simulation)
     private String email;
 
-    // Whether the customer has VIP status (used for discounts)
-    // This will be marked with @VIP annotation
+    // Whether the customer has VIP status (used for discounts, found through @VIP)
+    @VIP
     private boolean isVip;
 
     // A list of the customer's favorite product categories (e.g., "Shoes", "Accessories")
@@ -1,11 +1,50 @@
 package com.zalando.lite;
 
+/**
+ * A pricing rule that {@link DiscountManager} applies to each product a customer buys.
+ *
+ * Rules can describe when they apply: {@link #getCategory()} limits a rule to one
+ * category and {@link #isVipOnly()} to VIP customers. The manager uses this to skip
+ * rules that cannot apply before calling them, so a rule without these limits is
+ * simply called for every product.
+ */
 public abstract class Discount {
 
     /**
      * Applies discount and returns discounted price.
+     *
+     * Prices are in cents (see {@link Money}), so chained discounts round the same way every time.
+     *
+     * @param customer the customer buying
+     * @param product the product being bought
+     * @param currentPriceCents the price so far, in cents
+     * @return the discounted price, in cents
      */
-    public abstract double applyDiscount(Customer customer, Product product, double currentPrice);
+    public abstract long applyDiscount(Customer customer, Product product, long currentPriceCents);
 
+    /**
+     * Applies the discount to a product already known to match {@link #getCategory()}
+     * and {@link #isVipOnly()}, so the rule can skip its own checks.
+     *
+     * {@link DiscountManager} calls this instead of
+     * {@link #applyDiscount(Customer, Product, long)}. By default it simply delegates.
+     *
+     * @param customer the customer buying
+     * @param product the product being bought
+     * @param currentPriceCents the price so far, in cents
+     * @return the discounted price, in cents
+     */
+    public long applyEligible(Customer customer, Product product, long currentPriceCents) {
+        return applyDiscount(customer, product, currentPriceCents);
+    }
+
+    // Returns the only category this rule applies to (any letter case), or null for all categories
+    public String getCategory() {
+        return null;
+    }
 
+    // Returns true if this rule only applies to VIP customers
+    public boolean isVipOnly() {
+        return false;
+    }
 }
@@ -1,85 +1,250 @@
 package com.zalando.lite;
 
-import com.zalando.lite.annotations.VIP;
-import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Applies discount logic for customers and products in the ZalandoLite system.
  *
- * This class uses Java Reflection to check if a customer qualifies for a discount.
- * It also supports category-specific discounts (like for "Shoes").
+ * Discounts are an ordered list of {@link Discount} rules, applied one after the
+ * other, each to the price left by the previous one. The default list is:
+ * - Products in "Shoes" category: 20% off ({@link CategoryDiscount})
+ * - VIP customers: another 10% off ({@link VipDiscount})
  *
- * Discounts:
- * - VIP customers: 10% off
- * - Products in "Shoes" category: 20% off
+ * The list is not walked rule by rule on every call. For each category, the rules
+ * that can apply to it are picked once (using {@link Discount#getCategory()}) into two
+ * arrays: one for regular customers and one for VIPs ({@link Discount#isVipOnly()}).
+ * Pricing a product then looks up its category's arrays and runs only those rules,
+ * through {@link Discount#applyEligible}, so they do not repeat checks already made.
+ * A catalog with hundreds of category rules prices a T-shirt as fast as one with two,
+ * and the VIP check (through {@link VipStatus}, which resolves the @VIP fields once per
+ * class) is skipped when no VIP rule can apply.
+ *
+ * {@link #priceCart(Customer, List, long[])} prices a whole cart at once: the VIP check
+ * runs once per cart instead of once per line, line totals go into a plain long[],
+ * and cart-level rules ({@link CartDiscount}, such as a spend threshold) apply to the
+ * cart total.
  *
  * Concepts reinforced:
- * - Reflection
- * - Conditional logic
+ * - Polymorphism (a list of Discount rules)
+ * - Precomputing work once instead of on every call
  * - Method extraction & code reuse
  */
 public class DiscountManager {
 
+    // Category strings whose compiled rules are cached; more are compiled per call
+    private static final int MAX_CACHED_CATEGORIES = 4096;
+
+    private static final Discount[] NO_RULES = new Discount[0];
+
+    // The rules in the order they are applied
+    private final List<Discount> discounts;
+
+    // Cart-level rules, applied in order to the cart total by priceCart
+    private final List<CartDiscount> cartDiscounts;
+    private final CartDiscount[] cartRules;
+
+    // Whether any line rule is VIP-only, so a cart needs to know the customer's tier
+    private final boolean hasVipRules;
+
+    // Compiled rules per category string (exactly as products spell it)
+    private final Map<String, Pipeline> pipelines = new ConcurrentHashMap<>();
+
+    // Compiled rules for products without a category
+    private final Pipeline uncategorized;
+
+    // Creates a manager with the default discounts: 20% off Shoes, then 10% off for VIPs
+    public DiscountManager() {
+        this(Arrays.asList(new CategoryDiscount(), new VipDiscount()));
+    }
+
+    /**
+     * Creates a manager that applies the given rules in order.
+     *
+     * @param discounts the rules, first applied first
+     */
+    public DiscountManager(List<Discount> discounts) {
+        this(discounts, Collections.emptyList());
+    }
+
+    /**
+     * Creates a manager with line rules and cart-level rules.
+     *
+     * @param discounts the line rules, first applied first
+     * @param cartDiscounts the cart rules, applied in order to the cart total by {@link #priceCart}
+     */
+    public DiscountManager(List<Discount> discounts, List<CartDiscount> cartDiscounts) {
+        boolean vipRules = false;
+        for (Discount discount : discounts) {
+            if (discount == null) {
+                throw new IllegalArgumentException("Discount rules must not be null.");
+            }
+            vipRules |= discount.isVipOnly();
+        }
+        for (CartDiscount cartDiscount : cartDiscounts) {
+            if (cartDiscount == null) {
+                throw new IllegalArgumentException("Cart discount rules must not be null.");
+            }
+        }
+        this.discounts = Collections.unmodifiableList(new ArrayList<>(discounts));
+        this.cartDiscounts = Collections.unmodifiableList(new ArrayList<>(cartDiscounts));
+        this.cartRules = cartDiscounts.toArray(new CartDiscount[0]);
+        this.hasVipRules = vipRules;
+        this.uncategorized = compile(null);
+    }
+
     /**
      * Applies applicable discounts based on customer VIP status and product category.
-     * <p>
-     * Reflection is used to detect the @VIP annotation on the Customer object.
      *
      * @param customer the customer making the purchase
      * @param product  the product being purchased
      * @return the final price after discount
      */
     public double applyDiscount(Customer customer, Product product) {
-        double price = product.getPrice();
+        return Money.toMajor(applyDiscountCents(customer, product));
+    }
 
-        if (isCategoryDiscounted(product)) {
-            price *= 0.80; // 20% off for Shoes
-        }
+    /**
+     * Same as {@link #applyDiscount(Customer, Product)}, in cents.
+     *
+     * Each discount is rounded to whole cents as it is applied.
+     *
+     * @param customer the customer making the purchase
+     * @param product  the product being purchased
+     * @return the final price after discount, in cents
+     */
+    public long applyDiscountCents(Customer customer, Product product) {
+        Pipeline pipeline = pipelineFor(product.getCategory());
+        Discount[] rules = pipeline.hasVipRules && VipStatus.isVip(customer) ? pipeline.vip : pipeline.regular;
 
-        if (isVipUsingReflection(customer)) {
-            price *= 0.90; // Additional 10% off for VIPs
+        long price = product.getPriceCents();
+        for (Discount rule : rules) {
+            price = rule.applyEligible(customer, product, price);
         }
-
         return price;
     }
 
     /**
-     * Checks if a customer has a @VIP annotation.
-     * <p>
-     * This method uses reflection to access fields marked as VIP and check their values.
+     * Prices a whole cart in one pass.
+     *
+     * Each line starts from its own unit price ({@link OrderItem#getUnitPriceCents()}),
+     * goes through the line rules like {@link #applyDiscountCents(Customer, Product)}
+     * does, and is then multiplied by its quantity. The customer's VIP status is checked
+     * once per cart, and the rules for a category are looked up once for each run of
+     * lines in that category. The cart rules are then applied to the sum of the lines.
      *
-     * @param customer the customer to inspect
-     * @return true if VIP, false otherwise
+     * @param customer the customer buying
+     * @param items the cart lines
+     * @param lineTotalsCents receives each line's discounted total, position by
+     *                        position (at least as long as items), or null if not needed
+     * @return the cart total after line and cart discounts, in cents
      */
-    private boolean isVipUsingReflection(Customer customer) {
-        Class<?> clazz = customer.getClass(); // Get the Customer class
-
-        for (Field field : clazz.getDeclaredFields()) { // Loop through all fields
-            field.setAccessible(true); // Allow access to private fields
-
-            if (field.isAnnotationPresent(VIP.class)) { // Check if @VIP is present
-                try {
-                    Object value = field.get(customer); // Get the value of the field
-                    if (value instanceof Boolean && (Boolean) value) {
-                        return true; // Found a true VIP flag
-                    }
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
-                }
+    public long priceCart(Customer customer, List<OrderItem> items, long[] lineTotalsCents) {
+        int lines = items.size();
+        if (lineTotalsCents != null && lineTotalsCents.length < lines) {
+            throw new IllegalArgumentException("Line totals array is shorter than the cart.");
+        }
+        boolean vip = hasVipRules && VipStatus.isVip(customer);
+
+        String category = null;
+        Discount[] rules = null;
+        long subtotal = 0;
+        for (int i = 0; i < lines; i++) {
+            OrderItem item = items.get(i);
+            Product product = item.getProduct();
+            String lineCategory = product.getCategory();
+            if (rules == null || lineCategory != category) {
+                // A new run of lines: resolve its rules once
+                Pipeline pipeline = pipelineFor(lineCategory);
+                rules = vip ? pipeline.vip : pipeline.regular;
+                category = lineCategory;
+            }
+            long unit = item.getUnitPriceCents();
+            for (Discount rule : rules) {
+                unit = rule.applyEligible(customer, product, unit);
+            }
+            long line = Money.times(unit, item.getQuantity());
+            if (lineTotalsCents != null) {
+                lineTotalsCents[i] = line;
             }
+            subtotal = Money.plus(subtotal, line);
         }
-        return false; // No VIP annotation with true value found
+
+        for (CartDiscount cartRule : cartRules) {
+            subtotal = cartRule.applyDiscount(customer, subtotal);
+        }
+        return subtotal;
     }
 
     /**
-     * Checks if the product qualifies for a category-based discount.
+     * Prices an order's lines and total in one pass (see {@link #priceCart}).
      *
-     * @param product the product to check
-     * @return true if the category matches discount rules
+     * @param order the order to price
+     * @param lineTotalsCents receives each line's discounted total, or null if not needed
+     * @return the order total after line and cart discounts, in cents
      */
-    private boolean isCategoryDiscounted(Product product) {
-        String category = product.getCategory();
-        return category != null && "Shoes".equalsIgnoreCase(category);
+    public long priceOrder(Order order, long[] lineTotalsCents) {
+        return priceCart(order.getCustomer(), order.getItems(), lineTotalsCents);
+    }
+
+    // Returns the rules in the order they are applied
+    public List<Discount> getDiscounts() {
+        return discounts;
     }
 
-}
\ No newline at end of file
+    // Returns the cart rules in the order they are applied
+    public List<CartDiscount> getCartDiscounts() {
+        return cartDiscounts;
+    }
+
+    // Returns the compiled rules for a category, compiling them on first use
+    private Pipeline pipelineFor(String category) {
+        if (category == null) {
+            return uncategorized;
+        }
+        Pipeline pipeline = pipelines.get(category);
+        if (pipeline == null) {
+            pipeline = compile(category);
+            if (pipelines.size() < MAX_CACHED_CATEGORIES) {
+                pipelines.putIfAbsent(category, pipeline);
+            }
+        }
+        return pipeline;
+    }
+
+    // Picks the rules that can apply to a category, keeping their order
+    private Pipeline compile(String category) {
+        List<Discount> regular = new ArrayList<>();
+        List<Discount> vip = new ArrayList<>();
+        for (Discount discount : discounts) {
+            String only = discount.getCategory();
+            if (only != null && (category == null || !only.equalsIgnoreCase(category))) {
+                continue; // Limited to another category
+            }
+            if (!discount.isVipOnly()) {
+                regular.add(discount);
+            }
+            vip.add(discount);
+        }
+        return new Pipeline(regular.toArray(NO_RULES), vip.toArray(NO_RULES));
+    }
+
+    /**
+     * The rules that can apply to one category, for regular and VIP customers.
+     */
+    private static final class Pipeline {
+        final Discount[] regular;
+        final Discount[] vip;
+        final boolean hasVipRules;
+
+        Pipeline(Discount[] regular, Discount[] vip) {
+            this.regular = regular;
+            this.vip = vip;
+            this.hasVipRules = vip.length != regular.length;
+        }
+    }
+}
@@ -0,0 +1,670 @@
+package com.zalando.lite;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Bulk-imports orders from CSV or JSON Lines files, e.g. a marketplace backfill.
+ *
+ * One order per line:
+ * - CSV: {@code customerId,productId,quantity[,productId,quantity...]}
+ *   (a first line that does not start with a number is taken as a header)
+ * - JSONL: {@code {"customerId":101,"items":[{"productId":1,"quantity":2}]}}
+ *   (other fields are ignored)
+ *
+ * The file streams through a three-stage pipeline:
+ * 1. The calling thread reads lines and cuts them into chunks
+ * 2. A thread pool parses each chunk and resolves its customers and products in parallel
+ * 3. The calling thread commits the chunks in file order, each with one
+ *    {@link OrderManager#createOrders(List, List)} call (one stock batch, one journal append)
+ *
+ * Only a fixed number of chunks is in flight at once and only the first rejects are
+ * kept, so memory stays bounded however large the file is. Lines that cannot be
+ * parsed or reference unknown customers or products, and orders without enough
+ * stock, are rejected with their line number; the import carries on with the rest.
+ *
+ * Concepts reinforced:
+ * - Java IO and string parsing (Bonus 6)
+ * - Producer / consumer pipelines with an ExecutorService
+ * - Keeping order while working in parallel (commit in submission order)
+ * - Back-pressure to bound memory
+ */
+public class FileOrderLoader {
+
+    /**
+     * Supported file formats.
+     */
+    public enum Format {
+        CSV,
+        JSONL;
+
+        /**
+         * Guesses the format from a file name: {@code .jsonl}, {@code .ndjson} and
+         * {@code .json} are JSON Lines, everything else is CSV.
+         *
+         * @param file the file
+         * @return its format
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    // Lines per chunk
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    // Rejects kept in the report (the rest are only counted)
+    public static final int DEFAULT_MAX_REJECTS_KEPT = 1000;
+
+    private final OrderManager orderManager;
+    private final InventoryManager inventoryManager;
+
+    // Looks customers up by ID; called from several threads at once
+    private final IntFunction<Customer> customers;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int maxRejectsKept = DEFAULT_MAX_REJECTS_KEPT;
+
+    /**
+     * Creates a loader that resolves customers from the customers registered right now.
+     *
+     * @param orderManager where the orders are placed
+     * @param inventoryManager where products are looked up
+     * @param customerManager the registered customers (copied, so later registrations are not seen)
+     */
+    public FileOrderLoader(OrderManager orderManager, InventoryManager inventoryManager, CustomerManager customerManager) {
+        this(orderManager, inventoryManager, lookup(customerManager.getAllCustomers()));
+    }
+
+    /**
+     * Creates a loader with a custom customer lookup.
+     *
+     * @param orderManager where the orders are placed
+     * @param inventoryManager where products are looked up
+     * @param customers returns the customer with an ID, or null; must be safe to call from several threads
+     */
+    public FileOrderLoader(OrderManager orderManager, InventoryManager inventoryManager, IntFunction<Customer> customers) {
+        this.orderManager = orderManager;
+        this.inventoryManager = inventoryManager;
+        this.customers = customers;
+    }
+
+    // Returns the number of lines per chunk
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    // Sets the number of lines per chunk (also the number of orders per stock batch)
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    // Returns the number of threads parsing and resolving chunks
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Sets the number of threads parsing and resolving chunks
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    // Sets how many rejects the report keeps with their line number and reason
+    public void setMaxRejectsKept(int maxRejectsKept) {
+        if (maxRejectsKept < 0) {
+            throw new IllegalArgumentException("Max rejects kept must not be negative.");
+        }
+        this.maxRejectsKept = maxRejectsKept;
+    }
+
+    /**
+     * Imports a file, guessing its format from the file name.
+     *
+     * @param file the file to import (UTF-8)
+     * @return what was imported and rejected
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport load(Path file) throws IOException {
+        return load(file, Format.of(file));
+    }
+
+    /**
+     * Imports a file in the given format.
+     *
+     * @param file the file to import (UTF-8)
+     * @param format its format
+     * @return what was imported and rejected
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport load(Path file, Format format) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader, format);
+        }
+    }
+
+    /**
+     * Imports orders from a reader, one per line.
+     *
+     * @param reader where to read lines from (not closed)
+     * @param format the line format
+     * @return what was imported and rejected
+     * @throws IOException if reading fails
+     */
+    public ImportReport load(BufferedReader reader, Format format) throws IOException {
+        ImportReport report = new ImportReport(maxRejectsKept);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "order-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Chunks being parsed, oldest first; at most two per thread, which bounds memory
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = parallelism * 2;
+        long begin = System.nanoTime();
+        try {
+            long lineNumber = 0;
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                String[] lines = new String[chunkSize];
+                int count = 0;
+                String line;
+                while (count < chunkSize && (line = reader.readLine()) != null) {
+                    lines[count++] = line;
+                }
+                endOfFile = count < chunkSize;
+                if (count > 0) {
+                    while (inFlight.size() >= maxInFlight) {
+                        commit(inFlight.poll(), report); // Back-pressure: wait for the oldest chunk
+                    }
+                    int lineCount = count;
+                    long firstLine = lineNumber + 1;
+                    inFlight.add(pool.submit(() -> resolve(lines, lineCount, firstLine, format)));
+                    lineNumber += count;
+                }
+                while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+                    commit(inFlight.poll(), report);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                commit(inFlight.poll(), report);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        report.elapsedNanos = System.nanoTime() - begin;
+        return report;
+    }
+
+    // Stage 2 (pool threads): parses lines and resolves their customers and products
+    private Chunk resolve(String[] lines, int count, long firstLine, Format format) {
+        Chunk chunk = new Chunk(count);
+        ParsedLine parsed = new ParsedLine();
+        for (int i = 0; i < count; i++) {
+            String line = lines[i];
+            long lineNumber = firstLine + i;
+            lines[i] = null; // Let the text go as soon as it is parsed
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (format == Format.CSV && lineNumber == 1 && !startsWithNumber(line)) {
+                continue; // Header row
+            }
+            chunk.lines++;
+            try {
+                if (format == Format.CSV) {
+                    parseCsv(line, parsed);
+                } else {
+                    new JsonLineParser(line).parse(parsed);
+                }
+            } catch (IllegalArgumentException e) {
+                chunk.rejects.add(new Reject(lineNumber, "Malformed line: " + e.getMessage()));
+                continue;
+            }
+            if (parsed.count > OrderJournal.MAX_LINES) {
+                chunk.rejects.add(new Reject(lineNumber,
+                        "Too many items: " + parsed.count + " (at most " + OrderJournal.MAX_LINES + ")"));
+                continue;
+            }
+
+            Customer customer = customers.apply(parsed.customerId);
+            if (customer == null) {
+                chunk.rejects.add(new Reject(lineNumber, "Unknown customer " + parsed.customerId));
+                continue;
+            }
+            List<OrderItem> items = new ArrayList<>(parsed.count);
+            String problem = null;
+            for (int item = 0; item < parsed.count && problem == null; item++) {
+                Product product = inventoryManager.findProductById(parsed.productIds[item]);
+                if (product == null) {
+                    problem = "Unknown product " + parsed.productIds[item];
+                } else if (parsed.quantities[item] <= 0) {
+                    problem = "Quantity must be positive for product " + parsed.productIds[item];
+                } else {
+                    items.add(new OrderItem(product, parsed.quantities[item]));
+                }
+            }
+            if (problem != null) {
+                chunk.rejects.add(new Reject(lineNumber, problem));
+                continue;
+            }
+            chunk.customers.add(customer);
+            chunk.itemLists.add(items);
+            chunk.lineNumbers[chunk.customers.size() - 1] = lineNumber;
+        }
+        return chunk;
+    }
+
+    // Stage 3 (calling thread): places a chunk's orders, in file order
+    private void commit(Future<Chunk> future, ImportReport report) {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Order import was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Order import failed: " + e.getCause(), e.getCause());
+        }
+        report.linesRead += chunk.lines;
+        List<Reject> rejects = new ArrayList<>(chunk.rejects);
+        if (!chunk.customers.isEmpty()) {
+            List<Order> created = orderManager.createOrders(chunk.customers, chunk.itemLists);
+            for (int i = 0; i < created.size(); i++) {
+                if (created.get(i) == null) {
+                    rejects.add(new Reject(chunk.lineNumbers[i], "Insufficient stock"));
+                } else {
+                    report.ordersCreated++;
+                }
+            }
+        }
+        rejects.sort(Comparator.comparingLong(Reject::getLineNumber));
+        for (Reject reject : rejects) {
+            report.reject(reject);
+        }
+    }
+
+    // Parses "customerId,productId,quantity[,productId,quantity...]"
+    static void parseCsv(String line, ParsedLine out) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 3 || fields.length % 2 == 0) {
+            throw new IllegalArgumentException("expected a customer ID followed by product ID and quantity pairs");
+        }
+        out.customerId = parseCsvInt(fields[0]);
+        out.count = 0;
+        for (int i = 1; i < fields.length; i += 2) {
+            out.add(parseCsvInt(fields[i]), parseCsvInt(fields[i + 1]));
+        }
+    }
+
+    private static int parseCsvInt(String field) {
+        String trimmed = field.trim();
+        try {
+            return Integer.parseInt(trimmed);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + trimmed + "' is not a whole number");
+        }
+    }
+
+    private static boolean startsWithNumber(String line) {
+        String trimmed = line.trim();
+        return !trimmed.isEmpty() && (Character.isDigit(trimmed.charAt(0)) || trimmed.charAt(0) == '-');
+    }
+
+    private static IntFunction<Customer> lookup(Map<Integer, Customer> customers) {
+        return customers::get; // A private copy that nobody writes to, so concurrent reads are safe
+    }
+
+    /**
+     * The outcome of an import: counts, rejects and throughput.
+     */
+    public static final class ImportReport {
+
+        private final int maxRejectsKept;
+        private final List<Reject> rejects = new ArrayList<>();
+        private long linesRead;
+        private long ordersCreated;
+        private long rejectedCount;
+        private long elapsedNanos;
+
+        ImportReport(int maxRejectsKept) {
+            this.maxRejectsKept = maxRejectsKept;
+        }
+
+        private void reject(Reject reject) {
+            rejectedCount++;
+            if (rejects.size() < maxRejectsKept) {
+                rejects.add(reject);
+            }
+        }
+
+        // Returns the number of order lines read (blank lines and the header are not counted)
+        public long getLinesRead() {
+            return linesRead;
+        }
+
+        // Returns the number of orders placed
+        public long getOrdersCreated() {
+            return ordersCreated;
+        }
+
+        // Returns the number of rejected lines
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        // Returns the first rejects, in line order (see setMaxRejectsKept)
+        public List<Reject> getRejects() {
+            return Collections.unmodifiableList(rejects);
+        }
+
+        // Returns how long the import took
+        public Duration getElapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+
+        // Returns the sustained import rate over the whole file
+        public double getOrdersPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : ordersCreated * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %,d of %,d orders (%,d rejected) in %d ms, %,.0f orders/s",
+                    ordersCreated, linesRead, rejectedCount, elapsedNanos / 1_000_000, getOrdersPerSecond());
+        }
+    }
+
+    /**
+     * A line that was not imported, and why.
+     */
+    public static final class Reject {
+
+        private final long lineNumber;
+        private final String reason;
+
+        Reject(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        // Returns the 1-based line number in the file
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        // Returns why the line was rejected
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason;
+        }
+    }
+
+    /**
+     * The orders (and rejects) resolved from one chunk of lines.
+     */
+    private static final class Chunk {
+        private final List<Customer> customers;
+        private final List<List<OrderItem>> itemLists;
+        private final long[] lineNumbers;
+        private final List<Reject> rejects = new ArrayList<>();
+        private int lines;
+
+        Chunk(int capacity) {
+            this.customers = new ArrayList<>(capacity);
+            this.itemLists = new ArrayList<>(capacity);
+            this.lineNumbers = new long[capacity];
+        }
+    }
+
+    /**
+     * One parsed line, before products and customers are looked up. Reused per chunk.
+     */
+    static final class ParsedLine {
+        int customerId;
+        int count;
+        int[] productIds = new int[4];
+        int[] quantities = new int[4];
+
+        void add(int productId, int quantity) {
+            if (count == productIds.length) {
+                productIds = Arrays.copyOf(productIds, count * 2);
+                quantities = Arrays.copyOf(quantities, count * 2);
+            }
+            productIds[count] = productId;
+            quantities[count] = quantity;
+            count++;
+        }
+    }
+
+    /**
+     * A small JSON reader for one order object per line. Knows "customerId" and
+     * "items" (objects with "productId" and "quantity"); skips every other value.
+     */
+    static final class JsonLineParser {
+
+        private final String text;
+        private int position;
+
+        JsonLineParser(String text) {
+            this.text = text;
+        }
+
+        void parse(ParsedLine out) {
+            out.count = 0;
+            boolean hasCustomer = false;
+            expect('{');
+            if (!tryConsume('}')) {
+                do {
+                    String key = readString();
+                    expect(':');
+                    if (key.equals("customerId")) {
+                        out.customerId = readInt();
+                        hasCustomer = true;
+                    } else if (key.equals("items")) {
+                        readItems(out);
+                    } else {
+                        skipValue();
+                    }
+                } while (tryConsume(','));
+                expect('}');
+            }
+            skipWhitespace();
+            if (position < text.length()) {
+                throw new IllegalArgumentException("unexpected text after the order object");
+            }
+            if (!hasCustomer) {
+                throw new IllegalArgumentException("missing \"customerId\"");
+            }
+            if (out.count == 0) {
+                throw new IllegalArgumentException("an order needs at least one item");
+            }
+        }
+
+        private void readItems(ParsedLine out) {
+            expect('[');
+            if (tryConsume(']')) {
+                return;
+            }
+            do {
+                Integer productId = null;
+                Integer quantity = null;
+                expect('{');
+                if (!tryConsume('}')) {
+                    do {
+                        String key = readString();
+                        expect(':');
+                        if (key.equals("productId")) {
+                            productId = readInt();
+                        } else if (key.equals("quantity")) {
+                            quantity = readInt();
+                        } else {
+                            skipValue();
+                        }
+                    } while (tryConsume(','));
+                    expect('}');
+                }
+                if (productId == null || quantity == null) {
+                    throw new IllegalArgumentException("every item needs \"productId\" and \"quantity\"");
+                }
+                out.add(productId, quantity);
+            } while (tryConsume(','));
+            expect(']');
+        }
+
+        private int readInt() {
+            skipWhitespace();
+            int start = position;
+            if (position < text.length() && text.charAt(position) == '-') {
+                position++;
+            }
+            while (position < text.length() && Character.isDigit(text.charAt(position))) {
+                position++;
+            }
+            if (position < text.length() && ".eE".indexOf(text.charAt(position)) >= 0) {
+                throw new IllegalArgumentException("expected a whole number at column " + (start + 1));
+            }
+            try {
+                return Integer.parseInt(text.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("expected a whole number at column " + (start + 1));
+            }
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = null;
+            int start = position;
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value == null ? text.substring(start, position - 1) : value.toString();
+                }
+                if (c == '\\') {
+                    if (value == null) {
+                        value = new StringBuilder(text.substring(start, position - 1));
+                    }
+                    value.append(unescape());
+                } else if (value != null) {
+                    value.append(c);
+                }
+            }
+            throw new IllegalArgumentException("unterminated string");
+        }
+
+        private char unescape() {
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("unterminated string");
+            }
+            char c = text.charAt(position++);
+            switch (c) {
+                case 'b': return '\b';
+                case 'f': return '\f';
+                case 'n': return '\n';
+                case 'r': return '\r';
+                case 't': return '\t';
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw new IllegalArgumentException("bad \\u escape");
+                    }
+                    try {
+                        char decoded = (char) Integer.parseInt(text.substring(position, position + 4), 16);
+                        position += 4;
+                        return decoded;
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("bad \\u escape");
+                    }
+                default: return c; // \" \\ \/
+            }
+        }
+
+        // Skips a string, number, literal, object or array
+        private void skipValue() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("missing value");
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                int depth = 0;
+                do {
+                    c = text.charAt(position);
+                    if (c == '"') {
+                        readString();
+                        continue;
+                    }
+                    if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                    position++;
+                } while (depth > 0 && position < text.length());
+                if (depth > 0) {
+                    throw new IllegalArgumentException("unterminated " + (c == '{' ? "object" : "array"));
+                }
+            } else {
+                int start = position;
+                while (position < text.length() && ",}] \t".indexOf(text.charAt(position)) < 0) {
+                    position++;
+                }
+                if (start == position) {
+                    throw new IllegalArgumentException("missing value at column " + (start + 1));
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            if (!tryConsume(expected)) {
+                throw new IllegalArgumentException("expected '" + expected + "' at column " + (position + 1));
+            }
+        }
+
+        private boolean tryConsume(char expected) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.zalando.lite;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers recent idempotency keys and the order each one produced, so a retried
+ * checkout returns the original order instead of placing (and charging) a second one.
+ *
+ * Keys are not stored as strings. Each key is reduced to a 64-bit fingerprint
+ * ({@link #fingerprint(int, String)}), and entries live in three primitive arrays
+ * (fingerprint, order ID, expiry), about 20 bytes per key. Fifty million keys fit in
+ * roughly 1 GB, with no objects for the garbage collector to trace.
+ *
+ * The cache is set-associative. A fingerprint can only live in one small set of 8 slots,
+ * so a lookup checks at most 8 entries. When a set is full, the entry closest to
+ * expiry is replaced, which keeps the cache bounded. Sets are spread over up to 64
+ * stripes, each with its own lock, so checkouts with different keys rarely wait for
+ * each other.
+ *
+ * While the first request for a key is still running, its entry is marked pending.
+ * Concurrent retries with the same key wait until it completes, then return its order.
+ *
+ * Concepts reinforced:
+ * - Hashing keys to compact fingerprints
+ * - Set-associative caches with bounded memory
+ * - Lock striping with Conditions
+ */
+public class IdempotencyCache {
+
+    // Returned by claim() when the caller now owns the key
+    public static final long ABSENT = 0L;
+
+    // Order ID slot of a key whose order is still being placed
+    private static final long PENDING = -1L;
+
+    // Empty fingerprint slot (fingerprints are never 0)
+    private static final long EMPTY = 0L;
+
+    private static final int WAYS = 8;
+    private static final int MAX_STRIPES = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int setMask;
+    private final int capacity;
+    private final Duration ttl;
+    private final int ttlSeconds;
+    private final LongSupplier millisClock;
+    private final long startMillis;
+
+    /**
+     * Creates a cache for about {@code capacity} keys, each kept for {@code ttl}.
+     *
+     * @param capacity the number of keys to keep (rounded up to a power of two)
+     * @param ttl how long a key is remembered after its order was placed
+     */
+    public IdempotencyCache(int capacity, Duration ttl) {
+        this(capacity, ttl, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a cache with a custom clock (mainly for tests).
+     *
+     * @param capacity the number of keys to keep (rounded up to a power of two)
+     * @param ttl how long a key is remembered after its order was placed (whole seconds)
+     * @param millisClock the wall clock in milliseconds
+     */
+    public IdempotencyCache(int capacity, Duration ttl, LongSupplier millisClock) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30 keys.");
+        }
+        if (ttl.isNegative() || ttl.isZero() || ttl.getSeconds() >= Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Time to live must be positive and under 34 years.");
+        }
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS) * 2 - 1);
+        int stripeCount = Math.min(MAX_STRIPES, sets);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(sets / stripeCount * WAYS);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.setMask = sets / stripeCount - 1;
+        this.capacity = sets * WAYS;
+        this.ttl = ttl;
+        this.ttlSeconds = (int) Math.max(1, ttl.getSeconds() + (ttl.getNano() > 0 ? 1 : 0));
+        this.millisClock = millisClock;
+        this.startMillis = millisClock.getAsLong();
+    }
+
+    /**
+     * Reduces a customer's idempotency key to a 64-bit fingerprint.
+     *
+     * The customer ID is part of the fingerprint, so two customers using the same
+     * key never see each other's orders.
+     *
+     * @param customerId the customer sending the key
+     * @param idempotencyKey the key chosen by the client
+     * @return a fingerprint, never 0
+     */
+    public static long fingerprint(int customerId, String idempotencyKey) {
+        // Spread the customer ID over all bits, then FNV-1a over the key's characters
+        long h = 0xcbf29ce484222325L + customerId * 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < idempotencyKey.length(); i++) {
+            h = (h ^ idempotencyKey.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33; // Final mix, so every bit depends on every character
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1 : h;
+    }
+
+    /**
+     * Claims a key for a new order, or returns the order it already produced.
+     *
+     * If another request with the same key is still placing its order, this waits
+     * until that request calls {@link #complete} or {@link #release}.
+     *
+     * @param key a fingerprint from {@link #fingerprint(int, String)}
+     * @return the ID of the order placed with this key, or {@link #ABSENT} if the
+     *         caller now owns the key and must call complete or release
+     */
+    public long claim(long key) {
+        Stripe stripe = stripeFor(key);
+        int base = setBase(key);
+        stripe.lock.lock();
+        try {
+            while (true) {
+                int now = now();
+                int slot = stripe.find(base, key);
+                if (slot >= 0 && stripe.orderIds[slot] == PENDING) {
+                    stripe.resolved.awaitUninterruptibly();
+                    continue;
+                }
+                if (slot >= 0 && stripe.expiries[slot] - now > 0) {
+                    return stripe.orderIds[slot];
+                }
+                if (slot < 0) {
+                    slot = stripe.victim(base, now);
+                }
+                if (slot < 0) {
+                    // Every slot of the set is pending: wait for one to finish
+                    stripe.resolved.awaitUninterruptibly();
+                    continue;
+                }
+                stripe.fingerprints[slot] = key;
+                stripe.orderIds[slot] = PENDING;
+                stripe.expiries[slot] = now + ttlSeconds;
+                return ABSENT;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Records the order placed for a claimed key and wakes up waiting retries.
+     *
+     * @param key the claimed fingerprint
+     * @param orderId the ID of the order placed
+     */
+    public void complete(long key, long orderId) {
+        if (orderId <= 0) {
+            throw new IllegalArgumentException("Order IDs are positive.");
+        }
+        resolve(key, orderId);
+    }
+
+    /**
+     * Forgets a claimed key whose order was not placed, so a retry can try again.
+     *
+     * @param key the claimed fingerprint
+     */
+    public void release(long key) {
+        resolve(key, ABSENT);
+    }
+
+    /**
+     * Returns the order ID remembered for a key, without claiming it.
+     *
+     * @param key a fingerprint
+     * @return the order ID, or {@link #ABSENT} if unknown, expired or still pending
+     */
+    public long find(long key) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.find(setBase(key), key);
+            if (slot < 0 || stripe.orderIds[slot] == PENDING || stripe.expiries[slot] - now() <= 0) {
+                return ABSENT;
+            }
+            return stripe.orderIds[slot];
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Returns the number of keys the cache can hold
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Returns how long keys are remembered
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    private void resolve(long key, long orderId) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.find(setBase(key), key);
+            if (slot < 0 || stripe.orderIds[slot] != PENDING) {
+                throw new IllegalStateException("Key was not claimed.");
+            }
+            if (orderId == ABSENT) {
+                stripe.fingerprints[slot] = EMPTY;
+            } else {
+                stripe.orderIds[slot] = orderId;
+                stripe.expiries[slot] = now() + ttlSeconds;
+            }
+            stripe.resolved.signalAll();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripeFor(long key) {
+        return stripes[(int) (key >>> 32) & stripeMask];
+    }
+
+    // First slot of the key's set within its stripe
+    private int setBase(long key) {
+        return ((int) key & setMask) * WAYS;
+    }
+
+    // Seconds since the cache was created; compared with overflow-safe subtraction
+    private int now() {
+        return (int) ((millisClock.getAsLong() - startMillis) / 1000);
+    }
+
+    /**
+     * One lock and the slots of the sets that belong to it.
+     */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition resolved = lock.newCondition();
+        final long[] fingerprints;
+        final long[] orderIds;
+        final int[] expiries;
+
+        Stripe(int slots) {
+            fingerprints = new long[slots];
+            orderIds = new long[slots];
+            expiries = new int[slots];
+        }
+
+        // Slot holding the key, expired or not, or -1
+        int find(int base, long key) {
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (fingerprints[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        // An empty or expired slot, else the one closest to expiry; never a pending one
+        int victim(int base, int now) {
+            int victim = -1;
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (fingerprints[slot] == EMPTY) {
+                    return slot;
+                }
+                if (orderIds[slot] == PENDING) {
+                    continue;
+                }
+                if (expiries[slot] - now <= 0) {
+                    return slot;
+                }
+                if (victim < 0 || expiries[slot] - expiries[victim] < 0) {
+                    victim = slot;
+                }
+            }
+            return victim;
+        }
+    }
+}
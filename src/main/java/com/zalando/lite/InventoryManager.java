@@ -1,7 +1,20 @@
 package com.zalando.lite;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Manages the store's inventory by storing and modifying products.
@@ -9,88 +22,768 @@ import java.util.List;
  * This class provides functionality to:
  * - Add products to the inventory
  * - Retrieve a product by its ID
- * - List all products
+ * - List all products (as a copy, page by page, or as a stream)
+ * - Query products by category and size
+ * - Query products by price range, and the cheapest or most expensive products
+ * - Search product names and categories by keyword
  * - Update product stock when purchases are made
+ * - Apply batches of stock changes all-or-nothing
+ * - Hold stock for a customer during checkout (time-limited reservations)
+ * - Publish stock changes (and low-stock alerts) to subscribers
+ *
+ * Products are stored in a {@link ProductIndex}, so lookups by ID take constant
+ * time instead of scanning the whole catalog on every order line. A {@link CatalogIndex}
+ * answers category and size queries, and a {@link PriceIndex} answers price queries.
+ * Both are updated whenever a stored product's category, sizes or price are replaced.
+ * A {@link SearchIndex} answers keyword searches the same way, following name and
+ * category changes.
+ *
+ * Stock updates are thread-safe: each product's stock is its own lock-free counter,
+ * so concurrent checkouts never oversell. Catalog changes (adding or removing
+ * products) are expected to happen during setup or be synchronized by the caller.
+ *
+ * Reservations take their units out of stock immediately. Holds that are neither
+ * committed nor released are handed back by a {@link TimerWheel}, which is advanced
+ * on every {@link #reserve} call and by {@link #expireReservations()}.
+ *
+ * Every stock change made through this manager is published on a {@link StockEventBus}
+ * (only while someone is subscribed). Publishing never blocks, so a slow subscriber
+ * cannot hold up a checkout.
  *
  * It acts as a middle layer between the product data and other services
  * such as order creation or delivery processing.
  *
  * Concepts reinforced:
  * - Collection handling
- * - Looping and search logic
+ * - Hash-based lookup
  * - Data mutation (stock updates)
  */
 public class InventoryManager {
 
-    // Stores all products currently available in the inventory
-    private List<Product> products;
+    // Stores all products currently available in the inventory, keyed by ID
+    private ProductIndex products;
+
+    // Secondary indexes for category and size queries
+    private CatalogIndex catalogIndex;
+
+    // Sorted price index for range and top-N price queries
+    private PriceIndex priceIndex;
+
+    // Full-text index over product names and categories
+    private SearchIndex searchIndex;
+
+    // Keeps the secondary indexes in sync when a stored product changes
+    private final ProductListener indexUpdater = new ProductListener() {
+        @Override
+        public void nameChanged(Product product, String oldName) {
+            searchIndex.update(product.getId(), oldName, product.getCategory(),
+                    product.getName(), product.getCategory());
+        }
+
+        @Override
+        public void categoryChanged(Product product, String oldCategory) {
+            catalogIndex.categoryChanged(product, oldCategory);
+            priceIndex.categoryChanged(product, oldCategory);
+            searchIndex.update(product.getId(), product.getName(), oldCategory,
+                    product.getName(), product.getCategory());
+        }
+
+        @Override
+        public void priceChanged(Product product, long oldPriceCents) {
+            priceIndex.priceChanged(product, oldPriceCents);
+        }
+
+        @Override
+        public void sizesChanged(Product product, List<String> oldSizes) {
+            catalogIndex.sizesChanged(product, oldSizes);
+        }
+    };
+
+    // Length of one reservation timer tick (expiry precision)
+    private static final long RESERVATION_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // Buckets in the reservation timer wheel (one turn = about 100 seconds)
+    private static final int RESERVATION_WHEEL_SIZE = 1024;
+
+    // Pending stock holds, keyed by reservation ID
+    private final Map<Long, StockReservation> reservations = new ConcurrentHashMap<>();
+
+    // Expires holds that were neither committed nor released in time
+    private final TimerWheel<StockReservation> reservationTimers;
+
+    // Source of reservation IDs
+    private final AtomicLong nextReservationId = new AtomicLong(1);
+
+    // Holds start and end under the read lock; getStockIncludingHolds() takes the write
+    // lock, so it sees every held unit either in stock or in a pending hold, never both
+    private final StampedLock holdLock = new StampedLock();
+
+    // Number of stock events kept for subscribers that fall behind
+    private static final int STOCK_EVENT_CAPACITY = 8192;
+
+    // Default stock level at or below which a product counts as running low
+    private static final int DEFAULT_LOW_STOCK_THRESHOLD = 5;
 
-    // Constructor to initialize the product list
+    // Stream of stock changes for replenishment and monitoring
+    private final StockEventBus stockEvents = new StockEventBus(STOCK_EVENT_CAPACITY);
+
+    // Stock level at or below which LOW_STOCK events are published
+    private volatile int lowStockThreshold = DEFAULT_LOW_STOCK_THRESHOLD;
+
+    // Constructor to initialize the product index
     public InventoryManager() {
-        this.products  = new ArrayList<>();
+        this(System::nanoTime);
+    }
+
+    /**
+     * Creates an inventory that reads time for reservation expiry from the given clock.
+     *
+     * @param nanoClock nanosecond clock, e.g. {@code System::nanoTime} (tests can pass a fake one)
+     */
+    public InventoryManager(LongSupplier nanoClock) {
+        this(nanoClock, true);
     }
 
     /**
-     * Adds a product to the inventory list.
+     * Creates an inventory, optionally without the heap product index and query indexes.
+     *
+     * A subclass that keeps the catalog somewhere else (such as
+     * {@link MappedInventoryManager}) passes {@code false} and must override every
+     * method that reads or changes the catalog.
+     *
+     * @param nanoClock nanosecond clock for reservation expiry
+     * @param heapCatalog whether to allocate the heap product index and query indexes
+     */
+    protected InventoryManager(LongSupplier nanoClock, boolean heapCatalog) {
+        if (heapCatalog) {
+            this.products = new ProductIndex();
+            this.catalogIndex = new CatalogIndex();
+            this.priceIndex = new PriceIndex();
+            this.searchIndex = new SearchIndex();
+        }
+        this.reservationTimers = new TimerWheel<>(RESERVATION_TICK_NANOS, RESERVATION_WHEEL_SIZE, nanoClock);
+    }
+
+    /**
+     * Adds a product to the inventory.
      *
      * This simulates product registration or stock restocking.
+     * A product with an ID that is already present replaces the old entry.
      *
      * @param product the product to add to the inventory
      */
     public void addProduct(Product product) {
-        products.add(product);
+        if (product == null) {
+            return;
+        }
+        Product previous = products.put(product);
+        if (previous != null) {
+            unindex(previous);
+        }
+        catalogIndex.add(product);
+        priceIndex.add(product);
+        searchIndex.add(product.getId(), product.getName(), product.getCategory());
+        product.setListener(indexUpdater);
+    }
+
+    /**
+     * Removes a product from the inventory.
+     *
+     * @param id the ID of the product to remove
+     * @return the removed product, or null if not found
+     */
+    public Product removeProduct(int id) {
+        Product removed = products.remove(id);
+        if (removed != null) {
+            unindex(removed);
+        }
+        return removed;
+    }
+
+    // Drops a product from the secondary indexes and stops listening to it
+    private void unindex(Product product) {
+        product.setListener(null);
+        catalogIndex.remove(product);
+        priceIndex.remove(product);
+        searchIndex.remove(product.getId(), product.getName(), product.getCategory());
     }
 
     /**
      * Finds a product using its ID.
      *
-     * Performs a linear search through the list to locate the product.
+     * Uses the hash index, so the cost does not grow with the catalog size.
      *
      * @param id the ID of the product to find
      * @return the matching product, or null if not found
      */
     public Product findProductById(int id) {
-        for(Product product : products){
-            if(product.getId() == id) {
-                return product;
-            }
-        }
-        return null;
+        return products.get(id);
     }
 
     /**
-     * Lists all products in the inventory.
+     * Lists all products in the inventory, in the order they were added.
      *
      * Useful for browsing, displaying, or admin use cases.
      *
      * @return list of all products
      */
     public List<Product> listAllProducts() {
-        return new ArrayList<>(products);    //returning a copy of list of products
+        return products.toList();    //returning a copy of list of products
+    }
+
+    // Returns the number of products in the catalog
+    public int getProductCount() {
+        return products.size();
+    }
+
+    /**
+     * Returns one page of the catalog, in the order products were added.
+     *
+     * Unlike {@link #listAllProducts()} this only copies the requested page.
+     * Passing {@link ProductPage#END} returns an empty page; a cursor that does not fit
+     * the catalog (stale or made up) continues from the nearest valid position.
+     *
+     * @param cursor {@link ProductPage#FIRST}, or the next cursor of the previous page
+     * @param pageSize maximum number of products on the page
+     * @return the page and the cursor for the next one
+     */
+    public ProductPage listProducts(long cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        List<Product> page = new ArrayList<>(pageSize);
+        long next = products.page(cursor, pageSize, page);
+        return new ProductPage(page, next);
+    }
+
+    /**
+     * Returns a spliterator over the catalog that never copies it.
+     * It splits evenly, so parallel streams can use every core.
+     *
+     * @return a spliterator over all products, in the order they were added
+     */
+    public Spliterator<Product> productSpliterator() {
+        return products.spliterator();
+    }
+
+    /**
+     * Streams the catalog without copying it.
+     * Call {@code .parallel()} on the result to process a large catalog on all cores.
+     *
+     * @return a sequential stream of all products
+     */
+    public Stream<Product> streamProducts() {
+        return StreamSupport.stream(productSpliterator(), false);
+    }
+
+    /**
+     * Finds all products in a category (case-insensitive).
+     *
+     * Backed by an index, so the cost depends on the number of matches,
+     * not on the size of the catalog.
+     *
+     * @param category the category, e.g. "Shoes"
+     * @return matching products in the order they were added
+     */
+    public List<Product> findByCategory(String category) {
+        return catalogIndex.findByCategory(category);
+    }
+
+    /**
+     * Finds all products offered in a size (case-insensitive).
+     *
+     * @param size the size label, e.g. "M"
+     * @return matching products in the order they were added
+     */
+    public List<Product> findBySize(String size) {
+        return catalogIndex.findBySize(size);
+    }
+
+    /**
+     * Finds all products in a category that are offered in a size.
+     *
+     * @param category the category, e.g. "Shoes"
+     * @param size the size label, e.g. "M"
+     * @return matching products
+     */
+    public List<Product> findByCategoryAndSize(String category, String size) {
+        return catalogIndex.findByCategoryAndSize(category, size);
+    }
+
+    /**
+     * Finds all products priced between {@code min} and {@code max} (inclusive).
+     *
+     * @param min the lowest price to include
+     * @param max the highest price to include
+     * @return matching products, cheapest first
+     */
+    public List<Product> findByPriceRange(double min, double max) {
+        return findByPriceRange(null, min, max);
+    }
+
+    /**
+     * Finds the products in a category priced between {@code min} and {@code max} (inclusive).
+     *
+     * Walks only the matching part of the category's price tree: O(log N + k).
+     *
+     * @param category the category, e.g. "Shoes" (null for all categories)
+     * @param min the lowest price to include
+     * @param max the highest price to include
+     * @return matching products, cheapest first
+     */
+    public List<Product> findByPriceRange(String category, double min, double max) {
+        return priceIndex.range(category, Money.ofMajor(min), Money.ofMajor(max));
+    }
+
+    // Returns up to limit of the cheapest products in the whole catalog
+    public List<Product> findCheapest(int limit) {
+        return findCheapest(null, limit);
+    }
+
+    /**
+     * Finds the cheapest products in a category.
+     *
+     * @param category the category, e.g. "Shoes" (null for all categories)
+     * @param limit the maximum number of products to return
+     * @return up to {@code limit} products, cheapest first
+     */
+    public List<Product> findCheapest(String category, int limit) {
+        return priceIndex.cheapest(category, limit);
+    }
+
+    // Returns up to limit of the most expensive products in the whole catalog
+    public List<Product> findMostExpensive(int limit) {
+        return findMostExpensive(null, limit);
+    }
+
+    /**
+     * Finds the most expensive products in a category.
+     *
+     * @param category the category, e.g. "Shoes" (null for all categories)
+     * @param limit the maximum number of products to return
+     * @return up to {@code limit} products, most expensive first
+     */
+    public List<Product> findMostExpensive(String category, int limit) {
+        return priceIndex.mostExpensive(category, limit);
+    }
+
+    /**
+     * Searches product names and categories for any of the words in the query.
+     *
+     * @param query free text, e.g. "leather jacket"
+     * @return matching products, those matching the most words first
+     */
+    public List<Product> search(String query) {
+        return search(query, SearchIndex.Match.ANY, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches product names and categories by keyword.
+     *
+     * Words are matched whole and case-insensitively. Only the postings lists
+     * of the query words are read, never the catalog.
+     *
+     * @param query free text, e.g. "leather jacket"
+     * @param match {@code ALL} to require every word, {@code ANY} for at least one
+     * @param limit the maximum number of products to return
+     * @return matching products, those matching the most words first (then by ID)
+     */
+    public List<Product> search(String query, SearchIndex.Match match, int limit) {
+        int[] ids = searchIndex.search(query, match, limit);
+        List<Product> results = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Product product = products.get(id);
+            if (product != null) {
+                results.add(product);
+            }
+        }
+        return results;
     }
 
     /**
      * Reduces the stock of a product after a purchase.
      *
-     * Ensures that stock does not fall below zero.
+     * Ensures that stock does not fall below zero. The check and the update happen
+     * in one compare-and-set on the product, so this is safe to call from many
+     * checkout threads at once without a global lock.
      *
      * @param productId ID of the product to reduce
-     * @param quantity amount to subtract
+     * @param quantity amount to subtract, must be positive
      * @return true if successful, false if insufficient stock or not found
      */
     public boolean reduceStock(int productId, int quantity) {
         Product product = findProductById(productId);
 
-        if (!isProductAvailable(productId)) {
-            return false; // Product doesn't exist or has zero stock
+        if (product == null || quantity <= 0) {
+            return false; // Product doesn't exist or nothing to reduce
+        }
+
+        int remaining = product.tryReduceStock(quantity);
+        if (remaining < 0) {
+            return false; // Not enough stock
+        }
+        stockChanged(productId, remaining + quantity, remaining);
+        return true;
+    }
+
+    /**
+     * Applies a batch of stock changes all-or-nothing.
+     *
+     * Lines for the same product are combined first, then products are processed
+     * in ascending ID order (a fixed order, so two batches can never wait on each
+     * other). Net decrements are applied first with compare-and-set; if one of them
+     * does not have enough stock, the decrements already made are put back and
+     * nothing else is touched. Net increments are applied last, because they
+     * cannot fail.
+     *
+     * Other threads may briefly see stock that is about to be rolled back, but a
+     * rejected batch never leaves any stock changed.
+     *
+     * @param adjustments the lines to apply, e.g. a restock feed or an order's lines
+     * @return per-line statuses and whether the batch was applied
+     */
+    public StockBatchResult applyStockBatch(List<StockAdjustment> adjustments) {
+        int lines = adjustments.size();
+        StockBatchResult.LineStatus[] statuses = new StockBatchResult.LineStatus[lines];
+
+        // Sort line numbers by product ID without boxing: (productId << 32 | line)
+        long[] order = new long[lines];
+        for (int line = 0; line < lines; line++) {
+            order[line] = ((long) adjustments.get(line).getProductId() << 32) | line;
+        }
+        Arrays.sort(order);
+
+        // Resolve each product once and combine its lines into one net delta
+        Product[] groupProducts = new Product[lines];
+        long[] groupDeltas = new long[lines];
+        int[] groupStarts = new int[lines + 1];
+        int groups = 0;
+        boolean failed = false;
+        for (int i = 0; i < lines; ) {
+            int productId = (int) (order[i] >> 32);
+            Product product = findProductById(productId);
+            long delta = 0;
+            groupStarts[groups] = i;
+            for (; i < lines && (int) (order[i] >> 32) == productId; i++) {
+                int line = (int) order[i];
+                delta += adjustments.get(line).getDelta();
+                statuses[line] = product == null
+                        ? StockBatchResult.LineStatus.UNKNOWN_PRODUCT
+                        : StockBatchResult.LineStatus.APPLIED;
+            }
+            if (product == null || delta < Integer.MIN_VALUE || delta > Integer.MAX_VALUE) {
+                failed = true;
+            }
+            groupProducts[groups] = product;
+            groupDeltas[groups] = delta;
+            groups++;
+        }
+        groupStarts[groups] = lines;
+
+        // Take stock out, in ascending product ID order
+        int[] remaining = new int[groups];
+        int applied = 0;
+        for (; !failed && applied < groups; applied++) {
+            long delta = groupDeltas[applied];
+            if (delta < 0 && (remaining[applied] = groupProducts[applied].tryReduceStock((int) -delta)) < 0) {
+                markGroup(statuses, order, groupStarts, applied, StockBatchResult.LineStatus.INSUFFICIENT_STOCK);
+                failed = true;
+                break;
+            }
+        }
+
+        if (failed) {
+            // Put back what was already taken; adding stock cannot fail
+            for (int g = 0; g < applied; g++) {
+                if (groupDeltas[g] < 0) {
+                    groupProducts[g].addStock((int) -groupDeltas[g]);
+                }
+            }
+            for (int line = 0; line < lines; line++) {
+                if (statuses[line] == StockBatchResult.LineStatus.APPLIED) {
+                    statuses[line] = StockBatchResult.LineStatus.ABORTED;
+                }
+            }
+            return new StockBatchResult(false, statuses);
+        }
+
+        // Put stock in, then report the net change of every product
+        for (int g = 0; g < groups; g++) {
+            long delta = groupDeltas[g];
+            if (delta > 0) {
+                remaining[g] = groupProducts[g].addStock((int) delta);
+            }
+            if (delta != 0) {
+                stockChanged(groupProducts[g].getId(), (int) (remaining[g] - delta), remaining[g]);
+            }
+        }
+        return new StockBatchResult(true, statuses);
+    }
+
+    // Sets the status of every line that belongs to one product group
+    private static void markGroup(StockBatchResult.LineStatus[] statuses, long[] order, int[] groupStarts,
+                                  int group, StockBatchResult.LineStatus status) {
+        for (int i = groupStarts[group]; i < groupStarts[group + 1]; i++) {
+            statuses[(int) order[i]] = status;
+        }
+    }
+
+    /**
+     * Holds stock for a customer for a limited time, e.g. while they check out.
+     *
+     * The units are taken out of stock now. They stay sold after {@link #commit(long)},
+     * and go back into stock after {@link #release(long)} or when the hold expires.
+     *
+     * @param productId the product to hold
+     * @param quantity the number of units to hold, must be positive
+     * @param ttl how long the hold lasts
+     * @return the reservation, or null if the product is unknown or out of stock
+     */
+    public StockReservation reserve(int productId, int quantity, Duration ttl) {
+        expireReservations();
+        Product product = findProductById(productId);
+        if (product == null || quantity <= 0) {
+            return null;
+        }
+        long stamp = holdLock.readLock();
+        try {
+            int remaining = product.tryReduceStock(quantity);
+            if (remaining < 0) {
+                return null;
+            }
+            stockChanged(productId, remaining + quantity, remaining);
+            StockReservation reservation = new StockReservation(nextReservationId.getAndIncrement(), product, quantity);
+            // Schedule before publishing, so a commit or release always finds the timeout to cancel
+            reservation.setTimeout(reservationTimers.schedule(reservation, ttl.toNanos()));
+            reservations.put(reservation.getId(), reservation);
+            if (reservation.getStatus() != StockReservation.Status.PENDING) {
+                reservations.remove(reservation.getId()); // Expired before it was published
+            }
+            return reservation;
+        } finally {
+            holdLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Turns a pending hold into a sale; its units stay out of stock.
+     *
+     * @param reservationId the ID returned by {@link #reserve}
+     * @return true if the hold was still pending
+     */
+    public boolean commit(long reservationId) {
+        long stamp = holdLock.readLock();
+        try {
+            StockReservation reservation = reservations.get(reservationId);
+            if (reservation == null || !reservation.finish(StockReservation.Status.COMMITTED)) {
+                return false; // Unknown, already finished, or expired
+            }
+            forget(reservation);
+            return true;
+        } finally {
+            holdLock.unlockRead(stamp);
         }
+    }
 
-        if (product.getStock() >= quantity) {
-            product.setStock(product.getStock() - quantity); // Reduce stock
+    /**
+     * Commits several holds at once, all-or-nothing.
+     *
+     * If one of them is no longer pending, the ones already committed by this call
+     * are put back into stock and false is returned.
+     *
+     * @param reservationIds the IDs returned by {@link #reserve}
+     * @return true if every hold was committed
+     */
+    public boolean commitAll(List<Long> reservationIds) {
+        List<StockReservation> committed = new ArrayList<>(reservationIds.size());
+        long stamp = holdLock.readLock();
+        try {
+            for (int i = 0; i < reservationIds.size(); i++) {
+                StockReservation reservation = reservations.get(reservationIds.get(i));
+                if (reservation == null || !reservation.finish(StockReservation.Status.COMMITTED)) {
+                    // Undo this call's commits, and let go of the holds not reached yet
+                    for (StockReservation undone : committed) {
+                        undone.undoCommit();
+                        restock(undone);
+                    }
+                    for (int j = i + 1; j < reservationIds.size(); j++) {
+                        releaseHeld(reservationIds.get(j));
+                    }
+                    return false;
+                }
+                forget(reservation);
+                committed.add(reservation);
+            }
             return true;
+        } finally {
+            holdLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Cancels a pending hold and puts its units back into stock.
+     *
+     * @param reservationId the ID returned by {@link #reserve}
+     * @return true if the hold was still pending
+     */
+    public boolean release(long reservationId) {
+        long stamp = holdLock.readLock();
+        try {
+            return releaseHeld(reservationId);
+        } finally {
+            holdLock.unlockRead(stamp);
+        }
+    }
+
+    // Releases a hold; the caller holds the read lock (StampedLock is not reentrant)
+    private boolean releaseHeld(long reservationId) {
+        StockReservation reservation = reservations.get(reservationId);
+        if (reservation == null || !reservation.finish(StockReservation.Status.RELEASED)) {
+            return false;
+        }
+        forget(reservation);
+        restock(reservation);
+        return true;
+    }
+
+    /**
+     * Returns a reservation that is still pending.
+     *
+     * @param reservationId the reservation ID
+     * @return the reservation, or null if it is unknown or already finished
+     */
+    public StockReservation getReservation(long reservationId) {
+        return reservations.get(reservationId);
+    }
+
+    /**
+     * Hands expired holds back to stock.
+     *
+     * Called automatically by {@link #reserve}; call it periodically as well if
+     * reservations can sit idle for a long time.
+     *
+     * @return the number of holds that expired
+     */
+    public int expireReservations() {
+        int expired = 0;
+        long stamp = holdLock.readLock();
+        try {
+            for (StockReservation reservation : reservationTimers.advance()) {
+                if (reservation.finish(StockReservation.Status.EXPIRED)) {
+                    reservations.remove(reservation.getId());
+                    restock(reservation);
+                    expired++;
+                }
+            }
+        } finally {
+            holdLock.unlockRead(stamp);
+        }
+        return expired;
+    }
+
+    // Returns the number of holds that are still pending
+    public int getPendingReservationCount() {
+        return reservations.size();
+    }
+
+    /**
+     * Returns each product's stock with the units of its pending holds added back.
+     *
+     * Holds live in memory only, so this is the stock a restart should begin with:
+     * a hold that was never committed must be sellable again. No hold starts or ends
+     * while the levels are read.
+     *
+     * @return stock per product ID, in catalog order
+     */
+    public Map<Integer, Integer> getStockIncludingHolds() {
+        long stamp = holdLock.writeLock();
+        try {
+            Map<Integer, Integer> levels = new LinkedHashMap<>();
+            for (Product product : listAllProducts()) {
+                levels.put(product.getId(), product.getStock());
+            }
+            for (StockReservation reservation : reservations.values()) {
+                levels.computeIfPresent(reservation.getProductId(), (id, stock) -> stock + reservation.getQuantity());
+            }
+            return levels;
+        } finally {
+            holdLock.unlockWrite(stamp);
+        }
+    }
+
+    // Puts a reservation's units back into stock
+    private void restock(StockReservation reservation) {
+        int quantity = reservation.getQuantity();
+        int stock = reservation.getProduct().addStock(quantity);
+        stockChanged(reservation.getProductId(), stock - quantity, stock);
+    }
+
+    // Removes a finished reservation from the pending map and the timer wheel
+    private void forget(StockReservation reservation) {
+        reservations.remove(reservation.getId());
+        TimerWheel.Timeout<StockReservation> timeout = reservation.getTimeout();
+        if (timeout != null) {
+            reservationTimers.cancel(timeout);
+        }
+    }
+
+    /**
+     * Returns the stream of stock changes made through this manager.
+     *
+     * @return the event bus to subscribe to
+     */
+    public StockEventBus getStockEvents() {
+        return stockEvents;
+    }
+
+    /**
+     * Subscribes to stock changes; batches are delivered on a background thread.
+     *
+     * @param handler called with each batch of events, oldest first
+     * @param maxBatch largest batch handed to the handler at once
+     * @return the subscription, with dropped and lag counters (close it when done)
+     */
+    public StockEventBus.Subscription subscribeToStockEvents(Consumer<List<StockEvent>> handler, int maxBatch) {
+        return stockEvents.subscribe(handler, maxBatch);
+    }
+
+    // Returns the stock level at or below which LOW_STOCK events are published
+    public int getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    // Sets the stock level at or below which LOW_STOCK events are published
+    public void setLowStockThreshold(int lowStockThreshold) {
+        if (lowStockThreshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative.");
+        }
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    /**
+     * Publishes a stock change, classified against the low-stock threshold.
+     * Does nothing (and allocates nothing) while nobody is subscribed.
+     *
+     * @param productId the product whose stock changed
+     * @param oldStock stock before the change
+     * @param newStock stock after the change
+     */
+    protected void stockChanged(int productId, int oldStock, int newStock) {
+        if (!stockEvents.hasSubscribers()) {
+            return;
+        }
+        int threshold = lowStockThreshold;
+        StockEvent.Type type;
+        if (newStock <= 0 && oldStock > 0) {
+            type = StockEvent.Type.OUT_OF_STOCK;
+        } else if (newStock <= threshold && oldStock > threshold) {
+            type = StockEvent.Type.LOW_STOCK;
+        } else if (newStock > threshold && oldStock <= threshold) {
+            type = StockEvent.Type.RESTOCKED;
         } else {
-            return false; // Not enough stock
+            type = StockEvent.Type.STOCK_CHANGED;
         }
+        stockEvents.publish(productId, oldStock, newStock, type);
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.zalando.lite;
 
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -22,6 +23,9 @@ import java.util.*;
  */
 public class Main {
 
+    // How long products in the cart stay reserved while the customer checks out
+    private static final Duration CHECKOUT_HOLD = Duration.ofMinutes(10);
+
     public static void main(String[] args) {
 
         Product p1 = new Product(1, "Leather Jacket", "Jackets", 89.99, 10, new ArrayList<>(Arrays.asList("S", "M", "L")));
@@ -72,19 +76,18 @@ public class Main {
                     break;
 
                 case "2":
-                    List<Product> products = inventoryManager.listAllProducts();
-                    if (products.isEmpty()) {
+                    if (inventoryManager.getProductCount() == 0) {
                         System.out.println("🚫 No products available in inventory.");
                     } else {
                         System.out.println("\n🛍️ Available Products:");
-                        for (Product p : products) {
-                            System.out.println(p);  // Ensure your Product class has a good toString() method
-                        }
+                        // Stream the catalog instead of copying it into a new list
+                        inventoryManager.streamProducts().forEach(System.out::println);
                     }
                     break;
 
                 case "3":
                     List<OrderItem> items = new ArrayList<>();
+                    List<Long> holds = new ArrayList<>();
                     do {
                         System.out.println("🛒 Enter product ID:");
                         int productId = Integer.parseInt(scanner.nextLine());
@@ -98,8 +101,9 @@ public class Main {
                         System.out.println("📦 Enter quantity:");
                         int quantity = Integer.parseInt(scanner.nextLine());
 
-                        // 🔍 Check if quantity exceeds stock
-                        if (quantity > product.getStock()) {
+                        // 🔒 Hold the stock right away, so it can't sell out during checkout
+                        StockReservation hold = inventoryManager.reserve(productId, quantity, CHECKOUT_HOLD);
+                        if (hold == null) {
                             System.out.println("❌ Not enough stock. Available: " + product.getStock());
                             System.out.println("Do you want to try again with a smaller quantity? (yes/no)");
                             String retry = scanner.nextLine();
@@ -110,6 +114,7 @@ public class Main {
                                 continue;
                             }
                         }
+                        holds.add(hold.getId());
                         items.add(new OrderItem(product, quantity));
 
                         System.out.println("➕ Add another product? (yes/no)");
@@ -119,23 +124,28 @@ public class Main {
                     customer = customerManager.getCustomerById(currentCustomerId);
 
                     if (customer != null && !items.isEmpty()) {
-                        Order order = orderManager.createOrder(customer, items);
+                        Order order = orderManager.createReservedOrder(customer, items, holds);
+                        if (order == null) {
+                            System.out.println("❌ Your reserved items expired. Please try again.");
+                            break;
+                        }
                         System.out.println("✅ Order created successfully for " + customer.getName() + "!");
 
                         // 🧾 Print order summary
                         System.out.println("🧾 Order Summary:");
-                        double total = 0.0;
-                        for (OrderItem item : items) {
-                            double subTotal = item.getSubtotal();
-                            total += subTotal;
-                            System.out.printf("- %s x %d @ €%.2f each → Subtotal: €%.2f%n",
+                        for (OrderItem item : order.getItems()) {
+                            System.out.printf("- %s x %d @ %s each → Subtotal: %s%n",
                                     item.getProduct().getName(),
                                     item.getQuantity(),
-                                    item.getProduct().getPrice(),
-                                    subTotal);
+                                    Money.format(item.getUnitPriceCents()),
+                                    Money.format(item.getSubtotalCents()));
                         }
-                        System.out.println("Total Cart Value : " + total);
+                        System.out.println("Total Cart Value : " + Money.format(order.calculateTotalCents()));
                     } else {
+                        // Give the held stock back
+                        for (long holdId : holds) {
+                            inventoryManager.release(holdId);
+                        }
                         System.out.println("❌ Order creation failed. Please check your inputs.");
                     }
 
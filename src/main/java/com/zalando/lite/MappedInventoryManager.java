@@ -0,0 +1,969 @@
+package com.zalando.lite;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * An {@link InventoryManager} that keeps the catalog off-heap in a memory-mapped file.
+ *
+ * Instead of one heap object per product (with its own name, category and size
+ * list), every product is a fixed-width 64-byte record in the file. Strings are
+ * stored once in a {@link StringDictionary} next to it and referenced by int refs.
+ * The file also holds an open-addressing hash table from product ID to record,
+ * so reopening a catalog only maps the file and reads its header. The heap product
+ * index and query indexes of {@link InventoryManager} are never allocated.
+ *
+ * Products returned by this manager are lightweight views: their fields are read
+ * from the record when a getter is called, and setters write straight into the
+ * record. Stock is updated in place with an atomic compare-and-set on the mapped
+ * memory, so concurrent checkouts behave exactly like the heap-based manager.
+ *
+ * The mapping, its table size and record count are published together as one
+ * immutable {@link Layout}, so lock-free readers never mix an old buffer with a new
+ * table size. Writes into records (stock updates and view setters) share a lock that
+ * growing the catalog takes exclusively, so no update lands in the old file after its
+ * records were copied.
+ *
+ * Limits: at most {@value #MAX_SIZES} sizes per product, and the catalog file must
+ * stay below 2 GB (a few tens of millions of products). Like the heap-based
+ * manager, adding and removing products must not race with each other.
+ *
+ * Concepts reinforced:
+ * - Memory-mapped files (NIO)
+ * - Fixed-width binary records
+ * - Flyweight / view objects
+ * - Inheritance (overriding the storage of InventoryManager)
+ */
+public class MappedInventoryManager extends InventoryManager implements Closeable {
+
+    // Maximum number of sizes a record can hold
+    public static final int MAX_SIZES = 8;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // File header layout
+    private static final int MAGIC = 0x5A4C4354; // "ZLCT"
+    private static final int VERSION = 2; // 2: prices are long cents (1 stored double euros)
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_COUNT = 12;
+    private static final int H_LIVE = 16;
+    private static final int H_TABLE_SIZE = 20;
+
+    // Record layout (offsets inside one 64-byte record)
+    private static final int RECORD_SIZE = 64;
+    private static final int R_ID = 0;
+    private static final int R_FLAGS = 4;
+    private static final int R_NAME = 8;
+    private static final int R_CATEGORY = 12;
+    private static final int R_PRICE = 16; // long, cents
+    private static final int R_STOCK = 24;
+    private static final int R_SIZE_COUNT = 28;
+    private static final int R_SIZES = 32;
+
+    // Record flag for a live (not removed) product
+    private static final int LIVE = 1;
+
+    // Gives atomic int access (for stock) on the mapped bytes
+    private static final VarHandle INT_VIEW =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final StringDictionary strings;
+    private FileChannel channel;
+
+    // Current mapping and its sizes; replaced as a whole when a product is added or the catalog grows
+    private volatile Layout layout;
+
+    // Live products
+    private volatile int live;
+
+    // Shared by writes into records, taken exclusively while grow() copies them
+    private final StampedLock recordWrites = new StampedLock();
+
+    /**
+     * Opens the catalog stored in the given file, creating an empty one if needed.
+     *
+     * @param file the catalog file; strings are kept in a sibling ".strings" file
+     * @throws IOException if the files cannot be opened or are not a catalog
+     */
+    public MappedInventoryManager(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens the catalog stored in the given file, creating one sized for
+     * {@code initialCapacity} products if it does not exist yet.
+     *
+     * @param file the catalog file; strings are kept in a sibling ".strings" file
+     * @param initialCapacity number of products to make room for in a new catalog
+     * @throws IOException if the files cannot be opened or are not a catalog
+     */
+    public MappedInventoryManager(Path file, int initialCapacity) throws IOException {
+        super(System::nanoTime, false);
+        this.file = file;
+        this.strings = new StringDictionary(file.resolveSibling(file.getFileName() + ".strings"));
+        if (Files.exists(file) && Files.size(file) > 0) {
+            reopen();
+        } else {
+            create(Math.max(16, initialCapacity));
+        }
+    }
+
+    @Override
+    public synchronized void addProduct(Product product) {
+        if (product == null) {
+            return;
+        }
+        Layout current = layout;
+        int record = findRecord(current, product.getId());
+        if (record < 0) {
+            if (current.count == current.capacity) {
+                grow();
+                current = layout;
+            }
+            record = current.count;
+            writeRecord(current, record, product); // Complete before readers can find it
+            insertSlot(current.buffer, current.tableSize, product.getId(), record);
+            live++;
+            layout = current.withCount(record + 1);
+        } else {
+            writeRecord(current, record, product);
+        }
+        writeCounts();
+    }
+
+    @Override
+    public synchronized Product removeProduct(int id) {
+        Layout current = layout;
+        int record = findRecord(current, id);
+        if (record < 0) {
+            return null;
+        }
+        Product removed = snapshot(current, record);
+        current.buffer.putInt(current.recordOffset(record) + R_FLAGS, 0);
+        deleteSlot(current, id);
+        live--;
+        writeCounts();
+        return removed;
+    }
+
+    @Override
+    public Product findProductById(int id) {
+        Layout current = layout;
+        int record = findRecord(current, id);
+        return record < 0 ? null : new MappedProduct(id, record, current.generation);
+    }
+
+    @Override
+    public List<Product> listAllProducts() {
+        List<Product> products = new ArrayList<>(live);
+        Layout current = layout;
+        MappedByteBuffer mapped = current.buffer;
+        for (int record = 0; record < current.count; record++) {
+            int offset = current.recordOffset(record);
+            if (mapped.getInt(offset + R_FLAGS) == LIVE) {
+                products.add(new MappedProduct(mapped.getInt(offset + R_ID), record, current.generation));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Finds products by category with a scan over the records.
+     *
+     * Each distinct category ref is decoded once per query, so the scan itself
+     * only compares ints. Product names are never decoded.
+     */
+    @Override
+    public List<Product> findByCategory(String category) {
+        return scan(category, null);
+    }
+
+    @Override
+    public List<Product> findBySize(String size) {
+        return scan(null, size);
+    }
+
+    @Override
+    public List<Product> findByCategoryAndSize(String category, String size) {
+        return scan(category, size);
+    }
+
+    /**
+     * Finds products by price with a scan over the records, then sorts the matches.
+     * The mapped catalog keeps no price tree, so this is O(N + k log k).
+     */
+    @Override
+    public List<Product> findByPriceRange(String category, double min, double max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Minimum price must not be greater than maximum price.");
+        }
+        long minCents = Money.ofMajor(min);
+        long maxCents = Money.ofMajor(max);
+        List<Product> matches = new ArrayList<>();
+        for (Product product : category == null ? listAllProducts() : scan(category, null)) {
+            long price = product.getPriceCents();
+            if (price >= minCents && price <= maxCents) {
+                matches.add(product);
+            }
+        }
+        matches.sort(PriceIndex.BY_PRICE);
+        return matches;
+    }
+
+    @Override
+    public List<Product> findCheapest(String category, int limit) {
+        return sortedByPrice(category, limit, PriceIndex.BY_PRICE);
+    }
+
+    @Override
+    public List<Product> findMostExpensive(String category, int limit) {
+        return sortedByPrice(category, limit, PriceIndex.BY_PRICE.reversed());
+    }
+
+    /**
+     * Searches names and categories with a scan over the records.
+     *
+     * The mapped catalog keeps no inverted index, so this is O(N). Each distinct
+     * string ref is tokenized at most once per query. Results are ranked the same
+     * way as {@link SearchIndex}: most matched words first, then by ID.
+     */
+    @Override
+    public List<Product> search(String query, SearchIndex.Match match, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative.");
+        }
+        List<String> terms = new ArrayList<>(SearchIndex.tokens(query, null));
+        if (terms.size() > Long.SIZE) {
+            terms = terms.subList(0, Long.SIZE); // One bit per term
+        }
+        List<Product> results = new ArrayList<>();
+        if (terms.isEmpty() || limit == 0) {
+            return results;
+        }
+        long allTerms = terms.size() == Long.SIZE ? -1L : (1L << terms.size()) - 1;
+        Map<Integer, Long> termMasks = new HashMap<>();
+        Layout current = layout;
+        MappedByteBuffer mapped = current.buffer;
+
+        // Each hit is {matched terms, ID, record}
+        List<int[]> hits = new ArrayList<>();
+        for (int record = 0; record < current.count; record++) {
+            int offset = current.recordOffset(record);
+            if (mapped.getInt(offset + R_FLAGS) != LIVE) {
+                continue;
+            }
+            long mask = termMask(termMasks, mapped.getInt(offset + R_NAME), terms)
+                    | termMask(termMasks, mapped.getInt(offset + R_CATEGORY), terms);
+            if (match == SearchIndex.Match.ALL ? mask == allTerms : mask != 0) {
+                hits.add(new int[] {Long.bitCount(mask), mapped.getInt(offset + R_ID), record});
+            }
+        }
+        hits.sort((a, b) -> a[0] != b[0] ? Integer.compare(b[0], a[0]) : Integer.compare(a[1], b[1]));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            results.add(new MappedProduct(hits.get(i)[1], hits.get(i)[2], current.generation));
+        }
+        return results;
+    }
+
+    // Allocation-free fast path: works on the record directly, without a view
+    @Override
+    public boolean reduceStock(int productId, int quantity) {
+        if (quantity <= 0) {
+            return false;
+        }
+        int remaining;
+        long stamp = recordWrites.readLock();
+        try {
+            Layout current = layout;
+            int record = findRecord(current, productId);
+            if (record < 0) {
+                return false;
+            }
+            remaining = reduceStockAt(current.buffer, current.recordOffset(record) + R_STOCK, quantity);
+        } finally {
+            recordWrites.unlockRead(stamp);
+        }
+        if (remaining < 0) {
+            return false;
+        }
+        stockChanged(productId, remaining + quantity, remaining);
+        return true;
+    }
+
+    @Override
+    public boolean isProductAvailable(int productId) {
+        Layout current = layout;
+        int record = findRecord(current, productId);
+        return record >= 0 && (int) INT_VIEW.getVolatile(current.buffer, current.recordOffset(record) + R_STOCK) > 0;
+    }
+
+    @Override
+    public int getProductCount() {
+        return live;
+    }
+
+    @Override
+    public ProductPage listProducts(long cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        if (cursor == ProductPage.END) {
+            return new ProductPage(new ArrayList<>(), ProductPage.END); // Nothing after the last page
+        }
+        Layout current = layout;
+        MappedByteBuffer mapped = current.buffer;
+        int record = resolveCursor(current, cursor);
+        List<Product> page = new ArrayList<>(pageSize);
+        int lastId = 0;
+        while (record < current.count && page.size() < pageSize) {
+            int offset = current.recordOffset(record);
+            if (mapped.getInt(offset + R_FLAGS) == LIVE) {
+                lastId = mapped.getInt(offset + R_ID);
+                page.add(new MappedProduct(lastId, record, current.generation));
+            }
+            record++;
+        }
+        long next = record >= current.count ? ProductPage.END : ProductPage.cursor(record, lastId);
+        return new ProductPage(page, next);
+    }
+
+    @Override
+    public Spliterator<Product> productSpliterator() {
+        Layout current = layout;
+        return new RecordSpliterator(current, 0, current.count);
+    }
+
+    /**
+     * Writes all changes to disk. The operating system flushes mapped pages on
+     * its own as well; call this for a durable checkpoint.
+     */
+    public synchronized void flush() {
+        layout.buffer.force();
+        strings.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+        strings.close();
+    }
+
+    // ---------------------------------------------------------------------
+    // File layout
+
+    private void create(int initialCapacity) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int tableSize = ProductIndex.tableSizeFor(initialCapacity);
+        layout = new Layout(mapLayout(channel, initialCapacity, tableSize), initialCapacity, tableSize, 0, 0);
+        live = 0;
+        writeCounts();
+    }
+
+    private void reopen() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        int version = mapped.getInt(H_VERSION);
+        if (mapped.getInt(H_MAGIC) != MAGIC || version < 1 || version > VERSION) {
+            channel.close();
+            throw new IOException("Not a product catalog file: " + file);
+        }
+        if (version == 1) {
+            channel.close();
+            migratePricesToCents();
+            reopen();
+            return;
+        }
+        live = mapped.getInt(H_LIVE);
+        layout = new Layout(mapped, mapped.getInt(H_CAPACITY), mapped.getInt(H_TABLE_SIZE), mapped.getInt(H_COUNT), 0);
+    }
+
+    /**
+     * Version 1 stored prices as double euros in the same 8 bytes; rewrites them as cents.
+     *
+     * The converted catalog is written to a temporary file and moved over the old one,
+     * like {@link #grow()} does, so a crash midway leaves either the old file or the
+     * new one, never a mix of euros and cents.
+     */
+    private void migratePricesToCents() throws IOException {
+        Path temp = tempFile();
+        Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = tempChannel.map(FileChannel.MapMode.READ_WRITE, 0, tempChannel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            int records = recordsOffset(mapped.getInt(H_TABLE_SIZE));
+            int count = mapped.getInt(H_COUNT);
+            for (int record = 0; record < count; record++) {
+                int offset = records + record * RECORD_SIZE + R_PRICE;
+                mapped.putLong(offset, Money.ofMajor(mapped.getDouble(offset)));
+            }
+            mapped.putInt(H_VERSION, VERSION);
+            mapped.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Where a rewritten catalog is prepared before it replaces the file
+    private Path tempFile() {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    // Maps a file sized for the given layout and writes its header
+    private static MappedByteBuffer mapLayout(FileChannel channel, int capacity, int tableSize) throws IOException {
+        long size = HEADER_SIZE + 4L * tableSize + (long) RECORD_SIZE * capacity;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Catalog is too large for a single mapped file.");
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        mapped.putInt(H_MAGIC, MAGIC);
+        mapped.putInt(H_VERSION, VERSION);
+        mapped.putInt(H_CAPACITY, capacity);
+        mapped.putInt(H_TABLE_SIZE, tableSize);
+        return mapped;
+    }
+
+    private void writeCounts() {
+        Layout current = layout;
+        current.buffer.putInt(H_COUNT, current.count);
+        current.buffer.putInt(H_LIVE, live);
+    }
+
+    /**
+     * Rewrites the catalog into a file twice the size (dropping removed records)
+     * and swaps it in atomically. Amortized O(1) per added product.
+     *
+     * Record writes wait while the records are copied, so none is lost in the old file.
+     */
+    private void grow() {
+        int newCapacity = Math.max(16, live * 2);
+        int newTableSize = ProductIndex.tableSizeFor(newCapacity);
+        Path temp = tempFile();
+        long stamp = recordWrites.writeLock();
+        try {
+            Files.deleteIfExists(temp);
+            FileChannel newChannel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer target = mapLayout(newChannel, newCapacity, newTableSize);
+            Layout old = layout;
+            MappedByteBuffer source = old.buffer;
+            int oldRecordsOffset = recordsOffset(old.tableSize);
+            int newRecordsOffset = recordsOffset(newTableSize);
+            int moved = 0;
+            for (int record = 0; record < old.count; record++) {
+                int from = oldRecordsOffset + record * RECORD_SIZE;
+                if (source.getInt(from + R_FLAGS) != LIVE) {
+                    continue;
+                }
+                int to = newRecordsOffset + moved * RECORD_SIZE;
+                for (int i = 0; i < RECORD_SIZE; i += 8) {
+                    target.putLong(to + i, source.getLong(from + i));
+                }
+                insertSlot(target, newTableSize, source.getInt(from + R_ID), moved);
+                moved++;
+            }
+            target.putInt(H_COUNT, moved);
+            target.putInt(H_LIVE, moved);
+            target.force();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            channel.close();
+            channel = newChannel;
+            live = moved;
+            layout = new Layout(target, newCapacity, newTableSize, moved, old.generation + 1);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to grow product catalog: " + e.getMessage(), e);
+        } finally {
+            recordWrites.unlockWrite(stamp);
+        }
+    }
+
+    private static int recordsOffset(int tableSize) {
+        return HEADER_SIZE + 4 * tableSize;
+    }
+
+    // ---------------------------------------------------------------------
+    // Hash table (slot values are record index + 1, 0 means empty)
+
+    private static int findRecord(Layout layout, int id) {
+        MappedByteBuffer mapped = layout.buffer;
+        int slots = layout.tableSize;
+        int mask = slots - 1;
+        int records = recordsOffset(slots);
+        for (int slot = ProductIndex.hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int ref = mapped.getInt(HEADER_SIZE + 4 * slot);
+            if (ref == 0) {
+                return -1;
+            }
+            if (mapped.getInt(records + (ref - 1) * RECORD_SIZE + R_ID) == id) {
+                return ref - 1;
+            }
+        }
+    }
+
+    private static void insertSlot(MappedByteBuffer mapped, int tableSize, int id, int record) {
+        int mask = tableSize - 1;
+        int slot = ProductIndex.hash(id) & mask;
+        while (mapped.getInt(HEADER_SIZE + 4 * slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        mapped.putInt(HEADER_SIZE + 4 * slot, record + 1);
+    }
+
+    // Backward-shift deletion, same as ProductIndex
+    private static void deleteSlot(Layout layout, int id) {
+        MappedByteBuffer mapped = layout.buffer;
+        int mask = layout.tableSize - 1;
+        int records = recordsOffset(layout.tableSize);
+        int gap = ProductIndex.hash(id) & mask;
+        while (mapped.getInt(records + (mapped.getInt(HEADER_SIZE + 4 * gap) - 1) * RECORD_SIZE + R_ID) != id) {
+            gap = (gap + 1) & mask;
+        }
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int ref = mapped.getInt(HEADER_SIZE + 4 * slot);
+            if (ref == 0) {
+                break;
+            }
+            int home = ProductIndex.hash(mapped.getInt(records + (ref - 1) * RECORD_SIZE + R_ID)) & mask;
+            boolean movable = slot > gap
+                    ? (home <= gap || home > slot)
+                    : (home <= gap && home > slot);
+            if (movable) {
+                mapped.putInt(HEADER_SIZE + 4 * gap, ref);
+                gap = slot;
+            }
+        }
+        mapped.putInt(HEADER_SIZE + 4 * gap, 0);
+    }
+
+    // Record index to continue from for a page cursor (records move when the catalog grows)
+    private static int resolveCursor(Layout layout, long cursor) {
+        if (cursor == ProductPage.FIRST) {
+            return 0;
+        }
+        int record = ProductPage.position(cursor);
+        int lastId = ProductPage.lastId(cursor);
+        if (record >= 1 && record <= layout.count
+                && layout.buffer.getInt(layout.recordOffset(record - 1) + R_ID) == lastId) {
+            return record;
+        }
+        int moved = findRecord(layout, lastId);
+        return moved >= 0 ? moved + 1 : Math.max(0, Math.min(record, layout.count));
+    }
+
+    // ---------------------------------------------------------------------
+    // Records
+
+    private void writeRecord(Layout layout, int record, Product product) {
+        List<String> sizes = product.getAvailableSizes();
+        if (sizes != null && sizes.size() > MAX_SIZES) {
+            throw new IllegalArgumentException("A product can have at most " + MAX_SIZES + " sizes.");
+        }
+        MappedByteBuffer mapped = layout.buffer;
+        int offset = layout.recordOffset(record);
+        mapped.putInt(offset + R_ID, product.getId());
+        mapped.putInt(offset + R_NAME, strings.intern(product.getName()));
+        mapped.putInt(offset + R_CATEGORY, strings.intern(product.getCategory()));
+        mapped.putLong(offset + R_PRICE, product.getPriceCents());
+        INT_VIEW.setVolatile(mapped, offset + R_STOCK, product.getStock());
+        writeSizes(mapped, offset, sizes);
+        mapped.putInt(offset + R_FLAGS, LIVE);
+    }
+
+    private void writeSizes(MappedByteBuffer mapped, int offset, List<String> sizes) {
+        int sizeCount = sizes == null ? 0 : sizes.size();
+        for (int i = 0; i < sizeCount; i++) {
+            mapped.putInt(offset + R_SIZES + 4 * i, strings.intern(sizes.get(i)));
+        }
+        mapped.putInt(offset + R_SIZE_COUNT, sizes == null ? -1 : sizeCount);
+    }
+
+    private List<String> readSizes(MappedByteBuffer mapped, int offset) {
+        int sizeCount = mapped.getInt(offset + R_SIZE_COUNT);
+        if (sizeCount < 0) {
+            return null;
+        }
+        List<String> sizes = new ArrayList<>(sizeCount);
+        for (int i = 0; i < sizeCount; i++) {
+            sizes.add(strings.get(mapped.getInt(offset + R_SIZES + 4 * i)));
+        }
+        return Collections.unmodifiableList(sizes);
+    }
+
+    // Copies a record into a plain heap Product (used for removed products)
+    private Product snapshot(Layout layout, int record) {
+        MappedByteBuffer mapped = layout.buffer;
+        int offset = layout.recordOffset(record);
+        Product copy = new Product(mapped.getInt(offset + R_ID),
+                strings.get(mapped.getInt(offset + R_NAME)),
+                strings.get(mapped.getInt(offset + R_CATEGORY)),
+                0.0,
+                (int) INT_VIEW.getVolatile(mapped, offset + R_STOCK),
+                readSizes(mapped, offset));
+        copy.setPriceCents(mapped.getLong(offset + R_PRICE));
+        return copy;
+    }
+
+    // Same compare-and-set loop as Product.tryReduceStock, on mapped memory
+    private static int reduceStockAt(MappedByteBuffer mapped, int stockOffset, int quantity) {
+        while (true) {
+            int current = (int) INT_VIEW.getVolatile(mapped, stockOffset);
+            if (current < quantity) {
+                return -1;
+            }
+            if (INT_VIEW.compareAndSet(mapped, stockOffset, current, current - quantity)) {
+                return current - quantity;
+            }
+        }
+    }
+
+    /**
+     * Scans live records for a category and/or size match (null means "any").
+     * Each distinct string ref is decoded at most once per scan.
+     */
+    private List<Product> scan(String category, String size) {
+        List<Product> matches = new ArrayList<>();
+        Map<Integer, Boolean> categoryMatches = new HashMap<>();
+        Map<Integer, Boolean> sizeMatches = new HashMap<>();
+        Layout current = layout;
+        MappedByteBuffer mapped = current.buffer;
+        for (int record = 0; record < current.count; record++) {
+            int offset = current.recordOffset(record);
+            if (mapped.getInt(offset + R_FLAGS) != LIVE) {
+                continue;
+            }
+            if (category != null && !refMatches(categoryMatches, mapped.getInt(offset + R_CATEGORY), category)) {
+                continue;
+            }
+            if (size != null && !hasSize(mapped, offset, sizeMatches, size)) {
+                continue;
+            }
+            matches.add(new MappedProduct(mapped.getInt(offset + R_ID), record, current.generation));
+        }
+        return matches;
+    }
+
+    private List<Product> sortedByPrice(String category, int limit, Comparator<Product> order) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative.");
+        }
+        List<Product> products = category == null ? listAllProducts() : scan(category, null);
+        products.sort(order);
+        return new ArrayList<>(products.subList(0, Math.min(limit, products.size())));
+    }
+
+    // Bit i is set if the string under the ref contains query term i
+    private long termMask(Map<Integer, Long> cache, int ref, List<String> terms) {
+        if (ref == StringDictionary.NULL_REF) {
+            return 0;
+        }
+        return cache.computeIfAbsent(ref, r -> {
+            Set<String> tokens = SearchIndex.tokens(strings.get(r), null);
+            long mask = 0;
+            for (int i = 0; i < terms.size(); i++) {
+                if (tokens.contains(terms.get(i))) {
+                    mask |= 1L << i;
+                }
+            }
+            return mask;
+        });
+    }
+
+    private boolean hasSize(MappedByteBuffer mapped, int offset, Map<Integer, Boolean> cache, String size) {
+        int sizeCount = mapped.getInt(offset + R_SIZE_COUNT);
+        for (int i = 0; i < sizeCount; i++) {
+            if (refMatches(cache, mapped.getInt(offset + R_SIZES + 4 * i), size)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean refMatches(Map<Integer, Boolean> cache, int ref, String wanted) {
+        if (ref == StringDictionary.NULL_REF) {
+            return false;
+        }
+        return cache.computeIfAbsent(ref, r -> wanted.trim().equalsIgnoreCase(strings.get(r).trim()));
+    }
+
+    /**
+     * Walks a range of records, producing a view for each live one.
+     * Splits by halving the range, like the heap-based catalog.
+     */
+    private final class RecordSpliterator implements Spliterator<Product> {
+
+        private static final int MIN_SPLIT = 1024;
+
+        private final Layout snapshot;
+        private int record;
+        private final int fence;
+
+        RecordSpliterator(Layout snapshot, int origin, int fence) {
+            this.snapshot = snapshot;
+            this.record = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Product> action) {
+            MappedByteBuffer mapped = snapshot.buffer;
+            while (record < fence) {
+                int offset = snapshot.recordOffset(record);
+                int current = record++;
+                if (mapped.getInt(offset + R_FLAGS) == LIVE) {
+                    action.accept(new MappedProduct(mapped.getInt(offset + R_ID), current, snapshot.generation));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Product> trySplit() {
+            int origin = record;
+            int middle = (origin + fence) >>> 1;
+            if (fence - origin < MIN_SPLIT) {
+                return null;
+            }
+            record = middle;
+            return new RecordSpliterator(snapshot, origin, middle);
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - record;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * A {@link Product} whose fields live in a catalog record.
+     *
+     * Getters decode the record on every call and setters write into it, so the
+     * view never goes stale. If records move (the catalog grew) the view finds
+     * its record again by ID.
+     */
+    private final class MappedProduct extends Product {
+
+        private int record;
+        private int seenGeneration;
+
+        MappedProduct(int id, int record, int seenGeneration) {
+            super(id, null, null, 0.0, 0, null);
+            this.record = record;
+            this.seenGeneration = seenGeneration;
+        }
+
+        // Offset of this product's record in the layout, looked up again if records have moved
+        private int offset(Layout current) {
+            if (seenGeneration != current.generation) {
+                seenGeneration = current.generation;
+                record = findRecord(current, getId());
+            }
+            if (record >= 0 && record < current.count) {
+                int offset = current.recordOffset(record);
+                MappedByteBuffer mapped = current.buffer;
+                if (mapped.getInt(offset + R_FLAGS) == LIVE && mapped.getInt(offset + R_ID) == getId()) {
+                    return offset;
+                }
+            }
+            record = findRecord(current, getId()); // Removed, or removed and added again
+            if (record < 0) {
+                throw new IllegalStateException("Product " + getId() + " is no longer in the catalog.");
+            }
+            return current.recordOffset(record);
+        }
+
+        @Override
+        public void setId(int id) {
+            throw new UnsupportedOperationException("The ID of a stored product cannot change.");
+        }
+
+        @Override
+        public String getName() {
+            Layout current = layout;
+            return strings.get(current.buffer.getInt(offset(current) + R_NAME));
+        }
+
+        @Override
+        public void setName(String name) {
+            long stamp = recordWrites.readLock();
+            try {
+                Layout current = layout;
+                current.buffer.putInt(offset(current) + R_NAME, strings.intern(name));
+            } finally {
+                recordWrites.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public String getCategory() {
+            Layout current = layout;
+            return strings.get(current.buffer.getInt(offset(current) + R_CATEGORY));
+        }
+
+        @Override
+        public void setCategory(String category) {
+            long stamp = recordWrites.readLock();
+            try {
+                Layout current = layout;
+                current.buffer.putInt(offset(current) + R_CATEGORY, strings.intern(category));
+            } finally {
+                recordWrites.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public long getPriceCents() {
+            Layout current = layout;
+            return current.buffer.getLong(offset(current) + R_PRICE);
+        }
+
+        @Override
+        public void setPriceCents(long priceCents) {
+            long stamp = recordWrites.readLock();
+            try {
+                Layout current = layout;
+                current.buffer.putLong(offset(current) + R_PRICE, priceCents);
+            } finally {
+                recordWrites.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public int getStock() {
+            Layout current = layout;
+            return (int) INT_VIEW.getVolatile(current.buffer, offset(current) + R_STOCK);
+        }
+
+        @Override
+        public void setStock(int stock) {
+            long stamp = recordWrites.readLock();
+            try {
+                Layout current = layout;
+                INT_VIEW.setVolatile(current.buffer, offset(current) + R_STOCK, stock);
+            } finally {
+                recordWrites.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public int tryReduceStock(int quantity) {
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Quantity cannot be negative.");
+            }
+            long stamp = recordWrites.readLock();
+            try {
+                Layout current = layout;
+                return reduceStockAt(current.buffer, offset(current) + R_STOCK, quantity);
+            } finally {
+                recordWrites.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public int addStock(int quantity) {
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Quantity cannot be negative.");
+            }
+            long stamp = recordWrites.readLock();
+            try {
+                Layout current = layout;
+                return (int) INT_VIEW.getAndAdd(current.buffer, offset(current) + R_STOCK, quantity) + quantity;
+            } finally {
+                recordWrites.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public List<String> getAvailableSizes() {
+            Layout current = layout;
+            return readSizes(current.buffer, offset(current));
+        }
+
+        @Override
+        public void setAvailableSizes(List<String> sizes) {
+            if (sizes != null && sizes.size() > MAX_SIZES) {
+                throw new IllegalArgumentException("A product can have at most " + MAX_SIZES + " sizes.");
+            }
+            long stamp = recordWrites.readLock();
+            try {
+                Layout current = layout;
+                writeSizes(current.buffer, offset(current), sizes);
+            } finally {
+                recordWrites.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * One mapping of the catalog file together with the numbers needed to read it.
+     *
+     * Never changed once published: adding a product publishes a copy with a larger
+     * count, growing the catalog publishes a new mapping. A reader that loads the
+     * layout once therefore sees a buffer, table size and count that belong together.
+     */
+    private static final class Layout {
+        final MappedByteBuffer buffer;
+
+        // Number of records the file can hold
+        final int capacity;
+
+        // Number of hash slots (power of two)
+        final int tableSize;
+
+        // Records used so far (live + removed)
+        final int count;
+
+        // Bumped every time records move, so views know to look themselves up again
+        final int generation;
+
+        Layout(MappedByteBuffer buffer, int capacity, int tableSize, int count, int generation) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.tableSize = tableSize;
+            this.count = count;
+            this.generation = generation;
+        }
+
+        // The same mapping with a new record count
+        Layout withCount(int newCount) {
+            return new Layout(buffer, capacity, tableSize, newCount, generation);
+        }
+
+        int recordOffset(int record) {
+            return recordsOffset(tableSize) + record * RECORD_SIZE;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.zalando.lite;
+
+/**
+ * Fixed-point money arithmetic on amounts stored as a {@code long} number of cents.
+ *
+ * Prices, subtotals, totals and revenue are kept in cents instead of {@code double}
+ * euros. Adding up cents is exact, so summing millions of orders never drifts the way
+ * {@code 0.1 + 0.2} does, and a {@code long} never needs boxing.
+ *
+ * This is a utility class of static methods on primitives rather than a value
+ * object, so arithmetic never allocates. Conversions to and from {@code double}
+ * are only meant for input and display.
+ *
+ * Rounding is "half up" (away from zero for .5 cents), the usual rule for prices.
+ *
+ * Concepts reinforced:
+ * - Fixed-point arithmetic
+ * - Overflow-checked math (Math.multiplyExact / addExact)
+ * - Static utility classes
+ */
+public final class Money {
+
+    // Cents in one euro
+    public static final long CENTS_PER_UNIT = 100;
+
+    private Money() {
+        // Utility class: not meant to be instantiated
+    }
+
+    /**
+     * Converts an amount in euros to cents, rounding to the nearest cent.
+     *
+     * @param amount the amount, e.g. 19.99
+     * @return the amount in cents, e.g. 1999
+     */
+    public static long ofMajor(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Amount must be a finite number: " + amount);
+        }
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    /**
+     * Converts cents to euros, for display or for callers still using {@code double}.
+     *
+     * @param cents the amount in cents
+     * @return the amount in euros
+     */
+    public static double toMajor(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * Multiplies a unit price by a quantity.
+     *
+     * @param cents the unit price in cents
+     * @param quantity the number of units
+     * @return the line amount in cents
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    /**
+     * Adds two amounts.
+     *
+     * @param a the first amount in cents
+     * @param b the second amount in cents
+     * @return the sum in cents
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public static long plus(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Takes a percentage off an amount, rounding half up to whole cents.
+     *
+     * @param cents the amount in cents
+     * @param percent the discount, e.g. 20 for 20% off
+     * @return the discounted amount in cents
+     */
+    public static long percentOff(long cents, int percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Percent must be between 0 and 100.");
+        }
+        return scale(cents, 100 - percent, 100);
+    }
+
+    /**
+     * Multiplies an amount by {@code numerator / denominator}, rounding half up.
+     *
+     * @param cents the amount in cents
+     * @param numerator the multiplier's numerator
+     * @param denominator the multiplier's denominator, must be positive
+     * @return the scaled amount in cents
+     */
+    public static long scale(long cents, long numerator, long denominator) {
+        if (denominator <= 0) {
+            throw new IllegalArgumentException("Denominator must be positive.");
+        }
+        long product = Math.multiplyExact(cents, numerator);
+        long half = denominator / 2;
+        return product >= 0
+                ? (product + half) / denominator
+                : -((-product + half) / denominator);
+    }
+
+    /**
+     * Formats an amount for display, e.g. "€19.99" or "-€0.50".
+     *
+     * @param cents the amount in cents
+     * @return the formatted amount
+     */
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % CENTS_PER_UNIT;
+        return (cents < 0 ? "-€" : "€") + abs / CENTS_PER_UNIT + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
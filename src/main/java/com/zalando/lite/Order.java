@@ -1,6 +1,8 @@
 package com.zalando.lite;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -15,15 +17,24 @@ import java.util.List;
  * This class is central to the business logic and ties together customers,
  * products, and delivery.
  *
+ * The order keeps its own copies of the lines it is given, priced when it is
+ * created (see {@link OrderItem}), so the caller's lines are never changed and a line
+ * reused for another order cannot change this one.
+ *
+ * The total is calculated once and cached. The items list cannot be modified
+ * from outside, and each of the order's lines tells it when its quantity or price
+ * changes, so the cache is only recomputed when something actually changed.
+ *
  * Concepts reinforced:
  * - Object composition
  * - Use of lists to store related data
  * - Timestamps using LocalDateTime
+ * - Caching with invalidation
  */
 public class Order {
 
-    // Unique identifier for the order
-    private int orderId;
+    // Unique identifier for the order (assigned by OrderManager from an OrderIdGenerator)
+    private long orderId;
 
     // The customer who placed the order (reference, not a copy)
     private Customer customer;
@@ -34,6 +45,12 @@ public class Order {
     // The date and time the order was created
     private LocalDateTime orderDate;
 
+    // Marks the cached total as out of date
+    private static final long NOT_CACHED = Long.MIN_VALUE;
+
+    // Cached result of calculateTotalCents(), or NOT_CACHED when it must be recomputed
+    private volatile long cachedTotalCents = NOT_CACHED;
+
     /**
      * Constructor to initialize an order with a customer and list of items.
      *
@@ -41,18 +58,18 @@ public class Order {
      */
     public Order( Customer customer, List<OrderItem> items) {
         this.customer = customer;
-        this.items = items;
+        this.items = attach(items);
         this.orderDate = LocalDateTime.now();
     }
 
 
     // Returns the order ID
-    public int getOrderId() {
+    public long getOrderId() {
         return this.orderId;
     }
 
     // Sets the order ID (maybe used when generating orders manually)
-    public void setOrderId(int orderId) {
+    public void setOrderId(long orderId) {
         this.orderId = orderId;
     }
 
@@ -66,14 +83,39 @@ public class Order {
         this.customer = customer;
     }
 
-    // Returns the list of order items
+    // Returns the order's own lines (read-only; change a line through its setters)
     public List<OrderItem> getItems() {
         return this.items;
     }
 
-    // Sets the list of order items
+    // Replaces the order items with copies of the given lines, priced now
     public void setItems(List<OrderItem> items) {
-        this.items = items;
+        for (OrderItem item : this.items) {
+            if (item.getOrder() == this) {
+                item.setOrder(null);
+            }
+        }
+        this.items = attach(items);
+        invalidateTotal();
+    }
+
+    // Forgets the cached total (called when an item changes)
+    void invalidateTotal() {
+        this.cachedTotalCents = NOT_CACHED;
+    }
+
+    // Copies the lines into a read-only list of this order's own lines
+    private List<OrderItem> attach(List<OrderItem> items) {
+        if (items == null) {
+            return Collections.emptyList();
+        }
+        List<OrderItem> own = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            OrderItem copy = item.copyForOrder();
+            copy.setOrder(this);
+            own.add(copy);
+        }
+        return Collections.unmodifiableList(own);
     }
 
     // Returns the timestamp of when the order was placed
@@ -87,16 +129,32 @@ public class Order {
     }
 
     /**
-     * Calculates the total cost of the order by summing
-     * (product price × quantity) for each line item.
+     * Calculates the total cost of the order in euros.
      *
      * @return the total order cost
      */
     public double calculateTotal() {
-        double subTotal = 0.0;
+        return Money.toMajor(calculateTotalCents());
+    }
+
+    /**
+     * Calculates the total cost of the order in cents by summing
+     * (unit price × quantity) for each line item.
+     *
+     * The result is cached until an item, its quantity or its price changes.
+     *
+     * @return the total order cost, in cents
+     */
+    public long calculateTotalCents() {
+        long cached = cachedTotalCents;
+        if (cached != NOT_CACHED) {
+            return cached;
+        }
+        long subTotal = 0;
         for(OrderItem item : items){
-            subTotal += item.getSubtotal() ; // Add each item's subtotal to total
+            subTotal = Money.plus(subTotal, item.getSubtotalCents()); // Add each item's subtotal to total
         }
+        cachedTotalCents = subTotal;
         return subTotal;
     }
 
@@ -104,7 +162,7 @@ public class Order {
     public String toString() {
         return "Order#" + orderId + " by " + customer.getName() +
                 " on " + orderDate.toLocalDate() +
-                " | Total: €" + calculateTotal();
+                " | Total: " + Money.format(calculateTotalCents());
     }
 
 }
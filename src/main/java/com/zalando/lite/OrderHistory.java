@@ -0,0 +1,145 @@
+package com.zalando.lite;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * One customer's orders, in the order they were placed, append-only.
+ *
+ * Orders are stored in fixed-size chunks, so growing never copies orders (only the
+ * small array of chunk references doubles now and then), and the order at any
+ * position is found in O(1): chunk {@code position / 32}, slot {@code position % 32}.
+ *
+ * Appends are synchronized, but readers take no lock: an order is written into its
+ * slot before the volatile size is raised, so a reader that sees the new size also
+ * sees the order. Reads therefore never block checkouts, and a page of the newest
+ * orders costs the same for a customer with 10 orders as for one with 100,000.
+ *
+ * Concepts reinforced:
+ * - Chunked (segmented) arrays
+ * - Safe publication with a volatile counter
+ * - Read-only list views (AbstractList)
+ */
+public class OrderHistory {
+
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Chunk references; replaced by a larger copy when full
+    private volatile Order[][] chunks = new Order[1][];
+
+    // Number of orders; raised only after the order is in its slot
+    private volatile int size;
+
+    /**
+     * Appends an order.
+     *
+     * @param order the newest order
+     */
+    public synchronized void add(Order order) {
+        int position = size;
+        int chunk = position >>> CHUNK_SHIFT;
+        Order[][] directory = chunks;
+        if (chunk == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+            chunks = directory;
+        }
+        if (directory[chunk] == null) {
+            directory[chunk] = new Order[CHUNK_SIZE];
+        }
+        directory[chunk][position & CHUNK_MASK] = order;
+        size = position + 1; // Publishes the order to readers
+    }
+
+    // Returns the number of orders
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the order at a position (0 is the oldest).
+     *
+     * @param position the position
+     * @return the order
+     */
+    public Order get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+        }
+        return chunks[position >>> CHUNK_SHIFT][position & CHUNK_MASK];
+    }
+
+    /**
+     * Returns a page of orders, newest first.
+     *
+     * @param cursor {@link OrderPage#FIRST} or a cursor from a previous page
+     * @param pageSize maximum number of orders on the page
+     * @return the page and the cursor for older orders
+     */
+    public OrderPage page(long cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        if (cursor < 0) {
+            return new OrderPage(new ArrayList<>(), OrderPage.END);
+        }
+        int available = size;
+        Order[][] directory = chunks; // Read after size, so it covers every published position
+        // The cursor is one more than the position of the next order to return
+        long start = cursor == OrderPage.FIRST ? available - 1 : Math.min(cursor - 1, available - 1L);
+        if (start < 0) {
+            return new OrderPage(new ArrayList<>(), OrderPage.END);
+        }
+        int first = (int) start;
+        int count = Math.min(pageSize, first + 1);
+        List<Order> orders = new ArrayList<>(count);
+        for (int position = first; position > first - count; position--) {
+            orders.add(directory[position >>> CHUNK_SHIFT][position & CHUNK_MASK]);
+        }
+        int next = first - count;
+        return new OrderPage(orders, next < 0 ? OrderPage.END : next + 1L);
+    }
+
+    /**
+     * Returns a read-only view of the orders placed so far, oldest first.
+     *
+     * Nothing is copied; orders placed after this call are not part of the view.
+     *
+     * @return the orders, oldest first
+     */
+    public List<Order> view() {
+        int snapshotSize = size;
+        Order[][] directory = chunks;
+        return new View(directory, snapshotSize);
+    }
+
+    /**
+     * A fixed-size, read-only window onto the chunks.
+     */
+    private static final class View extends AbstractList<Order> implements RandomAccess {
+        private final Order[][] directory;
+        private final int size;
+
+        View(Order[][] directory, int size) {
+            this.directory = directory;
+            this.size = size;
+        }
+
+        @Override
+        public Order get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+            }
+            return directory[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
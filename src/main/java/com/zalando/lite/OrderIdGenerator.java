@@ -0,0 +1,190 @@
+package com.zalando.lite;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out unique, roughly time-ordered order IDs at very high rates.
+ *
+ * All threads share one counter: an ID costs a single atomic increment, with no
+ * per-thread state, so a hundred thousand short-lived (virtual) threads waste no IDs
+ * and hold no memory. The counter is checked against the clock (and the lease below)
+ * only once per block of IDs: when an increment lands past the current block, that
+ * thread takes a lock, starts the next block and the other threads retry.
+ *
+ * Each block starts no lower than {@code currentTimeMillis << 16}, so IDs
+ * grow with time. They are unique across restarts as long as the clock moved forward
+ * in between. For a guarantee that does not depend on the clock, pass a
+ * high-water file: the generator records how far ahead it has reserved IDs (a "lease"
+ * of {@link #LEASE_SIZE} IDs) before handing any of them out. After a restart it
+ * continues above that mark.
+ *
+ * When a block starts at the clock, the IDs skipped below it are never used, so IDs
+ * have gaps but are never repeated.
+ *
+ * Concepts reinforced:
+ * - Lock-free allocation with atomic increments
+ * - Slow paths taken once per block
+ * - Leases persisted with FileChannel.force
+ */
+public class OrderIdGenerator implements Closeable {
+
+    // IDs handed out between two checks of the clock and the lease
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    // IDs reserved in the high-water file per write
+    public static final long LEASE_SIZE = 1L << 20;
+
+    // Room for 65,536 IDs per millisecond before the counter runs ahead of the clock
+    private static final int TIME_SHIFT = 16;
+
+    // Next ID to hand out; increments that land at or past blockEnd are thrown away
+    private final AtomicLong next = new AtomicLong();
+
+    // End of the current block: IDs below it are checked against the clock and leased
+    private volatile long blockEnd;
+
+    // Held while a new block is started
+    private final ReentrantLock blockLock = new ReentrantLock();
+
+    private final int blockSize;
+    private final LongSupplier millisClock;
+
+    // File holding the lease end, or null if IDs are not persisted
+    private final FileChannel highWater;
+
+    // IDs below this are covered by the persisted lease
+    private volatile long leaseEnd;
+
+    /**
+     * Creates a generator that relies on the system clock for uniqueness across restarts.
+     */
+    public OrderIdGenerator() {
+        this.blockSize = DEFAULT_BLOCK_SIZE;
+        this.millisClock = System::currentTimeMillis;
+        this.highWater = null;
+    }
+
+    /**
+     * Creates a generator that persists its high-water mark in the given file.
+     *
+     * @param highWaterFile the file to keep the lease in (created if needed)
+     * @throws IOException if the file cannot be opened or read
+     */
+    public OrderIdGenerator(Path highWaterFile) throws IOException {
+        this(highWaterFile, DEFAULT_BLOCK_SIZE, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a generator with a custom block size and clock (mainly for tests).
+     *
+     * @param highWaterFile the file to keep the lease in, or null for none
+     * @param blockSize the number of IDs handed out between checks of the clock
+     * @param millisClock the wall clock in milliseconds
+     * @throws IOException if the file cannot be opened or read
+     */
+    public OrderIdGenerator(Path highWaterFile, int blockSize, LongSupplier millisClock) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        this.blockSize = blockSize;
+        this.millisClock = millisClock;
+        if (highWaterFile == null) {
+            this.highWater = null;
+            return;
+        }
+        this.highWater = FileChannel.open(highWaterFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer saved = ByteBuffer.allocate(Long.BYTES);
+        if (highWater.read(saved, 0) == Long.BYTES) {
+            saved.flip();
+            leaseEnd = saved.getLong();
+            next.set(leaseEnd); // Everything below may have been handed out before the restart
+        }
+    }
+
+    /**
+     * Returns a new order ID.
+     *
+     * One atomic increment; the lock is only taken once per block.
+     *
+     * @return an ID that was never returned before
+     */
+    public long nextId() {
+        long id = next.getAndIncrement();
+        return id < blockEnd ? id : nextBlockId();
+    }
+
+    // Returns the next ID the shared counter would hand out
+    public long getHighWaterMark() {
+        return Math.min(next.get(), blockEnd);
+    }
+
+    @Override
+    public void close() throws IOException {
+        blockLock.lock();
+        try {
+            if (highWater != null) {
+                highWater.close();
+            }
+        } finally {
+            blockLock.unlock();
+        }
+    }
+
+    /**
+     * Slow path of {@link #nextId()}: the increment went past the current block.
+     *
+     * The first thread here starts the next block, no lower than the clock, and
+     * moves the counter forward to its start. The counter never moves back, so no ID
+     * is taken twice, and an ID is only returned below a block end that the lease
+     * already covers.
+     */
+    private long nextBlockId() {
+        blockLock.lock();
+        try {
+            while (true) {
+                long current = next.get();
+                if (current < blockEnd) {
+                    long id = next.getAndIncrement(); // Another thread started a block
+                    if (id < blockEnd) {
+                        return id;
+                    }
+                    continue;
+                }
+                long start = Math.max(current, millisClock.getAsLong() << TIME_SHIFT);
+                long end = start + blockSize;
+                if (highWater != null && end > leaseEnd) {
+                    extendLease(end);
+                }
+                if (next.compareAndSet(current, start + 1)) {
+                    blockEnd = end;
+                    return start;
+                }
+                // Another thread incremented past the block meanwhile; it will wait for the lock
+            }
+        } finally {
+            blockLock.unlock();
+        }
+    }
+
+    // Persists a new lease end before any ID above the old one is used (blockLock is held)
+    private void extendLease(long needed) {
+        long end = needed + LEASE_SIZE;
+        ByteBuffer value = ByteBuffer.allocate(Long.BYTES).putLong(0, end);
+        try {
+            highWater.write(value, 0);
+            highWater.force(true);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to persist order ID high-water mark: " + e.getMessage(), e);
+        }
+        leaseEnd = end;
+    }
+}
@@ -7,9 +7,18 @@ package com.zalando.lite;
  * This class helps calculate the total price for the order and allows the system
  * to break down orders into granular, trackable components.
  *
+ * The unit price (in cents, see {@link Money}) is copied from the product when the line is created.
+ * An {@link Order} never keeps the caller's lines: it takes its own copies, priced at
+ * the product's price when the order is created (or at the price set on the line,
+ * e.g. after a discount), so a later {@link Product#setPrice(double)} does not change
+ * what was already ordered, and reusing a line never changes an earlier order.
+ * Changing the quantity or price of an order's own line tells that order to recompute
+ * its cached total.
+ *
  * Concepts reinforced:
  * - Composition: combining two classes (Product + quantity)
  * - Data modeling: simple container object
+ * - Back-references for cache invalidation
  */
 public class OrderItem {
 
@@ -19,6 +28,15 @@ public class OrderItem {
     // Quantity of the product ordered
     private int quantity;
 
+    // Price of one unit in cents, frozen when the line was priced
+    private long unitPriceCents;
+
+    // True once a price was set on the line (e.g. a discount), rather than taken from the product
+    private boolean priceSet;
+
+    // The order this line belongs to (null until it is added to one)
+    private Order order;
+
     /**
      * Constructor to create an OrderItem.
      *
@@ -27,6 +45,7 @@ public class OrderItem {
     public OrderItem(Product product, int quantity) {
         this.product = product;
         this.quantity = quantity;
+        this.unitPriceCents = product == null ? 0 : product.getPriceCents();
     }
 
     // Returns the product associated with this item
@@ -34,9 +53,12 @@ public class OrderItem {
         return this.product;
     }
 
-    // Sets the product for this item
+    // Sets the product for this item (the line is re-priced at the product's current price)
     public void setProduct(Product product) {
         this.product = product;
+        this.unitPriceCents = product == null ? 0 : product.getPriceCents();
+        this.priceSet = false;
+        changed();
     }
 
     // Returns the quantity ordered
@@ -47,23 +69,90 @@ public class OrderItem {
     // Sets the quantity ordered
     public void setQuantity(int quantity) {
         this.quantity = quantity;
+        changed();
+    }
+
+    // Returns the price of one unit in euros, as frozen when the line was priced
+    public double getUnitPrice() {
+        return Money.toMajor(this.unitPriceCents);
+    }
+
+    // Re-prices the line in euros, e.g. after a discount
+    public void setUnitPrice(double unitPrice) {
+        setUnitPriceCents(Money.ofMajor(unitPrice));
+    }
+
+    // Returns the price of one unit in cents
+    public long getUnitPriceCents() {
+        return this.unitPriceCents;
+    }
+
+    // Re-prices the line in cents
+    public void setUnitPriceCents(long unitPriceCents) {
+        this.unitPriceCents = unitPriceCents;
+        this.priceSet = true;
+        changed();
     }
 
     /**
-     * Calculates the subtotal (product price × quantity).
+     * Copies the line for a new order, priced as of now.
      *
-     * Useful for summing up totals in Order class.
+     * The copy keeps a price that was set on this line; otherwise it takes the
+     * product's current price. This line itself is not changed.
+     *
+     * @return a line that belongs to no order yet
+     */
+    OrderItem copyForOrder() {
+        OrderItem copy = new OrderItem(product, quantity);
+        if (priceSet) {
+            copy.unitPriceCents = unitPriceCents;
+            copy.priceSet = true;
+        }
+        return copy;
+    }
+
+    // Returns the order this line belongs to, or null
+    Order getOrder() {
+        return this.order;
+    }
+
+    // Attaches the line to an order (called by Order)
+    void setOrder(Order order) {
+        this.order = order;
+    }
+
+    // Tells the owning order that its cached total is out of date
+    private void changed() {
+        Order owner = this.order;
+        if (owner != null) {
+            owner.invalidateTotal();
+        }
+    }
+
+    /**
+     * Calculates the subtotal (frozen unit price × quantity) in euros.
      *
      * @return total cost of this line item
      */
     public double getSubtotal() {
+        return Money.toMajor(getSubtotalCents());
+    }
+
+    /**
+     * Calculates the subtotal (frozen unit price × quantity) in cents.
+     *
+     * Useful for summing up totals in Order class without rounding drift.
+     *
+     * @return total cost of this line item, in cents
+     */
+    public long getSubtotalCents() {
         if (product == null) {
             throw new IllegalStateException("OrderItem must have a valid Product.");
         }
         if (quantity < 0) {
             throw new IllegalArgumentException("Quantity cannot be negative.");
         }
-        return product.getPrice() * quantity;
+        return Money.times(unitPriceCents, quantity);
     }
 
     /**
@@ -71,6 +160,6 @@ public class OrderItem {
      */
     @Override
     public String toString() {
-        return product.getName() + " x " + quantity + " = " + getSubtotal();
+        return product.getName() + " x " + quantity + " = " + Money.format(getSubtotalCents());
     }
 }
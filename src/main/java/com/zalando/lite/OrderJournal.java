@@ -0,0 +1,789 @@
+package com.zalando.lite;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, write-ahead journal of placed orders, with snapshots.
+ *
+ * Every order is appended as one binary record before {@link OrderManager} makes it
+ * visible. After a restart, {@link #replay(ReplayHandler)} feeds the last snapshot
+ * and every later record back, so orders and stock levels can be rebuilt.
+ *
+ * Record layout (big-endian):
+ * {@code [int payload length][int CRC32 of payload][payload]}, where the payload is
+ * {@code [long sequence][long orderId][long epochMillis][int customerId][int lines]}
+ * followed by {@code [int productId][int quantity][long unitPriceCents]} per line.
+ * A torn or corrupt record at the end of the file (a crash mid-write) ends the replay
+ * and is cut off.
+ *
+ * Group commit: appending threads only copy their record into a shared buffer. A
+ * background flusher writes everything buffered with one {@code write} and one
+ * {@code force}, so concurrent orders share a single fsync. The trade-off between
+ * durability and latency is configurable:
+ * - {@link Durability#SYNC}: {@link #append} returns once the record is on disk
+ * - {@link Durability#ASYNC}: {@link #append} returns at once; the flusher fsyncs shortly after
+ * - {@link Durability#NONE}: records are written but never forced (the OS flushes them)
+ * A group-commit delay makes the flusher wait a little to gather bigger batches.
+ *
+ * {@link #checkpoint(SnapshotSource)} writes a snapshot (stock levels and all orders)
+ * next to the journal and then empties the journal, so replay stays short. Records
+ * carry a sequence number and the snapshot remembers the last one it covers, so a
+ * crash between the two steps never replays an order twice.
+ *
+ * Only order placement is journaled; catalog changes and restocks are not.
+ *
+ * Concepts reinforced:
+ * - Write-ahead logging and crash recovery
+ * - Group commit with a background thread, locks and conditions
+ * - Binary encoding with ByteBuffer and CRC32 checksums
+ */
+public class OrderJournal implements Closeable {
+
+    /**
+     * How long {@link #append} waits for its record to become durable.
+     */
+    public enum Durability {
+        SYNC,
+        ASYNC,
+        NONE
+    }
+
+    /**
+     * Receives what {@link #replay(ReplayHandler)} reads, in order: the snapshot's
+     * stock levels, then the snapshot's orders, then the orders journaled after it.
+     */
+    public interface ReplayHandler {
+
+        /**
+         * Called for every stock level saved in the snapshot.
+         *
+         * @param productId the product
+         * @param stock its stock when the snapshot was taken
+         */
+        void stock(int productId, int stock);
+
+        /**
+         * Called for every order.
+         *
+         * @param entry the order (the object is reused; copy what you keep)
+         * @param fromSnapshot true if the order's stock is already part of the snapshot's stock levels
+         */
+        void order(Entry entry, boolean fromSnapshot);
+    }
+
+    /**
+     * Supplies the state to save in a snapshot.
+     */
+    public interface SnapshotSource {
+
+        /**
+         * Writes the current stock levels and every stored order.
+         *
+         * @param writer where to write them
+         * @throws IOException if writing fails
+         */
+        void writeTo(SnapshotWriter writer) throws IOException;
+    }
+
+    /**
+     * Accepts the contents of a snapshot.
+     */
+    public interface SnapshotWriter {
+
+        // Saves one product's stock level
+        void stock(int productId, int stock) throws IOException;
+
+        // Saves one order
+        void order(Order order) throws IOException;
+    }
+
+    /**
+     * One journaled order, as read back by {@link #replay(ReplayHandler)}.
+     */
+    public static final class Entry {
+        private long sequence;
+        private long orderId;
+        private long epochMillis;
+        private int customerId;
+        private int lines;
+        private int[] productIds = new int[8];
+        private int[] quantities = new int[8];
+        private long[] unitPricesCents = new long[8];
+
+        // Returns the journal sequence number of the record
+        public long getSequence() {
+            return sequence;
+        }
+
+        // Returns the order ID
+        public long getOrderId() {
+            return orderId;
+        }
+
+        // Returns when the order was placed (LocalDateTime stored as UTC)
+        public long getEpochMillis() {
+            return epochMillis;
+        }
+
+        // Returns the ID of the customer who placed the order
+        public int getCustomerId() {
+            return customerId;
+        }
+
+        // Returns the number of order lines
+        public int getLineCount() {
+            return lines;
+        }
+
+        // Returns the product of a line
+        public int getProductId(int line) {
+            return productIds[line];
+        }
+
+        // Returns the quantity of a line
+        public int getQuantity(int line) {
+            return quantities[line];
+        }
+
+        // Returns the frozen unit price of a line, in cents
+        public long getUnitPriceCents(int line) {
+            return unitPricesCents[line];
+        }
+    }
+
+    private static final String JOURNAL_FILE = "orders.journal";
+    private static final String SNAPSHOT_FILE = "orders.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x5A4C534E; // "ZLSN"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // Bytes before the payload: length and CRC
+    private static final int RECORD_HEADER = 8;
+    private static final int ORDER_HEADER = 8 + 8 + 8 + 4 + 4;
+    private static final int LINE_SIZE = 4 + 4 + 8;
+
+    // Most lines a journaled order can have
+    public static final int MAX_LINES = 10_000;
+
+    // Appenders wait when this many bytes are buffered but not yet written
+    private static final int MAX_PENDING_BYTES = 8 << 20;
+
+    private final Path directory;
+    private final FileChannel channel;
+    private final Durability durability;
+    private final long groupCommitDelayNanos;
+
+    // Guards everything below; appenders and the flusher meet here
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    // Records copied in by appenders, not yet handed to the flusher
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+
+    // Buffer the flusher is writing (swapped with pending)
+    private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+
+    private final CRC32 crc = new CRC32();
+
+    // Logical positions: bytes ever appended, and bytes known to be written (and forced)
+    private long appended;
+    private long durable;
+
+    // File offset where the flusher writes next
+    private long filePosition;
+
+    private long nextSequence = 1;
+    private boolean replayed;
+    private boolean closed;
+    private IOException failure;
+
+    private final Thread flusher;
+
+    /**
+     * Opens (or creates) the journal in the given directory.
+     *
+     * Call {@link #replay(ReplayHandler)} once before appending.
+     *
+     * @param directory where the journal and snapshot files live
+     * @param durability how long appends wait for the disk
+     * @param groupCommitDelay how long the flusher waits to gather a batch (zero for no wait)
+     * @throws IOException if the journal cannot be opened
+     */
+    public OrderJournal(Path directory, Durability durability, Duration groupCommitDelay) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.durability = durability;
+        this.groupCommitDelayNanos = groupCommitDelay.toNanos();
+        this.channel = FileChannel.open(directory.resolve(JOURNAL_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.flusher = new Thread(this::runFlusher, "order-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Appends an order to the journal.
+     *
+     * With {@link Durability#SYNC} this waits until the record is on disk; concurrent
+     * appends share the same fsync.
+     *
+     * @param order the order to journal (its ID, date and lines are saved)
+     * @throws IllegalStateException if the journal failed, is closed or was not replayed yet
+     */
+    public void append(Order order) {
+        appendAll(Collections.singletonList(order));
+    }
+
+    /**
+     * Appends several orders, in order, and waits (with {@link Durability#SYNC}) only
+     * once for all of them.
+     *
+     * Every order is checked before anything is buffered, so a rejected call
+     * appends none of the orders.
+     *
+     * @param orders the orders to journal
+     * @throws IllegalArgumentException if an order cannot be journaled (see {@link #checkJournalable})
+     * @throws IllegalStateException if the journal failed, is closed or was not replayed yet
+     */
+    public void appendAll(List<Order> orders) {
+        int[] payloads = new int[orders.size()];
+        for (int i = 0; i < payloads.length; i++) {
+            Order order = orders.get(i);
+            checkJournalable(order.getCustomer(), order.getItems());
+            payloads[i] = ORDER_HEADER + LINE_SIZE * order.getItems().size();
+        }
+        long end;
+        lock.lock();
+        try {
+            checkUsable();
+            while (pending.position() >= MAX_PENDING_BYTES) {
+                flushed.awaitUninterruptibly(); // Back-pressure: the disk is behind
+                checkUsable();
+            }
+            int start = pending.position();
+            long firstSequence = nextSequence;
+            try {
+                for (int i = 0; i < payloads.length; i++) {
+                    if (pending.remaining() < RECORD_HEADER + payloads[i]) {
+                        pending = grow(pending, RECORD_HEADER + payloads[i]);
+                    }
+                    encode(pending, nextSequence++, orders.get(i), payloads[i]);
+                }
+            } catch (RuntimeException e) {
+                // Drop the records of this call, so no partial record reaches the file
+                pending.position(start);
+                nextSequence = firstSequence;
+                throw e;
+            }
+            appended += pending.position() - start;
+            end = appended;
+            workAvailable.signal();
+
+            if (durability == Durability.SYNC) {
+                while (durable < end) {
+                    flushed.awaitUninterruptibly();
+                    if (failure != null) {
+                        throw new IllegalStateException("Order journal write failed: " + failure.getMessage(), failure);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks that an order with this customer and these lines can be journaled.
+     *
+     * Called before an order takes stock, so an order the journal would reject
+     * never holds any.
+     *
+     * @param customer the customer placing the order
+     * @param items the order lines
+     * @throws IllegalArgumentException if the customer, the lines or a line's product
+     *         is missing, or there are more than {@link #MAX_LINES} lines
+     */
+    public static void checkJournalable(Customer customer, List<OrderItem> items) {
+        if (customer == null) {
+            throw new IllegalArgumentException("An order needs a customer.");
+        }
+        if (items == null) {
+            throw new IllegalArgumentException("An order needs a list of items.");
+        }
+        if (items.size() > MAX_LINES) {
+            throw new IllegalArgumentException("An order can have at most " + MAX_LINES + " lines.");
+        }
+        for (OrderItem item : items) {
+            if (item == null || item.getProduct() == null) {
+                throw new IllegalArgumentException("Every order line needs a product.");
+            }
+        }
+    }
+
+    /**
+     * Waits until everything appended so far is written (and forced, unless the
+     * durability is {@link Durability#NONE}).
+     */
+    public void sync() {
+        lock.lock();
+        try {
+            long target = appended;
+            while (durable < target && failure == null) {
+                workAvailable.signal();
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Order journal write failed: " + failure.getMessage(), failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the snapshot and the journal back, in order.
+     *
+     * A torn record at the end of the journal (from a crash) is cut off, and
+     * appending continues after the last good record.
+     *
+     * @param handler receives stock levels and orders
+     * @return the number of orders read (snapshot and journal)
+     * @throws IOException if the files cannot be read
+     */
+    public long replay(ReplayHandler handler) throws IOException {
+        lock.lock();
+        try {
+            if (replayed) {
+                throw new IllegalStateException("The journal was already replayed.");
+            }
+            Entry entry = new Entry();
+            long orders = 0;
+            long lastSnapshotSequence = 0;
+
+            Path snapshot = directory.resolve(SNAPSHOT_FILE);
+            if (Files.exists(snapshot)) {
+                try (FileChannel in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                    RecordReader reader = new RecordReader(in);
+                    ByteBuffer header = reader.require(4 + 4 + 8 + 4);
+                    if (header == null || header.getInt() != SNAPSHOT_MAGIC || header.getInt() != SNAPSHOT_VERSION) {
+                        throw new IOException("Not an order snapshot: " + snapshot);
+                    }
+                    lastSnapshotSequence = header.getLong();
+                    int products = header.getInt();
+                    for (int i = 0; i < products; i++) {
+                        ByteBuffer stock = reader.require(8);
+                        if (stock == null) {
+                            throw new IOException("Truncated order snapshot: " + snapshot);
+                        }
+                        handler.stock(stock.getInt(), stock.getInt());
+                    }
+                    while (reader.next(entry, crc)) {
+                        handler.order(entry, true);
+                        orders++;
+                    }
+                    if (!reader.atEnd()) {
+                        throw new IOException("Corrupt order snapshot: " + snapshot);
+                    }
+                }
+            }
+
+            RecordReader reader = new RecordReader(channel);
+            long lastSequence = lastSnapshotSequence;
+            while (reader.next(entry, crc)) {
+                if (entry.sequence > lastSnapshotSequence) { // Older ones are already in the snapshot
+                    handler.order(entry, false);
+                    orders++;
+                }
+                lastSequence = Math.max(lastSequence, entry.sequence);
+            }
+            long validEnd = reader.position();
+            if (validEnd < channel.size()) {
+                System.err.println("⚠️ Order journal: dropping " + (channel.size() - validEnd)
+                        + " bytes of incomplete records at the end.");
+                channel.truncate(validEnd);
+            }
+            filePosition = validEnd;
+            nextSequence = lastSequence + 1;
+            replayed = true;
+            return orders;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot and empties the journal.
+     *
+     * The caller must make sure no order is appended or changed while this runs
+     * ({@link OrderManager#checkpoint()} does).
+     *
+     * @param source supplies the stock levels and orders to save
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void checkpoint(SnapshotSource source) throws IOException {
+        sync();
+        lock.lock();
+        try {
+            checkUsable();
+            long covered = nextSequence - 1;
+            Path target = directory.resolve(SNAPSHOT_FILE);
+            Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                SnapshotOutput output = new SnapshotOutput(out, covered);
+                source.writeTo(output);
+                output.finish();
+                out.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Every journaled order is now in the snapshot
+            channel.truncate(0);
+            channel.force(true);
+            filePosition = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the number of bytes appended since the journal was opened
+    public long getAppendedBytes() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new IllegalStateException("Order journal write failed: " + failure.getMessage(), failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("The order journal is closed.");
+        }
+        if (!replayed) {
+            throw new IllegalStateException("Replay the order journal before appending to it.");
+        }
+    }
+
+    // Background loop: writes and forces whatever the appenders buffered
+    private void runFlusher() {
+        while (true) {
+            long target;
+            ByteBuffer batch;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    workAvailable.awaitUninterruptibly();
+                }
+                if (pending.position() == 0 && closed) {
+                    return;
+                }
+                if (groupCommitDelayNanos > 0 && !closed) {
+                    // Give other appenders a moment to join this batch
+                    long remaining = groupCommitDelayNanos;
+                    while (remaining > 0 && !closed && pending.position() < MAX_PENDING_BYTES) {
+                        try {
+                            remaining = workAvailable.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                    }
+                }
+                batch = pending;
+                pending = writing;
+                writing = batch;
+                target = appended;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                batch.flip();
+                long position = filePosition; // Only this thread and checkpoint (after sync) move it
+                while (batch.hasRemaining()) {
+                    position += channel.write(batch, position);
+                }
+                filePosition = position;
+                if (durability != Durability.NONE) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                batch.clear();
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                    System.err.println("❌ Order journal write failed: " + error.getMessage());
+                } else {
+                    durable = target;
+                }
+                flushed.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Writes one record: length, CRC, then the payload
+    private void encode(ByteBuffer buffer, long sequence, Order order, int payload) {
+        int start = buffer.position();
+        buffer.putInt(payload);
+        buffer.putInt(0); // CRC, filled in below
+        buffer.putLong(sequence);
+        buffer.putLong(order.getOrderId());
+        buffer.putLong(order.getOrderDate().toInstant(ZoneOffset.UTC).toEpochMilli());
+        buffer.putInt(order.getCustomer().getId());
+        List<OrderItem> items = order.getItems();
+        buffer.putInt(items.size());
+        for (OrderItem item : items) {
+            buffer.putInt(item.getProduct().getId());
+            buffer.putInt(item.getQuantity());
+            buffer.putLong(item.getUnitPriceCents());
+        }
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + RECORD_HEADER, payload);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < needed) {
+            capacity *= 2;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    /**
+     * Reads length-prefixed, checksummed records from a channel in large chunks.
+     */
+    private static final class RecordReader {
+
+        private final FileChannel in;
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private long position; // File offset of buffer's current position
+        private boolean eof;
+
+        RecordReader(FileChannel in) {
+            this.in = in;
+            this.buffer.flip();
+        }
+
+        // Returns a view of the next n bytes, or null at the end of the file
+        ByteBuffer require(int n) throws IOException {
+            if (!fill(n)) {
+                return null;
+            }
+            ByteBuffer view = buffer.slice();
+            view.limit(n);
+            buffer.position(buffer.position() + n);
+            position += n;
+            return view;
+        }
+
+        // Decodes the next record into entry; false at the end or at a torn/corrupt record
+        boolean next(Entry entry, CRC32 crc) throws IOException {
+            if (!fill(RECORD_HEADER)) {
+                return false;
+            }
+            int start = buffer.position();
+            int payload = buffer.getInt(start);
+            int checksum = buffer.getInt(start + 4);
+            if (payload < ORDER_HEADER || payload > ORDER_HEADER + LINE_SIZE * MAX_LINES
+                    || (payload - ORDER_HEADER) % LINE_SIZE != 0) {
+                return false;
+            }
+            if (!fill(RECORD_HEADER + payload)) {
+                return false;
+            }
+            start = buffer.position();
+            crc.reset();
+            crc.update(buffer.array(), buffer.arrayOffset() + start + RECORD_HEADER, payload);
+            if ((int) crc.getValue() != checksum) {
+                return false;
+            }
+            buffer.position(start + RECORD_HEADER);
+            entry.sequence = buffer.getLong();
+            entry.orderId = buffer.getLong();
+            entry.epochMillis = buffer.getLong();
+            entry.customerId = buffer.getInt();
+            int lines = buffer.getInt();
+            if (lines != (payload - ORDER_HEADER) / LINE_SIZE) {
+                buffer.position(start);
+                return false;
+            }
+            if (entry.productIds.length < lines) {
+                entry.productIds = new int[lines];
+                entry.quantities = new int[lines];
+                entry.unitPricesCents = new long[lines];
+            }
+            entry.lines = lines;
+            for (int i = 0; i < lines; i++) {
+                entry.productIds[i] = buffer.getInt();
+                entry.quantities[i] = buffer.getInt();
+                entry.unitPricesCents[i] = buffer.getLong();
+            }
+            position += RECORD_HEADER + payload;
+            return true;
+        }
+
+        // True if every byte of the file was consumed
+        boolean atEnd() throws IOException {
+            return !fill(1);
+        }
+
+        // File offset just after the last record returned
+        long position() {
+            return position;
+        }
+
+        // Makes sure at least n bytes are buffered; false if the file ends first
+        private boolean fill(int n) throws IOException {
+            if (buffer.remaining() >= n) {
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            buffer.compact();
+            if (buffer.capacity() < n) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(n, buffer.capacity() * 2));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            while (buffer.position() < n) {
+                int read = in.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    eof = true;
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer.remaining() >= n;
+        }
+    }
+
+    /**
+     * Writes a snapshot file: header, stock levels, then order records.
+     */
+    private final class SnapshotOutput implements SnapshotWriter {
+
+        private final FileChannel out;
+        private final long coveredSequence;
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private int products;
+        private boolean ordersStarted;
+
+        // Stock levels are collected first because the header needs their count
+        private ByteBuffer stock = ByteBuffer.allocate(64 * 1024);
+
+        SnapshotOutput(FileChannel out, long coveredSequence) {
+            this.out = out;
+            this.coveredSequence = coveredSequence;
+        }
+
+        @Override
+        public void stock(int productId, int level) {
+            if (ordersStarted) {
+                throw new IllegalStateException("Write all stock levels before the orders.");
+            }
+            if (stock.remaining() < 8) {
+                stock = grow(stock, 8);
+            }
+            stock.putInt(productId).putInt(level);
+            products++;
+        }
+
+        @Override
+        public void order(Order order) throws IOException {
+            if (!ordersStarted) {
+                writeHeader();
+            }
+            int payload = ORDER_HEADER + LINE_SIZE * order.getItems().size();
+            if (buffer.remaining() < RECORD_HEADER + payload) {
+                drain();
+                if (buffer.remaining() < RECORD_HEADER + payload) {
+                    buffer = ByteBuffer.allocate(RECORD_HEADER + payload);
+                }
+            }
+            encode(buffer, 0, order, payload);
+        }
+
+        void finish() throws IOException {
+            if (!ordersStarted) {
+                writeHeader();
+            }
+            drain();
+        }
+
+        private void writeHeader() throws IOException {
+            ordersStarted = true;
+            ByteBuffer header = ByteBuffer.allocate(4 + 4 + 8 + 4);
+            header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(coveredSequence).putInt(products);
+            header.flip();
+            writeFully(header);
+            stock.flip();
+            writeFully(stock);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                out.write(data);
+            }
+        }
+    }
+}
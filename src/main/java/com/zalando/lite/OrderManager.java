@@ -1,167 +1,771 @@
 package com.zalando.lite;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
 
 /**
  * Handles the creation, validation, and storage of orders in the ZalandoLite system.
  *
  * This manager:
  * - Accepts a list of items and a customer to create a new {@link Order}
+ * - Stamps every order with a unique ID from an {@link OrderIdGenerator}
  * - Checks inventory levels before processing the order
  * - Updates stock accordingly
- * - Stores and retrieves orders per customer
+ * - Stores and retrieves orders per customer, and finds any order by its ID
  *
  * Serves as the glue between the inventory and customer layers.
  *
+ * Orders can be placed from many threads at once. Taking stock is one lock-free,
+ * all-or-nothing step in {@link InventoryManager}, so concurrent orders for the same
+ * products never oversell and a failed order leaves no stock taken. Orders are stored
+ * in a concurrent map with one append-only {@link OrderHistory} per customer, so
+ * orders of different customers never contend with each other, and reading a
+ * customer's orders (or one page of them) never copies or locks their history.
+ * {@link #createOrderAsync(Customer, List)} places orders on virtual threads on Java 21,
+ * so a large number of checkouts can wait at once without a platform thread each
+ * (before Java 21, on a bounded pool of platform threads).
+ * Retried checkouts that carry the same idempotency key
+ * ({@link #createOrder(Customer, List, String)}) return the original order.
+ *
+ * Revenue reports come from a {@link RevenueStats} that is updated as each order is
+ * recorded, so they never walk the stored orders. The same goes for the per-minute,
+ * per-hour and per-day figures in {@link #getTimeSeries()} and the leaderboards of
+ * top orders, customers and products ({@link OrderRankings}).
+ *
+ * With an {@link OrderJournal}, every order is journaled before it is stored, so
+ * orders survive a restart: {@link #replayJournal(IntFunction)} rebuilds the stored
+ * orders, the revenue figures and the stock taken by them. {@link #checkpoint()}
+ * (by hand or every {@link #setCheckpointInterval(long) N orders}) snapshots the
+ * state so that replay stays short.
+ *
  * Concepts reinforced:
  * - Aggregation and system coordination
  * - Control flow with validation
  * - Data structure usage (Map for customer orders)
+ * - Thread-safe collections
+ * - Write-ahead logging and recovery
  */
 public class OrderManager {
 
-    // Stores orders for each customer (keyed by customer ID)
-    private Map<Integer, List<Order>> customerOrders = new HashMap<>();
+    // Keys remembered by the default idempotency cache
+    public static final int DEFAULT_IDEMPOTENCY_KEYS = 1 << 20;
+
+    // Stores orders for each customer (keyed by customer ID), oldest first
+    private final Map<Integer, OrderHistory> customerOrders = new ConcurrentHashMap<>();
+
+    // Every stored order by its ID
+    private final Map<Long, Order> ordersById = new ConcurrentHashMap<>();
 
     // Used to update inventory after order placement
     private InventoryManager inventoryManager;
 
+    // Hands out order IDs without a shared lock
+    private final OrderIdGenerator orderIds;
+
+    // Running count, sum and maximum of order totals, updated as orders are recorded
+    private final RevenueStats revenueStats = new RevenueStats();
+
+    // Revenue, orders and units per minute, hour and day, updated as orders are recorded
+    private final OrderTimeSeries timeSeries = new OrderTimeSeries();
+
+    // Top orders, customers and best-selling products, updated as orders are recorded
+    private final OrderRankings rankings = new OrderRankings();
+
+    // Where orders are journaled before they are stored, or null if they are only kept in memory
+    private final OrderJournal journal;
+
+    // Orders are placed under the read lock; a checkpoint takes the write lock for a consistent snapshot.
+    // A StampedLock, because a ReentrantReadWriteLock allows at most 65,535 readers at once and
+    // every async order waiting for the journal holds a read lock.
+    private final StampedLock checkpointLock = new StampedLock();
+
+    // Orders between automatic checkpoints (0 = only by hand)
+    private volatile long checkpointInterval;
+    private final AtomicLong ordersSinceCheckpoint = new AtomicLong();
+    private final AtomicBoolean checkpointRunning = new AtomicBoolean();
+
+    // Idempotency keys of recent orders; created on first use
+    private volatile IdempotencyCache idempotencyKeys;
+
     // Constructor to initialize with an InventoryManager
     public OrderManager(InventoryManager inventoryManager) {
+        this(inventoryManager, new OrderIdGenerator());
+    }
+
+    // Constructor with a custom ID generator, e.g. one that persists its high-water mark
+    public OrderManager(InventoryManager inventoryManager, OrderIdGenerator orderIds) {
+        this(inventoryManager, orderIds, null);
+    }
+
+    /**
+     * Constructor that journals every order.
+     *
+     * Call {@link #replayJournal(IntFunction)} before placing orders.
+     *
+     * @param inventoryManager the inventory orders take stock from
+     * @param orderIds the ID generator (use a persisted one so IDs stay unique across restarts)
+     * @param journal the journal to write orders to, or null to keep orders in memory only
+     */
+    public OrderManager(InventoryManager inventoryManager, OrderIdGenerator orderIds, OrderJournal journal) {
         this.inventoryManager = inventoryManager;
+        this.orderIds = orderIds;
+        this.journal = journal;
     }
 
     /**
      * Creates a new order for the given customer and list of order items.
      *
-     * Validates product availability before allowing the order to proceed.
+     * Stock for all lines is checked and taken in one all-or-nothing step
+     * ({@link InventoryManager#applyStockBatch(List)}), so there is no gap
+     * between validating and updating the inventory. If any line cannot be
+     * filled, the lines already taken are put back before this returns.
+     *
+     * The order keeps its own copies of the lines, priced at the product's price when
+     * the order is created (or at a price set on the line, such as a discount); that
+     * is the price the journal records. The given lines are not changed.
      *
+     * Safe to call from many threads at once. With a journal, the order is
+     * journaled before it is stored; if that fails, its stock is put back.
      * @param customer the customer placing the order
      * @param items a list of OrderItem entries to be purchased
-     * @return the created Order, or null if validation fails
+     * @return the created Order, or null if validation (or journaling) fails
      */
     public Order createOrder(Customer customer, List<OrderItem> items) {
-        // Validate stock
-        if (!validateStock(items)) {
-            return null; // Return null if stock is insufficient
+        // Validate and take stock in one step
+        return placeOrder(customer, items, () -> reserveStock(items));
+    }
+
+    /**
+     * Creates an order once per idempotency key.
+     *
+     * Clients send the same key when they retry a checkout (for example after a
+     * timeout). The first request places the order; every retry with the same key
+     * returns that original order without taking stock again. A retry that arrives
+     * while the first request is still running waits for it. If the first request
+     * fails (no stock), the key is forgotten and a retry tries again.
+     *
+     * Keys are remembered per customer in a bounded {@link IdempotencyCache} (see
+     * {@link #setIdempotencyCache(IdempotencyCache)}), in memory only.
+     *
+     * @param customer the customer placing the order
+     * @param items a list of OrderItem entries to be purchased
+     * @param idempotencyKey the client's key for this checkout, or null for none
+     * @return the created (or original) Order, or null if validation fails
+     */
+    public Order createOrder(Customer customer, List<OrderItem> items, String idempotencyKey) {
+        if (idempotencyKey == null || customer == null) {
+            return createOrder(customer, items);
+        }
+        IdempotencyCache cache = getIdempotencyCache();
+        long key = IdempotencyCache.fingerprint(customer.getId(), idempotencyKey);
+        long originalId = cache.claim(key);
+        if (originalId != IdempotencyCache.ABSENT) {
+            return findOrderById(originalId);
+        }
+        Order order = null;
+        try {
+            order = createOrder(customer, items);
+        } finally {
+            if (order != null) {
+                cache.complete(key, order.getOrderId());
+            } else {
+                cache.release(key);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Replaces the cache that remembers idempotency keys.
+     *
+     * Without a call, a cache for {@link #DEFAULT_IDEMPOTENCY_KEYS} keys kept for
+     * 24 hours (about 20 MB) is created on first use.
+     *
+     * @param cache the cache to use from now on
+     */
+    public void setIdempotencyCache(IdempotencyCache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("Idempotency cache must not be null.");
         }
+        this.idempotencyKeys = cache;
+    }
 
-        // Update inventory
-        updateInventory(items);
+    // Returns the idempotency cache, creating the default one on first use
+    private IdempotencyCache getIdempotencyCache() {
+        IdempotencyCache cache = idempotencyKeys;
+        if (cache == null) {
+            synchronized (this) {
+                cache = idempotencyKeys;
+                if (cache == null) {
+                    cache = new IdempotencyCache(DEFAULT_IDEMPOTENCY_KEYS, Duration.ofHours(24));
+                    idempotencyKeys = cache;
+                }
+            }
+        }
+        return cache;
+    }
 
-        // Create new order
+    // Takes the stock, then journals and stores the order; null if validation or the stock step fails
+    private Order placeOrder(Customer customer, List<OrderItem> items, BooleanSupplier takeStock) {
+        if (!isRecordable(customer, items)) {
+            return null;
+        }
+        Order order;
+        Lock lock = journal == null ? null : checkpointLock.asReadLock();
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            if (!takeStock.getAsBoolean()) {
+                return null; // Return null if stock is insufficient
+            }
+            order = recordOrder(customer, items);
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        if (order != null) {
+            maybeCheckpoint(1);
+        }
+        return order;
+    }
+
+    /**
+     * Places an order in the background and returns at once.
+     *
+     * On Java 21+ the order runs on its own virtual thread (see {@link VirtualThreads}),
+     * so while it waits (for example for the journal to make it durable) it holds no
+     * platform thread, and many checkouts can be in flight at once. Before Java 21 it
+     * runs on a bounded pool of platform threads and at most
+     * {@link VirtualThreads#FALLBACK_THREADS} checkouts run at once. Either way, callers
+     * can chain further steps, such as assigning a courier, onto the returned future.
+     *
+     * @param customer the customer placing the order
+     * @param items a list of OrderItem entries to be purchased
+     * @return a future completed with the created Order, or with null if validation
+     *         (or journaling) fails, exactly like {@link #createOrder(Customer, List)}
+     */
+    public CompletableFuture<Order> createOrderAsync(Customer customer, List<OrderItem> items) {
+        return createOrderAsync(customer, items, VirtualThreads.executor());
+    }
+
+    /**
+     * Places an order in the background on the given executor.
+     *
+     * @param customer the customer placing the order
+     * @param items a list of OrderItem entries to be purchased
+     * @param executor runs the checkout
+     * @return a future completed with the created Order, or with null if validation fails
+     */
+    public CompletableFuture<Order> createOrderAsync(Customer customer, List<OrderItem> items, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> createOrder(customer, items), executor);
+    }
+
+    /**
+     * Creates many orders at once, e.g. for a bulk import.
+     *
+     * Stock for the whole batch is taken with a single
+     * {@link InventoryManager#applyStockBatch(List)}. Only if that is rejected are the
+     * orders tried one by one, so one order without stock does not reject the others.
+     * With a journal, the batch is journaled with a single append. If creating or
+     * journaling the orders fails, all stock taken for the batch is put back and no
+     * order is created.
+     *
+     * @param customers the customer of each order
+     * @param itemLists the lines of each order (same size as customers)
+     * @return the created orders, position by position; null where an order had no
+     *         stock or was invalid (see {@link #createOrder(Customer, List)})
+     */
+    public List<Order> createOrders(List<Customer> customers, List<List<OrderItem>> itemLists) {
+        int count = customers.size();
+        if (itemLists.size() != count) {
+            throw new IllegalArgumentException("Every order needs a customer and a list of items.");
+        }
+        Order[] created = new Order[count];
+        List<Order> placed = new ArrayList<>(count);
+        Lock lock = journal == null ? null : checkpointLock.asReadLock();
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            // Orders that could never be stored take no stock at all
+            boolean[] recordable = new boolean[count];
+            List<StockAdjustment> adjustments = new ArrayList<>();
+            boolean valid = true;
+            for (int i = 0; i < count; i++) {
+                recordable[i] = isRecordable(customers.get(i), itemLists.get(i));
+                if (!recordable[i]) {
+                    continue;
+                }
+                for (OrderItem item : itemLists.get(i)) {
+                    valid &= item.getQuantity() > 0;
+                    adjustments.add(new StockAdjustment(item.getProduct().getId(), -item.getQuantity()));
+                }
+            }
+            boolean allTaken = valid && inventoryManager.applyStockBatch(adjustments).isApplied();
+
+            // Lines whose stock is taken, to put back if the batch fails
+            List<List<OrderItem>> taken = new ArrayList<>(count);
+            for (int i = 0; allTaken && i < count; i++) {
+                if (recordable[i]) {
+                    taken.add(itemLists.get(i));
+                }
+            }
+            try {
+                for (int i = 0; i < count; i++) {
+                    if (!recordable[i]) {
+                        continue;
+                    }
+                    if (!allTaken) {
+                        if (!reserveStock(itemLists.get(i))) {
+                            continue;
+                        }
+                        taken.add(itemLists.get(i));
+                    }
+                    created[i] = newOrder(customers.get(i), itemLists.get(i));
+                    placed.add(created[i]);
+                }
+
+                // Write ahead, once for the whole batch
+                if (journal != null && !placed.isEmpty()) {
+                    journal.appendAll(placed);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("❌ Orders could not be recorded: " + e.getMessage());
+                for (List<OrderItem> items : taken) {
+                    returnStock(items);
+                }
+                return Arrays.asList(new Order[count]);
+            }
+            for (Order order : placed) {
+                store(order);
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        maybeCheckpoint(placed.size());
+        return Arrays.asList(created);
+    }
+
+    // Creates a new order object with a fresh ID and the current date (the order prices its own copies of the lines)
+    private Order newOrder(Customer customer, List<OrderItem> items) {
         Order order = new Order(customer, items);
+        order.setOrderId(orderIds.nextId());
         order.setOrderDate(LocalDateTime.now());
+        return order;
+    }
+
+    // Checks what storing (and journaling) the order needs before any stock is taken for it
+    private boolean isRecordable(Customer customer, List<OrderItem> items) {
+        if (customer == null || items == null) {
+            System.err.println("❌ Order rejected: an order needs a customer and a list of items.");
+            return false;
+        }
+        if (journal == null) {
+            return true;
+        }
+        try {
+            OrderJournal.checkJournalable(customer, items);
+            return true;
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Order rejected: " + e.getMessage());
+            return false;
+        }
+    }
 
-        // Store order in customerOrders map
-        int customerId = customer.getId();
-        customerOrders.putIfAbsent(customerId, new ArrayList<>());
-        customerOrders.get(customerId).add(order);
+    // Creates the order object, journals it and stores it for the customer (stock is already taken)
+    private Order recordOrder(Customer customer, List<OrderItem> items) {
+        Order order;
+        try {
+            // Create new order
+            order = newOrder(customer, items);
+
+            // Write ahead: the order only becomes visible once the journal has it
+            if (journal != null) {
+                journal.append(order);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("❌ Order could not be journaled: " + e.getMessage());
+            returnStock(items);
+            return null;
+        }
 
+        store(order);
         return order;
     }
 
+    // Adds an order to the customer's list and to the revenue aggregates
+    private void store(Order order) {
+        // Store order in customerOrders map (creating the customer's history atomically)
+        customerOrders.computeIfAbsent(order.getCustomer().getId(), id -> new OrderHistory()).add(order);
+        ordersById.put(order.getOrderId(), order);
+
+        // Update the revenue aggregates, so reports never walk the orders
+        long totalCents = order.calculateTotalCents();
+        revenueStats.record(order, totalCents);
+        timeSeries.record(order, totalCents);
+        rankings.record(order, totalCents);
+    }
+
+    // Puts back the stock of an order that could not be recorded
+    private void returnStock(List<OrderItem> items) {
+        List<StockAdjustment> adjustments = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            adjustments.add(new StockAdjustment(item.getProduct().getId(), item.getQuantity()));
+        }
+        inventoryManager.applyStockBatch(adjustments);
+    }
+
+    /**
+     * Rebuilds the stored orders from the journal's snapshot and records.
+     *
+     * Stock levels saved in the snapshot are restored, and the stock of every order
+     * journaled after it is taken again. Products that are no longer in the catalog
+     * are replaced by placeholders carrying the journaled price.
+     *
+     * Call once at startup, before any order is placed.
+     *
+     * @param customers looks customers up by ID; for IDs it returns null for, a placeholder customer is used
+     * @return the number of orders restored
+     * @throws IOException if the journal cannot be read
+     */
+    public long replayJournal(IntFunction<Customer> customers) throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("This order manager has no journal.");
+        }
+        Map<Integer, Customer> customerCache = new HashMap<>();
+        Map<Integer, Product> missingProducts = new HashMap<>();
+        long[] shortfalls = new long[1];
+
+        long restored = journal.replay(new OrderJournal.ReplayHandler() {
+            @Override
+            public void stock(int productId, int stock) {
+                Product product = inventoryManager.findProductById(productId);
+                if (product != null) {
+                    product.setStock(stock);
+                }
+            }
+
+            @Override
+            public void order(OrderJournal.Entry entry, boolean fromSnapshot) {
+                List<OrderItem> items = new ArrayList<>(entry.getLineCount());
+                for (int line = 0; line < entry.getLineCount(); line++) {
+                    int productId = entry.getProductId(line);
+                    int quantity = entry.getQuantity(line);
+                    long unitPriceCents = entry.getUnitPriceCents(line);
+                    Product product = inventoryManager.findProductById(productId);
+                    if (product == null) {
+                        product = missingProducts.computeIfAbsent(productId, id -> new Product(id,
+                                "Unknown product #" + id, null, Money.toMajor(unitPriceCents), 0, new ArrayList<>()));
+                    } else if (!fromSnapshot && product.tryReduceStock(quantity) < 0) {
+                        product.setStock(0); // The catalog holds less than was sold
+                        shortfalls[0]++;
+                    }
+                    OrderItem item = new OrderItem(product, quantity);
+                    item.setUnitPriceCents(unitPriceCents); // The price paid, not today's
+                    items.add(item);
+                }
+
+                Customer customer = customerCache.computeIfAbsent(entry.getCustomerId(), id -> {
+                    Customer found = customers.apply(id);
+                    if (found == null) {
+                        found = new Customer("Customer #" + id, null);
+                        found.setId(id);
+                    }
+                    return found;
+                });
+
+                Order order = new Order(customer, items);
+                order.setOrderId(entry.getOrderId());
+                order.setOrderDate(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getEpochMillis()), ZoneOffset.UTC));
+                store(order);
+            }
+        });
+
+        if (shortfalls[0] > 0) {
+            System.err.println("⚠️ Journal replay: " + shortfalls[0] + " order lines had more units than in stock.");
+        }
+        return restored;
+    }
+
+    /**
+     * Writes a snapshot of all stored orders and current stock levels, then empties the journal.
+     *
+     * Units held by pending reservations are saved as in stock, because holds do not
+     * survive a restart (see {@link InventoryManager#getStockIncludingHolds()}).
+     * New orders wait while the snapshot is written.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void checkpoint() throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("This order manager has no journal.");
+        }
+        checkpointLock.asWriteLock().lock();
+        try {
+            ordersSinceCheckpoint.set(0);
+            journal.checkpoint(writer -> {
+                // Pending holds are not journaled, so their units are saved as in stock
+                for (Map.Entry<Integer, Integer> level : inventoryManager.getStockIncludingHolds().entrySet()) {
+                    writer.stock(level.getKey(), level.getValue());
+                }
+                for (OrderHistory history : customerOrders.values()) {
+                    for (Order order : history.view()) {
+                        writer.order(order);
+                    }
+                }
+            });
+        } finally {
+            checkpointLock.asWriteLock().unlock();
+        }
+    }
+
+    /**
+     * Makes {@link #checkpoint()} run automatically after every {@code orders} journaled orders.
+     *
+     * The checkpoint runs on the thread that placed the order crossing the threshold.
+     *
+     * @param orders orders between checkpoints, or 0 to checkpoint only by hand
+     */
+    public void setCheckpointInterval(long orders) {
+        if (orders < 0) {
+            throw new IllegalArgumentException("Checkpoint interval must not be negative.");
+        }
+        this.checkpointInterval = orders;
+    }
+
+    // Runs a checkpoint if enough orders were journaled since the last one
+    private void maybeCheckpoint(int newOrders) {
+        long interval = checkpointInterval;
+        if (journal == null || interval == 0 || newOrders == 0
+                || ordersSinceCheckpoint.addAndGet(newOrders) < interval) {
+            return;
+        }
+        if (!checkpointRunning.compareAndSet(false, true)) {
+            return; // Another thread is already on it
+        }
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            System.err.println("❌ Checkpoint failed: " + e.getMessage());
+        } finally {
+            checkpointRunning.set(false);
+        }
+    }
+
+    /**
+     * Creates an order whose stock was already held with
+     * {@link InventoryManager#reserve(int, int, java.time.Duration)}.
+     *
+     * The pending holds must cover exactly the ordered units: per product, the
+     * held quantities must add up to the ordered quantities. Otherwise the order
+     * is rejected and the holds are left pending. All holds are committed
+     * together; if any of them has expired or was released in the meantime,
+     * none of them is used and no order is created.
+     *
+     * @param customer the customer placing the order
+     * @param items the order lines (their stock is not taken again)
+     * @param reservationIds the holds covering those lines
+     * @return the created Order, or null if the holds do not match the lines or one
+     *         was no longer pending
+     */
+    public Order createReservedOrder(Customer customer, List<OrderItem> items, List<Long> reservationIds) {
+        return placeOrder(customer, items,
+                () -> holdsCover(items, reservationIds) && inventoryManager.commitAll(reservationIds));
+    }
+
+    // Checks that the pending holds add up to exactly the ordered quantity of each product
+    private boolean holdsCover(List<OrderItem> items, List<Long> reservationIds) {
+        if (reservationIds == null) {
+            System.err.println("❌ Order rejected: no holds were given.");
+            return false;
+        }
+        Map<Integer, Integer> outstanding = new HashMap<>();
+        for (OrderItem item : items) {
+            if (item == null || item.getProduct() == null) {
+                System.err.println("❌ Order rejected: every line needs a product.");
+                return false;
+            }
+            outstanding.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        for (Long reservationId : reservationIds) {
+            StockReservation hold = reservationId == null ? null : inventoryManager.getReservation(reservationId);
+            if (hold == null) {
+                System.err.println("❌ Order rejected: hold " + reservationId + " is not pending.");
+                return false;
+            }
+            outstanding.merge(hold.getProductId(), -hold.getQuantity(), Integer::sum);
+        }
+        for (int remaining : outstanding.values()) {
+            if (remaining != 0) {
+                System.err.println("❌ Order rejected: the holds do not match the ordered quantities.");
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Retrieves all orders placed by a specific customer.
      *
      * @param customerId the ID of the customer
-     * @return a list of their orders, or an empty list if none exist
+     * @return a read-only view of their orders so far, oldest first, or an empty list if none exist
      */
     public List<Order> getOrdersForCustomer(int customerId) {
-        return customerOrders.getOrDefault(customerId, new ArrayList<>());
+        OrderHistory history = customerOrders.get(customerId);
+        return history == null ? Collections.emptyList() : history.view(); // A view, not a copy
     }
 
     /**
-     * Optional helper: Validates item quantities before processing.
+     * Retrieves one page of a customer's orders, newest first.
+     *
+     * Each page costs O(pageSize), however many orders the customer has.
      *
-     * @param items the list of items to validate
-     * @return true if all items are in stock
+     * @param customerId the ID of the customer
+     * @param cursor {@link OrderPage#FIRST} or the cursor of the previous page
+     * @param pageSize maximum number of orders on the page
+     * @return the page and the cursor for older orders
      */
-    private boolean validateStock(List<OrderItem> items) {
-        for (OrderItem item : items) {
-            Product product = item.getProduct();
-            int requiredQuantity = item.getQuantity();
-            if (!inventoryManager.isProductAvailable(product.getId()) ||
-                    inventoryManager.findProductById(product.getId()).getStock() < requiredQuantity) {
-                return false; // Stock insufficient or product not available
-            }
+    public OrderPage getOrderHistory(int customerId, long cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
         }
-        return true; // All items have sufficient stock
+        OrderHistory history = customerOrders.get(customerId);
+        return history == null ? new OrderPage(new ArrayList<>(), OrderPage.END) : history.page(cursor, pageSize);
     }
 
     /**
-     * Optional helper: Updates inventory after successful order.
+     * Finds an order by its ID.
      *
-     * @param items the list of items whose stock should be reduced
+     * @param orderId the order ID
+     * @return the order, or null if no such order was placed
      */
-    private void updateInventory(List<OrderItem> items) {
+    public Order findOrderById(long orderId) {
+        return ordersById.get(orderId);
+    }
+
+    /**
+     * Takes the stock for every line of an order, or none of it.
+     *
+     * @param items the order lines
+     * @return true if all items were in stock and their stock was reduced
+     */
+    private boolean reserveStock(List<OrderItem> items) {
+        List<StockAdjustment> adjustments = new ArrayList<>(items.size());
         for (OrderItem item : items) {
-            Product product = item.getProduct();
-            int quantity = item.getQuantity();
-            inventoryManager.reduceStock(product.getId(), quantity);
+            if (item.getQuantity() <= 0) {
+                return false; // An order line must buy at least one unit
+            }
+            adjustments.add(new StockAdjustment(item.getProduct().getId(), -item.getQuantity()));
         }
+        return inventoryManager.applyStockBatch(adjustments).isApplied();
     }
 
     /**
-     * Calculates the total revenue from all orders.
+     * Returns the total revenue from all orders.
+     *
+     * Read from running aggregates, so it costs the same however many orders exist.
      *
      * @return the total revenue as a double
      */
     public double getTotalRevenue() {
-        double totalRevenue = 0.0;
-
-        for (List<Order> orders : customerOrders.values()) {
-            for (Order order : orders) {
-                totalRevenue += order.calculateTotal(); // Add the total for each order
-            }
-        }
+        return revenueStats.getTotalRevenue();
+    }
 
-        return totalRevenue;
+    // Returns the total revenue in cents (exact)
+    public long getTotalRevenueCents() {
+        return revenueStats.getTotalRevenueCents();
     }
 
     /**
-     * Calculates the average order value across all customers.
+     * Returns the average order value across all customers.
      *
      * @return the average order value, or 0.0 if no orders exist
      */
     public double getAverageOrderValue() {
-        int totalOrders = 0;
+        return revenueStats.getAverageOrderValue();
+    }
 
-        for (List<Order> orders : customerOrders.values()) {
-            totalOrders += orders.size();
-        }
+    /**
+     * Returns revenue, order count and units per minute, hour and day,
+     * e.g. {@code getTimeSeries().summarize(Duration.ofMinutes(15))}.
+     *
+     * @return the time-bucketed aggregates of all recorded orders
+     */
+    public OrderTimeSeries getTimeSeries() {
+        return timeSeries;
+    }
 
-        if (totalOrders == 0) return 0.0;
+    /**
+     * Returns the highest-value orders, highest first.
+     *
+     * @param k how many orders (at most {@link OrderRankings#DEFAULT_TOP_ORDERS})
+     * @return the orders
+     */
+    public List<Order> getTopOrders(int k) {
+        return rankings.getTopOrders(k);
+    }
 
-        return getTotalRevenue() / totalOrders;
+    /**
+     * Returns the customers who spent the most, highest first.
+     *
+     * @param k how many customers (at most {@link OrderRankings#DEFAULT_TOP_CUSTOMERS})
+     * @return the customers with their lifetime spend in cents
+     */
+    public List<OrderRankings.Ranked<Customer>> getTopCustomers(int k) {
+        return rankings.getTopCustomers(k);
     }
 
     /**
-     * Finds the order with the highest total price.
+     * Returns the best-selling products by units, highest first.
      *
-     * @return the highest-value order, or null if no orders exist
+     * Units come from a sketch: each score may be overstated by at most its error.
+     * Products no longer in the catalog are left out.
+     *
+     * @param k how many products
+     * @return the products with units sold
      */
-    public Order getHighestValueOrder() {
-        Order highestOrder = null;           // Variable to store the current highest value order
-        double highestValue = 0.0;           // Variable to track the highest value seen so far
-
-        for (List<Order> orders : customerOrders.values()) {
-            // Loop through the list of orders for each customer
-            for (Order order : orders) {
-                double total = order.calculateTotal();   // Calculate the total for this order
-
-                // If this order's total is higher than the current highest, update the highest
-                if (highestOrder == null || total > highestValue) {
-                    highestOrder = order;
-                    highestValue = total;
-                }
+    public List<OrderRankings.Ranked<Product>> getBestSellingProducts(int k) {
+        List<OrderRankings.Ranked<Product>> result = new ArrayList<>();
+        for (OrderRankings.Ranked<Integer> ranked : rankings.getBestSellers(Integer.MAX_VALUE)) {
+            if (result.size() >= k) {
+                break;
+            }
+            Product product = inventoryManager.findProductById(ranked.getItem());
+            if (product != null) {
+                result.add(new OrderRankings.Ranked<>(product, ranked.getScore(), ranked.getError()));
             }
         }
+        return result;
+    }
 
-        return highestOrder; // Return the order with the highest total value, or null if no orders exist
+    /**
+     * Returns the order with the highest total price.
+     *
+     * @return the highest-value order, or null if no orders exist
+     */
+    public Order getHighestValueOrder() {
+        return revenueStats.getHighestValueOrder();
     }
 }
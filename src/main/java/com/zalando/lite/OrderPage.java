@@ -0,0 +1,48 @@
+package com.zalando.lite;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a customer's order history, newest first, returned by
+ * {@link OrderManager#getOrderHistory(int, long, int)}.
+ *
+ * Pass {@link #getNextCursor()} to the next call to continue with older orders.
+ * Cursors point at a fixed place in the history, so orders placed between calls
+ * do not shift later pages. They should not be built by hand.
+ *
+ * Concepts reinforced:
+ * - Cursor-based pagination
+ * - Immutable result objects
+ */
+public class OrderPage {
+
+    // Cursor for the first page (the newest orders)
+    public static final long FIRST = 0L;
+
+    // Cursor returned after the last page
+    public static final long END = -1L;
+
+    private final List<Order> orders;
+    private final long nextCursor;
+
+    OrderPage(List<Order> orders, long nextCursor) {
+        this.orders = Collections.unmodifiableList(orders);
+        this.nextCursor = nextCursor;
+    }
+
+    // Returns the orders on this page, newest first
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    // Returns the cursor for the following (older) page, or END
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    // Returns true if there are older orders after this page
+    public boolean hasMore() {
+        return nextCursor != END;
+    }
+}
@@ -0,0 +1,252 @@
+package com.zalando.lite;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live leaderboards over all recorded orders: the highest-value orders, the
+ * customers who spent the most and the best-selling products.
+ *
+ * Updated incrementally as each order is recorded, so reading a leaderboard never
+ * walks the orders:
+ * - Top orders by value: a bounded min-heap ({@link TopK}), exact
+ * - Top customers by lifetime spend: a running total per customer plus an indexed
+ *   min-heap ({@link TopKeys}), exact because spend only grows
+ * - Best-selling products by units: {@link SpaceSavingSketch}es with a fixed number of
+ *   counters, approximate but with known error bounds, however large the catalog
+ *
+ * Most orders do not make it into the top lists; they are turned away by comparing
+ * against a volatile threshold, without taking a lock. The product sketches are
+ * striped by thread (like {@link RevenueStats}) and merged when read.
+ *
+ * Concepts reinforced:
+ * - Top-K with heaps
+ * - Approximate counting with sketches
+ * - Lock-free fast paths with volatile thresholds
+ */
+public class OrderRankings {
+
+    // Default sizes of the leaderboards
+    public static final int DEFAULT_TOP_ORDERS = 100;
+    public static final int DEFAULT_TOP_CUSTOMERS = 100;
+    public static final int DEFAULT_PRODUCT_COUNTERS = 1024;
+
+    /**
+     * One leaderboard entry: an item with its score and how much the score may be overstated.
+     *
+     * @param <T> the ranked item type
+     */
+    public static final class Ranked<T> {
+        private final T item;
+        private final long score;
+        private final long error;
+
+        Ranked(T item, long score, long error) {
+            this.item = item;
+            this.score = score;
+            this.error = error;
+        }
+
+        // Returns the ranked item
+        public T getItem() {
+            return item;
+        }
+
+        // Returns its score (cents spent or units sold)
+        public long getScore() {
+            return score;
+        }
+
+        // Returns how much the score may be above the true value (0 when exact)
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return item + "=" + score + (error == 0 ? "" : " (±" + error + ")");
+        }
+    }
+
+    private final TopK<Order> topOrders;
+
+    // Total an order must beat to enter topOrders; read without the lock
+    private volatile long orderThreshold = Long.MIN_VALUE;
+
+    // Lifetime spend per customer ID, in cents
+    private final Map<Integer, CustomerSpend> spend = new ConcurrentHashMap<>();
+
+    private final TopKeys topCustomers;
+
+    // Spend a customer must beat to enter topCustomers; read without the lock
+    private volatile long customerThreshold = Long.MIN_VALUE;
+
+    // One sketch per stripe, each guarded by its own monitor
+    private final SpaceSavingSketch[] productSketches;
+    private final int stripeMask;
+
+    // Creates leaderboards with the default sizes
+    public OrderRankings() {
+        this(DEFAULT_TOP_ORDERS, DEFAULT_TOP_CUSTOMERS, DEFAULT_PRODUCT_COUNTERS);
+    }
+
+    /**
+     * Creates leaderboards with custom sizes.
+     *
+     * @param topOrders how many orders to keep
+     * @param topCustomers how many customers to keep
+     * @param productCounters counters per product sketch (more counters, smaller errors)
+     */
+    public OrderRankings(int topOrders, int topCustomers, int productCounters) {
+        this.topOrders = new TopK<>(topOrders);
+        this.topCustomers = new TopKeys(topCustomers);
+        int stripes = Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.productSketches = new SpaceSavingSketch[stripes];
+        for (int i = 0; i < stripes; i++) {
+            productSketches[i] = new SpaceSavingSketch(productCounters);
+        }
+        this.stripeMask = stripes - 1;
+    }
+
+    /**
+     * Adds an order to every leaderboard.
+     *
+     * @param order the order that was placed
+     * @param totalCents its total in cents
+     */
+    public void record(Order order, long totalCents) {
+        if (totalCents > orderThreshold) {
+            synchronized (topOrders) {
+                topOrders.offer(order, totalCents);
+                orderThreshold = topOrders.threshold();
+            }
+        }
+
+        Customer customer = order.getCustomer();
+        long customerTotal = spend.computeIfAbsent(customer.getId(), id -> new CustomerSpend(customer))
+                .cents.addAndGet(totalCents);
+        if (customerTotal > customerThreshold) {
+            synchronized (topCustomers) {
+                topCustomers.offer(customer.getId(), customerTotal);
+                customerThreshold = topCustomers.threshold();
+            }
+        }
+
+        SpaceSavingSketch sketch = productSketches[ProductIndex.hash(System.identityHashCode(Thread.currentThread())) & stripeMask];
+        synchronized (sketch) {
+            for (OrderItem item : order.getItems()) {
+                if (item.getQuantity() > 0) {
+                    sketch.add(item.getProduct().getId(), item.getQuantity());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the highest-value orders, highest first.
+     *
+     * @param k how many orders to return (at most the leaderboard size)
+     * @return the orders
+     */
+    public List<Order> getTopOrders(int k) {
+        checkK(k, topOrders.getCapacity());
+        synchronized (topOrders) {
+            return topOrders.top(k);
+        }
+    }
+
+    /**
+     * Returns the customers with the highest lifetime spend, highest first.
+     *
+     * @param k how many customers to return (at most the leaderboard size)
+     * @return the customers with their spend in cents (exact)
+     */
+    public List<Ranked<Customer>> getTopCustomers(int k) {
+        checkK(k, topCustomers.getCapacity());
+        List<TopKeys.Entry> entries;
+        synchronized (topCustomers) {
+            entries = topCustomers.top(k);
+        }
+        List<Ranked<Customer>> result = new ArrayList<>(entries.size());
+        for (TopKeys.Entry entry : entries) {
+            result.add(new Ranked<>(spend.get(entry.getKey()).customer, entry.getScore(), 0));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the lifetime spend of one customer.
+     *
+     * @param customerId the customer's ID
+     * @return the spend in cents, or 0 if they never ordered
+     */
+    public long getCustomerSpendCents(int customerId) {
+        CustomerSpend customerSpend = spend.get(customerId);
+        return customerSpend == null ? 0 : customerSpend.cents.get();
+    }
+
+    /**
+     * Returns the best-selling product IDs by units sold, highest first.
+     *
+     * The per-stripe sketches are merged: a product a stripe does not track is
+     * counted with that stripe's smallest counter (an upper bound), which is also
+     * added to its error.
+     *
+     * @param k how many products to return
+     * @return product IDs with units sold (upper bound) and error
+     */
+    public List<Ranked<Integer>> getBestSellers(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative.");
+        }
+        // Product ID -> {count, error, sum of the min counters of the stripes that track it}
+        Map<Integer, long[]> merged = new HashMap<>();
+        long sumOfMins = 0;
+        for (SpaceSavingSketch sketch : productSketches) {
+            List<TopKeys.Entry> entries;
+            long min;
+            synchronized (sketch) {
+                entries = sketch.top(sketch.getCapacity());
+                min = sketch.getMinCount();
+            }
+            sumOfMins += min;
+            for (TopKeys.Entry entry : entries) {
+                long[] totals = merged.computeIfAbsent(entry.getKey(), key -> new long[3]);
+                totals[0] += entry.getScore();
+                totals[1] += entry.getError();
+                totals[2] += min;
+            }
+        }
+
+        List<Ranked<Integer>> result = new ArrayList<>(merged.size());
+        for (Map.Entry<Integer, long[]> entry : merged.entrySet()) {
+            long[] totals = entry.getValue();
+            long untracked = sumOfMins - totals[2]; // What the stripes not tracking it may have seen
+            result.add(new Ranked<>(entry.getKey(), totals[0] + untracked, totals[1] + untracked));
+        }
+        result.sort((a, b) -> a.score != b.score ? Long.compare(b.score, a.score) : Integer.compare(a.item, b.item));
+        return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    private static void checkK(int k, int capacity) {
+        if (k < 0 || k > capacity) {
+            throw new IllegalArgumentException("k must be between 0 and " + capacity + ".");
+        }
+    }
+
+    /**
+     * A customer with their running spend.
+     */
+    private static final class CustomerSpend {
+        private final Customer customer;
+        private final AtomicLong cents = new AtomicLong();
+
+        CustomerSpend(Customer customer) {
+            this.customer = customer;
+        }
+    }
+}
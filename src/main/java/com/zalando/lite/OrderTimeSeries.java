@@ -0,0 +1,311 @@
+package com.zalando.lite;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revenue, order count and units sold per minute, hour and day.
+ *
+ * Every recorded order is added to one bucket in each of three fixed-size rings
+ * (by default the last 180 minutes, 72 hours and 90 days). A ring slot is reused
+ * once its time has passed out of the ring, so memory never grows, and a query like
+ * "revenue over the last 15 minutes" adds up 15 buckets instead of walking orders.
+ *
+ * Buckets follow the wall clock of {@link Order#getOrderDate()}, so days start at
+ * local midnight. The current bucket counts as one of the requested buckets: "the
+ * last 15 minutes" is the current (partial) minute and the 14 before it.
+ *
+ * Recording is lock-free: each bucket holds {@link LongAdder}s, and a slot moves on
+ * to a new time with one compare-and-set. Orders older than a ring's span are left
+ * out of that ring.
+ *
+ * Concepts reinforced:
+ * - Ring buffers
+ * - Time bucketing with floorDiv / floorMod
+ * - Lock-free updates with AtomicReferenceArray and LongAdder
+ */
+public class OrderTimeSeries {
+
+    /**
+     * Bucket widths.
+     */
+    public enum Resolution {
+        MINUTE(60),
+        HOUR(60 * 60),
+        DAY(24 * 60 * 60);
+
+        // Bucket width in seconds
+        private final long seconds;
+
+        Resolution(long seconds) {
+            this.seconds = seconds;
+        }
+
+        // Returns the width of one bucket
+        public Duration getWidth() {
+            return Duration.ofSeconds(seconds);
+        }
+    }
+
+    // Default number of buckets per ring
+    public static final int DEFAULT_MINUTES = 180;
+    public static final int DEFAULT_HOURS = 72;
+    public static final int DEFAULT_DAYS = 90;
+
+    private final Clock clock;
+
+    // One ring per resolution, indexed by Resolution.ordinal()
+    private final Ring[] rings;
+
+    // Creates a series with the default ring sizes on the system clock
+    public OrderTimeSeries() {
+        this(Clock.systemDefaultZone(), DEFAULT_MINUTES, DEFAULT_HOURS, DEFAULT_DAYS);
+    }
+
+    /**
+     * Creates a series with custom ring sizes.
+     *
+     * @param clock tells queries what "now" is (in the same zone as order dates)
+     * @param minutes number of minute buckets kept
+     * @param hours number of hour buckets kept
+     * @param days number of day buckets kept
+     */
+    public OrderTimeSeries(Clock clock, int minutes, int hours, int days) {
+        if (minutes <= 0 || hours <= 0 || days <= 0) {
+            throw new IllegalArgumentException("Every ring needs at least one bucket.");
+        }
+        this.clock = clock;
+        this.rings = new Ring[] {
+                new Ring(Resolution.MINUTE.seconds, minutes),
+                new Ring(Resolution.HOUR.seconds, hours),
+                new Ring(Resolution.DAY.seconds, days)
+        };
+    }
+
+    /**
+     * Adds an order to its minute, hour and day buckets.
+     *
+     * @param order the order (its date decides the buckets)
+     * @param totalCents its total in cents
+     */
+    public void record(Order order, long totalCents) {
+        long second = order.getOrderDate().toEpochSecond(ZoneOffset.UTC);
+        long units = 0;
+        for (OrderItem item : order.getItems()) {
+            units += item.getQuantity();
+        }
+        for (Ring ring : rings) {
+            ring.add(second, totalCents, units);
+        }
+    }
+
+    /**
+     * Returns the totals of the last {@code window}, using the finest resolution
+     * whose ring is long enough.
+     *
+     * The window is rounded up to whole buckets, counting the current one.
+     *
+     * @param window how far back to look, e.g. 15 minutes
+     * @return the totals over that window
+     */
+    public Totals summarize(Duration window) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive.");
+        }
+        for (Resolution resolution : Resolution.values()) {
+            long buckets = (window.getSeconds() + resolution.seconds - 1) / resolution.seconds;
+            if (buckets <= getCapacity(resolution)) {
+                return summarize(resolution, (int) buckets);
+            }
+        }
+        throw new IllegalArgumentException("Window is longer than the " + getCapacity(Resolution.DAY) + " days kept.");
+    }
+
+    /**
+     * Returns the totals of the last {@code buckets} buckets (including the current one).
+     *
+     * @param resolution the bucket width
+     * @param buckets how many buckets to add up
+     * @return the totals, starting at the oldest bucket
+     */
+    public Totals summarize(Resolution resolution, int buckets) {
+        Ring ring = ring(resolution, buckets);
+        long current = currentIndex(ring);
+        long orders = 0;
+        long units = 0;
+        long revenueCents = 0;
+        for (long index = current - buckets + 1; index <= current; index++) {
+            Bucket bucket = ring.get(index);
+            if (bucket != null) {
+                orders += bucket.orders.sum();
+                units += bucket.units.sum();
+                revenueCents += bucket.revenueCents.sum();
+            }
+        }
+        return new Totals(start(ring, current - buckets + 1), orders, units, revenueCents);
+    }
+
+    /**
+     * Returns one entry per bucket for the last {@code buckets} buckets, oldest first,
+     * e.g. to draw a revenue chart. Buckets without orders are included with zeros.
+     *
+     * @param resolution the bucket width
+     * @param buckets how many buckets to return (including the current one)
+     * @return the buckets' totals, oldest first
+     */
+    public List<Totals> series(Resolution resolution, int buckets) {
+        Ring ring = ring(resolution, buckets);
+        long current = currentIndex(ring);
+        List<Totals> points = new ArrayList<>(buckets);
+        for (long index = current - buckets + 1; index <= current; index++) {
+            Bucket bucket = ring.get(index);
+            points.add(bucket == null
+                    ? new Totals(start(ring, index), 0, 0, 0)
+                    : new Totals(start(ring, index), bucket.orders.sum(), bucket.units.sum(), bucket.revenueCents.sum()));
+        }
+        return points;
+    }
+
+    // Returns how many buckets of a resolution are kept
+    public int getCapacity(Resolution resolution) {
+        return rings[resolution.ordinal()].slots.length();
+    }
+
+    private Ring ring(Resolution resolution, int buckets) {
+        Ring ring = rings[resolution.ordinal()];
+        if (buckets <= 0 || buckets > ring.slots.length()) {
+            throw new IllegalArgumentException("Buckets must be between 1 and " + ring.slots.length() + ".");
+        }
+        return ring;
+    }
+
+    private long currentIndex(Ring ring) {
+        return Math.floorDiv(LocalDateTime.now(clock).toEpochSecond(ZoneOffset.UTC), ring.width);
+    }
+
+    private static LocalDateTime start(Ring ring, long index) {
+        return LocalDateTime.ofEpochSecond(index * ring.width, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Totals over one bucket or a run of buckets.
+     */
+    public static final class Totals {
+
+        private final LocalDateTime start;
+        private final long orderCount;
+        private final long units;
+        private final long revenueCents;
+
+        Totals(LocalDateTime start, long orderCount, long units, long revenueCents) {
+            this.start = start;
+            this.orderCount = orderCount;
+            this.units = units;
+            this.revenueCents = revenueCents;
+        }
+
+        // Returns the start of the (first) bucket
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        // Returns the number of orders
+        public long getOrderCount() {
+            return orderCount;
+        }
+
+        // Returns the number of units sold
+        public long getUnits() {
+            return units;
+        }
+
+        // Returns the revenue in cents
+        public long getRevenueCents() {
+            return revenueCents;
+        }
+
+        // Returns the revenue in euros
+        public double getRevenue() {
+            return Money.toMajor(revenueCents);
+        }
+
+        @Override
+        public String toString() {
+            return "Totals{start=" + start + ", orders=" + orderCount + ", units=" + units
+                    + ", revenue=" + Money.format(revenueCents) + '}';
+        }
+    }
+
+    /**
+     * A ring of buckets of one width. Slot {@code index % size} holds the bucket for
+     * {@code index} until a later index needs the slot.
+     */
+    private static final class Ring {
+
+        // Bucket width in seconds
+        private final long width;
+        private final AtomicReferenceArray<Bucket> slots;
+
+        Ring(long width, int size) {
+            this.width = width;
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        void add(long second, long cents, long units) {
+            long index = Math.floorDiv(second, width);
+            int slot = (int) Math.floorMod(index, (long) slots.length());
+            Bucket fresh = null;
+            while (true) {
+                Bucket bucket = slots.get(slot);
+                if (bucket != null && bucket.index == index) {
+                    bucket.add(cents, units);
+                    return;
+                }
+                if (bucket != null && bucket.index > index) {
+                    return; // Older than the ring reaches back
+                }
+                if (fresh == null) {
+                    fresh = new Bucket(index);
+                }
+                if (slots.compareAndSet(slot, bucket, fresh)) { // The slot moves on to the new time
+                    fresh.add(cents, units);
+                    return;
+                }
+            }
+        }
+
+        // Returns the bucket for an index, or null if it is empty or was already reused
+        Bucket get(long index) {
+            Bucket bucket = slots.get((int) Math.floorMod(index, (long) slots.length()));
+            return bucket != null && bucket.index == index ? bucket : null;
+        }
+    }
+
+    /**
+     * The running totals of one time bucket.
+     */
+    private static final class Bucket {
+
+        // Bucket number since the epoch (seconds / width)
+        private final long index;
+        private final LongAdder orders = new LongAdder();
+        private final LongAdder units = new LongAdder();
+        private final LongAdder revenueCents = new LongAdder();
+
+        Bucket(long index) {
+            this.index = index;
+        }
+
+        void add(long cents, long units) {
+            this.orders.increment();
+            this.units.add(units);
+            this.revenueCents.add(cents);
+        }
+    }
+}
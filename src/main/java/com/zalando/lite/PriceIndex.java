@@ -0,0 +1,199 @@
+package com.zalando.lite;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * A sorted index of products by price, for the whole catalog and per category.
+ *
+ * Products are kept in balanced trees ordered by price in cents (ties broken by product ID),
+ * so a query like "Shoes between €20 and €60, cheapest first" becomes a walk over
+ * just the matching part of one tree:
+ * - Price range: O(log N + k)
+ * - Cheapest / most expensive N: O(log N + N)
+ *
+ * Each tree entry holds the price the product was indexed with. That price is also
+ * what removes the entry again, so {@link InventoryManager} passes the old price
+ * (or old category) whenever a stored product changes.
+ *
+ * All methods are synchronized, so queries are safe while the catalog changes.
+ *
+ * Concepts reinforced:
+ * - Navigable (sorted) sets and sub-set views
+ * - Comparators with tie-breakers
+ * - Incremental index maintenance
+ */
+public class PriceIndex {
+
+    // Orders products the same way the index does: by price, then by ID
+    static final Comparator<Product> BY_PRICE =
+            Comparator.comparingLong(Product::getPriceCents).thenComparingInt(Product::getId);
+
+    // Every indexed product
+    private final NavigableSet<PriceEntry> all = new TreeSet<>();
+
+    // Products grouped by normalized category name
+    private final Map<String, NavigableSet<PriceEntry>> byCategory = new HashMap<>();
+
+    /**
+     * Indexes a product under its current price and category.
+     *
+     * @param product the product to index
+     */
+    public synchronized void add(Product product) {
+        PriceEntry entry = new PriceEntry(product.getPriceCents(), product);
+        all.add(entry);
+        String category = normalize(product.getCategory());
+        if (category != null) {
+            byCategory.computeIfAbsent(category, k -> new TreeSet<>()).add(entry);
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param product the product to remove
+     */
+    public synchronized void remove(Product product) {
+        remove(product, product.getPriceCents(), product.getCategory());
+    }
+
+    /**
+     * Re-sorts a product whose price was replaced.
+     *
+     * @param product the product that changed
+     * @param oldPriceCents the price it was indexed under, in cents
+     */
+    public synchronized void priceChanged(Product product, long oldPriceCents) {
+        remove(product, oldPriceCents, product.getCategory());
+        add(product);
+    }
+
+    /**
+     * Moves a product from its old category tree to its current one.
+     *
+     * @param product the product that changed
+     * @param oldCategory the category it was indexed under
+     */
+    public synchronized void categoryChanged(Product product, String oldCategory) {
+        remove(product, product.getPriceCents(), oldCategory);
+        add(product);
+    }
+
+    /**
+     * Returns the products priced between {@code minCents} and {@code maxCents} (both inclusive),
+     * cheapest first.
+     *
+     * @param category the category to search (case-insensitive), or null for all products
+     * @param minCents the lowest price to include, in cents
+     * @param maxCents the highest price to include, in cents
+     * @return matching products, cheapest first
+     */
+    public synchronized List<Product> range(String category, long minCents, long maxCents) {
+        if (minCents > maxCents) {
+            throw new IllegalArgumentException("Minimum price must not be greater than maximum price.");
+        }
+        NavigableSet<PriceEntry> tree = tree(category);
+        List<Product> matches = new ArrayList<>();
+        if (tree != null) {
+            PriceEntry from = new PriceEntry(minCents, Integer.MIN_VALUE, null);
+            PriceEntry to = new PriceEntry(maxCents, Integer.MAX_VALUE, null);
+            for (PriceEntry entry : tree.subSet(from, true, to, true)) {
+                matches.add(entry.product);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns up to {@code limit} of the cheapest products, cheapest first.
+     *
+     * @param category the category to search (case-insensitive), or null for all products
+     * @param limit the maximum number of products to return
+     * @return the cheapest products
+     */
+    public synchronized List<Product> cheapest(String category, int limit) {
+        NavigableSet<PriceEntry> tree = tree(category);
+        return first(tree == null ? null : tree.iterator(), limit);
+    }
+
+    /**
+     * Returns up to {@code limit} of the most expensive products, most expensive first.
+     *
+     * @param category the category to search (case-insensitive), or null for all products
+     * @param limit the maximum number of products to return
+     * @return the most expensive products
+     */
+    public synchronized List<Product> mostExpensive(String category, int limit) {
+        NavigableSet<PriceEntry> tree = tree(category);
+        return first(tree == null ? null : tree.descendingIterator(), limit);
+    }
+
+    private void remove(Product product, long price, String category) {
+        PriceEntry probe = new PriceEntry(price, product);
+        all.remove(probe);
+        String normalized = normalize(category);
+        NavigableSet<PriceEntry> tree = normalized == null ? null : byCategory.get(normalized);
+        if (tree != null) {
+            tree.remove(probe);
+            if (tree.isEmpty()) {
+                byCategory.remove(normalized); // Don't keep empty trees around
+            }
+        }
+    }
+
+    private NavigableSet<PriceEntry> tree(String category) {
+        return category == null ? all : byCategory.get(normalize(category));
+    }
+
+    private static List<Product> first(Iterator<PriceEntry> entries, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative.");
+        }
+        List<Product> result = new ArrayList<>(Math.min(limit, 64));
+        while (entries != null && entries.hasNext() && result.size() < limit) {
+            result.add(entries.next().product);
+        }
+        return result;
+    }
+
+    // Index keys ignore case and surrounding whitespace
+    private static String normalize(String key) {
+        return key == null ? null : key.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * One product in a price tree. The price is copied in, so the entry keeps its
+     * place in the tree even after the product's price changes.
+     */
+    private static final class PriceEntry implements Comparable<PriceEntry> {
+
+        // Price in cents
+        private final long price;
+        private final int id;
+        private final Product product;
+
+        PriceEntry(long price, Product product) {
+            this(price, product.getId(), product);
+        }
+
+        PriceEntry(long price, int id, Product product) {
+            this.price = price;
+            this.id = id;
+            this.product = product;
+        }
+
+        @Override
+        public int compareTo(PriceEntry other) {
+            int byPrice = Long.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Integer.compare(id, other.id);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.zalando.lite;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import com.zalando.lite.annotations.Featured;
 
 /**
@@ -9,18 +10,23 @@ import com.zalando.lite.annotations.Featured;
  * Each product has:
  * - A unique ID
  * - A name and category
- * - A price
+ * - A price (stored in cents, see {@link Money})
  * - Current stock level
  * - A list of available sizes (e.g., S, M, L)
  *
  * Some products may also be marked with the {@link Featured} annotation
  * to indicate they are promoted or highlighted in the catalog.
  *
+ * Stock is a lock-free counter: {@link #tryReduceStock(int)} and {@link #addStock(int)}
+ * update it with compare-and-set, so concurrent checkouts on the same product can
+ * never oversell it, and checkouts on different products never contend.
+ *
  * Concepts reinforced:
  * - POJO modeling
  * - Encapsulation
  * - Lists
  * - Annotation usage
+ * - Atomic compare-and-set updates
  */
 public class Product {
 
@@ -33,20 +39,28 @@ public class Product {
     // Category for grouping (e.g., "Shoes", "Accessories", "Jackets")
     private String category;
 
-    // Price of the product
-    private double price;
+    // Price of the product, in cents
+    private long priceCents;
 
     // Quantity in stock (used by InventoryManager and OrderManager)
-    private int stock;
+    // Volatile so every thread sees the latest value; updated through STOCK
+    private volatile int stock;
+
+    // Gives compare-and-set access to the stock field without an AtomicInteger per product
+    private static final AtomicIntegerFieldUpdater<Product> STOCK =
+            AtomicIntegerFieldUpdater.newUpdater(Product.class, "stock");
 
     // List of size options (e.g., "S", "M", "L")
     private List<String> availableSizes;
 
+    // Notified when indexed fields change (set by the InventoryManager holding this product)
+    private ProductListener listener;
+
     public Product(int id, String name, String category, double price, int stock, List<String> availableSizes) {
         this.id = id;
         this.name = name;
         this.category = category;
-        this.price = price;
+        this.priceCents = Money.ofMajor(price);
         this.stock = stock;
         this.availableSizes = availableSizes;
     }
@@ -71,7 +85,11 @@ public class Product {
         return this.name;
     }
     public void setName(String name) {
+        String oldName = this.name;
         this.name = name;
+        if (listener != null) {
+            listener.nameChanged(this, oldName);
+        }
     }
 
     // Getter and setter for category
@@ -79,15 +97,31 @@ public class Product {
         return this.category;
     }
     public void setCategory(String category) {
+        String oldCategory = this.category;
         this.category = category;
+        if (listener != null) {
+            listener.categoryChanged(this, oldCategory);
+        }
     }
 
-    // Getter and setter for price
+    // Getter and setter for price in euros (converted from and to cents)
     public double getPrice() {
-        return this.price;
+        return Money.toMajor(getPriceCents());
     }
     public void setPrice(double price) {
-        this.price = price;
+        setPriceCents(Money.ofMajor(price));
+    }
+
+    // Getter and setter for price in cents
+    public long getPriceCents() {
+        return this.priceCents;
+    }
+    public void setPriceCents(long priceCents) {
+        long oldPriceCents = this.priceCents;
+        this.priceCents = priceCents;
+        if (listener != null) {
+            listener.priceChanged(this, oldPriceCents);
+        }
     }
 
     // Getter and setter for stock quantity
@@ -102,8 +136,60 @@ public class Product {
     public List<String> getAvailableSizes() {
         return this.availableSizes;
     }
+    // Replace the whole list (rather than editing it in place) so catalog indexes see the change
     public void setAvailableSizes(List<String> sizes) {
+        List<String> oldSizes = this.availableSizes;
         this.availableSizes = sizes;
+        if (listener != null) {
+            listener.sizesChanged(this, oldSizes);
+        }
+    }
+
+    // Returns the listener watching this product, or null
+    ProductListener getListener() {
+        return this.listener;
+    }
+
+    // Registers the listener that keeps inventory indexes in sync (null to detach)
+    void setListener(ProductListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Atomically takes the given quantity out of stock.
+     *
+     * Retries with compare-and-set until it either succeeds or sees that there
+     * is not enough stock left, so stock can never drop below zero.
+     *
+     * @param quantity the number of units to take, must not be negative
+     * @return the remaining stock, or -1 if there was not enough stock
+     */
+    public int tryReduceStock(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        while (true) {
+            int current = this.stock;
+            if (current < quantity) {
+                return -1;
+            }
+            if (STOCK.compareAndSet(this, current, current - quantity)) {
+                return current - quantity;
+            }
+        }
+    }
+
+    /**
+     * Atomically puts the given quantity back into stock (restock or rollback).
+     *
+     * @param quantity the number of units to add, must not be negative
+     * @return the new stock level
+     */
+    public int addStock(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        return STOCK.addAndGet(this, quantity);
     }
 
     /**
@@ -112,7 +198,7 @@ public class Product {
      * @return true if stock is zero or less
      */
     public boolean isOutOfStock() {
-        return stock <= 0;
+        return getStock() <= 0;
     }
 
     /**
@@ -121,12 +207,12 @@ public class Product {
     @Override
     public String toString() {
         return "Product{" +
-                "id=" + id +
-                ", name='" + name + '\'' +
-                ", category='" + category + '\'' +
-                ", price=" + price +
-                ", stock=" + stock +
-                ", availableSizes=" + availableSizes +
+                "id=" + getId() +
+                ", name='" + getName() + '\'' +
+                ", category='" + getCategory() + '\'' +
+                ", price=" + getPrice() +
+                ", stock=" + getStock() +
+                ", availableSizes=" + getAvailableSizes() +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,389 @@
+package com.zalando.lite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A hash index from product ID to {@link Product}, used by {@link InventoryManager}
+ * as its primary product store.
+ *
+ * The index is made of two parts:
+ * - An open-addressing hash table (linear probing) holding plain {@code int} keys,
+ *   so a lookup never boxes the ID into an {@code Integer}
+ * - A dense, insertion-ordered array of products that the hash table points into
+ *
+ * Lookup, insert and remove are O(1) on average. Iteration walks the dense array,
+ * so products come back in the order they were first added. Removed products leave
+ * an empty hole in the dense array that is reclaimed the next time it has to grow.
+ *
+ * The dense array also makes paging and splitting cheap: a page is a range of
+ * positions, and {@link #spliterator()} splits by halving the range, without
+ * copying the catalog.
+ *
+ * Not thread-safe for concurrent writers; see {@link InventoryManager}.
+ *
+ * Concepts reinforced:
+ * - Hashing and open addressing
+ * - Primitive arrays instead of boxed collections
+ * - Amortized resizing
+ */
+public class ProductIndex {
+
+    // Marks an unused hash slot (dense positions are stored off by one)
+    private static final int EMPTY = 0;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Product IDs, one per hash slot
+    private int[] keys;
+
+    // Dense position + 1 for each hash slot, or EMPTY
+    private int[] positions;
+
+    // Products in insertion order; null marks a removed product
+    private Product[] entries;
+
+    // Number of live products
+    private int size;
+
+    // Number of dense slots in use (live + removed)
+    private int used;
+
+    public ProductIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an index sized for the given number of products.
+     *
+     * @param expectedSize number of products expected to be stored
+     */
+    public ProductIndex(int expectedSize) {
+        int capacity = Math.max(DEFAULT_CAPACITY, expectedSize);
+        this.entries = new Product[capacity];
+        int tableSize = tableSizeFor(capacity);
+        this.keys = new int[tableSize];
+        this.positions = new int[tableSize];
+    }
+
+    /**
+     * Returns the product stored under the given ID.
+     *
+     * @param id the product ID
+     * @return the product, or null if the ID is unknown
+     */
+    public Product get(int id) {
+        int mask = keys.length - 1;
+        for (int slot = hash(id) & mask; positions[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return entries[positions[slot] - 1];
+            }
+        }
+        return null;
+    }
+
+    // Returns true if a product with the given ID is stored
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Stores a product under its ID.
+     *
+     * If a product with the same ID already exists it is replaced in place and
+     * keeps its original position in the iteration order.
+     *
+     * @param product the product to store
+     * @return the replaced product, or null if the ID was new
+     */
+    public Product put(Product product) {
+        int id = product.getId();
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (positions[slot] != EMPTY) {
+            if (keys[slot] == id) {
+                int position = positions[slot] - 1;
+                Product previous = entries[position];
+                entries[position] = product;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (used == entries.length) {
+            growEntries();
+            // The table was rebuilt, so the free slot has to be found again
+            put(product);
+            return null;
+        }
+        entries[used++] = product;
+        keys[slot] = id;
+        positions[slot] = used;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the product stored under the given ID.
+     *
+     * @param id the product ID
+     * @return the removed product, or null if the ID was unknown
+     */
+    public Product remove(int id) {
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (positions[slot] != EMPTY) {
+            if (keys[slot] == id) {
+                int position = positions[slot] - 1;
+                Product removed = entries[position];
+                entries[position] = null;
+                size--;
+                deleteSlot(slot);
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Returns the number of stored products
+    public int size() {
+        return size;
+    }
+
+    // Returns true if no products are stored
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visits every product in insertion order.
+     *
+     * @param action the callback to run for each product
+     */
+    public void forEach(Consumer<? super Product> action) {
+        for (int i = 0; i < used; i++) {
+            Product product = entries[i];
+            if (product != null) {
+                action.accept(product);
+            }
+        }
+    }
+
+    /**
+     * Copies all products into a new list, in insertion order.
+     *
+     * @return a new list of all stored products
+     */
+    public List<Product> toList() {
+        List<Product> list = new ArrayList<>(size);
+        forEach(list::add);
+        return list;
+    }
+
+    /**
+     * Removes the hash slot at the given index using backward-shift deletion,
+     * so lookups never need tombstones in the hash table.
+     */
+    private void deleteSlot(int gap) {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (positions[slot] == EMPTY) {
+                break;
+            }
+            int home = hash(keys[slot]) & mask;
+            // An entry may fill the gap only if its home slot is not between the gap and itself
+            boolean movable = slot > gap
+                    ? (home <= gap || home > slot)
+                    : (home <= gap && home > slot);
+            if (movable) {
+                keys[gap] = keys[slot];
+                positions[gap] = positions[slot];
+                gap = slot;
+            }
+        }
+        positions[gap] = EMPTY;
+    }
+
+    /**
+     * Makes room in the dense array: drops removed holes if there are many,
+     * otherwise doubles the array. The hash table is rebuilt either way because
+     * dense positions may have moved.
+     */
+    private void growEntries() {
+        int capacity = size * 2 <= entries.length ? entries.length : entries.length * 2;
+        Product[] compacted = new Product[capacity];
+        int live = 0;
+        for (int i = 0; i < used; i++) {
+            if (entries[i] != null) {
+                compacted[live++] = entries[i];
+            }
+        }
+        entries = compacted;
+        used = live;
+        rehash(Math.max(keys.length, tableSizeFor(capacity)));
+    }
+
+    // Rebuilds the hash table with the given size from the dense array
+    private void rehash(int tableSize) {
+        keys = new int[tableSize];
+        positions = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int i = 0; i < used; i++) {
+            Product product = entries[i];
+            if (product == null) {
+                continue;
+            }
+            int slot = hash(product.getId()) & mask;
+            while (positions[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = product.getId();
+            positions[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Fills one page of products, starting after the given cursor.
+     *
+     * @param cursor {@link ProductPage#FIRST} or a cursor returned by an earlier call
+     * @param limit maximum number of products to add
+     * @param page the list to add the products to
+     * @return the cursor for the next page, or {@link ProductPage#END}
+     */
+    public long page(long cursor, int limit, List<Product> page) {
+        if (cursor == ProductPage.END) {
+            return ProductPage.END; // Nothing after the last page
+        }
+        int position = resolve(cursor);
+        int added = 0;
+        int lastId = 0;
+        while (position < used && added < limit) {
+            Product product = entries[position++];
+            if (product != null) {
+                page.add(product);
+                lastId = product.getId();
+                added++;
+            }
+        }
+        if (position >= used) {
+            return ProductPage.END;
+        }
+        return added == 0 ? cursor : ProductPage.cursor(position, lastId);
+    }
+
+    /**
+     * Returns a spliterator over the products in insertion order.
+     *
+     * It works on the dense array as it is now (later growth is not seen) and
+     * splits by halving its range, so parallel streams spread evenly over all cores.
+     *
+     * @return a spliterator; nothing is copied
+     */
+    public Spliterator<Product> spliterator() {
+        return new ProductSpliterator(entries, 0, used);
+    }
+
+    // Dense position to continue from for a page cursor
+    private int resolve(long cursor) {
+        if (cursor == ProductPage.FIRST) {
+            return 0;
+        }
+        int position = ProductPage.position(cursor);
+        int lastId = ProductPage.lastId(cursor);
+        if (position >= 1 && position <= used
+                && entries[position - 1] != null && entries[position - 1].getId() == lastId) {
+            return position;
+        }
+        // Positions moved (compaction): continue after the last product seen
+        int mask = keys.length - 1;
+        for (int slot = hash(lastId) & mask; positions[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == lastId) {
+                return positions[slot];
+            }
+        }
+        return Math.max(0, Math.min(position, used)); // The last product was removed (or the cursor is made up); best effort
+    }
+
+    /**
+     * Walks a range of the dense array, skipping removed holes.
+     */
+    private static final class ProductSpliterator implements Spliterator<Product> {
+
+        // Below this many positions a range is not split any further
+        private static final int MIN_SPLIT = 1024;
+
+        private final Product[] array;
+        private int index;
+        private final int fence;
+
+        ProductSpliterator(Product[] array, int origin, int fence) {
+            this.array = array;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Product> action) {
+            while (index < fence) {
+                Product product = array[index++];
+                if (product != null) {
+                    action.accept(product);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Product> action) {
+            for (int i = index; i < fence; i++) {
+                Product product = array[i];
+                if (product != null) {
+                    action.accept(product);
+                }
+            }
+            index = fence;
+        }
+
+        @Override
+        public Spliterator<Product> trySplit() {
+            int origin = index;
+            int middle = (origin + fence) >>> 1;
+            if (fence - origin < MIN_SPLIT) {
+                return null;
+            }
+            index = middle;
+            return new ProductSpliterator(array, origin, middle);
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index; // Upper bound: removed holes are counted too
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    // Spreads sequential IDs across the table (Fibonacci hashing)
+    static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Smallest power of two that keeps the table at most half full
+    static int tableSizeFor(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 2;
+        return Math.max(size, DEFAULT_CAPACITY);
+    }
+}
@@ -0,0 +1,56 @@
+package com.zalando.lite;
+
+import java.util.List;
+
+/**
+ * Receives notifications when indexed fields of a {@link Product} change.
+ *
+ * {@link InventoryManager} registers a listener on every product it stores so
+ * that its secondary indexes can be updated incrementally instead of being
+ * rebuilt from the whole catalog.
+ *
+ * All methods have empty default implementations, so a listener only needs
+ * to override the changes it cares about.
+ *
+ * Concepts reinforced:
+ * - Observer pattern
+ * - Default methods in interfaces
+ */
+public interface ProductListener {
+
+    /**
+     * Called after the product's name was replaced.
+     *
+     * @param product the product that changed
+     * @param oldName the name before the change
+     */
+    default void nameChanged(Product product, String oldName) {
+    }
+
+    /**
+     * Called after the product's category was replaced.
+     *
+     * @param product the product that changed
+     * @param oldCategory the category before the change
+     */
+    default void categoryChanged(Product product, String oldCategory) {
+    }
+
+    /**
+     * Called after the product's price was replaced.
+     *
+     * @param product the product that changed
+     * @param oldPriceCents the price before the change, in cents
+     */
+    default void priceChanged(Product product, long oldPriceCents) {
+    }
+
+    /**
+     * Called after the product's list of sizes was replaced.
+     *
+     * @param product the product that changed
+     * @param oldSizes the sizes before the change
+     */
+    default void sizesChanged(Product product, List<String> oldSizes) {
+    }
+}
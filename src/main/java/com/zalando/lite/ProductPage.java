@@ -0,0 +1,67 @@
+package com.zalando.lite;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of the product catalog, returned by
+ * {@link InventoryManager#listProducts(long, int)}.
+ *
+ * Pass {@link #getNextCursor()} to the next call to continue where this page
+ * ended. Cursors are opaque: they survive products being added or removed
+ * between calls, but should not be built by hand.
+ *
+ * Concepts reinforced:
+ * - Cursor-based pagination
+ * - Immutable result objects
+ */
+public class ProductPage {
+
+    // Cursor for the first page
+    public static final long FIRST = 0L;
+
+    // Cursor returned after the last page
+    public static final long END = -1L;
+
+    private final List<Product> products;
+    private final long nextCursor;
+
+    ProductPage(List<Product> products, long nextCursor) {
+        this.products = Collections.unmodifiableList(products);
+        this.nextCursor = nextCursor;
+    }
+
+    // Returns the products on this page, in catalog order
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    // Returns the cursor for the following page, or END
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    // Returns true if there may be more products after this page
+    public boolean hasMore() {
+        return nextCursor != END;
+    }
+
+    /**
+     * Builds a cursor that continues after the given position.
+     * The ID of the last product is kept so the position can be found again
+     * if the catalog is compacted between calls.
+     */
+    static long cursor(int nextPosition, int lastId) {
+        return ((long) nextPosition << 32) | (lastId & 0xFFFFFFFFL);
+    }
+
+    // Position stored in a cursor (0 for FIRST)
+    static int position(long cursor) {
+        return (int) (cursor >>> 32);
+    }
+
+    // ID of the last product of the previous page stored in a cursor
+    static int lastId(long cursor) {
+        return (int) cursor;
+    }
+}
@@ -0,0 +1,123 @@
+package com.zalando.lite;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running revenue aggregates over all recorded orders: count, sum and maximum.
+ *
+ * Every aggregate is striped so that threads recording orders at the same time
+ * rarely touch the same memory:
+ * - Count and sum are {@link LongAdder}s, which spread updates over internal
+ *   cells and add them up when read. The sum is in cents (see {@link Money}),
+ *   so it is exact no matter how many orders are added
+ * - The maximum is kept per stripe (chosen by the recording thread) and the
+ *   stripes are compared when read
+ *
+ * Reads never block writers and cost the same no matter how many orders exist.
+ * Each order's total is computed once, when it is recorded.
+ *
+ * Concepts reinforced:
+ * - LongAdder
+ * - Striping to avoid contention
+ * - Compare-and-set on immutable holders
+ */
+public class RevenueStats {
+
+    // Number of orders recorded
+    private final LongAdder orderCount = new LongAdder();
+
+    // Sum of all order totals, in cents
+    private final LongAdder revenueCents = new LongAdder();
+
+    // Highest order per stripe; null until a thread of that stripe records one
+    private final AtomicReferenceArray<Highest> highest;
+
+    private final int stripeMask;
+
+    public RevenueStats() {
+        int stripes = Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.highest = new AtomicReferenceArray<>(stripes);
+        this.stripeMask = stripes - 1;
+    }
+
+    /**
+     * Adds an order to the aggregates.
+     *
+     * @param order the order that was placed
+     * @param totalCents its total in cents, computed once by the caller
+     */
+    public void record(Order order, long totalCents) {
+        orderCount.increment();
+        revenueCents.add(totalCents);
+
+        int stripe = ProductIndex.hash(System.identityHashCode(Thread.currentThread())) & stripeMask;
+        Highest candidate = null;
+        while (true) {
+            Highest current = highest.get(stripe);
+            if (current != null && current.totalCents >= totalCents) {
+                return; // Not a new maximum for this stripe
+            }
+            if (candidate == null) {
+                candidate = new Highest(order, totalCents);
+            }
+            if (highest.compareAndSet(stripe, current, candidate)) {
+                return;
+            }
+        }
+    }
+
+    // Returns the number of recorded orders
+    public long getOrderCount() {
+        return orderCount.sum();
+    }
+
+    // Returns the sum of all recorded order totals, in cents
+    public long getTotalRevenueCents() {
+        return revenueCents.sum();
+    }
+
+    // Returns the sum of all recorded order totals, in euros
+    public double getTotalRevenue() {
+        return Money.toMajor(revenueCents.sum());
+    }
+
+    /**
+     * Returns the average order total.
+     *
+     * @return the average, or 0.0 if no orders were recorded
+     */
+    public double getAverageOrderValue() {
+        long count = orderCount.sum();
+        return count == 0 ? 0.0 : Money.toMajor(revenueCents.sum()) / count;
+    }
+
+    /**
+     * Returns the recorded order with the highest total.
+     *
+     * @return the highest-value order, or null if no orders were recorded
+     */
+    public Order getHighestValueOrder() {
+        Highest best = null;
+        for (int stripe = 0; stripe < highest.length(); stripe++) {
+            Highest current = highest.get(stripe);
+            if (current != null && (best == null || current.totalCents > best.totalCents)) {
+                best = current;
+            }
+        }
+        return best == null ? null : best.order;
+    }
+
+    /**
+     * An order together with the total it was recorded with.
+     */
+    private static final class Highest {
+        private final Order order;
+        private final long totalCents;
+
+        Highest(Order order, long totalCents) {
+            this.order = order;
+            this.totalCents = totalCents;
+        }
+    }
+}
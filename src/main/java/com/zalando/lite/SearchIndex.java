@@ -0,0 +1,504 @@
+package com.zalando.lite;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A full-text inverted index over product names and categories.
+ *
+ * Text is split into lowercase tokens (runs of letters and digits), so
+ * "Leather Jacket" is found by "leather", "JACKET" or "jacket leather".
+ * Each token maps to a postings list: the sorted IDs of the products whose
+ * name or category contains it.
+ *
+ * Postings lists are compressed. IDs are stored as gaps from the previous ID,
+ * and each gap is written as a varint (7 bits per byte). Dense lists, such as a
+ * popular category, take one or two bytes per product instead of four.
+ *
+ * Queries:
+ * - {@link Match#ALL}: products containing every query term (intersection)
+ * - {@link Match#ANY}: products containing at least one term (union), ranked by
+ *   how many of the terms they match
+ *
+ * AND queries walk the lists together, skipping blocks of IDs that cannot match, and
+ * stop once enough results are found. OR queries first try the same walk over all
+ * terms, because products matching every term always rank first.
+ *
+ * Appending a product with a higher ID than any other in a list is O(1). Removals and
+ * out-of-order inserts rewrite only the lists of the affected terms.
+ *
+ * All methods are synchronized, so queries are safe while the catalog changes.
+ *
+ * Concepts reinforced:
+ * - Inverted indexes and tokenization
+ * - Delta + variable-length integer encoding
+ * - Merging sorted lists (intersection and union)
+ */
+public class SearchIndex {
+
+    /**
+     * How multiple query terms are combined.
+     */
+    public enum Match {
+        ALL,
+        ANY
+    }
+
+    // Postings list per token
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * Indexes a product under the tokens of its name and category.
+     *
+     * @param id the product ID
+     * @param name the product name (may be null)
+     * @param category the product category (may be null)
+     */
+    public synchronized void add(int id, String name, String category) {
+        for (String token : tokens(name, category)) {
+            postings.computeIfAbsent(token, t -> new Postings()).add(id);
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param id the product ID
+     * @param name the name it was indexed with
+     * @param category the category it was indexed with
+     */
+    public synchronized void remove(int id, String name, String category) {
+        for (String token : tokens(name, category)) {
+            removeToken(id, token);
+        }
+    }
+
+    /**
+     * Re-indexes a product whose name or category changed.
+     * Only the tokens that actually appeared or disappeared are touched.
+     *
+     * @param id the product ID
+     * @param oldName the name it was indexed with
+     * @param oldCategory the category it was indexed with
+     * @param name the current name
+     * @param category the current category
+     */
+    public synchronized void update(int id, String oldName, String oldCategory, String name, String category) {
+        Set<String> before = tokens(oldName, oldCategory);
+        Set<String> after = tokens(name, category);
+        for (String token : before) {
+            if (!after.contains(token)) {
+                removeToken(id, token);
+            }
+        }
+        for (String token : after) {
+            if (!before.contains(token)) {
+                postings.computeIfAbsent(token, t -> new Postings()).add(id);
+            }
+        }
+    }
+
+    // Returns the number of distinct tokens in the index
+    public synchronized int getTermCount() {
+        return postings.size();
+    }
+
+    /**
+     * Finds the IDs of the products matching a query.
+     *
+     * With {@link Match#ALL} every result matches every term, so results come back
+     * by ascending ID. With {@link Match#ANY} results are ordered by the number of
+     * matched terms (most first), then by ascending ID.
+     *
+     * @param query free text, tokenized like product names
+     * @param match how the query terms are combined
+     * @param limit the maximum number of IDs to return
+     * @return matching product IDs, best first
+     */
+    public synchronized int[] search(String query, Match match, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative.");
+        }
+        Set<String> terms = tokens(query, null);
+        if (terms.isEmpty() || limit == 0) {
+            return new int[0];
+        }
+        return match == Match.ALL ? searchAll(terms, limit) : searchAny(terms, limit);
+    }
+
+    // Intersects the postings lists, led by the shortest one
+    private int[] searchAll(Set<String> terms, int limit) {
+        Postings[] lists = new Postings[terms.size()];
+        int n = 0;
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                return new int[0]; // A term no product has: nothing can match all terms
+            }
+            lists[n++] = list;
+        }
+        IntList matches = intersect(lists, n, limit);
+        return Arrays.copyOf(matches.values, matches.size);
+    }
+
+    /**
+     * Finds the lowest IDs present in every list ("leapfrog" intersection).
+     *
+     * The shortest list proposes a candidate and every other list skips ahead to it.
+     * Skips jump over whole blocks without decoding them, and the walk stops as soon
+     * as {@code limit} matches are found, so the cost depends on the matches, not on
+     * the length of the lists.
+     */
+    private static IntList intersect(Postings[] lists, int n, int limit) {
+        Arrays.sort(lists, 0, n, (a, b) -> Integer.compare(a.count, b.count));
+        Cursor[] cursors = new Cursor[n];
+        for (int i = 0; i < n; i++) {
+            cursors[i] = lists[i].cursor();
+        }
+        IntList matches = new IntList();
+        Cursor lead = cursors[0];
+        if (!lead.advance()) {
+            return matches;
+        }
+        int candidate = lead.current;
+        outer:
+        while (true) {
+            for (int i = 1; i < n; i++) {
+                if (!cursors[i].advanceTo(candidate)) {
+                    break outer;
+                }
+                if (cursors[i].current != candidate) {
+                    if (!lead.advanceTo(cursors[i].current)) {
+                        break outer;
+                    }
+                    candidate = lead.current;
+                    continue outer;
+                }
+            }
+            matches.add(candidate);
+            if (matches.size >= limit || !lead.advance()) {
+                break;
+            }
+            candidate = lead.current;
+        }
+        return matches;
+    }
+
+    // Merges the postings lists, ranking IDs by how many terms they matched
+    private int[] searchAny(Set<String> terms, int limit) {
+        Postings[] lists = new Postings[terms.size()];
+        int present = 0;
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list != null) {
+                lists[present++] = list;
+            }
+        }
+        if (present == 0) {
+            return new int[0];
+        }
+
+        // IDs matching every known term have the best possible score. If there are
+        // enough of them, they are the whole answer and the union is never built.
+        IntList best = intersect(lists, present, limit);
+        if (best.size >= limit) {
+            return Arrays.copyOf(best.values, best.size);
+        }
+
+        // Lists are sorted shortest first (by intersect). An ID can only beat the current
+        // results by matching more than "threshold" terms, so it must appear in one of the
+        // first (present - threshold) lists; the longer lists are only probed with skips.
+        Cursor[] cursors = new Cursor[present];
+        for (int i = 0; i < present; i++) {
+            cursors[i] = lists[i].cursor();
+            cursors[i].advance();
+        }
+        // byScore[s] collects, in ascending ID order, the IDs that matched s terms
+        IntList[] byScore = new IntList[present + 1];
+        int threshold = 0;
+        while (true) {
+            int essential = present - threshold;
+            int candidate = 0;
+            boolean found = false;
+            for (int i = 0; i < essential; i++) {
+                if (!cursors[i].done && (!found || cursors[i].current < candidate)) {
+                    candidate = cursors[i].current;
+                    found = true;
+                }
+            }
+            if (!found) {
+                break;
+            }
+            int score = 0;
+            for (int i = 0; i < essential; i++) {
+                if (!cursors[i].done && cursors[i].current == candidate) {
+                    score++;
+                    cursors[i].advance();
+                }
+            }
+            for (int i = essential; i < present; i++) {
+                if (cursors[i].advanceTo(candidate) && cursors[i].current == candidate) {
+                    score++;
+                }
+            }
+            if (score > threshold) {
+                if (byScore[score] == null) {
+                    byScore[score] = new IntList();
+                }
+                byScore[score].add(candidate);
+                threshold = threshold(byScore, limit);
+            }
+        }
+
+        IntList ranked = new IntList();
+        for (int score = byScore.length - 1; score > 0 && ranked.size < limit; score--) {
+            IntList ids = byScore[score];
+            for (int i = 0; ids != null && i < ids.size && ranked.size < limit; i++) {
+                ranked.add(ids.values[i]);
+            }
+        }
+        return Arrays.copyOf(ranked.values, ranked.size);
+    }
+
+    // Highest score s with at least limit results scoring s or more (0 if there is none)
+    private static int threshold(IntList[] byScore, int limit) {
+        int atLeast = 0;
+        for (int score = byScore.length - 1; score > 0; score--) {
+            atLeast += byScore[score] == null ? 0 : byScore[score].size;
+            if (atLeast >= limit) {
+                return score;
+            }
+        }
+        return 0;
+    }
+
+    private void removeToken(int id, String token) {
+        Postings list = postings.get(token);
+        if (list != null) {
+            list.remove(id);
+            if (list.count == 0) {
+                postings.remove(token); // Don't keep empty lists around
+            }
+        }
+    }
+
+    /**
+     * Splits texts into distinct lowercase tokens of letters and digits.
+     *
+     * @param first the first text (may be null)
+     * @param second the second text (may be null)
+     * @return the tokens of both texts, in order of first appearance
+     */
+    static Set<String> tokens(String first, String second) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(first, tokens);
+        addTokens(second, tokens);
+        return tokens;
+    }
+
+    private static void addTokens(String text, Set<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * A sorted list of product IDs, stored as varint-encoded gaps.
+     *
+     * Every {@link #SKIP_INTERVAL} IDs a skip entry records the ID and the byte
+     * offset that follows it, so a cursor can jump ahead without decoding every gap.
+     */
+    private static final class Postings {
+
+        private static final int SKIP_INTERVAL = 64;
+
+        private byte[] data = new byte[8];
+        private int length;
+        private int count;
+        private int last;
+
+        // Skip k: the ID at index (k + 1) * SKIP_INTERVAL - 1 and the offset after it
+        private int[] skipIds = new int[0];
+        private int[] skipOffsets = new int[0];
+        private int skips;
+
+        void add(int id) {
+            if (count > 0 && id <= last) {
+                if (contains(id)) {
+                    return;
+                }
+                int[] ids = decode();
+                int at = -Arrays.binarySearch(ids, id) - 1;
+                int[] merged = new int[ids.length + 1];
+                System.arraycopy(ids, 0, merged, 0, at);
+                merged[at] = id;
+                System.arraycopy(ids, at, merged, at + 1, ids.length - at);
+                rebuild(merged, merged.length);
+                return;
+            }
+            append(id);
+        }
+
+        void remove(int id) {
+            int[] ids = decode();
+            int at = Arrays.binarySearch(ids, id);
+            if (at < 0) {
+                return;
+            }
+            System.arraycopy(ids, at + 1, ids, at, ids.length - at - 1);
+            rebuild(ids, ids.length - 1);
+        }
+
+        boolean contains(int id) {
+            Cursor cursor = cursor();
+            while (cursor.advance()) {
+                if (cursor.current >= id) {
+                    return cursor.current == id;
+                }
+            }
+            return false;
+        }
+
+        int[] decode() {
+            int[] ids = new int[count];
+            Cursor cursor = cursor();
+            for (int i = 0; cursor.advance(); i++) {
+                ids[i] = cursor.current;
+            }
+            return ids;
+        }
+
+        Cursor cursor() {
+            return new Cursor(this);
+        }
+
+        private void rebuild(int[] ids, int size) {
+            length = 0;
+            count = 0;
+            last = 0;
+            skips = 0;
+            for (int i = 0; i < size; i++) {
+                append(ids[i]);
+            }
+        }
+
+        // Appends an ID greater than every stored one (the gap is stored as unsigned)
+        private void append(int id) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            int gap = id - last;
+            while ((gap & ~0x7F) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            last = id;
+            count++;
+            if (count % SKIP_INTERVAL == 0) {
+                if (skips == skipIds.length) {
+                    skipIds = Arrays.copyOf(skipIds, Math.max(4, skips * 2));
+                    skipOffsets = Arrays.copyOf(skipOffsets, skipIds.length);
+                }
+                skipIds[skips] = id;
+                skipOffsets[skips] = length;
+                skips++;
+            }
+        }
+    }
+
+    /**
+     * Decodes a postings list one ID at a time, without allocating an array.
+     */
+    private static final class Cursor {
+
+        private final Postings list;
+        private final byte[] data;
+        private final int end;
+        private int position;
+        private int current;
+        private boolean started;
+        private boolean done;
+        private int nextSkip;
+
+        Cursor(Postings list) {
+            this.list = list;
+            this.data = list.data;
+            this.end = list.length;
+        }
+
+        // Moves to the next ID; returns false when the list is exhausted
+        boolean advance() {
+            if (position >= end) {
+                done = true;
+                return false;
+            }
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += gap;
+            started = true;
+            return true;
+        }
+
+        // Moves to the first ID >= target; returns false when there is none
+        boolean advanceTo(int target) {
+            if (done) {
+                return false;
+            }
+            if (started && current >= target) {
+                return true;
+            }
+            // Jump over whole blocks whose last ID is still below the target
+            while (nextSkip < list.skips && list.skipIds[nextSkip] < target) {
+                if (list.skipOffsets[nextSkip] > position) {
+                    position = list.skipOffsets[nextSkip];
+                    current = list.skipIds[nextSkip];
+                    started = true;
+                }
+                nextSkip++;
+            }
+            while (advance()) {
+                if (current >= target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A growable int array, used to collect IDs without boxing them.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.zalando.lite;
+
+import java.util.List;
+
+/**
+ * Finds the most frequent keys in a stream with a fixed number of counters
+ * (the Space-Saving algorithm of Metwally, Agrawal and El Abbadi).
+ *
+ * Up to {@code capacity} keys are counted exactly. When a new key arrives and all
+ * counters are taken, it replaces the key with the smallest count and inherits
+ * that count (remembered as its error). That gives two guarantees, however many
+ * distinct keys the stream has:
+ * - A reported count is never below the true count, and at most its error above it
+ * - Every key seen more than {@code total / capacity} times is being counted
+ *
+ * Used for best-selling products by units, where the catalog can be far larger than
+ * what is worth keeping an exact counter for.
+ *
+ * Not thread-safe; {@link OrderRankings} keeps one sketch per stripe and locks it.
+ *
+ * Concepts reinforced:
+ * - Streaming (sketching) algorithms with bounded memory
+ * - Reusing a data structure (an indexed heap) for a new purpose
+ */
+public class SpaceSavingSketch {
+
+    // The counters, smallest count at the root
+    private final TopKeys counters;
+
+    // Sum of all weights added
+    private long total;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param capacity the number of counters
+     */
+    public SpaceSavingSketch(int capacity) {
+        this.counters = new TopKeys(capacity);
+    }
+
+    /**
+     * Counts {@code weight} occurrences of a key.
+     *
+     * @param key the key, e.g. a product ID
+     * @param weight how many occurrences, e.g. units sold; must be positive
+     */
+    public void add(int key, long weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive.");
+        }
+        total += weight;
+        int position = counters.find(key);
+        if (position >= 0) {
+            counters.increase(position, weight);
+        } else if (counters.size() < counters.getCapacity()) {
+            counters.insert(key, weight, 0);
+        } else {
+            long evicted = counters.minScore(); // The new key may have been counted there before
+            counters.replaceMin(key, evicted + weight, evicted);
+        }
+    }
+
+    /**
+     * Returns an upper bound for a key's count.
+     *
+     * @param key the key
+     * @return its counter, or the smallest counter if it is not tracked (0 while counters are free)
+     */
+    public long estimate(int key) {
+        int position = counters.find(key);
+        if (position >= 0) {
+            return counters.scoreAt(position);
+        }
+        return counters.size() < counters.getCapacity() ? 0 : counters.minScore();
+    }
+
+    /**
+     * Returns the keys with the highest counts.
+     *
+     * Each entry's score is an upper bound on the key's true count; score minus error is a lower bound.
+     *
+     * @param k how many keys to return
+     * @return the top keys, highest count first
+     */
+    public List<TopKeys.Entry> top(int k) {
+        return counters.top(k);
+    }
+
+    // Returns the smallest count a key can have without being tracked (0 while counters are free)
+    public long getMinCount() {
+        return counters.size() < counters.getCapacity() ? 0 : counters.minScore();
+    }
+
+    // Returns the sum of all weights added
+    public long getTotal() {
+        return total;
+    }
+
+    // Returns the number of counters
+    public int getCapacity() {
+        return counters.getCapacity();
+    }
+}
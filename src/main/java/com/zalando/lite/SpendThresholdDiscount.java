@@ -0,0 +1,42 @@
+package com.zalando.lite;
+
+public class SpendThresholdDiscount extends CartDiscount {
+
+    private final long thresholdCents;
+    private final int percentOff;
+
+    /**
+     * Creates a discount for carts that reach a minimum spend.
+     *
+     * @param thresholdCents the cart total (after line discounts) that earns the discount, in cents
+     * @param percentOff the discount in percent
+     */
+    public SpendThresholdDiscount(long thresholdCents, int percentOff) {
+        if (thresholdCents < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative.");
+        }
+        if (percentOff < 0 || percentOff > 100) {
+            throw new IllegalArgumentException("Discount must be between 0 and 100 percent.");
+        }
+        this.thresholdCents = thresholdCents;
+        this.percentOff = percentOff;
+    }
+
+    @Override
+    public long applyDiscount(Customer customer, long subtotalCents) {
+        if (subtotalCents >= thresholdCents) {
+            return Money.percentOff(subtotalCents, percentOff);
+        }
+        return subtotalCents;
+    }
+
+    // Returns the minimum spend, in cents
+    public long getThresholdCents() {
+        return thresholdCents;
+    }
+
+    // Returns the discount in percent
+    public int getPercentOff() {
+        return percentOff;
+    }
+}
@@ -0,0 +1,40 @@
+package com.zalando.lite;
+
+/**
+ * One line of a stock batch: a product ID and a signed change in stock.
+ *
+ * A positive delta adds units (e.g. a warehouse restock), a negative delta
+ * takes units out (e.g. an order line). Batches are applied with
+ * {@link InventoryManager#applyStockBatch(java.util.List)}.
+ *
+ * Concepts reinforced:
+ * - Immutable value objects
+ */
+public class StockAdjustment {
+
+    // The product whose stock changes
+    private final int productId;
+
+    // Units to add (positive) or remove (negative)
+    private final int delta;
+
+    public StockAdjustment(int productId, int delta) {
+        this.productId = productId;
+        this.delta = delta;
+    }
+
+    // Returns the ID of the product to adjust
+    public int getProductId() {
+        return productId;
+    }
+
+    // Returns the signed change in stock
+    public int getDelta() {
+        return delta;
+    }
+
+    @Override
+    public String toString() {
+        return "StockAdjustment{productId=" + productId + ", delta=" + delta + '}';
+    }
+}
@@ -0,0 +1,66 @@
+package com.zalando.lite;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of {@link InventoryManager#applyStockBatch(java.util.List)}.
+ *
+ * A batch is all-or-nothing: either every line was applied, or no stock was
+ * changed at all. Each line gets its own status so callers can see which
+ * lines caused a rejection.
+ *
+ * Concepts reinforced:
+ * - Enums for a fixed set of outcomes
+ * - Returning rich results instead of a bare boolean
+ */
+public class StockBatchResult {
+
+    /**
+     * Status of a single batch line.
+     */
+    public enum LineStatus {
+        // The line's change is in effect
+        APPLIED,
+        // No product with the line's ID exists
+        UNKNOWN_PRODUCT,
+        // The product does not have enough stock for this line (and the others for the same product)
+        INSUFFICIENT_STOCK,
+        // The line itself was fine, but the batch was rejected because of another line
+        ABORTED
+    }
+
+    private final boolean applied;
+    private final List<LineStatus> statuses;
+
+    StockBatchResult(boolean applied, LineStatus[] statuses) {
+        this.applied = applied;
+        this.statuses = Collections.unmodifiableList(Arrays.asList(statuses));
+    }
+
+    // Returns true if the whole batch was applied
+    public boolean isApplied() {
+        return applied;
+    }
+
+    /**
+     * Returns the status of one line.
+     *
+     * @param line index of the line in the submitted batch
+     * @return the line's status
+     */
+    public LineStatus getStatus(int line) {
+        return statuses.get(line);
+    }
+
+    // Returns the status of every line, in submission order
+    public List<LineStatus> getStatuses() {
+        return statuses;
+    }
+
+    @Override
+    public String toString() {
+        return "StockBatchResult{applied=" + applied + ", statuses=" + statuses + '}';
+    }
+}
@@ -0,0 +1,76 @@
+package com.zalando.lite;
+
+/**
+ * A change in a product's stock, published by {@link InventoryManager}
+ * through its {@link StockEventBus}.
+ *
+ * Each event carries the stock before and after the change. Its type says
+ * whether the change crossed the inventory's low-stock threshold, so
+ * replenishment jobs can react to the interesting events only.
+ *
+ * Concepts reinforced:
+ * - Immutable event objects
+ * - Enums
+ */
+public final class StockEvent {
+
+    /**
+     * What kind of stock change happened.
+     */
+    public enum Type {
+        // Stock changed without crossing a threshold
+        STOCK_CHANGED,
+        // Stock dropped to (or below) the low-stock threshold
+        LOW_STOCK,
+        // Stock dropped to zero
+        OUT_OF_STOCK,
+        // Stock rose back above the low-stock threshold
+        RESTOCKED
+    }
+
+    private final long sequence;
+    private final int productId;
+    private final int oldStock;
+    private final int newStock;
+    private final Type type;
+
+    StockEvent(long sequence, int productId, int oldStock, int newStock, Type type) {
+        this.sequence = sequence;
+        this.productId = productId;
+        this.oldStock = oldStock;
+        this.newStock = newStock;
+        this.type = type;
+    }
+
+    // Position of the event in the stream (increases by one per event)
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Returns the ID of the product whose stock changed
+    public int getProductId() {
+        return productId;
+    }
+
+    // Returns the stock before the change
+    public int getOldStock() {
+        return oldStock;
+    }
+
+    // Returns the stock after the change
+    public int getNewStock() {
+        return newStock;
+    }
+
+    // Returns the kind of change
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "StockEvent#" + sequence + "{" + type +
+                ", productId=" + productId +
+                ", " + oldStock + " -> " + newStock + '}';
+    }
+}
@@ -0,0 +1,212 @@
+package com.zalando.lite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A bounded ring buffer that broadcasts {@link StockEvent}s to subscribers.
+ *
+ * Publishing never waits: a publisher claims the next sequence number with one
+ * atomic increment and writes the event into slot {@code sequence % capacity}.
+ * Every subscriber has its own read cursor. A subscriber that falls more than
+ * {@code capacity} events behind is overtaken; it skips ahead to the oldest event
+ * still in the ring and counts the ones it missed as dropped. A slow subscriber
+ * therefore costs itself events, but never slows down {@code reduceStock}.
+ *
+ * Subscribers can poll on their own thread ({@link #subscribe()}) or get batches
+ * delivered on a background thread ({@link #subscribe(Consumer, int)}).
+ *
+ * Concepts reinforced:
+ * - Ring buffers and sequence numbers
+ * - Lock-free publishing with atomics
+ * - Back-pressure by dropping instead of blocking
+ */
+public class StockEventBus {
+
+    private final AtomicReferenceArray<StockEvent> slots;
+    private final int mask;
+
+    // Next sequence number to hand out
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    // Events that lost their slot to a newer event before anyone could read them
+    private final AtomicLong overwritten = new AtomicLong();
+
+    // Number of open subscriptions (events are only built when someone listens)
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    /**
+     * Creates a bus.
+     *
+     * @param capacity number of events kept for slow subscribers, rounded up to a power of two
+     */
+    public StockEventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // Returns true if at least one subscription is open
+    public boolean hasSubscribers() {
+        return subscribers.get() > 0;
+    }
+
+    /**
+     * Publishes an event. Never blocks, whatever the subscribers are doing.
+     */
+    public void publish(int productId, int oldStock, int newStock, StockEvent.Type type) {
+        long sequence = nextSequence.getAndIncrement();
+        StockEvent event = new StockEvent(sequence, productId, oldStock, newStock, type);
+        int slot = (int) (sequence & mask);
+        while (true) {
+            StockEvent current = slots.get(slot);
+            if (current != null && current.getSequence() > sequence) {
+                overwritten.incrementAndGet(); // A publisher one lap ahead already took the slot
+                return;
+            }
+            if (slots.compareAndSet(slot, current, event)) {
+                return;
+            }
+        }
+    }
+
+    // Returns the number of events published so far
+    public long getPublishedCount() {
+        return nextSequence.get();
+    }
+
+    // Returns the number of events that were overtaken before they could be stored
+    public long getOverwrittenCount() {
+        return overwritten.get();
+    }
+
+    // Returns the number of slots in the ring
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Opens a subscription that the caller polls itself.
+     * It sees every event published from now on (unless it falls behind).
+     *
+     * @return the subscription
+     */
+    public Subscription subscribe() {
+        return new Subscription();
+    }
+
+    /**
+     * Opens a subscription whose events are delivered in batches on a background thread.
+     *
+     * @param handler called with each non-empty batch, in sequence order
+     * @param maxBatch largest batch handed to the handler at once
+     * @return the subscription (close it to stop the thread)
+     */
+    public Subscription subscribe(Consumer<List<StockEvent>> handler, int maxBatch) {
+        Subscription subscription = new Subscription();
+        Thread thread = new Thread(() -> subscription.run(handler, maxBatch), "stock-event-subscriber");
+        thread.setDaemon(true);
+        subscription.thread = thread;
+        thread.start();
+        return subscription;
+    }
+
+    /**
+     * One subscriber's view of the stream: a read cursor plus counters.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        // Next sequence this subscriber will read
+        private volatile long cursor;
+        private volatile boolean closed;
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private Thread thread;
+
+        private Subscription() {
+            this.cursor = nextSequence.get();
+            subscribers.incrementAndGet();
+        }
+
+        /**
+         * Reads up to {@code maxBatch} events without waiting.
+         *
+         * @param maxBatch largest number of events to return
+         * @return the events read, oldest first (empty if there are none yet)
+         */
+        public List<StockEvent> poll(int maxBatch) {
+            List<StockEvent> batch = new ArrayList<>(Math.min(maxBatch, 64));
+            long position = cursor;
+            while (batch.size() < maxBatch) {
+                StockEvent event = slots.get((int) (position & mask));
+                if (event == null || event.getSequence() < position) {
+                    break; // Not published yet
+                }
+                if (event.getSequence() > position) {
+                    // Overtaken: skip to the oldest event that can still be in the ring
+                    long oldest = Math.max(position + 1, nextSequence.get() - mask);
+                    dropped.addAndGet(oldest - position);
+                    position = oldest;
+                    continue;
+                }
+                batch.add(event);
+                position++;
+            }
+            cursor = position;
+            delivered.addAndGet(batch.size());
+            return batch;
+        }
+
+        // Events handed to this subscriber so far
+        public long getDeliveredCount() {
+            return delivered.get();
+        }
+
+        // Events this subscriber missed because it fell too far behind
+        public long getDroppedCount() {
+            return dropped.get();
+        }
+
+        // Events published but not yet read by this subscriber
+        public long getLag() {
+            return Math.max(0, nextSequence.get() - cursor);
+        }
+
+        // Stops delivery (and the background thread, if any)
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                subscribers.decrementAndGet();
+                if (thread != null) {
+                    LockSupport.unpark(thread);
+                }
+            }
+        }
+
+        // Background delivery loop: hand over batches, back off while idle
+        private void run(Consumer<List<StockEvent>> handler, int maxBatch) {
+            long idleNanos = 0;
+            while (!closed) {
+                List<StockEvent> batch = poll(maxBatch);
+                if (batch.isEmpty()) {
+                    idleNanos = Math.min(1_000_000, Math.max(10_000, idleNanos * 2));
+                    LockSupport.parkNanos(idleNanos);
+                } else {
+                    idleNanos = 0;
+                    try {
+                        handler.accept(batch);
+                    } catch (RuntimeException e) {
+                        // A failing handler must not stop the subscription
+                        System.err.println("❌ Stock event handler failed: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+}
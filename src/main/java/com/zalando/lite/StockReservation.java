@@ -0,0 +1,105 @@
+package com.zalando.lite;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A time-limited hold on some units of a product's stock.
+ *
+ * Created by {@link InventoryManager#reserve(int, int, java.time.Duration)}. The
+ * held units are taken out of the product's stock right away, so nobody else can
+ * buy them. A hold ends in exactly one way:
+ * - Committed: the units were sold (the stock stays reduced)
+ * - Released: the customer gave up (the units go back into stock)
+ * - Expired: nobody committed or released it in time (the units go back into stock)
+ *
+ * Concepts reinforced:
+ * - State machines
+ * - Atomic state transitions (compare-and-set)
+ */
+public class StockReservation {
+
+    /**
+     * Life cycle of a reservation. Only PENDING can change.
+     */
+    public enum Status {
+        PENDING,
+        COMMITTED,
+        RELEASED,
+        EXPIRED
+    }
+
+    private static final AtomicReferenceFieldUpdater<StockReservation, Status> STATUS =
+            AtomicReferenceFieldUpdater.newUpdater(StockReservation.class, Status.class, "status");
+
+    private final long id;
+    private final Product product;
+    private final int quantity;
+    private volatile Status status = Status.PENDING;
+
+    // Expiry handle in the inventory's timer wheel (set before the reservation is published)
+    private volatile TimerWheel.Timeout<StockReservation> timeout;
+
+    StockReservation(long id, Product product, int quantity) {
+        this.id = id;
+        this.product = product;
+        this.quantity = quantity;
+    }
+
+    // Returns the reservation ID (used to commit or release it)
+    public long getId() {
+        return id;
+    }
+
+    // Returns the ID of the held product
+    public int getProductId() {
+        return product.getId();
+    }
+
+    // Returns the held product
+    public Product getProduct() {
+        return product;
+    }
+
+    // Returns the number of held units
+    public int getQuantity() {
+        return quantity;
+    }
+
+    // Returns the current status
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Ends a pending reservation. Only one caller can win, which is how commit,
+     * release and expiry are kept from both taking effect.
+     *
+     * @param target the final status
+     * @return true if this call moved the reservation out of PENDING
+     */
+    boolean finish(Status target) {
+        return STATUS.compareAndSet(this, Status.PENDING, target);
+    }
+
+    // Marks a commit that was rolled back (its units went back into stock)
+    void undoCommit() {
+        this.status = Status.RELEASED;
+    }
+
+    TimerWheel.Timeout<StockReservation> getTimeout() {
+        return timeout;
+    }
+
+    void setTimeout(TimerWheel.Timeout<StockReservation> timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String toString() {
+        return "StockReservation{id=" + id +
+                ", productId=" + getProductId() +
+                ", quantity=" + quantity +
+                ", status=" + status +
+                '}';
+    }
+}
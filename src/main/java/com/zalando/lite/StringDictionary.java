@@ -0,0 +1,242 @@
+package com.zalando.lite;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only dictionary of strings stored in a memory-mapped file.
+ *
+ * Each distinct string is written once as {@code [length][UTF-8 bytes]} and is
+ * referred to by its byte offset (a "ref"). Fixed-width records, such as the
+ * product records of {@link MappedInventoryManager}, store these int refs
+ * instead of holding {@code String} objects on the heap.
+ *
+ * Reading a ref decodes the string on demand. New strings are deduplicated with
+ * an open-addressing table of refs kept off-heap: each slot holds the hash of the
+ * stored bytes and the ref, and a candidate is confirmed by comparing its UTF-8
+ * bytes with the mapped ones, so no stored string is ever decoded onto the heap.
+ * The table is only built the first time something is interned, so reopening a
+ * dictionary just maps the file.
+ *
+ * Concepts reinforced:
+ * - Memory-mapped files (NIO)
+ * - String interning
+ * - Lazy initialization
+ * - Open addressing (off-heap hash table)
+ */
+public class StringDictionary implements Closeable {
+
+    // Ref used for null strings
+    public static final int NULL_REF = -1;
+
+    private static final int MAGIC = 0x5A4C5344; // "ZLSD"
+    private static final int HEADER_SIZE = 16;
+    private static final int END_OFFSET = 4;
+    private static final int INITIAL_SIZE = 64 * 1024;
+    private static final int INITIAL_TABLE_SIZE = 1024;
+
+    // Marks an unused table slot (refs are stored off by one)
+    private static final long EMPTY = 0;
+
+    private final FileChannel channel;
+
+    // Current mapping; replaced by a larger one when the file grows
+    private volatile MappedByteBuffer buffer;
+
+    // Offset where the next string will be written
+    private int end;
+
+    // Off-heap ref table: each slot is (hash << 32) | (ref + 1), or EMPTY; built on the first intern()
+    private LongBuffer refs;
+
+    // Strings in the ref table
+    private int refCount;
+
+    /**
+     * Opens the dictionary stored in the given file, creating it if needed.
+     *
+     * @param file the dictionary file
+     * @throws IOException if the file cannot be opened or is not a dictionary
+     */
+    public StringDictionary(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size == 0) {
+            map(INITIAL_SIZE);
+            buffer.putInt(0, MAGIC);
+            end = HEADER_SIZE;
+            buffer.putInt(END_OFFSET, end);
+        } else {
+            map(size);
+            if (buffer.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IOException("Not a string dictionary: " + file);
+            }
+            end = buffer.getInt(END_OFFSET);
+        }
+    }
+
+    /**
+     * Returns the ref of the given string, appending it if it is new.
+     *
+     * @param value the string to store (may be null)
+     * @return the ref to store in a record
+     */
+    public synchronized int intern(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        if (refs == null) {
+            loadRefs();
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(ByteBuffer.wrap(bytes), 0, bytes.length);
+        int slot = slotOf(hash, bytes);
+        if (refs.get(slot) != EMPTY) {
+            return refOf(refs.get(slot));
+        }
+
+        ensureCapacity(end + 4 + bytes.length);
+        MappedByteBuffer target = buffer;
+        int ref = end;
+        target.putInt(ref, bytes.length);
+        ByteBuffer slice = target.duplicate();
+        slice.position(ref + 4);
+        slice.put(bytes);
+        end = ref + 4 + bytes.length;
+        target.putInt(END_OFFSET, end); // Publish the new end only after the bytes are written
+        addRef(slot, hash, ref);
+        return ref;
+    }
+
+    /**
+     * Decodes the string stored under a ref.
+     *
+     * @param ref a ref returned by {@link #intern(String)}
+     * @return the string, or null for {@link #NULL_REF}
+     */
+    public String get(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        MappedByteBuffer source = buffer;
+        int length = source.getInt(ref);
+        byte[] bytes = new byte[length];
+        ByteBuffer view = source.duplicate(); // Own position, so concurrent readers don't interfere
+        view.position(ref + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Flushes written strings to disk
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    // Scans the file once to rebuild the ref table, hashing the mapped bytes in place
+    private void loadRefs() {
+        refs = ByteBuffer.allocateDirect(INITIAL_TABLE_SIZE * Long.BYTES).asLongBuffer();
+        MappedByteBuffer source = buffer;
+        int position = HEADER_SIZE;
+        while (position < end) {
+            int length = source.getInt(position);
+            int hash = hash(source, position + 4, length);
+            int slot = ProductIndex.hash(hash) & (refs.capacity() - 1);
+            while (refs.get(slot) != EMPTY) {
+                slot = (slot + 1) & (refs.capacity() - 1);
+            }
+            addRef(slot, hash, position);
+            position += 4 + length;
+        }
+    }
+
+    // Slot holding the ref of the given bytes, or the empty slot where it belongs
+    private int slotOf(int hash, byte[] bytes) {
+        int mask = refs.capacity() - 1;
+        ByteBuffer wanted = ByteBuffer.wrap(bytes);
+        for (int slot = ProductIndex.hash(hash) & mask; ; slot = (slot + 1) & mask) {
+            long entry = refs.get(slot);
+            if (entry == EMPTY) {
+                return slot;
+            }
+            int ref = refOf(entry);
+            if ((int) (entry >>> 32) == hash && buffer.getInt(ref) == bytes.length
+                    && buffer.slice(ref + 4, bytes.length).equals(wanted)) {
+                return slot;
+            }
+        }
+    }
+
+    // Stores a ref in an empty slot, doubling the table once it is half full
+    private void addRef(int slot, int hash, int ref) {
+        refs.put(slot, ((long) hash << 32) | (ref + 1L));
+        if (++refCount * 2 > refs.capacity()) {
+            LongBuffer old = refs;
+            refs = ByteBuffer.allocateDirect(old.capacity() * 2 * Long.BYTES).asLongBuffer();
+            int mask = refs.capacity() - 1;
+            for (int i = 0; i < old.capacity(); i++) {
+                long entry = old.get(i);
+                if (entry != EMPTY) {
+                    int target = ProductIndex.hash((int) (entry >>> 32)) & mask;
+                    while (refs.get(target) != EMPTY) {
+                        target = (target + 1) & mask;
+                    }
+                    refs.put(target, entry);
+                }
+            }
+        }
+    }
+
+    private static int refOf(long entry) {
+        return (int) entry - 1;
+    }
+
+    // Hash of UTF-8 bytes, the same whether they come from a new string or the mapped file
+    private static int hash(ByteBuffer source, int from, int length) {
+        int h = 1;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + source.get(from + i);
+        }
+        return h;
+    }
+
+    // Remaps the file with at least the requested size (doubling to amortize growth)
+    private void ensureCapacity(long required) {
+        long size = buffer.capacity();
+        if (required <= size) {
+            return;
+        }
+        while (size < required) {
+            size *= 2;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("String dictionary is full.");
+        }
+        try {
+            map(size);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to grow string dictionary: " + e.getMessage(), e);
+        }
+    }
+
+    private void map(long size) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        buffer = mapped;
+    }
+}
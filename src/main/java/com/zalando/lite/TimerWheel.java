@@ -0,0 +1,172 @@
+package com.zalando.lite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed timer wheel for large numbers of timeouts.
+ *
+ * Time is split into ticks of a fixed length. The wheel is a ring of buckets,
+ * one per tick; a timeout is put in the bucket of the tick it expires in
+ * (wrapping around the ring for long delays). Advancing the clock only looks at
+ * the buckets of the ticks that passed.
+ *
+ * - Scheduling and cancelling are O(1): buckets are doubly-linked lists
+ * - Expiry costs O(1) per timeout (plus one visit per full turn of the wheel)
+ * - No thread or task object per timeout, so millions of timeouts stay cheap
+ *
+ * The wheel does not run its own thread; call {@link #advance()} regularly.
+ * All methods are synchronized.
+ *
+ * Concepts reinforced:
+ * - Hashed timer wheels
+ * - Intrusive doubly-linked lists
+ * - Generics
+ *
+ * @param <T> the type of item attached to each timeout
+ */
+public class TimerWheel<T> {
+
+    /**
+     * A scheduled timeout. Keep it to cancel the timeout later.
+     *
+     * @param <T> the type of the attached item
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+        private int bucket = -1; // -1 when not in the wheel
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        // Returns the attached item
+        public T getItem() {
+            return item;
+        }
+    }
+
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final LongSupplier clock;
+
+    // Last tick whose bucket has been processed
+    private long currentTick;
+
+    // Number of timeouts still in the wheel
+    private int size;
+
+    /**
+     * Creates a wheel.
+     *
+     * @param tickNanos length of one tick in nanoseconds (the expiry precision)
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param clock nanosecond clock, e.g. {@code System::nanoTime}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimerWheel(long tickNanos, int wheelSize, LongSupplier clock) {
+        if (tickNanos <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick length and wheel size must be positive.");
+        }
+        int buckets = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.buckets = (Timeout<T>[]) new Timeout[buckets];
+        this.mask = buckets - 1;
+        this.tickNanos = tickNanos;
+        this.clock = clock;
+        this.currentTick = clock.getAsLong() / tickNanos;
+    }
+
+    /**
+     * Schedules an item to expire after the given delay.
+     *
+     * @param item the item to hand back on expiry
+     * @param delayNanos delay in nanoseconds
+     * @return the timeout handle, for {@link #cancel(Timeout)}
+     */
+    public synchronized Timeout<T> schedule(T item, long delayNanos) {
+        long deadline = clock.getAsLong() + Math.max(0, delayNanos);
+        // Round up, and never into a tick that was already processed
+        long deadlineTick = Math.max(currentTick + 1, (deadline + tickNanos - 1) / tickNanos);
+        Timeout<T> timeout = new Timeout<>(item, deadlineTick);
+        link(timeout, (int) (deadlineTick & mask));
+        return timeout;
+    }
+
+    /**
+     * Removes a timeout from the wheel.
+     *
+     * @param timeout the handle returned by {@link #schedule(Object, long)}
+     * @return true if it was still scheduled
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket < 0) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Moves the wheel to the current time and removes every timeout that is due.
+     *
+     * @return the items whose timeouts expired, in no particular order
+     */
+    public List<T> advance() {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = clock.getAsLong() / tickNanos;
+            // After a long pause one full turn is enough to see every bucket
+            long firstTick = Math.max(currentTick + 1, targetTick - mask);
+            for (long tick = firstTick; tick <= targetTick; tick++) {
+                Timeout<T> timeout = buckets[(int) (tick & mask)];
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    if (timeout.deadlineTick <= targetTick) {
+                        unlink(timeout);
+                        expired.add(timeout.item);
+                    }
+                    timeout = next;
+                }
+            }
+            currentTick = Math.max(currentTick, targetTick);
+        }
+        return expired;
+    }
+
+    // Returns the number of timeouts still scheduled
+    public synchronized int size() {
+        return size;
+    }
+
+    private void link(Timeout<T> timeout, int bucket) {
+        Timeout<T> head = buckets[bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        buckets[bucket] = timeout;
+        timeout.bucket = bucket;
+        size++;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+}
@@ -0,0 +1,148 @@
+package com.zalando.lite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the {@code capacity} highest-scoring items seen so far, exactly.
+ *
+ * A bounded min-heap: the root is the lowest score still in the top, so an item
+ * that does not beat it is rejected with one comparison, and one that does
+ * replaces it in O(log capacity). Memory stays at {@code capacity} items no
+ * matter how many are offered. On equal scores the item offered first stays.
+ *
+ * Not thread-safe; {@link OrderRankings} guards it.
+ *
+ * Concepts reinforced:
+ * - Heaps (priority queues) in plain arrays
+ * - Generics
+ *
+ * @param <T> the item type
+ */
+public class TopK<T> {
+
+    private final int capacity;
+    private final long[] scores;
+    private final Object[] items;
+    private int size;
+
+    /**
+     * Creates an empty top list.
+     *
+     * @param capacity how many items to keep
+     */
+    public TopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.scores = new long[capacity];
+        this.items = new Object[capacity];
+    }
+
+    /**
+     * Offers an item.
+     *
+     * @param item the item
+     * @param score its score (higher is better)
+     * @return true if the item is now in the top
+     */
+    public boolean offer(T item, long score) {
+        if (size < capacity) {
+            scores[size] = score;
+            items[size] = item;
+            siftUp(size++);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        scores[0] = score;
+        items[0] = item;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Returns the lowest score an item needs to beat to get in.
+     *
+     * @return the lowest score in the top, or {@link Long#MIN_VALUE} while it is not full
+     */
+    public long threshold() {
+        return size < capacity ? Long.MIN_VALUE : scores[0];
+    }
+
+    // Returns the number of items kept
+    public int size() {
+        return size;
+    }
+
+    // Returns the maximum number of items kept
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the best {@code k} items, best first.
+     *
+     * @param k how many items to return (at most the capacity)
+     * @return the items, highest score first
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> top(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative.");
+        }
+        // Sort heap positions by score, highest first
+        Integer[] positions = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, (a, b) -> Long.compare(scores[b], scores[a]));
+        List<T> result = new ArrayList<>(Math.min(k, size));
+        for (int i = 0; i < size && i < k; i++) {
+            result.add((T) items[positions[i]]);
+        }
+        return result;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (scores[parent] <= scores[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        Object item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+    }
+}
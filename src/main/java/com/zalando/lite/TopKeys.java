@@ -0,0 +1,274 @@
+package com.zalando.lite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the {@code capacity} highest-scoring int keys, where a key's score can grow.
+ *
+ * Like {@link TopK}, a bounded min-heap, but every key also has its heap position
+ * in a small open-addressing table, so a key already in the top can be found and
+ * moved in O(log capacity) when its score rises (e.g. a customer's lifetime spend).
+ * As long as scores only grow, the result is exact: a key outside the top whose
+ * new score does not beat the lowest one in it cannot belong there.
+ *
+ * Each key also carries an error value, used by {@link SpaceSavingSketch}.
+ *
+ * Not thread-safe; {@link OrderRankings} guards it.
+ *
+ * Concepts reinforced:
+ * - Indexed heaps (heap + position map) for increase-key
+ * - Open addressing with backward-shift deletion
+ */
+public class TopKeys {
+
+    /**
+     * One key in the top, with its score and error.
+     */
+    public static final class Entry {
+        private final int key;
+        private final long score;
+        private final long error;
+
+        Entry(int key, long score, long error) {
+            this.key = key;
+            this.score = score;
+            this.error = error;
+        }
+
+        // Returns the key
+        public int getKey() {
+            return key;
+        }
+
+        // Returns the key's score
+        public long getScore() {
+            return score;
+        }
+
+        // Returns how much the score may overstate the truth (0 when exact)
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + score + (error == 0 ? "" : " (±" + error + ")");
+        }
+    }
+
+    private final int capacity;
+
+    // The heap: keys[0] has the lowest score
+    private final int[] keys;
+    private final long[] scores;
+    private final long[] errors;
+    private int size;
+
+    // Key -> heap position, linear probing; positions are stored + 1 so 0 means empty
+    private final int[] tableKeys;
+    private final int[] tablePositions;
+    private final int mask;
+
+    /**
+     * Creates an empty top list.
+     *
+     * @param capacity how many keys to keep
+     */
+    public TopKeys(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.keys = new int[capacity];
+        this.scores = new long[capacity];
+        this.errors = new long[capacity];
+        int tableSize = ProductIndex.tableSizeFor(capacity);
+        this.tableKeys = new int[tableSize];
+        this.tablePositions = new int[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    /**
+     * Sets a key's score, if it makes (or keeps) the key in the top.
+     *
+     * Scores are expected to only grow; a lower score than the one kept is ignored.
+     *
+     * @param key the key
+     * @param score its new score
+     * @return true if the key is in the top
+     */
+    public boolean offer(int key, long score) {
+        int position = find(key);
+        if (position >= 0) {
+            if (score > scores[position]) {
+                increase(position, score - scores[position]);
+            }
+            return true;
+        }
+        if (size < capacity) {
+            insert(key, score, 0);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        replaceMin(key, score, 0);
+        return true;
+    }
+
+    /**
+     * Returns the lowest score a key needs to beat to get in.
+     *
+     * @return the lowest score in the top, or {@link Long#MIN_VALUE} while it is not full
+     */
+    public long threshold() {
+        return size < capacity ? Long.MIN_VALUE : scores[0];
+    }
+
+    // Returns the number of keys kept
+    public int size() {
+        return size;
+    }
+
+    // Returns the maximum number of keys kept
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the best {@code k} keys, best first (ties by smaller key).
+     *
+     * @param k how many keys to return
+     * @return the keys with their scores, highest first
+     */
+    public List<Entry> top(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative.");
+        }
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(keys[i], scores[i], errors[i]));
+        }
+        entries.sort((a, b) -> a.score != b.score ? Long.compare(b.score, a.score) : Integer.compare(a.key, b.key));
+        return entries.size() > k ? new ArrayList<>(entries.subList(0, k)) : entries;
+    }
+
+    // Returns the heap position of a key, or -1 if it is not in the top
+    int find(int key) {
+        for (int slot = ProductIndex.hash(key) & mask; tablePositions[slot] != 0; slot = (slot + 1) & mask) {
+            if (tableKeys[slot] == key) {
+                return tablePositions[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the score at a heap position
+    long scoreAt(int position) {
+        return scores[position];
+    }
+
+    // Returns the lowest score in the heap (the heap must not be empty)
+    long minScore() {
+        return scores[0];
+    }
+
+    // Raises the score at a heap position
+    void increase(int position, long delta) {
+        scores[position] += delta;
+        siftDown(position);
+    }
+
+    // Adds a key (the heap must not be full)
+    void insert(int key, long score, long error) {
+        keys[size] = key;
+        scores[size] = score;
+        errors[size] = error;
+        put(key, size);
+        siftUp(size++);
+    }
+
+    // Replaces the key with the lowest score by a new one
+    void replaceMin(int key, long score, long error) {
+        remove(keys[0]);
+        keys[0] = key;
+        scores[0] = score;
+        errors[0] = error;
+        put(key, 0);
+        siftDown(0);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (scores[parent] <= scores[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        put(keys[a], a);
+        put(keys[b], b);
+    }
+
+    // Records (or moves) a key's heap position
+    private void put(int key, int position) {
+        int slot = ProductIndex.hash(key) & mask;
+        while (tablePositions[slot] != 0 && tableKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        tableKeys[slot] = key;
+        tablePositions[slot] = position + 1;
+    }
+
+    // Forgets a key, shifting later entries of its probe run back so lookups still find them
+    private void remove(int key) {
+        int slot = ProductIndex.hash(key) & mask;
+        while (tableKeys[slot] != key || tablePositions[slot] == 0) {
+            slot = (slot + 1) & mask;
+        }
+        int hole = slot;
+        for (int next = (hole + 1) & mask; tablePositions[next] != 0; next = (next + 1) & mask) {
+            int home = ProductIndex.hash(tableKeys[next]) & mask;
+            // Move the entry into the hole unless its home lies cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                tableKeys[hole] = tableKeys[next];
+                tablePositions[hole] = tablePositions[next];
+                hole = next;
+            }
+        }
+        tablePositions[hole] = 0;
+    }
+}
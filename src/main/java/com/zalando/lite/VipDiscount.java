@@ -1,35 +1,46 @@
 package com.zalando.lite;
 
-import com.zalando.lite.annotations.VIP;
+public class VipDiscount extends Discount{
 
-import java.lang.reflect.Field;
+    private final int percentOff;
 
-public class VipDiscount extends Discount{
+    // 10% off for VIPs
+    public VipDiscount() {
+        this(10);
+    }
+
+    /**
+     * Creates a discount for VIP customers.
+     *
+     * @param percentOff the discount in percent
+     */
+    public VipDiscount(int percentOff) {
+        if (percentOff < 0 || percentOff > 100) {
+            throw new IllegalArgumentException("Discount must be between 0 and 100 percent.");
+        }
+        this.percentOff = percentOff;
+    }
 
     @Override
-    public double applyDiscount(Customer customer, Product product, double currentPrice) {
-        if (isVip(customer)) {
-            return currentPrice * 0.90; // 10% off
+    public long applyDiscount(Customer customer, Product product, long currentPriceCents) {
+        if (VipStatus.isVip(customer)) {
+            return Money.percentOff(currentPriceCents, percentOff);
         }
-        return currentPrice;
+        return currentPriceCents;
     }
 
+    @Override
+    public long applyEligible(Customer customer, Product product, long currentPriceCents) {
+        return Money.percentOff(currentPriceCents, percentOff); // Customer is known to be a VIP
+    }
 
-    private boolean isVip(Customer customer) {
-        for (Field field : customer.getClass().getDeclaredFields()) {
-            if (field.isAnnotationPresent(VIP.class)) {
-                field.setAccessible(true);
-                try {
-                    Object value = field.get(customer);
-                    if (value instanceof Boolean && (Boolean) value) {
-                        return true;
-                    }
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-        return false;
+    @Override
+    public boolean isVipOnly() {
+        return true;
     }
 
+    // Returns the discount in percent
+    public int getPercentOff() {
+        return percentOff;
+    }
 }
@@ -0,0 +1,111 @@
+package com.zalando.lite;
+
+import com.zalando.lite.annotations.VIP;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Detects VIP customers through their {@link VIP @VIP}-annotated fields.
+ *
+ * Scanning fields with reflection on every call copies the field array and boxes
+ * every value, which adds up when every priced line asks. Instead, the fields of
+ * each customer class are looked up once. The first call for a class finds its
+ * {@code @VIP} fields (including those inherited from superclasses) and combines their
+ * getters into a single {@link MethodHandle} that returns true if any of them is true.
+ * A {@link ClassValue} keeps that handle with the class, so every later call is one
+ * {@code invokeExact} that allocates nothing.
+ *
+ * Fields of type {@code boolean} and {@code Boolean} count; other types are ignored.
+ *
+ * Concepts reinforced:
+ * - Reflection done once, with method handles
+ * - Per-class caching with ClassValue
+ * - Combining method handles
+ */
+public final class VipStatus {
+
+    // Shape of every check: (Object customer) -> boolean
+    private static final MethodType CHECK = MethodType.methodType(boolean.class, Object.class);
+
+    private static final MethodHandle IS_TRUE;
+    private static final MethodHandle ALWAYS_TRUE =
+            MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true), 0, Object.class);
+    private static final MethodHandle ALWAYS_FALSE =
+            MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false), 0, Object.class);
+
+    static {
+        try {
+            IS_TRUE = MethodHandles.lookup().findStatic(VipStatus.class, "isTrue",
+                    MethodType.methodType(boolean.class, Boolean.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // The combined VIP check of each class, built on first use
+    private static final ClassValue<MethodHandle> CHECKS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            return buildCheck(type);
+        }
+    };
+
+    private VipStatus() {
+        // Utility class: not meant to be instantiated
+    }
+
+    /**
+     * Checks if any {@code @VIP} field of the customer is true.
+     *
+     * @param customer the customer to inspect
+     * @return true if VIP, false otherwise (also for null)
+     */
+    public static boolean isVip(Customer customer) {
+        if (customer == null) {
+            return false;
+        }
+        try {
+            return (boolean) CHECKS.get(customer.getClass()).invokeExact((Object) customer);
+        } catch (Throwable e) {
+            // Field getters do not throw; anything else is a bug worth seeing
+            throw new IllegalStateException("VIP check failed for " + customer.getClass().getName(), e);
+        }
+    }
+
+    // Builds "field1 || field2 || ..." over the @VIP fields of the class and its superclasses
+    private static MethodHandle buildCheck(Class<?> type) {
+        MethodHandle check = ALWAYS_FALSE;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(VIP.class) || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                MethodHandle getter;
+                try {
+                    field.setAccessible(true); // Allow access to private fields, once per field
+                    getter = lookup.unreflectGetter(field);
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    System.err.println("⚠️ Cannot read @VIP field " + c.getName() + "." + field.getName() + ": " + e);
+                    continue;
+                }
+                if (field.getType() == Boolean.class) {
+                    getter = MethodHandles.filterReturnValue(getter, IS_TRUE);
+                } else if (field.getType() != boolean.class) {
+                    continue; // Only boolean flags mark a VIP
+                }
+                check = MethodHandles.guardWithTest(getter.asType(CHECK), ALWAYS_TRUE, check);
+            }
+        }
+        return check;
+    }
+
+    // Unboxes a Boolean flag, treating null as false
+    private static boolean isTrue(Boolean flag) {
+        return flag != null && flag;
+    }
+}
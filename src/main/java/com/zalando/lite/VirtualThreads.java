@@ -0,0 +1,108 @@
+package com.zalando.lite;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on virtual threads when the JVM has them (Java 21+).
+ *
+ * A virtual thread is a lightweight thread managed by the JVM: blocking (waiting for
+ * a lock, a condition or I/O) parks it and frees its carrier platform thread for
+ * other work. A hundred thousand checkouts can wait at once while only a handful of
+ * platform threads exist.
+ *
+ * The project compiles for Java 17, so the Java 21 API is looked up once at startup.
+ * On Java 17 to 20 there are no virtual threads. Tasks then run on a pool of at most
+ * {@link #FALLBACK_THREADS} platform threads, and further tasks wait in its queue. The
+ * thread count stays bounded, but only that many tasks run (or block) at once; a
+ * hundred thousand concurrent checkouts need Java 21.
+ *
+ * Concepts reinforced:
+ * - Virtual threads vs. platform threads
+ * - Looking up optional APIs with reflection
+ * - Static utility classes
+ */
+public final class VirtualThreads {
+
+    // Platform threads of the fallback pool used before Java 21
+    public static final int FALLBACK_THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+    private static final Method IS_VIRTUAL = lookup(Thread.class, "isVirtual");
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private VirtualThreads() {
+        // Utility class: not meant to be instantiated
+    }
+
+    /**
+     * Returns true if tasks given to {@link #executor()} run on virtual threads.
+     *
+     * @return whether the JVM supports virtual threads
+     */
+    public static boolean isAvailable() {
+        return IS_VIRTUAL != null;
+    }
+
+    /**
+     * Returns the shared executor: one virtual thread per task on Java 21+, otherwise
+     * a queue in front of at most {@link #FALLBACK_THREADS} platform threads.
+     *
+     * Its threads never keep the JVM alive, so it needs no shutdown.
+     *
+     * @return the executor
+     */
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Tells whether a thread is virtual.
+     *
+     * @param thread the thread to check
+     * @return true for a virtual thread, false otherwise (always false before Java 21)
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService createExecutor() {
+        Method factory = lookup(Executors.class, "newVirtualThreadPerTaskExecutor");
+        if (factory != null) {
+            try {
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("⚠️ Virtual threads unavailable, using platform threads: " + e);
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(FALLBACK_THREADS, FALLBACK_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "order-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true); // Idle threads go away again
+        return pool;
+    }
+
+    // Returns a public no-argument method, or null if this JVM does not have it
+    private static Method lookup(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
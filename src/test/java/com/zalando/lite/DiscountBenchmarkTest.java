@@ -0,0 +1,248 @@
+package com.zalando.lite;
+
+import com.zalando.lite.annotations.VIP;
+import org.junit.jupiter.api.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmarks for discount pricing: the cached {@link VipStatus} check against the old
+ * per-call reflection scan, compiled {@link DiscountManager} rule lists and whole-cart pricing.
+ *
+ * Tagged "benchmark", so it only runs with {@code mvn test -Pbench}.
+ *
+ * These tests verify:
+ * - Time and bytes allocated per VIP check, for both paths
+ * - Time per {@link DiscountManager#applyDiscountCents(Customer, Product)} call
+ * - Compiled rule lists cost the same with 2 rules as with 500
+ * - Whole-cart pricing against pricing each line on its own
+ *
+ * Concepts reinforced:
+ * - Measuring after a warm-up
+ * - Measuring allocation with ThreadMXBean
+ */
+@Tag("benchmark")
+public class DiscountBenchmarkTest {
+
+    private static final int CHECKS = 20_000_000;
+
+    @Test
+    @DisplayName("VIP check: cached method handles versus reflection on every call")
+    void benchmarkVipCheck() {
+        Customer[] customers = new Customer[1024];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer("Customer " + i, null);
+            customers[i].setVip(i % 3 == 0);
+        }
+
+        for (int round = 0; round < 3; round++) { // Warm-up
+            countCached(customers, CHECKS / 10);
+            countReflective(customers, CHECKS / 10);
+        }
+
+        long bytes = allocatedBytes();
+        long begin = System.nanoTime();
+        int cached = countCached(customers, CHECKS);
+        long cachedNanos = System.nanoTime() - begin;
+        long cachedBytes = allocatedBytes() - bytes;
+
+        bytes = allocatedBytes();
+        begin = System.nanoTime();
+        int reflective = countReflective(customers, CHECKS);
+        long reflectiveNanos = System.nanoTime() - begin;
+        long reflectiveBytes = allocatedBytes() - bytes;
+
+        System.out.printf("VipStatus:  %,d checks in %d ms (%.1f ns/check, %.2f bytes/check)%n",
+                CHECKS, cachedNanos / 1_000_000, (double) cachedNanos / CHECKS, (double) cachedBytes / CHECKS);
+        System.out.printf("reflection: %,d checks in %d ms (%.1f ns/check, %.2f bytes/check)%n",
+                CHECKS, reflectiveNanos / 1_000_000, (double) reflectiveNanos / CHECKS, (double) reflectiveBytes / CHECKS);
+        assertEquals(reflective, cached, "Both paths find the same VIPs");
+        assertTrue(cachedBytes < CHECKS, "The cached check allocates (almost) nothing");
+
+        DiscountManager discountManager = new DiscountManager();
+        Product sneakers = new Product(1, "Sneakers", "Shoes", 100.00, 10, Arrays.asList("42"));
+        long total = 0;
+        begin = System.nanoTime();
+        for (int i = 0; i < CHECKS; i++) {
+            total += discountManager.applyDiscountCents(customers[i & 1023], sneakers);
+        }
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("applyDiscountCents: %,d lines in %d ms (%.1f ns/line)%n",
+                CHECKS, elapsed / 1_000_000, (double) elapsed / CHECKS);
+        assertTrue(total > 0);
+    }
+
+    @Test
+    @DisplayName("Pricing with 2 rules versus 500 rules, compiled and walked one by one")
+    void benchmarkDiscountRules() {
+        List<Discount> many = new ArrayList<>();
+        for (int i = 0; i < 498; i++) {
+            many.add(new CategoryDiscount("Category " + i, 1 + i % 30));
+        }
+        many.add(new CategoryDiscount());
+        many.add(new VipDiscount());
+        DiscountManager small = new DiscountManager();
+        DiscountManager large = new DiscountManager(many);
+
+        Customer[] customers = new Customer[1024];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer("Customer " + i, null);
+            customers[i].setVip(i % 3 == 0);
+        }
+        Product[] products = new Product[64];
+        for (int i = 0; i < products.length; i++) {
+            String category = i % 4 == 0 ? "Shoes" : i % 4 == 1 ? "Category " + i : "Clothing";
+            products[i] = new Product(i, "SKU " + i, category, 10.0 + i, 10, Arrays.asList("M"));
+        }
+
+        for (int round = 0; round < 3; round++) { // Warm-up
+            priceAll(small, customers, products, CHECKS / 10);
+            priceAll(large, customers, products, CHECKS / 10);
+            walkAll(many, customers, products, CHECKS / 100);
+        }
+        long begin = System.nanoTime();
+        long smallTotal = priceAll(small, customers, products, CHECKS);
+        long smallNanos = System.nanoTime() - begin;
+        begin = System.nanoTime();
+        long largeTotal = priceAll(large, customers, products, CHECKS);
+        long largeNanos = System.nanoTime() - begin;
+        int walked = CHECKS / 10;
+        begin = System.nanoTime();
+        long walkedTotal = walkAll(many, customers, products, walked);
+        long walkNanos = System.nanoTime() - begin;
+
+        System.out.printf("2 rules:             %.1f ns/line%n", (double) smallNanos / CHECKS);
+        System.out.printf("500 rules, compiled: %.1f ns/line%n", (double) largeNanos / CHECKS);
+        System.out.printf("500 rules, walked:   %.1f ns/line%n", (double) walkNanos / walked);
+        assertEquals(walkedTotal, priceAll(large, customers, products, walked), "Compiled rules price like the full walk");
+        assertTrue(smallTotal > 0 && largeTotal > 0);
+    }
+
+    @Test
+    @DisplayName("50-line carts: priceCart versus pricing line by line")
+    void benchmarkCartPricing() {
+        DiscountManager discountManager = new DiscountManager();
+        Customer[] customers = new Customer[1024];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer("Customer " + i, null);
+            customers[i].setVip(i % 3 == 0);
+        }
+        String[] categories = {"Shoes", "Clothing", "Accessories"};
+        List<OrderItem> cart = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Product product = new Product(i, "SKU " + i, categories[i / 17], 10.0 + i, 10, Arrays.asList("M"));
+            cart.add(new OrderItem(product, 1 + i % 3));
+        }
+        int carts = CHECKS / 50;
+        long[] lines = new long[cart.size()];
+
+        for (int round = 0; round < 3; round++) { // Warm-up
+            priceCarts(discountManager, customers, cart, lines, carts / 10);
+            priceLineByLine(discountManager, customers, cart, carts / 10);
+        }
+        long begin = System.nanoTime();
+        long batched = priceCarts(discountManager, customers, cart, lines, carts);
+        long batchNanos = System.nanoTime() - begin;
+        begin = System.nanoTime();
+        long perLine = priceLineByLine(discountManager, customers, cart, carts);
+        long lineNanos = System.nanoTime() - begin;
+
+        System.out.printf("priceCart:    %,d carts of 50 lines in %d ms (%.0f ns/cart)%n",
+                carts, batchNanos / 1_000_000, (double) batchNanos / carts);
+        System.out.printf("line by line: %,d carts of 50 lines in %d ms (%.0f ns/cart)%n",
+                carts, lineNanos / 1_000_000, (double) lineNanos / carts);
+        assertEquals(perLine, batched, "Both paths price the same");
+    }
+
+    private static long priceCarts(DiscountManager manager, Customer[] customers, List<OrderItem> cart,
+                                   long[] lines, int carts) {
+        long total = 0;
+        for (int i = 0; i < carts; i++) {
+            total += manager.priceCart(customers[i & 1023], cart, lines);
+        }
+        return total;
+    }
+
+    // What a caller of applyDiscountCents had to do: one VIP check and rule lookup per line
+    private static long priceLineByLine(DiscountManager manager, Customer[] customers, List<OrderItem> cart, int carts) {
+        long total = 0;
+        for (int i = 0; i < carts; i++) {
+            for (OrderItem item : cart) {
+                total += Money.times(manager.applyDiscountCents(customers[i & 1023], item.getProduct()), item.getQuantity());
+            }
+        }
+        return total;
+    }
+
+    private static long priceAll(DiscountManager manager, Customer[] customers, Product[] products, int lines) {
+        long total = 0;
+        for (int i = 0; i < lines; i++) {
+            total += manager.applyDiscountCents(customers[i & 1023], products[i & 63]);
+        }
+        return total;
+    }
+
+    // Calls every rule for every line, as a plain loop over the list would
+    private static long walkAll(List<Discount> rules, Customer[] customers, Product[] products, int lines) {
+        long total = 0;
+        for (int i = 0; i < lines; i++) {
+            Product product = products[i & 63];
+            long price = product.getPriceCents();
+            for (Discount rule : rules) {
+                price = rule.applyDiscount(customers[i & 1023], product, price);
+            }
+            total += price;
+        }
+        return total;
+    }
+
+    private static int countCached(Customer[] customers, int checks) {
+        int vips = 0;
+        for (int i = 0; i < checks; i++) {
+            if (VipStatus.isVip(customers[i & 1023])) {
+                vips++;
+            }
+        }
+        return vips;
+    }
+
+    private static int countReflective(Customer[] customers, int checks) {
+        int vips = 0;
+        for (int i = 0; i < checks; i++) {
+            if (isVipUsingReflection(customers[i & 1023])) {
+                vips++;
+            }
+        }
+        return vips;
+    }
+
+    // The check DiscountManager used to run for every price
+    private static boolean isVipUsingReflection(Customer customer) {
+        for (Field field : customer.getClass().getDeclaredFields()) {
+            field.setAccessible(true);
+            if (field.isAnnotationPresent(VIP.class)) {
+                try {
+                    Object value = field.get(customer);
+                    if (value instanceof Boolean && (Boolean) value) {
+                        return true;
+                    }
+                } catch (IllegalAccessException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return false;
+    }
+
+    // Bytes allocated by this thread so far
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -3,7 +3,11 @@ package com.zalando.lite;
 import com.zalando.lite.annotations.VIP;
 import org.junit.jupiter.api.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Unit tests for {@link DiscountManager}.
@@ -13,6 +17,9 @@ import java.util.Arrays;
  * - Products in the "Shoes" category receive a 20% discount
  * - Discounts do not stack incorrectly
  * - Non-VIP customers with non-discount categories pay full price
+ * - @VIP fields are found on subclasses and in Boolean wrappers
+ * - Custom rule lists apply in order, limited to their category and customer tier
+ * - Whole carts price like their lines, with cart rules such as a spend threshold
  *
  * Concepts reinforced:
  * - Reflection testing with @VIP annotation
@@ -31,23 +38,28 @@ public class DiscountManagerTest {
 
     @Test
     void testVipDiscountApplied() {
-        // TODO: Create a customer with @VIP annotation
-        // TODO: Create a product in a non-discounted category
-        // TODO: Apply discount and assert it's 10% off
+        // Customer.isVip carries the @VIP annotation
+        Customer vip = new Customer("Vera", "vera@example.com");
+        vip.setVip(true);
+        Product shirt = new Product(1, "T-Shirt", "Clothing", 50.00, 10, Arrays.asList("M"));
+        assertEquals(4500, discountManager.applyDiscountCents(vip, shirt));
+        assertEquals(4500, new VipDiscount().applyDiscount(vip, shirt, shirt.getPriceCents()));
     }
 
     @Test
     void testCategoryDiscountApplied() {
-        // TODO: Create a non-VIP customer
-        // TODO: Create a product with category "Shoes"
-        // TODO: Apply discount and assert it's 20% off
+        Customer regular = new Customer("Rob", "rob@example.com");
+        Product sneakers = new Product(2, "Sneakers", "Shoes", 100.00, 10, Arrays.asList("42"));
+        assertEquals(80.00, discountManager.applyDiscount(regular, sneakers), 0.001);
     }
 
     @Test
     void testNoDiscountApplied() {
-        // TODO: Create a non-VIP customer
-        // TODO: Create a product in a non-discounted category
-        // TODO: Assert final price equals original
+        Customer regular = new Customer("Rob", "rob@example.com");
+        Product shirt = new Product(1, "T-Shirt", "Clothing", 19.99, 10, Arrays.asList("M"));
+        assertEquals(1999, discountManager.applyDiscountCents(regular, shirt));
+        assertFalse(VipStatus.isVip(regular));
+        assertFalse(VipStatus.isVip(null));
     }
 
     @Test
@@ -55,7 +67,104 @@ public class DiscountManagerTest {
         // ⚠️ This test ensures you understand your business logic:
         // If both VIP and category apply, which one should take priority?
         // Design decision: Apply only one, or the higher?
-        // TODO: Assert consistent behavior
+        // Both apply, one after the other: 20% off for Shoes, then 10% off for VIPs
+        Customer vip = new Customer("Vera", "vera@example.com");
+        vip.setVip(true);
+        Product sneakers = new Product(2, "Sneakers", "Shoes", 100.00, 10, Arrays.asList("42"));
+        assertEquals(7200, discountManager.applyDiscountCents(vip, sneakers));
+    }
+
+    @Test
+    @DisplayName("@VIP fields of subclasses are found, including Boolean wrappers")
+    void testVipFieldInSubclass() {
+        PartnerCustomer partner = new PartnerCustomer("Pia", "pia@example.com");
+        assertFalse(VipStatus.isVip(partner), "A null Boolean flag is not VIP");
+        partner.partner = Boolean.TRUE;
+        assertTrue(VipStatus.isVip(partner));
+        partner.partner = Boolean.FALSE;
+        partner.setVip(true);
+        assertTrue(VipStatus.isVip(partner), "The inherited Customer flag still counts");
+    }
+
+    @Test
+    @DisplayName("Custom rules apply in list order, each to the price left by the previous one")
+    void testRulesApplyInOrder() {
+        Discount fiveEurosOff = new Discount() {
+            @Override
+            public long applyDiscount(Customer customer, Product product, long currentPriceCents) {
+                return Math.max(0, currentPriceCents - 500);
+            }
+        };
+        Customer regular = new Customer("Rob", "rob@example.com");
+        Product sneakers = new Product(2, "Sneakers", "Shoes", 100.00, 10, Arrays.asList("42"));
+        Product shirt = new Product(1, "T-Shirt", "Clothing", 20.00, 10, Arrays.asList("M"));
+
+        DiscountManager voucherFirst = new DiscountManager(List.of(fiveEurosOff, new CategoryDiscount()));
+        DiscountManager voucherLast = new DiscountManager(List.of(new CategoryDiscount(), fiveEurosOff));
+        assertEquals(7600, voucherFirst.applyDiscountCents(regular, sneakers));
+        assertEquals(7500, voucherLast.applyDiscountCents(regular, sneakers));
+        assertEquals(1500, voucherFirst.applyDiscountCents(regular, shirt), "Rules without limits apply everywhere");
+        assertEquals(2, voucherFirst.getDiscounts().size());
+    }
+
+    @Test
+    @DisplayName("Only the rules for a product's category and the customer's tier apply")
+    void testManyCategoryRules() {
+        List<Discount> rules = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rules.add(new CategoryDiscount("Category " + i, 1 + i % 50));
+        }
+        rules.add(new VipDiscount(50));
+        DiscountManager manager = new DiscountManager(rules);
+        Customer regular = new Customer("Rob", "rob@example.com");
+        Customer vip = new Customer("Vera", "vera@example.com");
+        vip.setVip(true);
+
+        Product matched = new Product(1, "Scarf", "CATEGORY 42", 10.00, 10, Arrays.asList("M"));
+        Product unmatched = new Product(2, "T-Shirt", "Clothing", 10.00, 10, Arrays.asList("M"));
+        Product uncategorized = new Product(3, "Gift card", null, 10.00, 10, Arrays.asList("M"));
+        assertEquals(570, manager.applyDiscountCents(regular, matched), "43% off, category matched in any case");
+        assertEquals(285, manager.applyDiscountCents(vip, matched));
+        assertEquals(1000, manager.applyDiscountCents(regular, unmatched));
+        assertEquals(500, manager.applyDiscountCents(vip, uncategorized));
+    }
+
+    @Test
+    @DisplayName("A whole cart is priced in one pass, then cart rules apply to its total")
+    void testPriceCart() {
+        Customer vip = new Customer("Vera", "vera@example.com");
+        vip.setVip(true);
+        Product sneakers = new Product(2, "Sneakers", "Shoes", 100.00, 10, Arrays.asList("42"));
+        Product shirt = new Product(1, "T-Shirt", "Clothing", 19.99, 10, Arrays.asList("M"));
+        List<OrderItem> cart = List.of(new OrderItem(shirt, 3), new OrderItem(sneakers, 1), new OrderItem(shirt, 1));
+
+        long[] lines = new long[cart.size()];
+        long total = discountManager.priceCart(vip, cart, lines);
+        for (int i = 0; i < cart.size(); i++) {
+            OrderItem item = cart.get(i);
+            assertEquals(discountManager.applyDiscountCents(vip, item.getProduct()) * item.getQuantity(), lines[i],
+                    "Line " + i + " matches per-product pricing");
+        }
+        assertEquals(lines[0] + lines[1] + lines[2], total);
+
+        DiscountManager withThreshold = new DiscountManager(
+                List.of(new CategoryDiscount(), new VipDiscount()),
+                List.of(new SpendThresholdDiscount(14400, 5)));
+        Order order = new Order(vip, cart);
+        assertEquals(total, withThreshold.priceOrder(order, null), "Below the threshold nothing changes");
+        List<OrderItem> bigCart = List.of(new OrderItem(sneakers, 2));
+        assertEquals(Money.percentOff(14400, 5), withThreshold.priceCart(vip, bigCart, null), "Reaching the threshold counts");
+        assertThrows(IllegalArgumentException.class, () -> discountManager.priceCart(vip, cart, new long[2]));
+    }
+
+    // A customer type with its own @VIP flag
+    static class PartnerCustomer extends Customer {
+        @VIP
+        Boolean partner;
+
+        PartnerCustomer(String name, String email) {
+            super(name, email);
+        }
     }
 
     @AfterEach
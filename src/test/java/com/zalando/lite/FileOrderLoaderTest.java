@@ -0,0 +1,154 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link FileOrderLoader}.
+ *
+ * These tests verify:
+ * - CSV and JSONL lines become orders with the right items
+ * - Bad lines are rejected with their line number and the rest is imported
+ * - Orders are committed in file order, even when parsed in parallel
+ * - Only the configured number of rejects is kept
+ * - Orders with more lines than the journal allows are rejected per line
+ *
+ * Concepts reinforced:
+ * - Temporary files with @TempDir
+ * - Testing a parallel pipeline for deterministic results
+ */
+public class FileOrderLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private InventoryManager inventoryManager;
+    private OrderManager orderManager;
+    private CustomerManager customerManager;
+
+    @BeforeEach
+    void setUp() {
+        inventoryManager = new InventoryManager();
+        inventoryManager.addProduct(new Product(1, "T-Shirt", "Clothing", 19.99, 10, Arrays.asList("M")));
+        inventoryManager.addProduct(new Product(2, "Sneakers", "Shoes", 80.00, 3, Arrays.asList("42")));
+        orderManager = new OrderManager(inventoryManager);
+        customerManager = new CustomerManager();
+        Customer alice = new Customer("Alice", "alice@example.com");
+        alice.setId(101);
+        customerManager.registerCustomer(alice);
+    }
+
+    @Test
+    @DisplayName("CSV lines become orders; bad lines are rejected with their line number")
+    void testCsvImport() throws IOException {
+        Path file = write("orders.csv",
+                "customerId,productId,quantity",
+                "101,1,2",
+                "101,1,1,2,1",
+                "",
+                "999,1,1",
+                "101,7,1",
+                "101,1,abc",
+                "101,1,0",
+                "101,2,5");
+
+        FileOrderLoader.ImportReport report = new FileOrderLoader(orderManager, inventoryManager, customerManager).load(file);
+
+        assertEquals(7, report.getLinesRead());
+        assertEquals(2, report.getOrdersCreated());
+        assertEquals(5, report.getRejectedCount());
+        assertEquals(Arrays.asList(5L, 6L, 7L, 8L, 9L), lineNumbers(report));
+        assertEquals("Unknown customer 999", report.getRejects().get(0).getReason());
+        assertEquals("Unknown product 7", report.getRejects().get(1).getReason());
+        assertTrue(report.getRejects().get(2).getReason().startsWith("Malformed line"));
+        assertEquals("Insufficient stock", report.getRejects().get(4).getReason());
+
+        List<Order> orders = orderManager.getOrdersForCustomer(101);
+        assertEquals(2, orders.size());
+        assertEquals(2, orders.get(1).getItems().size());
+        assertEquals(7, inventoryManager.findProductById(1).getStock());
+        assertEquals(2, inventoryManager.findProductById(2).getStock());
+    }
+
+    @Test
+    @DisplayName("JSONL lines are parsed, ignoring unknown fields")
+    void testJsonlImport() throws IOException {
+        Path file = write("orders.jsonl",
+                "{\"customerId\": 101, \"items\": [{\"productId\": 1, \"quantity\": 2}]}",
+                "{\"source\": \"mkt\\\"place\", \"meta\": {\"tags\": [1, {\"a\": \"]\"}]}, \"customerId\": 101,"
+                        + " \"items\": [{\"productId\": 2, \"quantity\": 1, \"note\": null}]}",
+                "{\"customerId\": 101, \"items\": []}",
+                "{\"customerId\": 101, \"items\": [{\"productId\": 1}]}",
+                "{\"customerId\": 101.5, \"items\": [{\"productId\": 1, \"quantity\": 1}]}",
+                "not json");
+
+        FileOrderLoader.ImportReport report = new FileOrderLoader(orderManager, inventoryManager, customerManager).load(file);
+
+        assertEquals(2, report.getOrdersCreated());
+        assertEquals(Arrays.asList(3L, 4L, 5L, 6L), lineNumbers(report));
+        assertEquals(8, inventoryManager.findProductById(1).getStock());
+        assertEquals(2, inventoryManager.findProductById(2).getStock());
+    }
+
+    @Test
+    @DisplayName("Orders are committed in file order, so the earliest lines get the last stock")
+    void testOrderedCommit() throws IOException {
+        String[] lines = new String[100];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "101,1,1";
+        }
+        Path file = write("orders.csv", lines);
+
+        FileOrderLoader loader = new FileOrderLoader(orderManager, inventoryManager, customerManager);
+        loader.setChunkSize(3);
+        loader.setParallelism(4);
+        loader.setMaxRejectsKept(5);
+        FileOrderLoader.ImportReport report = loader.load(file);
+
+        assertEquals(10, report.getOrdersCreated());
+        assertEquals(90, report.getRejectedCount());
+        assertEquals(Arrays.asList(11L, 12L, 13L, 14L, 15L), lineNumbers(report), "Only the first rejects are kept");
+        assertEquals(0, inventoryManager.findProductById(1).getStock());
+    }
+
+    @Test
+    @DisplayName("A line with more items than an order can hold is rejected; the others are imported")
+    void testOversizeLineRejected() throws IOException {
+        StringBuilder huge = new StringBuilder("101");
+        for (int i = 0; i <= OrderJournal.MAX_LINES; i++) {
+            huge.append(",1,1");
+        }
+        Path file = write("orders.csv", "101,1,1", huge.toString(), "101,2,1");
+
+        FileOrderLoader.ImportReport report = new FileOrderLoader(orderManager, inventoryManager, customerManager).load(file);
+
+        assertEquals(2, report.getOrdersCreated());
+        assertEquals(Arrays.asList(2L), lineNumbers(report));
+        assertTrue(report.getRejects().get(0).getReason().startsWith("Too many items"));
+        assertEquals(9, inventoryManager.findProductById(1).getStock());
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static List<Long> lineNumbers(FileOrderLoader.ImportReport report) {
+        List<Long> numbers = new ArrayList<>();
+        for (FileOrderLoader.Reject reject : report.getRejects()) {
+            numbers.add(reject.getLineNumber());
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,110 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link IdempotencyCache}.
+ *
+ * These tests verify:
+ * - A completed key returns its order; a released key can be claimed again
+ * - Keys expire after their time to live
+ * - The cache stays bounded and keeps the most recent keys
+ * - A retry waits for a pending key instead of claiming it twice
+ *
+ * Concepts reinforced:
+ * - Testing with a fake clock
+ * - Bounded caches
+ */
+public class IdempotencyCacheTest {
+
+    private AtomicLong clock;
+    private IdempotencyCache cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(1_000_000);
+        cache = new IdempotencyCache(1024, Duration.ofMinutes(10), clock::get);
+    }
+
+    @Test
+    @DisplayName("Claim, complete and release follow the key's order")
+    void testClaimCompleteRelease() {
+        long key = IdempotencyCache.fingerprint(7, "checkout-1");
+        assertEquals(IdempotencyCache.ABSENT, cache.claim(key));
+        assertEquals(IdempotencyCache.ABSENT, cache.find(key), "Pending keys have no order yet");
+        cache.complete(key, 42);
+        assertEquals(42, cache.claim(key));
+        assertEquals(42, cache.find(key));
+
+        long failed = IdempotencyCache.fingerprint(7, "checkout-2");
+        assertEquals(IdempotencyCache.ABSENT, cache.claim(failed));
+        cache.release(failed);
+        assertEquals(IdempotencyCache.ABSENT, cache.claim(failed), "A released key can be claimed again");
+        assertThrows(IllegalStateException.class, () -> cache.release(IdempotencyCache.fingerprint(7, "unknown")));
+        assertNotEquals(key, IdempotencyCache.fingerprint(8, "checkout-1"), "Keys are scoped per customer");
+        assertNotEquals(IdempotencyCache.fingerprint(0, "0"), IdempotencyCache.fingerprint(1, "1"));
+    }
+
+    @Test
+    @DisplayName("Keys are forgotten after their time to live")
+    void testExpiry() {
+        long key = IdempotencyCache.fingerprint(1, "order");
+        cache.claim(key);
+        cache.complete(key, 5);
+        clock.addAndGet(Duration.ofMinutes(9).toMillis());
+        assertEquals(5, cache.find(key));
+        clock.addAndGet(Duration.ofMinutes(2).toMillis());
+        assertEquals(IdempotencyCache.ABSENT, cache.find(key));
+        assertEquals(IdempotencyCache.ABSENT, cache.claim(key), "An expired key starts a new order");
+    }
+
+    @Test
+    @DisplayName("The cache stays bounded and keeps the newest keys")
+    void testBounded() {
+        int keys = 20_000;
+        for (int i = 0; i < keys; i++) {
+            long key = IdempotencyCache.fingerprint(1, "key-" + i);
+            assertEquals(IdempotencyCache.ABSENT, cache.claim(key));
+            cache.complete(key, i + 1);
+            if (i % 100 == 0) {
+                clock.addAndGet(1_000); // Older keys expire sooner, so they are replaced first
+            }
+        }
+        int remembered = 0;
+        for (int i = 0; i < keys; i++) {
+            if (cache.find(IdempotencyCache.fingerprint(1, "key-" + i)) == i + 1) {
+                remembered++;
+            }
+        }
+        assertTrue(remembered <= cache.getCapacity(), "Never more keys than slots");
+        assertTrue(remembered > cache.getCapacity() / 2, "Most slots stay in use: " + remembered);
+        assertEquals(keys, cache.find(IdempotencyCache.fingerprint(1, "key-" + (keys - 1))), "The newest key is kept");
+    }
+
+    @Test
+    @DisplayName("A retry waits for the pending request with the same key")
+    void testRetryWaitsForPending() throws Exception {
+        long key = IdempotencyCache.fingerprint(3, "slow-checkout");
+        assertEquals(IdempotencyCache.ABSENT, cache.claim(key));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Long> retry = CompletableFuture.supplyAsync(() -> {
+            started.countDown();
+            return cache.claim(key);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertFalse(retry.isDone(), "The retry waits while the key is pending");
+
+        cache.complete(key, 99);
+        assertEquals(99, retry.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,117 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmarks for {@link InventoryManager#reduceStock(int, int)} from many checkout threads.
+ *
+ * Tagged "benchmark", so it only runs with {@code mvn test -Pbench}.
+ *
+ * These tests verify:
+ * - Throughput when every thread buys the same SKU (contended)
+ * - Throughput when every thread buys its own SKU (uncontended)
+ * - The same two runs against a {@link MappedInventoryManager}
+ * - No run sells more units than were in stock
+ *
+ * Concepts reinforced:
+ * - Contention benchmarks with a start latch
+ * - Checking invariants after a concurrent run
+ */
+@Tag("benchmark")
+public class InventoryBenchmarkTest {
+
+    private static final int THREADS = 16;
+    private static final int CALLS_PER_THREAD = 2_000_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("reduceStock on one shared SKU versus one SKU per thread")
+    void benchmarkReduceStock() throws Exception {
+        InventoryManager inventoryManager = new InventoryManager();
+        for (int round = 0; round < 3; round++) { // Warm-up
+            measure(null, inventoryManager, CALLS_PER_THREAD / 10, t -> 0);
+        }
+        measure("heap, contended", inventoryManager, CALLS_PER_THREAD, t -> 0);
+        measure("heap, uncontended", inventoryManager, CALLS_PER_THREAD, t -> t);
+    }
+
+    @Test
+    @DisplayName("reduceStock on mapped records, shared SKU versus one SKU per thread")
+    void benchmarkMappedReduceStock() throws Exception {
+        try (MappedInventoryManager inventoryManager = new MappedInventoryManager(tempDir.resolve("catalog.dat"))) {
+            for (int round = 0; round < 3; round++) { // Warm-up
+                measure(null, inventoryManager, CALLS_PER_THREAD / 10, t -> 0);
+            }
+            measure("mapped, contended", inventoryManager, CALLS_PER_THREAD, t -> 0);
+            measure("mapped, uncontended", inventoryManager, CALLS_PER_THREAD, t -> t);
+        }
+    }
+
+    // Restocks the SKUs with half of the demand, runs the threads and checks nothing was oversold
+    // (a null label marks a warm-up round)
+    private static void measure(String label, InventoryManager inventoryManager, int callsPerThread,
+                                IntUnaryOperator skuOfThread) throws Exception {
+        int[] demand = new int[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            demand[skuOfThread.applyAsInt(t)] += callsPerThread;
+        }
+        for (int id = 0; id < THREADS; id++) {
+            inventoryManager.addProduct(new Product(id, "SKU " + id, "Clothing", 10.0, demand[id] / 2,
+                    Arrays.asList("M")));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int sku = skuOfThread.applyAsInt(t);
+            results.add(pool.submit(() -> {
+                int sold = 0;
+                start.await();
+                for (int n = 0; n < callsPerThread; n++) {
+                    if (inventoryManager.reduceStock(sku, 1)) {
+                        sold++;
+                    }
+                }
+                return sold;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        int[] sold = new int[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            sold[skuOfThread.applyAsInt(t)] += results.get(t).get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (int id = 0; id < THREADS; id++) {
+            assertEquals(demand[id] / 2, sold[id], "SKU " + id + " sells exactly its stock, never more");
+            assertEquals(0, inventoryManager.findProductById(id).getStock(), "SKU " + id + " never goes negative");
+        }
+
+        long calls = (long) THREADS * callsPerThread;
+        if (label != null) {
+            System.out.printf("reduceStock, %s: %,d calls on %d threads in %d ms (%,.0f calls/s)%n",
+                    label, calls, THREADS, elapsed / 1_000_000, calls * 1e9 / elapsed);
+        }
+    }
+}
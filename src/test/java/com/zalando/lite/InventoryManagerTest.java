@@ -2,8 +2,16 @@ package com.zalando.lite;
 
 import org.junit.jupiter.api.*;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,45 +42,382 @@ public class InventoryManagerTest {
 
     @Test
     void testAddAndFindProductById() {
-        // TODO: Create a sample product with ID = 1
-        // TODO: Add it to the inventory
-        // TODO: Use findProductById and assert the result is not null
+        // Create a sample product with ID = 1 and add it to the inventory
+        Product product = new Product(1, "T-Shirt", "Clothing", 19.99, 10, Arrays.asList("S", "M"));
+        inventoryManager.addProduct(product);
+
+        // Look it up again by ID
+        assertNotNull(inventoryManager.findProductById(1));
+        assertSame(product, inventoryManager.findProductById(1));
+        assertNull(inventoryManager.findProductById(2), "Unknown IDs should return null");
+    }
+
+    @Test
+    void testRemoveProduct() {
+        Product product = new Product(1, "T-Shirt", "Clothing", 19.99, 10, Arrays.asList("S", "M"));
+        inventoryManager.addProduct(product);
+
+        assertSame(product, inventoryManager.removeProduct(1));
+        assertNull(inventoryManager.findProductById(1));
+        assertTrue(inventoryManager.listAllProducts().isEmpty());
     }
 
     @Test
     void testListAllProductsReturnsCorrectSize() {
-        // TODO: Add multiple products
-        // TODO: Assert that listAllProducts returns the correct count
+        // Add multiple products
+        inventoryManager.addProduct(new Product(3, "Scarf", "Accessories", 25.00, 30, Arrays.asList("one size")));
+        inventoryManager.addProduct(new Product(1, "Jacket", "Jackets", 89.99, 10, Arrays.asList("S", "M", "L")));
+        inventoryManager.addProduct(new Product(2, "Sneakers", "Shoes", 59.49, 15, Arrays.asList("M", "L")));
+
+        // Count matches and insertion order is kept
+        List<Product> products = inventoryManager.listAllProducts();
+        assertEquals(3, products.size());
+        assertEquals(3, products.get(0).getId());
+        assertEquals(1, products.get(1).getId());
+        assertEquals(2, products.get(2).getId());
     }
 
     @Test
     void testReduceStockSuccessfully() {
-        // TODO: Add a product with quantity 10
-        // TODO: Reduce stock by 3
-        // TODO: Assert new stock is 7
+        Product product = new Product(1, "Jacket", "Jackets", 89.99, 10, Arrays.asList("S", "M", "L"));
+        inventoryManager.addProduct(product);
+
+        assertTrue(inventoryManager.reduceStock(1, 3));
+        assertEquals(7, product.getStock());
     }
 
     @Test
     void testReduceStockFailsOnInsufficientQuantity() {
-        // TODO: Add a product with stock = 2
-        // TODO: Try reducing by 5
-        // TODO: Assert reduceStock returns false
+        Product product = new Product(1, "Jacket", "Jackets", 89.99, 2, Arrays.asList("S", "M", "L"));
+        inventoryManager.addProduct(product);
+
+        assertFalse(inventoryManager.reduceStock(1, 5));
+        assertEquals(2, product.getStock(), "Stock must not change on a failed reduction");
     }
 
     @Test
     void testIsProductAvailableReturnsTrueIfInStock() {
-        // TODO: Add a product with stock > 0
-        // TODO: Assert isProductAvailable returns true
+        inventoryManager.addProduct(new Product(1, "Jacket", "Jackets", 89.99, 4, Arrays.asList("S")));
+        assertTrue(inventoryManager.isProductAvailable(1));
     }
 
     @Test
     void testIsProductAvailableReturnsFalseIfOutOfStock() {
-        // TODO: Add a product with stock = 0
-        // TODO: Assert isProductAvailable returns false
+        inventoryManager.addProduct(new Product(1, "Jacket", "Jackets", 89.99, 0, Arrays.asList("S")));
+        assertFalse(inventoryManager.isProductAvailable(1));
+        assertFalse(inventoryManager.isProductAvailable(42), "Unknown products are never available");
+    }
+
+    @Test
+    @DisplayName("Category and size queries use the secondary indexes")
+    void testFindByCategoryAndSize() {
+        Product jacket = new Product(1, "Leather Jacket", "Jackets", 89.99, 10, Arrays.asList("S", "M", "L"));
+        Product runners = new Product(2, "Running Shoes", "Shoes", 59.49, 15, Arrays.asList("M", "L"));
+        Product boots = new Product(3, "Boots", "Shoes", 99.00, 5, Arrays.asList("L"));
+        inventoryManager.addProduct(jacket);
+        inventoryManager.addProduct(runners);
+        inventoryManager.addProduct(boots);
+
+        assertEquals(Arrays.asList(runners, boots), inventoryManager.findByCategory("shoes"));
+        assertEquals(Arrays.asList(jacket, runners), inventoryManager.findBySize("M"));
+        assertEquals(Arrays.asList(runners), inventoryManager.findByCategoryAndSize("Shoes", "M"));
+        assertTrue(inventoryManager.findByCategory("Hats").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Indexes follow category and size changes and removals")
+    void testIndexesAreUpdatedIncrementally() {
+        Product runners = new Product(2, "Running Shoes", "Shoes", 59.49, 15, Arrays.asList("M", "L"));
+        inventoryManager.addProduct(runners);
+
+        runners.setCategory("Sports");
+        runners.setAvailableSizes(Arrays.asList("XL"));
+
+        assertTrue(inventoryManager.findByCategory("Shoes").isEmpty());
+        assertEquals(Arrays.asList(runners), inventoryManager.findByCategory("Sports"));
+        assertTrue(inventoryManager.findBySize("M").isEmpty());
+        assertEquals(Arrays.asList(runners), inventoryManager.findByCategoryAndSize("sports", "xl"));
+
+        inventoryManager.removeProduct(2);
+        assertTrue(inventoryManager.findByCategory("Sports").isEmpty());
+
+        // A removed product no longer updates the inventory's indexes
+        runners.setCategory("Shoes");
+        assertTrue(inventoryManager.findByCategory("Shoes").isEmpty());
+    }
+
+    @Test
+    @DisplayName("A stock batch is applied in full and combines lines per product")
+    void testApplyStockBatchSuccess() {
+        Product jacket = new Product(1, "Jacket", "Jackets", 89.99, 10, Arrays.asList("S"));
+        Product scarf = new Product(2, "Scarf", "Accessories", 25.00, 0, Arrays.asList("one size"));
+        inventoryManager.addProduct(jacket);
+        inventoryManager.addProduct(scarf);
+
+        StockBatchResult result = inventoryManager.applyStockBatch(Arrays.asList(
+                new StockAdjustment(2, 5),
+                new StockAdjustment(1, -4),
+                new StockAdjustment(2, -3),
+                new StockAdjustment(1, -6)));
+
+        assertTrue(result.isApplied());
+        assertEquals(4, result.getStatuses().size());
+        assertTrue(result.getStatuses().stream().allMatch(s -> s == StockBatchResult.LineStatus.APPLIED));
+        assertEquals(0, jacket.getStock());
+        assertEquals(2, scarf.getStock());
+    }
+
+    @Test
+    @DisplayName("A failing stock batch changes nothing and reports the failing lines")
+    void testApplyStockBatchIsAllOrNothing() {
+        Product jacket = new Product(1, "Jacket", "Jackets", 89.99, 10, Arrays.asList("S"));
+        Product scarf = new Product(2, "Scarf", "Accessories", 25.00, 1, Arrays.asList("one size"));
+        Product boots = new Product(3, "Boots", "Shoes", 99.00, 4, Arrays.asList("L"));
+        inventoryManager.addProduct(jacket);
+        inventoryManager.addProduct(scarf);
+        inventoryManager.addProduct(boots);
+
+        StockBatchResult result = inventoryManager.applyStockBatch(Arrays.asList(
+                new StockAdjustment(1, -3),
+                new StockAdjustment(3, 7),
+                new StockAdjustment(2, -2)));
+
+        assertFalse(result.isApplied());
+        assertEquals(StockBatchResult.LineStatus.ABORTED, result.getStatus(0));
+        assertEquals(StockBatchResult.LineStatus.ABORTED, result.getStatus(1));
+        assertEquals(StockBatchResult.LineStatus.INSUFFICIENT_STOCK, result.getStatus(2));
+        assertEquals(10, jacket.getStock(), "Rolled back decrement");
+        assertEquals(1, scarf.getStock());
+        assertEquals(4, boots.getStock(), "Increment never applied");
+
+        StockBatchResult unknown = inventoryManager.applyStockBatch(Arrays.asList(
+                new StockAdjustment(1, -1), new StockAdjustment(99, -1)));
+        assertFalse(unknown.isApplied());
+        assertEquals(StockBatchResult.LineStatus.UNKNOWN_PRODUCT, unknown.getStatus(1));
+        assertEquals(10, jacket.getStock());
+    }
+
+    @Test
+    @DisplayName("Reservations hold stock until committed, released or expired")
+    void testReservationLifecycle() {
+        AtomicLong clock = new AtomicLong();
+        inventoryManager = new InventoryManager(clock::get);
+        Product jacket = new Product(1, "Jacket", "Jackets", 89.99, 10, Arrays.asList("S"));
+        inventoryManager.addProduct(jacket);
+
+        StockReservation committed = inventoryManager.reserve(1, 3, Duration.ofMinutes(5));
+        StockReservation released = inventoryManager.reserve(1, 2, Duration.ofMinutes(5));
+        StockReservation expiring = inventoryManager.reserve(1, 4, Duration.ofSeconds(30));
+        assertNull(inventoryManager.reserve(1, 2, Duration.ofMinutes(5)), "Only 1 unit is left unheld");
+        assertEquals(1, jacket.getStock());
+
+        assertTrue(inventoryManager.commit(committed.getId()));
+        assertFalse(inventoryManager.release(committed.getId()), "A committed hold cannot be released");
+        assertTrue(inventoryManager.release(released.getId()));
+        assertEquals(3, jacket.getStock());
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertEquals(1, inventoryManager.expireReservations());
+        assertEquals(StockReservation.Status.EXPIRED, expiring.getStatus());
+        assertFalse(inventoryManager.commit(expiring.getId()), "An expired hold cannot be committed");
+        assertEquals(7, jacket.getStock());
+        assertEquals(0, inventoryManager.getPendingReservationCount());
+    }
+
+    @Test
+    @DisplayName("commitAll is all-or-nothing")
+    void testCommitAllRollsBack() {
+        AtomicLong clock = new AtomicLong();
+        inventoryManager = new InventoryManager(clock::get);
+        Product jacket = new Product(1, "Jacket", "Jackets", 89.99, 10, Arrays.asList("S"));
+        inventoryManager.addProduct(jacket);
+
+        StockReservation first = inventoryManager.reserve(1, 2, Duration.ofMinutes(5));
+        StockReservation expired = inventoryManager.reserve(1, 3, Duration.ofSeconds(1));
+        StockReservation last = inventoryManager.reserve(1, 4, Duration.ofMinutes(5));
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        inventoryManager.expireReservations();
+
+        assertFalse(inventoryManager.commitAll(List.of(first.getId(), expired.getId(), last.getId())));
+        assertEquals(10, jacket.getStock(), "All held units are back in stock");
+        assertEquals(StockReservation.Status.RELEASED, first.getStatus());
+        assertEquals(StockReservation.Status.RELEASED, last.getStatus());
+    }
+
+    @Test
+    @DisplayName("Concurrent reduceStock never oversells a shared product")
+    void testConcurrentReduceStockNeverOversells() throws Exception {
+        int threads = 8;
+        int attemptsPerThread = 20_000;
+        int initialStock = 50_000;
+
+        // One hot product shared by every thread, plus one private product per thread
+        Product shared = new Product(1, "Sneakers", "Shoes", 59.49, initialStock, Arrays.asList("M"));
+        inventoryManager.addProduct(shared);
+        for (int t = 0; t < threads; t++) {
+            inventoryManager.addProduct(new Product(100 + t, "Sku " + t, "Shoes", 59.49, attemptsPerThread, Arrays.asList("M")));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int ownId = 100 + t;
+            results.add(pool.submit(() -> {
+                start.await();
+                int sold = 0;
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    if (inventoryManager.reduceStock(1, 1)) {
+                        sold++;
+                    }
+                    assertTrue(inventoryManager.reduceStock(ownId, 1), "Private stock must always be available");
+                }
+                return sold;
+            }));
+        }
+
+        start.countDown();
+        int totalSold = 0;
+        for (Future<Integer> result : results) {
+            totalSold += result.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Exactly the initial stock was sold: no overselling, no lost updates
+        assertEquals(initialStock, totalSold);
+        assertEquals(0, shared.getStock());
+        for (int t = 0; t < threads; t++) {
+            assertEquals(0, inventoryManager.findProductById(100 + t).getStock());
+        }
     }
 
     @AfterEach
     void tearDown() {
         // Clean up if necessary (not strictly needed for this manager)
     }
+
+    @Test
+    @DisplayName("Paging walks the whole catalog once, even when products are removed in between")
+    void testListProductsPaging() {
+        for (int id = 0; id < 100; id++) {
+            inventoryManager.addProduct(new Product(id, "P" + id, "Misc", 1.0, 1, Arrays.asList("M")));
+        }
+
+        List<Integer> seen = new ArrayList<>();
+        long cursor = ProductPage.FIRST;
+        boolean removed = false;
+        do {
+            ProductPage page = inventoryManager.listProducts(cursor, 30);
+            assertTrue(page.getProducts().size() <= 30);
+            page.getProducts().forEach(p -> seen.add(p.getId()));
+            if (!removed) {
+                // Removing products and adding new ones compacts the store between pages
+                for (int id = 40; id < 60; id++) {
+                    inventoryManager.removeProduct(id);
+                }
+                for (int id = 100; id < 150; id++) {
+                    inventoryManager.addProduct(new Product(id, "P" + id, "Misc", 1.0, 1, Arrays.asList("M")));
+                }
+                removed = true;
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != ProductPage.END);
+
+        assertEquals(130, seen.size());
+        assertEquals(130, seen.stream().distinct().count(), "No product is returned twice");
+        assertFalse(seen.contains(45));
+        assertThrows(IllegalArgumentException.class, () -> inventoryManager.listProducts(ProductPage.FIRST, 0));
+    }
+
+    @Test
+    @DisplayName("The END cursor gives an empty last page; stale or made-up cursors never fail")
+    void testListProductsOddCursors() {
+        for (int id = 0; id < 10; id++) {
+            inventoryManager.addProduct(new Product(id, "P" + id, "Misc", 1.0, 1, Arrays.asList("M")));
+        }
+
+        ProductPage end = inventoryManager.listProducts(ProductPage.END, 5);
+        assertTrue(end.getProducts().isEmpty());
+        assertEquals(ProductPage.END, end.getNextCursor());
+
+        for (long cursor : new long[] {ProductPage.cursor(0, 7), ProductPage.cursor(500, 3),
+                ProductPage.cursor(-5, 1), Long.MIN_VALUE, Long.MAX_VALUE}) {
+            ProductPage page = inventoryManager.listProducts(cursor, 5);
+            assertTrue(page.getProducts().size() <= 5, "Cursor " + cursor);
+        }
+        assertEquals(3, inventoryManager.listProducts(ProductPage.cursor(7, 2), 5).getProducts().get(0).getId(),
+                "A cursor whose position moved continues after its last product");
+    }
+
+    @Test
+    @DisplayName("Parallel streams see every product exactly once")
+    void testParallelStream() {
+        int count = 50_000;
+        for (int id = 1; id <= count; id++) {
+            inventoryManager.addProduct(new Product(id, "P" + id, "Misc", 1.0, 2, Arrays.asList("M")));
+        }
+        inventoryManager.removeProduct(7);
+
+        assertEquals(count - 1, inventoryManager.getProductCount());
+        assertEquals(count - 1, inventoryManager.streamProducts().parallel().count());
+        long idSum = inventoryManager.streamProducts().parallel().mapToLong(Product::getId).sum();
+        assertEquals((long) count * (count + 1) / 2 - 7, idSum);
+    }
+
+    @Test
+    @DisplayName("Price range and top-N queries follow price and category changes")
+    void testPriceQueries() {
+        Product cheapShoe = new Product(10, "Flip Flops", "Shoes", 19.99, 5, Arrays.asList("M"));
+        Product midShoe = new Product(11, "Sneakers", "Shoes", 45.00, 5, Arrays.asList("M"));
+        Product sameMidShoe = new Product(12, "Loafers", "Shoes", 45.00, 5, Arrays.asList("L"));
+        Product coat = new Product(13, "Coat", "Jackets", 150.00, 5, Arrays.asList("L"));
+        inventoryManager.addProduct(cheapShoe);
+        inventoryManager.addProduct(midShoe);
+        inventoryManager.addProduct(sameMidShoe);
+        inventoryManager.addProduct(coat);
+
+        assertEquals(Arrays.asList(11, 12), ids(inventoryManager.findByPriceRange("shoes", 20, 60)));
+        assertEquals(Arrays.asList(10, 11, 12), ids(inventoryManager.findCheapest("Shoes", 5)));
+        assertEquals(Arrays.asList(13, 12), ids(inventoryManager.findMostExpensive(2)));
+        assertTrue(inventoryManager.findByPriceRange("Hats", 0, 1000).isEmpty());
+
+        // Price and category changes re-sort the stored products
+        cheapShoe.setPrice(55.00);
+        assertEquals(Arrays.asList(11, 12, 10), ids(inventoryManager.findByPriceRange("Shoes", 20, 60)));
+        midShoe.setCategory("Jackets");
+        assertEquals(Arrays.asList(12, 10), ids(inventoryManager.findCheapest("Shoes", 5)));
+        assertEquals(Arrays.asList(11, 13), ids(inventoryManager.findByPriceRange("Jackets", 0, 200)));
+
+        inventoryManager.removeProduct(13);
+        assertEquals(Arrays.asList(11), ids(inventoryManager.findMostExpensive("Jackets", 5)));
+        assertThrows(IllegalArgumentException.class, () -> inventoryManager.findByPriceRange(60, 20));
+    }
+
+    @Test
+    @DisplayName("Keyword search follows name and category changes")
+    void testSearch() {
+        Product jacket = new Product(20, "Leather Jacket", "Jackets", 89.99, 5, Arrays.asList("M"));
+        inventoryManager.addProduct(jacket);
+        inventoryManager.addProduct(new Product(21, "Leather Boots", "Shoes", 99.00, 5, Arrays.asList("L")));
+
+        assertEquals(Arrays.asList(20, 21), ids(inventoryManager.search("leather")));
+        assertEquals(Arrays.asList(20), ids(inventoryManager.search("Jacket LEATHER", SearchIndex.Match.ALL, 10)));
+
+        jacket.setName("Suede Jacket");
+        jacket.setCategory("Outerwear");
+        assertEquals(Arrays.asList(21), ids(inventoryManager.search("leather")));
+        assertEquals(Arrays.asList(20), ids(inventoryManager.search("suede outerwear", SearchIndex.Match.ALL, 10)));
+
+        inventoryManager.removeProduct(21);
+        assertTrue(inventoryManager.search("boots").isEmpty());
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        List<Integer> ids = new ArrayList<>();
+        for (Product product : products) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
 }
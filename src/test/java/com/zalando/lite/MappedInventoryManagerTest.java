@@ -0,0 +1,266 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link MappedInventoryManager}.
+ *
+ * These tests verify:
+ * - Products round-trip through the memory-mapped records
+ * - Repeated strings are stored once in the string dictionary
+ * - Stock updates are written in place and survive a reopen
+ * - Catalogs with euro prices (version 1) are migrated to cents on open
+ * - The catalog grows past its initial capacity and keeps insertion order
+ * - Removal and category/size queries behave like the heap-based manager
+ * - No stock update is lost while the catalog grows under concurrent checkouts
+ *
+ * Concepts reinforced:
+ * - Temporary files in tests (@TempDir)
+ * - Testing persistence by closing and reopening
+ */
+public class MappedInventoryManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path catalogFile;
+    private MappedInventoryManager inventoryManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        catalogFile = tempDir.resolve("catalog.dat");
+        inventoryManager = new MappedInventoryManager(catalogFile, 16);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        inventoryManager.close();
+    }
+
+    @Test
+    @DisplayName("Products are read back lazily from their records")
+    void testAddAndFindProduct() {
+        inventoryManager.addProduct(new Product(7, "Leather Jacket", "Jackets", 89.99, 10, Arrays.asList("S", "M", "L")));
+
+        Product product = inventoryManager.findProductById(7);
+        assertNotNull(product);
+        assertEquals("Leather Jacket", product.getName());
+        assertEquals("Jackets", product.getCategory());
+        assertEquals(89.99, product.getPrice(), 0.0001);
+        assertEquals(10, product.getStock());
+        assertEquals(Arrays.asList("S", "M", "L"), product.getAvailableSizes());
+        assertNull(inventoryManager.findProductById(8));
+    }
+
+    @Test
+    @DisplayName("Repeated strings are stored once, also after the ref table grows and after a reopen")
+    void testStringsAreDeduplicated() throws Exception {
+        for (int id = 0; id < 3000; id++) {
+            inventoryManager.addProduct(new Product(id, "Name " + id, "Category " + (id % 7), 1.0, 1,
+                    Arrays.asList("S", "M")));
+        }
+        inventoryManager.close();
+        Path stringsFile = tempDir.resolve("catalog.dat.strings");
+        int stringsEnd = readStringsEnd(stringsFile);
+
+        inventoryManager = new MappedInventoryManager(catalogFile);
+        for (int id = 3000; id < 6000; id++) {
+            inventoryManager.addProduct(new Product(id, "Name " + (id - 3000), "Category " + (id % 7), 1.0, 1,
+                    Arrays.asList("M", "S")));
+        }
+        assertEquals("Name 2999", inventoryManager.findProductById(5999).getName());
+        assertEquals("Category 1", inventoryManager.findProductById(5923).getCategory());
+        inventoryManager.close();
+        assertEquals(stringsEnd, readStringsEnd(stringsFile), "No string was appended twice");
+
+        inventoryManager = new MappedInventoryManager(catalogFile);
+    }
+
+    // Reads the end offset from a string dictionary header
+    private static int readStringsEnd(Path file) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            return header.getInt(4);
+        }
+    }
+
+    @Test
+    @DisplayName("Stock changes are written in place and survive a reopen")
+    void testStockPersistsAcrossReopen() throws Exception {
+        inventoryManager.addProduct(new Product(1, "Running Shoes", "Shoes", 59.49, 15, Arrays.asList("M", "L")));
+
+        assertTrue(inventoryManager.reduceStock(1, 5));
+        assertFalse(inventoryManager.reduceStock(1, 50));
+        Product view = inventoryManager.findProductById(1);
+        assertEquals(8, view.tryReduceStock(2));
+        view.setPrice(49.99);
+
+        inventoryManager.close();
+        inventoryManager = new MappedInventoryManager(catalogFile);
+
+        Product reopened = inventoryManager.findProductById(1);
+        assertEquals(8, reopened.getStock());
+        assertEquals(49.99, reopened.getPrice(), 0.0001);
+        assertEquals("Running Shoes", reopened.getName());
+    }
+
+    @Test
+    @DisplayName("A version 1 catalog with euro prices is migrated to cents on open")
+    void testMigratesEuroPrices() throws Exception {
+        inventoryManager.addProduct(new Product(1, "Running Shoes", "Shoes", 59.49, 15, Arrays.asList("M")));
+        inventoryManager.close();
+
+        // Rewrite the file as version 1 would have stored it: version 1, price as double euros
+        int priceOffset = 64 + 4 * ProductIndex.tableSizeFor(16) + 16;
+        try (FileChannel channel = FileChannel.open(catalogFile, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            channel.write(value.putInt(0, 1).limit(4), 4);
+            channel.write(value.clear().putDouble(0, 59.49), priceOffset);
+        }
+
+        inventoryManager = new MappedInventoryManager(catalogFile);
+        assertEquals(5949, inventoryManager.findProductById(1).getPriceCents());
+        assertEquals(15, inventoryManager.findProductById(1).getStock());
+        assertFalse(Files.exists(tempDir.resolve("catalog.dat.tmp")), "The migrated file replaced the old one");
+    }
+
+    @Test
+    @DisplayName("The catalog grows past its initial capacity and keeps order")
+    void testGrowthKeepsOrderAndViews() {
+        inventoryManager.addProduct(new Product(0, "Product 0", "Shoes", 10.0, 3, Arrays.asList("M")));
+        Product early = inventoryManager.findProductById(0);
+
+        for (int id = 1; id < 1_000; id++) {
+            inventoryManager.addProduct(new Product(id, "Product " + id, id % 2 == 0 ? "Shoes" : "Hats", 10.0, 3, Arrays.asList("M")));
+        }
+
+        assertEquals(1_000, inventoryManager.getProductCount());
+        List<Product> products = inventoryManager.listAllProducts();
+        assertEquals(1_000, products.size());
+        for (int id = 0; id < 1_000; id++) {
+            assertEquals(id, products.get(id).getId());
+        }
+        // A view created before the catalog grew still finds its record
+        assertEquals(2, early.tryReduceStock(1));
+        assertEquals(2, inventoryManager.findProductById(0).getStock());
+    }
+
+    @Test
+    @DisplayName("Removal and category/size queries")
+    void testRemoveAndQueries() {
+        inventoryManager.addProduct(new Product(1, "Leather Jacket", "Jackets", 89.99, 10, Arrays.asList("S", "M", "L")));
+        inventoryManager.addProduct(new Product(2, "Running Shoes", "Shoes", 59.49, 15, Arrays.asList("M", "L")));
+        inventoryManager.addProduct(new Product(3, "Boots", "Shoes", 99.00, 5, Arrays.asList("L")));
+
+        assertEquals(2, inventoryManager.findByCategory("shoes").size());
+        assertEquals(2, inventoryManager.findBySize("M").size());
+        assertEquals(2, inventoryManager.findByCategoryAndSize("Shoes", "M").get(0).getId());
+
+        Product removed = inventoryManager.removeProduct(2);
+        assertEquals("Running Shoes", removed.getName());
+        assertNull(inventoryManager.findProductById(2));
+        assertNotNull(inventoryManager.findProductById(3), "Other products stay reachable after removal");
+        assertEquals(1, inventoryManager.findByCategory("Shoes").size());
+        assertFalse(inventoryManager.isProductAvailable(2));
+    }
+
+    @Test
+    @DisplayName("Paging and streaming over mapped records")
+    void testPagingAndStreaming() {
+        for (int id = 0; id < 50; id++) {
+            inventoryManager.addProduct(new Product(id, "P" + id, "Misc", 1.0, 1, Arrays.asList("M")));
+        }
+        inventoryManager.removeProduct(10);
+
+        List<Integer> seen = new ArrayList<>();
+        long cursor = ProductPage.FIRST;
+        do {
+            ProductPage page = inventoryManager.listProducts(cursor, 20);
+            page.getProducts().forEach(p -> seen.add(p.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != ProductPage.END);
+
+        assertEquals(49, seen.size());
+        assertFalse(seen.contains(10));
+        assertEquals(49, inventoryManager.streamProducts().parallel().count());
+
+        ProductPage end = inventoryManager.listProducts(ProductPage.END, 20);
+        assertTrue(end.getProducts().isEmpty());
+        assertEquals(ProductPage.END, end.getNextCursor());
+        for (long forged : new long[] {ProductPage.cursor(0, 7), ProductPage.cursor(500, 3), Long.MIN_VALUE}) {
+            assertTrue(inventoryManager.listProducts(forged, 20).getProducts().size() <= 20, "Cursor " + forged);
+        }
+    }
+
+    @Test
+    @DisplayName("Keyword search and price queries over mapped records")
+    void testSearchAndPriceQueries() {
+        inventoryManager.addProduct(new Product(1, "Leather Jacket", "Jackets", 89.99, 10, Arrays.asList("M")));
+        inventoryManager.addProduct(new Product(2, "Leather Boots", "Shoes", 99.00, 5, Arrays.asList("L")));
+        inventoryManager.addProduct(new Product(3, "Running Shoes", "Shoes", 59.49, 15, Arrays.asList("M")));
+
+        List<Product> ranked = inventoryManager.search("leather shoes");
+        assertEquals(2, ranked.get(0).getId(), "Matches both words");
+        assertEquals(3, ranked.size());
+        assertEquals(1, inventoryManager.search("jacket leather", SearchIndex.Match.ALL, 10).size());
+
+        assertEquals(3, inventoryManager.findCheapest("shoes", 1).get(0).getId());
+        assertEquals(2, inventoryManager.findByPriceRange(60, 100).get(1).getId());
+    }
+
+    @Test
+    @DisplayName("Stock updates running while the catalog grows are not lost")
+    void testStockUpdatesDuringGrowth() throws Exception {
+        inventoryManager.addProduct(new Product(1, "Basic Tee", "Clothing", 9.99, 1_000_000, Arrays.asList("M")));
+        Product view = inventoryManager.findProductById(1);
+        int threads = 4;
+        int perThread = 20_000;
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> buyers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean useView = t % 2 == 0;
+            Thread buyer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (useView ? view.tryReduceStock(1) >= 0 : inventoryManager.reduceStock(1, 1)) {
+                        sold.incrementAndGet();
+                    }
+                }
+            });
+            buyer.start();
+            buyers.add(buyer);
+        }
+
+        start.countDown();
+        for (int id = 2; id <= 2_000; id++) { // Several grows while buyers run
+            inventoryManager.addProduct(new Product(id, "SKU " + id, "Clothing", 5.00, 1, Arrays.asList("S")));
+        }
+        for (Thread buyer : buyers) {
+            buyer.join();
+        }
+
+        assertEquals(threads * perThread, sold.get());
+        assertEquals(1_000_000 - sold.get(), inventoryManager.findProductById(1).getStock());
+    }
+}
@@ -0,0 +1,74 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark comparing cent-based {@link Money} arithmetic with the old double path.
+ *
+ * Tagged "benchmark", so it only runs with {@code mvn test -Pbench}.
+ *
+ * These tests verify:
+ * - Totals and chained discounts over many order lines, in long cents and in double euros
+ * - The long path rounds every discount to whole cents; the double path never rounds
+ *
+ * Concepts reinforced:
+ * - Measuring after a warm-up
+ * - Fixed-point versus floating point
+ */
+@Tag("benchmark")
+public class MoneyBenchmarkTest {
+
+    private static final int LINES = 10_000_000;
+
+    @Test
+    @DisplayName("Cents versus doubles for line totals with discounts")
+    void benchmarkMoneyVersusDouble() {
+        long[] pricesCents = new long[1024];
+        double[] prices = new double[1024];
+        for (int i = 0; i < pricesCents.length; i++) {
+            pricesCents[i] = 99 + i * 37L;
+            prices[i] = Money.toMajor(pricesCents[i]);
+        }
+
+        for (int round = 0; round < 5; round++) { // Warm-up
+            sumCents(pricesCents);
+            sumDoubles(prices);
+        }
+
+        long begin = System.nanoTime();
+        long cents = sumCents(pricesCents);
+        long centsNanos = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        double euros = sumDoubles(prices);
+        long doubleNanos = System.nanoTime() - begin;
+
+        System.out.printf("long cents:    %,d lines in %d ms, total %s%n",
+                LINES, centsNanos / 1_000_000, Money.format(cents));
+        System.out.printf("double euros:  %,d lines in %d ms, total €%.6f (differs by %.6f)%n",
+                LINES, doubleNanos / 1_000_000, euros, euros - Money.toMajor(cents));
+        assertTrue(cents > 0);
+    }
+
+    // Line total = price × quantity, 20% off, then 10% off, rounded to cents each step
+    private static long sumCents(long[] prices) {
+        long total = 0;
+        for (int i = 0; i < LINES; i++) {
+            long line = Money.times(prices[i & 1023], 1 + (i & 3));
+            total = Money.plus(total, Money.percentOff(Money.percentOff(line, 20), 10));
+        }
+        return total;
+    }
+
+    // The same calculation with doubles, as before the switch to cents
+    private static double sumDoubles(double[] prices) {
+        double total = 0.0;
+        for (int i = 0; i < LINES; i++) {
+            double line = prices[i & 1023] * (1 + (i & 3));
+            total += line * 0.80 * 0.90;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,68 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link Money}.
+ *
+ * These tests verify:
+ * - Conversion between euros and cents rounds to the nearest cent
+ * - Percentage discounts round half up
+ * - Sums in cents do not drift the way doubles do
+ * - Products, order lines and orders agree on cent amounts
+ *
+ * Concepts reinforced:
+ * - Fixed-point arithmetic
+ * - Exact assertions instead of floating point deltas
+ */
+public class MoneyTest {
+
+    @Test
+    @DisplayName("Conversions, formatting and rounding")
+    void testConversionsAndRounding() {
+        assertEquals(1999, Money.ofMajor(19.99));
+        assertEquals(30, Money.ofMajor(0.1 + 0.2));
+        assertEquals(19.99, Money.toMajor(1999));
+        assertEquals("€19.99", Money.format(1999));
+        assertEquals("€0.05", Money.format(5));
+        assertEquals("-€1.50", Money.format(-150));
+
+        assertEquals(1599, Money.percentOff(1999, 20)); // 15.992 → 15.99
+        assertEquals(1439, Money.percentOff(1599, 10)); // 14.391 → 14.39
+        assertEquals(5, Money.percentOff(5, 10)); // 4.5 rounds half up to 5
+        assertThrows(IllegalArgumentException.class, () -> Money.percentOff(100, 120));
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+    }
+
+    @Test
+    @DisplayName("Summing cents is exact where doubles drift")
+    void testNoDrift() {
+        double euros = 0.0;
+        long cents = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            euros += 0.10;
+            cents += Money.ofMajor(0.10);
+        }
+        assertNotEquals(100_000.0, euros, "double addition drifts");
+        assertEquals(10_000_000, cents);
+    }
+
+    @Test
+    @DisplayName("Products, lines and orders carry cent amounts")
+    void testDomainInCents() {
+        Product product = new Product(1, "Socks", "Clothing", 3.33, 10, Arrays.asList("M"));
+        assertEquals(333, product.getPriceCents());
+        OrderItem line = new OrderItem(product, 3);
+        assertEquals(999, line.getSubtotalCents());
+
+        Customer customer = new Customer("Bob", "bob@example.com");
+        Order order = new Order(customer, List.of(line, new OrderItem(product, 1)));
+        assertEquals(1332, order.calculateTotalCents());
+        assertEquals(13.32, order.calculateTotal());
+    }
+}
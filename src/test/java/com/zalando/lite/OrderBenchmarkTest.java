@@ -0,0 +1,346 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmarks for placing orders under contention.
+ *
+ * Tagged "benchmark", so it only runs with {@code mvn test -Pbench}.
+ *
+ * These tests verify:
+ * - 64 threads ordering overlapping products keep stock exact
+ * - Throughput of {@link OrderManager#createOrder(Customer, List)} under contention
+ * - Allocation rate of {@link OrderIdGenerator#nextId()}
+ * - Group commit throughput and replay speed of an {@link OrderJournal}
+ * - Sustained throughput of a {@link FileOrderLoader} bulk import
+ * - 100,000 pending async orders without growing the platform thread count
+ * - Memory per key and claim rate of an {@link IdempotencyCache}
+ *
+ * Concepts reinforced:
+ * - Contention benchmarks with a start latch
+ * - Checking invariants after a concurrent run
+ */
+@Tag("benchmark")
+public class OrderBenchmarkTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("64 threads placing 3-line orders on 32 overlapping SKUs")
+    void benchmarkContendedCreateOrder() throws Exception {
+        int skus = 32;
+        int threads = 64;
+        int ordersPerThread = 20_000;
+        int initialStock = threads * ordersPerThread; // Enough for most orders, so failures are rare
+        InventoryManager inventoryManager = new InventoryManager();
+        OrderManager orderManager = new OrderManager(inventoryManager);
+        for (int id = 0; id < skus; id++) {
+            inventoryManager.addProduct(new Product(id, "SKU " + id, "Clothing", 10.0, initialStock, Arrays.asList("M")));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int customerId = t;
+            results.add(pool.submit(() -> {
+                Customer customer = new Customer("Customer " + customerId, "c" + customerId + "@example.com");
+                customer.setId(customerId);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long units = 0;
+                start.await();
+                for (int n = 0; n < ordersPerThread; n++) {
+                    int first = random.nextInt(skus);
+                    List<OrderItem> items = Arrays.asList(
+                            new OrderItem(inventoryManager.findProductById(first), 1),
+                            new OrderItem(inventoryManager.findProductById((first + 1) % skus), 1),
+                            new OrderItem(inventoryManager.findProductById((first + 7) % skus), 1));
+                    if (orderManager.createOrder(customer, items) != null) {
+                        units += 3;
+                    }
+                }
+                return units;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        long unitsSold = 0;
+        for (Future<Long> result : results) {
+            unitsSold += result.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        long stockLeft = 0;
+        for (int id = 0; id < skus; id++) {
+            stockLeft += inventoryManager.findProductById(id).getStock();
+        }
+        assertEquals((long) skus * initialStock, stockLeft + unitsSold, "Stock must match the orders placed");
+
+        long orders = (long) threads * ordersPerThread;
+        System.out.printf("createOrder: %,d orders on %d threads in %d ms (%,.0f orders/s)%n",
+                orders, threads, elapsed / 1_000_000, orders * 1e9 / elapsed);
+    }
+
+    @Test
+    @DisplayName("Order ID allocation rate, single thread and all cores")
+    void benchmarkOrderIds() throws Exception {
+        OrderIdGenerator generator = new OrderIdGenerator();
+        int perThread = 50_000_000;
+        for (int i = 0; i < perThread; i++) { // Warm-up
+            generator.nextId();
+        }
+
+        long begin = System.nanoTime();
+        long checksum = 0;
+        for (int i = 0; i < perThread; i++) {
+            checksum += generator.nextId();
+        }
+        long elapsed = System.nanoTime() - begin;
+        assertTrue(checksum != 0);
+        System.out.printf("nextId: %,d IDs on 1 thread in %d ms (%,.0f IDs/s)%n",
+                perThread, elapsed / 1_000_000, perThread * 1e9 / elapsed);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                long last = 0;
+                for (int i = 0; i < perThread; i++) {
+                    long id = generator.nextId();
+                    assertTrue(id > last, "IDs from one thread only grow");
+                    last = id;
+                }
+                return last;
+            }));
+        }
+        begin = System.nanoTime();
+        start.countDown();
+        for (Future<Long> result : results) {
+            result.get();
+        }
+        elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        long total = (long) threads * perThread;
+        System.out.printf("nextId: %,d IDs on %d threads in %d ms (%,.0f IDs/s)%n",
+                total, threads, elapsed / 1_000_000, total * 1e9 / elapsed);
+    }
+
+    @Test
+    @DisplayName("Journaled orders: group commit with 64 threads, then replay of 500,000 orders")
+    void benchmarkJournal() throws Exception {
+        int threads = 64;
+        int ordersPerThread = 500;
+        Path syncDir = tempDir.resolve("sync");
+        try (OrderJournal journal = new OrderJournal(syncDir, OrderJournal.Durability.SYNC, Duration.ZERO)) {
+            InventoryManager inventoryManager = new InventoryManager();
+            inventoryManager.addProduct(new Product(1, "SKU 1", "Clothing", 10.0, threads * ordersPerThread, Arrays.asList("M")));
+            OrderManager orderManager = new OrderManager(inventoryManager, new OrderIdGenerator(), journal);
+            orderManager.replayJournal(id -> null);
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int customerId = t;
+                results.add(pool.submit(() -> {
+                    Customer customer = new Customer("Customer " + customerId, null);
+                    customer.setId(customerId);
+                    start.await();
+                    for (int n = 0; n < ordersPerThread; n++) {
+                        assertNotNull(orderManager.createOrder(customer,
+                                Arrays.asList(new OrderItem(inventoryManager.findProductById(1), 1))));
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+            long elapsed = System.nanoTime() - begin;
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+            long orders = (long) threads * ordersPerThread;
+            System.out.printf("journal SYNC: %,d orders on %d threads in %d ms (%,.0f orders/s)%n",
+                    orders, threads, elapsed / 1_000_000, orders * 1e9 / elapsed);
+        }
+
+        int replayOrders = 500_000;
+        Path replayDir = tempDir.resolve("replay");
+        try (OrderJournal journal = new OrderJournal(replayDir, OrderJournal.Durability.NONE, Duration.ZERO)) {
+            InventoryManager inventoryManager = catalog(replayOrders);
+            OrderManager writer = new OrderManager(inventoryManager, new OrderIdGenerator(), journal);
+            writer.replayJournal(id -> null);
+            Customer[] customers = new Customer[1000];
+            for (int c = 0; c < customers.length; c++) {
+                customers[c] = new Customer("Customer " + c, null);
+                customers[c].setId(c);
+            }
+            for (int n = 0; n < replayOrders; n++) {
+                writer.createOrder(customers[n % customers.length], Arrays.asList(
+                        new OrderItem(inventoryManager.findProductById(n % 32), 1),
+                        new OrderItem(inventoryManager.findProductById((n + 5) % 32), 1)));
+            }
+            journal.sync();
+        }
+
+        for (int round = 0; round < 3; round++) {
+            try (OrderJournal journal = new OrderJournal(replayDir, OrderJournal.Durability.NONE, Duration.ZERO)) {
+                InventoryManager inventoryManager = catalog(replayOrders);
+                OrderManager orderManager = new OrderManager(inventoryManager, new OrderIdGenerator(), journal);
+                long begin = System.nanoTime();
+                long restored = orderManager.replayJournal(id -> null);
+                long elapsed = System.nanoTime() - begin;
+                assertEquals(replayOrders, restored);
+                System.out.printf("journal replay: %,d orders in %d ms (%,.0f orders/s)%n",
+                        restored, elapsed / 1_000_000, restored * 1e9 / elapsed);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Bulk import of 1,000,000 CSV order lines")
+    void benchmarkBulkImport() throws Exception {
+        int lines = 1_000_000;
+        Path file = tempDir.resolve("orders.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("customerId,productId,quantity\n");
+            for (int n = 0; n < lines; n++) {
+                out.write((n % 1000) + "," + (n % 32) + ",1," + ((n + 5) % 32) + ",2\n");
+            }
+        }
+        CustomerManager customerManager = new CustomerManager();
+        for (int c = 0; c < 1000; c++) {
+            Customer customer = new Customer("Customer " + c, null);
+            customer.setId(c);
+            customerManager.registerCustomer(customer);
+        }
+        InventoryManager inventoryManager = catalog(lines);
+        OrderManager orderManager = new OrderManager(inventoryManager);
+
+        FileOrderLoader.ImportReport report = new FileOrderLoader(orderManager, inventoryManager, customerManager).load(file);
+
+        assertEquals(lines, report.getOrdersCreated());
+        assertEquals(0, report.getRejectedCount());
+        System.out.println("bulk import: " + report);
+    }
+
+    @Test
+    @DisplayName("Async checkout: up to 100,000 journaled orders pending at once, platform threads stay bounded")
+    void benchmarkAsyncCheckout() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean(); // Counts platform threads only
+        for (int pending : new int[] {1_000, 10_000, 100_000}) {
+            Path dir = tempDir.resolve("async-" + pending);
+            try (OrderJournal journal = new OrderJournal(dir, OrderJournal.Durability.SYNC, Duration.ofMillis(2))) {
+                InventoryManager inventoryManager = catalog(pending);
+                OrderManager orderManager = new OrderManager(inventoryManager, new OrderIdGenerator(), journal);
+                orderManager.replayJournal(id -> null);
+                Customer[] customers = new Customer[1000];
+                for (int c = 0; c < customers.length; c++) {
+                    customers[c] = new Customer("Customer " + c, null);
+                    customers[c].setId(c);
+                }
+
+                int platformBefore = threads.getThreadCount();
+                threads.resetPeakThreadCount();
+                AtomicInteger inFlight = new AtomicInteger();
+                AtomicInteger maxInFlight = new AtomicInteger();
+                List<CompletableFuture<Order>> futures = new ArrayList<>(pending);
+                long begin = System.nanoTime();
+                for (int n = 0; n < pending; n++) {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    futures.add(orderManager.createOrderAsync(customers[n % customers.length], Arrays.asList(
+                                    new OrderItem(inventoryManager.findProductById(n % 32), 1)))
+                            .whenComplete((order, error) -> inFlight.decrementAndGet()));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+                long elapsed = System.nanoTime() - begin;
+                int platformPeak = threads.getPeakThreadCount();
+
+                for (CompletableFuture<Order> future : futures) {
+                    assertNotNull(future.join());
+                }
+                System.out.printf("async checkout: %,d orders (max %,d pending) in %d ms (%,.0f orders/s), "
+                                + "platform threads %d -> peak %d, virtual threads: %s%n",
+                        pending, maxInFlight.get(), elapsed / 1_000_000, pending * 1e9 / elapsed,
+                        platformBefore, platformPeak, VirtualThreads.isAvailable());
+                // Carrier threads (one per CPU) or the fallback pool, plus a few JVM helpers; never one per order
+                int workers = VirtualThreads.isAvailable()
+                        ? Runtime.getRuntime().availableProcessors() : VirtualThreads.FALLBACK_THREADS;
+                int allowed = platformBefore + workers + 16;
+                assertTrue(platformPeak <= allowed, "Platform threads stayed at " + platformPeak);
+                assertTrue(maxInFlight.get() > workers, "More orders pending than threads running them");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Idempotency cache holding 20,000,000 keys")
+    void benchmarkIdempotencyCache() {
+        int keys = 20_000_000;
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        IdempotencyCache cache = new IdempotencyCache(keys, Duration.ofHours(24));
+        System.gc();
+        long bytes = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < keys; i++) {
+            long key = IdempotencyCache.fingerprint(i & 1023, Integer.toString(i));
+            assertEquals(IdempotencyCache.ABSENT, cache.claim(key));
+            cache.complete(key, i + 1L);
+        }
+        long elapsed = System.nanoTime() - begin;
+        int remembered = 0;
+        for (int i = 0; i < keys; i += 97) {
+            if (cache.find(IdempotencyCache.fingerprint(i & 1023, Integer.toString(i))) == i + 1L) {
+                remembered++;
+            }
+        }
+        System.out.printf("idempotency cache: %,d slots in %,d MB (%.1f bytes/slot), %,.0f claims/s, %.1f%% of keys kept%n",
+                cache.getCapacity(), bytes >> 20, (double) bytes / cache.getCapacity(), keys * 1e9 / elapsed,
+                100.0 * remembered / ((keys + 96) / 97));
+        assertTrue(remembered * 97L > keys * 0.95, "Nearly every key fits");
+    }
+
+    // 32 products with the given stock each
+    private static InventoryManager catalog(int stock) {
+        InventoryManager inventoryManager = new InventoryManager();
+        for (int id = 0; id < 32; id++) {
+            inventoryManager.addProduct(new Product(id, "SKU " + id, "Clothing", 10.0, stock, Arrays.asList("M")));
+        }
+        return inventoryManager;
+    }
+}
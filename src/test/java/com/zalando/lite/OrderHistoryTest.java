@@ -0,0 +1,85 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link OrderHistory}.
+ *
+ * These tests verify:
+ * - Pages walk the whole history newest first, across chunk boundaries
+ * - Cursors stay put when new orders arrive between pages
+ * - Views are read-only snapshots
+ *
+ * Concepts reinforced:
+ * - Cursor-based pagination
+ * - Immutable views
+ */
+public class OrderHistoryTest {
+
+    private OrderHistory history;
+    private List<Order> placed;
+
+    @BeforeEach
+    void setUp() {
+        history = new OrderHistory();
+        placed = new ArrayList<>();
+        Customer customer = new Customer("Alice", "alice@example.com");
+        for (int i = 0; i < 1000; i++) {
+            Order order = new Order(customer, Collections.emptyList());
+            order.setOrderId(i);
+            history.add(order);
+            placed.add(order);
+        }
+    }
+
+    @Test
+    @DisplayName("Paging returns every order once, newest first")
+    void testPagingNewestFirst() {
+        List<Order> seen = new ArrayList<>();
+        long cursor = OrderPage.FIRST;
+        int pages = 0;
+        do {
+            OrderPage page = history.page(cursor, 70);
+            seen.addAll(page.getOrders());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != OrderPage.END);
+
+        List<Order> expected = new ArrayList<>(placed);
+        Collections.reverse(expected);
+        assertEquals(expected, seen);
+        assertEquals(15, pages);
+    }
+
+    @Test
+    @DisplayName("New orders do not shift the pages after a cursor")
+    void testStableCursor() {
+        OrderPage first = history.page(OrderPage.FIRST, 10);
+        assertEquals(999, first.getOrders().get(0).getOrderId());
+
+        Order newest = new Order(new Customer("Alice", "alice@example.com"), Collections.emptyList());
+        newest.setOrderId(1000);
+        history.add(newest);
+
+        OrderPage second = history.page(first.getNextCursor(), 10);
+        assertEquals(989, second.getOrders().get(0).getOrderId());
+        assertEquals(1000, history.page(OrderPage.FIRST, 1).getOrders().get(0).getOrderId());
+        assertTrue(history.page(OrderPage.END, 10).getOrders().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A view is a read-only snapshot in placement order")
+    void testView() {
+        List<Order> view = history.view();
+        assertEquals(placed, view);
+        history.add(new Order(new Customer("Alice", "alice@example.com"), Collections.emptyList()));
+        assertEquals(1000, view.size(), "Later orders are not part of the view");
+        assertThrows(UnsupportedOperationException.class, () -> view.add(placed.get(0)));
+    }
+}
@@ -0,0 +1,112 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link OrderIdGenerator}.
+ *
+ * These tests verify:
+ * - IDs are unique across threads
+ * - Threads share one counter instead of holding blocks of their own
+ * - IDs follow the clock
+ * - A restart with the high-water file never repeats an ID, even if the clock went back
+ *
+ * Concepts reinforced:
+ * - Testing with a fake clock
+ * - Temporary files with @TempDir
+ */
+public class OrderIdGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("IDs are unique across threads")
+    void testUniqueAcrossThreads() throws Exception {
+        OrderIdGenerator generator = new OrderIdGenerator(null, 16, () -> 1_000L);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(pool.submit(() -> {
+                long[] ids = new long[10_000];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = generator.nextId();
+                }
+                return ids;
+            }));
+        }
+        Set<Long> seen = new HashSet<>();
+        for (Future<long[]> result : results) {
+            for (long id : result.get()) {
+                assertTrue(seen.add(id), "Duplicate ID " + id);
+            }
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(80_000, seen.size());
+    }
+
+    @Test
+    @DisplayName("Short-lived threads do not waste a block of IDs each")
+    void testNoBlockPerThread() throws Exception {
+        OrderIdGenerator generator = new OrderIdGenerator(null, 1024, () -> 1_000L);
+        long[] ids = new long[500];
+        for (int i = 0; i < ids.length; i++) {
+            int slot = i;
+            Thread thread = new Thread(() -> ids[slot] = generator.nextId());
+            thread.start();
+            thread.join();
+        }
+        assertEquals(1_000L << 16, ids[0]);
+        assertEquals(ids[0] + ids.length - 1, ids[ids.length - 1], "One thread after the other, without gaps");
+    }
+
+    @Test
+    @DisplayName("A new block starts at the current time")
+    void testTimeOrdered() throws Exception {
+        AtomicLong clock = new AtomicLong(1_000);
+        OrderIdGenerator generator = new OrderIdGenerator(null, 4, clock::get);
+        long first = generator.nextId();
+        for (int i = 0; i < 3; i++) {
+            generator.nextId();
+        }
+        clock.set(2_000);
+        long later = generator.nextId();
+
+        assertEquals(1_000L << 16, first);
+        assertEquals(2_000L << 16, later);
+    }
+
+    @Test
+    @DisplayName("Restarting with the high-water file continues above every handed-out ID")
+    void testRestartWithHighWaterFile() throws Exception {
+        Path file = tempDir.resolve("order-ids");
+        AtomicLong clock = new AtomicLong(5_000);
+        long last;
+        try (OrderIdGenerator generator = new OrderIdGenerator(file, 64, clock::get)) {
+            last = 0;
+            for (int i = 0; i < 1_000; i++) {
+                last = generator.nextId();
+            }
+        }
+
+        clock.set(1); // The clock went backwards across the restart
+        try (OrderIdGenerator restarted = new OrderIdGenerator(file, 64, clock::get)) {
+            assertTrue(restarted.nextId() > last, "IDs must not repeat after a restart");
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link OrderJournal} and journaled {@link OrderManager}s.
+ *
+ * These tests verify:
+ * - Orders, prices and stock survive a restart
+ * - A torn record at the end of the journal is cut off
+ * - Checkpoints shorten the journal without losing or doubling orders
+ * - Checkpoints keep the units of pending reservations
+ * - Concurrent orders share fsyncs and are all replayed
+ * - Orders the journal cannot hold are rejected before they take stock
+ *
+ * Concepts reinforced:
+ * - Simulating restarts by reopening files
+ * - Temporary files with @TempDir
+ */
+public class OrderJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = new Customer("Alice", "alice@example.com");
+        customer.setId(101);
+    }
+
+    @Test
+    @DisplayName("Orders, frozen prices and stock are rebuilt after a restart")
+    void testReplayAfterRestart() throws IOException {
+        long firstId;
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            assertEquals(0, orders.replayJournal(id -> customer));
+
+            Order first = orders.createOrder(customer, items(inventory, 1, 2));
+            firstId = first.getOrderId();
+            inventory.findProductById(1).setPrice(99.0); // Later price change must not affect the old order
+            assertNotNull(orders.createOrder(customer, items(inventory, 2, 3)));
+        }
+
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            assertEquals(2, orders.replayJournal(id -> id == 101 ? customer : null));
+
+            List<Order> restored = orders.getOrdersForCustomer(101);
+            assertEquals(2, restored.size());
+            assertEquals(firstId, restored.get(0).getOrderId());
+            assertSame(customer, restored.get(0).getCustomer());
+            assertEquals(3998, restored.get(0).calculateTotalCents());
+            assertEquals(8, inventory.findProductById(1).getStock());
+            assertEquals(7, inventory.findProductById(2).getStock());
+            assertEquals(3998 + 3 * 1000, orders.getTotalRevenueCents());
+        }
+    }
+
+    @Test
+    @DisplayName("A torn record at the end is dropped and appending continues after the last good one")
+    void testTornTail() throws IOException {
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            orders.replayJournal(id -> customer);
+            orders.createOrder(customer, items(inventory, 1, 1));
+        }
+        // A crash halfway through writing the next record
+        try (FileChannel file = FileChannel.open(tempDir.resolve("orders.journal"), StandardOpenOption.APPEND)) {
+            file.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 60, 1, 2, 3}));
+        }
+
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            assertEquals(1, orders.replayJournal(id -> customer));
+            orders.createOrder(customer, items(inventory, 2, 1));
+        }
+
+        try (OrderJournal journal = open()) {
+            OrderManager orders = new OrderManager(catalog(10), new OrderIdGenerator(), journal);
+            assertEquals(2, orders.replayJournal(id -> customer));
+        }
+    }
+
+    @Test
+    @DisplayName("A checkpoint empties the journal; replay combines snapshot and later orders")
+    void testCheckpoint() throws IOException {
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            orders.replayJournal(id -> customer);
+            orders.createOrder(customer, items(inventory, 1, 2));
+            orders.createOrder(customer, items(inventory, 1, 1));
+            inventory.findProductById(2).addStock(5); // Restocks are captured by the snapshot
+
+            orders.checkpoint();
+            assertEquals(0, Files.size(tempDir.resolve("orders.journal")));
+
+            orders.createOrder(customer, items(inventory, 2, 4));
+        }
+
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            assertEquals(3, orders.replayJournal(id -> customer));
+            assertEquals(3, orders.getOrdersForCustomer(101).size());
+            assertEquals(7, inventory.findProductById(1).getStock());
+            assertEquals(11, inventory.findProductById(2).getStock());
+        }
+    }
+
+    @Test
+    @DisplayName("Units held by pending reservations are in stock again after a checkpoint and restart")
+    void testCheckpointKeepsHeldStock() throws IOException {
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            orders.replayJournal(id -> customer);
+            StockReservation held = inventory.reserve(1, 3, Duration.ofMinutes(10));
+            StockReservation sold = inventory.reserve(2, 4, Duration.ofMinutes(10));
+            assertEquals(7, inventory.findProductById(1).getStock());
+
+            orders.checkpoint();
+            assertNotNull(held);
+            assertNotNull(orders.createReservedOrder(customer, items(inventory, 2, 4),
+                    Collections.singletonList(sold.getId())));
+        }
+
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(0);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            assertEquals(1, orders.replayJournal(id -> customer));
+            assertEquals(10, inventory.findProductById(1).getStock(), "The uncommitted hold is not lost");
+            assertEquals(6, inventory.findProductById(2).getStock(), "The committed hold stays sold");
+        }
+    }
+
+    @Test
+    @DisplayName("A crash between writing the snapshot and emptying the journal replays no order twice")
+    void testCrashDuringCheckpoint() throws IOException {
+        Path journalFile = tempDir.resolve("orders.journal");
+        Path beforeCheckpoint = tempDir.resolve("journal.copy");
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            orders.replayJournal(id -> customer);
+            orders.createOrder(customer, items(inventory, 1, 1));
+            orders.createOrder(customer, items(inventory, 1, 1));
+            journal.sync();
+            Files.copy(journalFile, beforeCheckpoint);
+            orders.checkpoint();
+        }
+        // As if the journal was never emptied
+        Files.copy(beforeCheckpoint, journalFile, StandardCopyOption.REPLACE_EXISTING);
+
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            assertEquals(2, orders.replayJournal(id -> customer));
+            assertEquals(8, inventory.findProductById(1).getStock());
+        }
+    }
+
+    @Test
+    @DisplayName("Orders from many threads share fsyncs and are all replayed")
+    void testConcurrentAppends() throws Exception {
+        int threads = 8;
+        int ordersPerThread = 200;
+        try (OrderJournal journal = new OrderJournal(tempDir, OrderJournal.Durability.SYNC, Duration.ofMillis(1))) {
+            InventoryManager inventory = catalog(threads * ordersPerThread);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            orders.replayJournal(id -> customer);
+            orders.setCheckpointInterval(500);
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    for (int n = 0; n < ordersPerThread; n++) {
+                        assertNotNull(orders.createOrder(customer, items(inventory, 1, 1)));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(threads * ordersPerThread);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            assertEquals(threads * ordersPerThread, orders.replayJournal(id -> customer));
+            assertEquals(0, inventory.findProductById(1).getStock());
+            Set<Long> ids = new HashSet<>();
+            for (Order order : orders.getOrdersForCustomer(101)) {
+                assertTrue(ids.add(order.getOrderId()), "No order is replayed twice");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Appending before replay is rejected")
+    void testAppendBeforeReplay() throws IOException {
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(10);
+            Order order = new Order(customer, items(inventory, 1, 1));
+            order.setOrderDate(LocalDateTime.now());
+            assertThrows(IllegalStateException.class, () -> journal.append(order));
+        }
+    }
+
+    @Test
+    @DisplayName("Orders the journal cannot hold take no stock and leave no partial record")
+    void testRejectedOrdersTakeNoStock() throws IOException {
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(20_000);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            orders.replayJournal(id -> customer);
+
+            assertNull(orders.createOrder(null, items(inventory, 1, 1)));
+            List<OrderItem> tooMany = new ArrayList<>();
+            for (int i = 0; i <= OrderJournal.MAX_LINES; i++) {
+                tooMany.add(new OrderItem(inventory.findProductById(1), 1));
+            }
+            assertNull(orders.createOrder(customer, tooMany));
+            assertEquals(20_000, inventory.findProductById(1).getStock());
+
+            Order anonymous = new Order(null, items(inventory, 2, 1));
+            assertThrows(IllegalArgumentException.class, () -> journal.appendAll(Arrays.asList(
+                    new Order(customer, items(inventory, 2, 1)), anonymous)), "Nothing of the batch is appended");
+            assertNotNull(orders.createOrder(customer, items(inventory, 2, 1)));
+        }
+
+        try (OrderJournal journal = open()) {
+            InventoryManager inventory = catalog(20_000);
+            OrderManager orders = new OrderManager(inventory, new OrderIdGenerator(), journal);
+            assertEquals(1, orders.replayJournal(id -> customer), "Only the valid order was journaled");
+            assertEquals(19_999, inventory.findProductById(2).getStock());
+        }
+    }
+
+    private OrderJournal open() throws IOException {
+        return new OrderJournal(tempDir, OrderJournal.Durability.SYNC, Duration.ZERO);
+    }
+
+    // Two products priced €19.99 and €10.00
+    private static InventoryManager catalog(int stock) {
+        InventoryManager inventory = new InventoryManager();
+        inventory.addProduct(new Product(1, "T-Shirt", "Clothing", 19.99, stock, Arrays.asList("M")));
+        inventory.addProduct(new Product(2, "Socks", "Clothing", 10.00, stock, Arrays.asList("M")));
+        return inventory;
+    }
+
+    private static List<OrderItem> items(InventoryManager inventory, int productId, int quantity) {
+        return Collections.singletonList(new OrderItem(inventory.findProductById(productId), quantity));
+    }
+}
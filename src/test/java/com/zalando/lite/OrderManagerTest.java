@@ -2,9 +2,20 @@ package com.zalando.lite;
 
 import org.junit.jupiter.api.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -14,9 +25,14 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
  *
  * These tests verify:
  * - Order creation with valid stock
- * - Orders are stored and retrieved correctly
+ * - Orders are stored and retrieved correctly, by customer, page and ID
  * - Orders fail when products are out of stock
  * - Inventory updates correctly after order
+ * - Order totals are priced at order time and follow line changes
+ * - Revenue aggregates and time buckets follow the orders placed
+ * - Concurrent orders keep stock and stored orders consistent
+ * - Async orders complete their futures without overselling
+ * - Idempotency keys turn retried checkouts into a single order
  *
  * Concepts reinforced:
  * - Control flow testing
@@ -53,6 +69,7 @@ public class OrderManagerTest {
         Order order = orderManager.createOrder(testCustomer, items);
 
         assertNotNull(order);
+        assertTrue(order.getOrderId() > 0, "Every order gets an ID");
         assertEquals(39.98, order.calculateTotal(), 0.01);
         assertEquals(testCustomer, order.getCustomer());
         assertEquals(1, order.getItems().size());
@@ -77,6 +94,22 @@ public class OrderManagerTest {
         assertNull(order, "Order should fail when product stock is insufficient");
     }
 
+    @Test
+    @DisplayName("A batch skips orders it cannot store without taking their stock")
+    void testCreateOrdersSkipsInvalidOrders() {
+        Product product = new Product(1, "T-Shirt", "Clothing", 19.99, 10, Arrays.asList("M"));
+        inventoryManager.addProduct(product);
+
+        List<Order> created = orderManager.createOrders(Arrays.asList(testCustomer, null, testCustomer),
+                Arrays.asList(List.of(new OrderItem(product, 2)), List.of(new OrderItem(product, 3)),
+                        List.of(new OrderItem(product, 1))));
+
+        assertNotNull(created.get(0));
+        assertNull(created.get(1), "An order without a customer is rejected");
+        assertNotNull(created.get(2));
+        assertEquals(7, product.getStock(), "Only the stored orders took stock");
+    }
+
     @Test
     @DisplayName("Store multiple orders per customer and retrieve correctly")
     void testOrdersAreStoredByCustomer() {
@@ -96,6 +129,31 @@ public class OrderManagerTest {
         assertEquals(2, orders.size());
     }
 
+    @Test
+    @DisplayName("Orders can be found by ID and paged newest first")
+    void testFindByIdAndHistoryPages() {
+        Product product = new Product(3, "Hat", "Accessories", 14.99, 10, Arrays.asList("One Size"));
+        inventoryManager.addProduct(product);
+        Order first = orderManager.createOrder(testCustomer, List.of(new OrderItem(product, 1)));
+        Order second = orderManager.createOrder(testCustomer, List.of(new OrderItem(product, 1)));
+        Order third = orderManager.createOrder(testCustomer, List.of(new OrderItem(product, 1)));
+
+        assertSame(second, orderManager.findOrderById(second.getOrderId()));
+        assertNull(orderManager.findOrderById(-42));
+
+        OrderPage page = orderManager.getOrderHistory(testCustomer.getId(), OrderPage.FIRST, 2);
+        assertEquals(List.of(third, second), page.getOrders());
+        page = orderManager.getOrderHistory(testCustomer.getId(), page.getNextCursor(), 2);
+        assertEquals(List.of(first), page.getOrders());
+        assertFalse(page.hasMore());
+
+        assertFalse(orderManager.getOrderHistory(999, OrderPage.FIRST, 2).hasMore());
+        assertThrows(UnsupportedOperationException.class,
+                () -> orderManager.getOrdersForCustomer(testCustomer.getId()).clear());
+        assertThrows(UnsupportedOperationException.class,
+                () -> orderManager.getOrdersForCustomer(999).add(first), "A miss returns a shared empty list");
+    }
+
     @Test
     @DisplayName("Update inventory correctly after order creation")
     void testInventoryUpdatedAfterOrder() {
@@ -109,6 +167,277 @@ public class OrderManagerTest {
         assertEquals(2, product.getStock(), "Stock should reduce after order");
     }
 
+    @Test
+    @DisplayName("A multi-line order with one short line leaves all stock untouched")
+    void testFailedOrderDoesNotTouchOtherLines() {
+        Product jeans = new Product(4, "Jeans", "Clothing", 59.99, 5, Arrays.asList("M", "L"));
+        Product hat = new Product(5, "Hat", "Accessories", 14.99, 1, Arrays.asList("One Size"));
+        inventoryManager.addProduct(jeans);
+        inventoryManager.addProduct(hat);
+
+        Order order = orderManager.createOrder(testCustomer, List.of(new OrderItem(jeans, 2), new OrderItem(hat, 2)));
+
+        assertNull(order);
+        assertEquals(5, jeans.getStock(), "Jeans stock must not be reduced when the order fails");
+        assertEquals(1, hat.getStock());
+        assertTrue(orderManager.getOrdersForCustomer(testCustomer.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Reserved orders commit their holds instead of taking stock again")
+    void testCreateReservedOrder() {
+        Product jeans = new Product(4, "Jeans", "Clothing", 59.99, 5, Arrays.asList("M", "L"));
+        inventoryManager.addProduct(jeans);
+
+        StockReservation hold = inventoryManager.reserve(4, 2, java.time.Duration.ofMinutes(10));
+        Order order = orderManager.createReservedOrder(testCustomer, List.of(new OrderItem(jeans, 2)), List.of(hold.getId()));
+
+        assertNotNull(order);
+        assertEquals(3, jeans.getStock(), "Stock is only reduced once");
+        assertEquals(StockReservation.Status.COMMITTED, hold.getStatus());
+        assertNull(orderManager.createReservedOrder(testCustomer, List.of(new OrderItem(jeans, 2)), List.of(hold.getId())),
+                "A hold can only be used once");
+    }
+
+    @Test
+    @DisplayName("Reserved orders are rejected unless the holds cover exactly the ordered lines")
+    void testCreateReservedOrderChecksHolds() {
+        Product jeans = new Product(4, "Jeans", "Clothing", 59.99, 5, Arrays.asList("M", "L"));
+        Product hat = new Product(5, "Hat", "Accessories", 19.99, 5, Arrays.asList("One Size"));
+        inventoryManager.addProduct(jeans);
+        inventoryManager.addProduct(hat);
+        StockReservation jeansHold = inventoryManager.reserve(4, 1, java.time.Duration.ofMinutes(10));
+        StockReservation hatHold = inventoryManager.reserve(5, 2, java.time.Duration.ofMinutes(10));
+
+        assertNull(orderManager.createReservedOrder(testCustomer, List.of(new OrderItem(jeans, 5)),
+                List.of(jeansHold.getId())), "One held unit cannot pay for five");
+        assertNull(orderManager.createReservedOrder(testCustomer, List.of(new OrderItem(jeans, 1)),
+                List.of(hatHold.getId())), "A hold on another product does not count");
+        assertNull(orderManager.createReservedOrder(testCustomer, List.of(new OrderItem(jeans, 1)),
+                List.of(jeansHold.getId(), hatHold.getId())), "Extra holds are not swallowed");
+        assertEquals(StockReservation.Status.PENDING, jeansHold.getStatus());
+        assertEquals(StockReservation.Status.PENDING, hatHold.getStatus());
+        assertEquals(4, jeans.getStock());
+        assertTrue(orderManager.getOrdersForCustomer(testCustomer.getId()).isEmpty());
+
+        Order order = orderManager.createReservedOrder(testCustomer,
+                List.of(new OrderItem(hat, 1), new OrderItem(jeans, 1), new OrderItem(hat, 1)),
+                List.of(hatHold.getId(), jeansHold.getId()));
+        assertNotNull(order);
+        assertEquals(4, jeans.getStock());
+        assertEquals(3, hat.getStock());
+    }
+
+    @Test
+    @DisplayName("Order totals keep the order-time price and follow line changes")
+    void testOrderTotalCaching() {
+        Product shirt = new Product(1, "T-Shirt", "Clothing", 18.00, 10, Arrays.asList("M"));
+        inventoryManager.addProduct(shirt);
+        OrderItem line = new OrderItem(shirt, 2);
+        shirt.setPrice(20.00); // Repriced while the line sat in the cart
+        Order order = orderManager.createOrder(testCustomer, List.of(line));
+        assertEquals(40.0, order.calculateTotal(), 0.001, "Lines are priced when the order is created");
+        assertEquals(18.0, line.getUnitPrice(), 0.001, "The caller's line is not changed");
+
+        shirt.setPrice(25.00);
+        assertEquals(40.0, order.calculateTotal(), 0.001, "A later price change does not rewrite the order");
+
+        OrderItem own = order.getItems().get(0);
+        assertNotSame(line, own, "The order keeps its own copy of the line");
+        own.setQuantity(3);
+        assertEquals(60.0, order.calculateTotal(), 0.001);
+        own.setUnitPrice(18.00);
+        assertEquals(54.0, order.calculateTotal(), 0.001);
+        line.setQuantity(5);
+        assertEquals(54.0, order.calculateTotal(), 0.001, "The caller's line is no longer part of the order");
+
+        order.setItems(List.of(new OrderItem(shirt, 1)));
+        assertEquals(25.0, order.calculateTotal(), 0.001);
+        assertThrows(UnsupportedOperationException.class, () -> order.getItems().add(line));
+    }
+
+    @Test
+    @DisplayName("A discounted line keeps its price, and re-ordering a line never changes an earlier order")
+    void testOrderLinesAreCopied() {
+        Product shirt = new Product(1, "T-Shirt", "Clothing", 20.00, 10, Arrays.asList("M"));
+        inventoryManager.addProduct(shirt);
+
+        OrderItem discounted = new OrderItem(shirt, 1);
+        discounted.setUnitPrice(15.00);
+        Order first = orderManager.createOrder(testCustomer, List.of(discounted));
+        assertEquals(15.0, first.calculateTotal(), 0.001, "A price set on the line is kept");
+
+        shirt.setPrice(30.00);
+        OrderItem reused = first.getItems().get(0);
+        Order second = orderManager.createOrder(testCustomer, List.of(new OrderItem(shirt, 1), reused));
+        assertEquals(45.0, second.calculateTotal(), 0.001);
+        assertEquals(15.0, first.calculateTotal(), 0.001, "Re-ordering a line leaves the earlier order alone");
+        assertEquals(60.0, orderManager.getTotalRevenue(), 0.001, "Revenue matches the orders' totals");
+    }
+
+    @Test
+    @DisplayName("Revenue, average and highest order are kept up to date")
+    void testRevenueAggregates() {
+        assertEquals(0.0, orderManager.getTotalRevenue());
+        assertEquals(0.0, orderManager.getAverageOrderValue());
+        assertNull(orderManager.getHighestValueOrder());
+
+        Product shirt = new Product(1, "T-Shirt", "Clothing", 20.00, 10, Arrays.asList("M"));
+        Product coat = new Product(2, "Coat", "Clothing", 100.00, 10, Arrays.asList("M"));
+        inventoryManager.addProduct(shirt);
+        inventoryManager.addProduct(coat);
+
+        orderManager.createOrder(testCustomer, List.of(new OrderItem(shirt, 2)));
+        Order big = orderManager.createOrder(testCustomer, List.of(new OrderItem(coat, 1), new OrderItem(shirt, 1)));
+        orderManager.createOrder(testCustomer, List.of(new OrderItem(shirt, 100))); // Fails: not counted
+
+        assertEquals(160.0, orderManager.getTotalRevenue(), 0.001);
+        assertEquals(80.0, orderManager.getAverageOrderValue(), 0.001);
+        assertSame(big, orderManager.getHighestValueOrder());
+    }
+
+    @Test
+    @DisplayName("New orders show up in the time-bucketed figures")
+    void testTimeSeries() {
+        Product shirt = new Product(1, "T-Shirt", "Clothing", 20.00, 10, Arrays.asList("M"));
+        inventoryManager.addProduct(shirt);
+        orderManager.createOrder(testCustomer, List.of(new OrderItem(shirt, 3)));
+
+        OrderTimeSeries.Totals last15 = orderManager.getTimeSeries().summarize(Duration.ofMinutes(15));
+        assertEquals(1, last15.getOrderCount());
+        assertEquals(3, last15.getUnits());
+        assertEquals(6000, last15.getRevenueCents());
+    }
+
+    @Test
+    @DisplayName("Concurrent orders on overlapping products never oversell or lose orders")
+    void testConcurrentCreateOrder() throws Exception {
+        int productCount = 8;
+        int initialStock = 500;
+        for (int id = 1; id <= productCount; id++) {
+            inventoryManager.addProduct(new Product(id, "SKU " + id, "Clothing", 10.0, initialStock, Arrays.asList("M")));
+        }
+
+        int threads = 16;
+        int ordersPerThread = 400;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            results.add(pool.submit(() -> {
+                Customer customer = new Customer("Customer " + seed, "c" + seed + "@example.com");
+                customer.setId(1_000 + seed);
+                Random random = new Random(seed);
+                long[] sold = new long[productCount + 2]; // Units per product, then orders placed
+                start.await();
+                for (int n = 0; n < ordersPerThread; n++) {
+                    // Two overlapping lines, so orders contend on the same products
+                    int first = 1 + random.nextInt(productCount);
+                    int second = 1 + (first % productCount);
+                    int quantity = 1 + random.nextInt(2);
+                    List<OrderItem> items = Arrays.asList(
+                            new OrderItem(inventoryManager.findProductById(first), quantity),
+                            new OrderItem(inventoryManager.findProductById(second), 1));
+                    if (orderManager.createOrder(customer, items) != null) {
+                        sold[first] += quantity;
+                        sold[second] += 1;
+                        sold[productCount + 1]++;
+                    }
+                }
+                return sold;
+            }));
+        }
+        start.countDown();
+
+        long[] totalSold = new long[productCount + 2];
+        for (Future<long[]> result : results) {
+            long[] sold = result.get();
+            for (int i = 0; i < sold.length; i++) {
+                totalSold[i] += sold[i];
+            }
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (int id = 1; id <= productCount; id++) {
+            int stock = inventoryManager.findProductById(id).getStock();
+            assertTrue(stock >= 0, "Stock must never go negative");
+            assertEquals(initialStock - stock, totalSold[id], "Every unit taken belongs to a placed order");
+        }
+        long storedOrders = 0;
+        for (int t = 0; t < threads; t++) {
+            storedOrders += orderManager.getOrdersForCustomer(1_000 + t).size();
+        }
+        assertEquals(totalSold[productCount + 1], storedOrders, "No order is lost");
+        long unitsSold = 0;
+        for (int id = 1; id <= productCount; id++) {
+            unitsSold += totalSold[id];
+        }
+        assertEquals(unitsSold * 10.0, orderManager.getTotalRevenue(), 0.001, "Revenue aggregates see every order");
+        Set<Long> orderIds = new HashSet<>();
+        for (int t = 0; t < threads; t++) {
+            for (Order order : orderManager.getOrdersForCustomer(1_000 + t)) {
+                assertTrue(orderIds.add(order.getOrderId()), "Order IDs are unique");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Async orders complete on virtual threads and never oversell")
+    void testCreateOrderAsync() {
+        Product product = new Product(1, "T-Shirt", "Clothing", 10.0, 100, Arrays.asList("M"));
+        inventoryManager.addProduct(product);
+
+        List<CompletableFuture<Order>> futures = new ArrayList<>();
+        Set<Boolean> virtual = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 150; i++) {
+            futures.add(orderManager.createOrderAsync(testCustomer, List.of(new OrderItem(product, 1)))
+                    .whenComplete((order, error) -> virtual.add(VirtualThreads.isVirtual(Thread.currentThread()))));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        long placed = futures.stream().map(CompletableFuture::join).filter(order -> order != null).count();
+        assertEquals(100, placed, "Only the stock on hand is sold");
+        assertEquals(0, product.getStock());
+        assertEquals(100, orderManager.getOrdersForCustomer(101).size());
+        if (VirtualThreads.isAvailable()) {
+            assertTrue(virtual.contains(true), "Checkouts run on virtual threads");
+        }
+    }
+
+    @Test
+    @DisplayName("Retries with the same idempotency key return the original order and take stock once")
+    void testIdempotentCreateOrder() throws Exception {
+        Product product = new Product(1, "T-Shirt", "Clothing", 10.0, 10, Arrays.asList("M"));
+        inventoryManager.addProduct(product);
+        List<OrderItem> items = List.of(new OrderItem(product, 2));
+
+        Order first = orderManager.createOrder(testCustomer, items, "checkout-1");
+        assertNotNull(first);
+        assertSame(first, orderManager.createOrder(testCustomer, items, "checkout-1"));
+        assertEquals(8, product.getStock(), "A retry takes no stock");
+
+        // Concurrent retries of a new key still place a single order
+        List<CompletableFuture<Order>> retries = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            retries.add(CompletableFuture.supplyAsync(() -> orderManager.createOrder(testCustomer, items, "checkout-2")));
+        }
+        Set<Order> placed = ConcurrentHashMap.newKeySet();
+        for (CompletableFuture<Order> retry : retries) {
+            placed.add(retry.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, placed.size());
+        assertEquals(6, product.getStock());
+
+        // A failed checkout is not remembered, so its retry can succeed later
+        List<OrderItem> tooMany = List.of(new OrderItem(product, 7));
+        assertNull(orderManager.createOrder(testCustomer, tooMany, "checkout-3"));
+        product.addStock(5);
+        assertNotNull(orderManager.createOrder(testCustomer, tooMany, "checkout-3"));
+        assertEquals(3, orderManager.getOrdersForCustomer(101).size());
+    }
+
     @AfterEach
     void tearDown() {
         // Reset fields if necessary (optional for logic-based unit tests)
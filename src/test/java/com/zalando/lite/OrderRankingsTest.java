@@ -0,0 +1,137 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link OrderRankings} and the structures behind it
+ * ({@link TopK}, {@link TopKeys}, {@link SpaceSavingSketch}).
+ *
+ * These tests verify:
+ * - Top-K heaps match a full sort, also when scores grow
+ * - The Space-Saving sketch keeps its error guarantees
+ * - OrderManager keeps the leaderboards up to date
+ *
+ * Concepts reinforced:
+ * - Checking a fast structure against a brute-force answer
+ * - Randomized tests with a fixed seed
+ */
+public class OrderRankingsTest {
+
+    @Test
+    @DisplayName("TopK keeps exactly the highest scores")
+    void testTopK() {
+        Random random = new Random(7);
+        TopK<Long> top = new TopK<>(10);
+        List<Long> all = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long score = random.nextInt(1_000_000);
+            all.add(score);
+            top.offer(score, score);
+        }
+        all.sort(Collections.reverseOrder());
+        assertEquals(all.subList(0, 10), top.top(10));
+        assertEquals(all.get(9), top.threshold());
+    }
+
+    @Test
+    @DisplayName("TopKeys stays exact while scores of many keys grow")
+    void testTopKeysWithGrowingScores() {
+        Random random = new Random(11);
+        TopKeys top = new TopKeys(20);
+        Map<Integer, Long> totals = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(2_000);
+            long total = totals.merge(key, (long) random.nextInt(100) + 1, Long::sum);
+            top.offer(key, total);
+        }
+
+        List<Map.Entry<Integer, Long>> expected = new ArrayList<>(totals.entrySet());
+        expected.sort((a, b) -> !a.getValue().equals(b.getValue())
+                ? Long.compare(b.getValue(), a.getValue()) : Integer.compare(a.getKey(), b.getKey()));
+        List<TopKeys.Entry> actual = top.top(20);
+        for (int i = 0; i < 20; i++) {
+            assertEquals((long) expected.get(i).getValue(), actual.get(i).getScore(), "Rank " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Space-Saving never undercounts and finds every frequent key")
+    void testSpaceSavingGuarantees() {
+        Random random = new Random(3);
+        SpaceSavingSketch sketch = new SpaceSavingSketch(100);
+        Map<Integer, Long> truth = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Skewed: a few keys are very popular, most of 100,000 keys are rare
+            int key = random.nextInt(4) == 0 ? random.nextInt(10) : random.nextInt(100_000);
+            int units = random.nextInt(3) + 1;
+            sketch.add(key, units);
+            truth.merge(key, (long) units, Long::sum);
+        }
+
+        List<TopKeys.Entry> top = sketch.top(100);
+        Map<Integer, TopKeys.Entry> tracked = new HashMap<>();
+        for (TopKeys.Entry entry : top) {
+            long actual = truth.get(entry.getKey());
+            assertTrue(entry.getScore() >= actual, "Counts are upper bounds");
+            assertTrue(entry.getScore() - entry.getError() <= actual, "Count minus error is a lower bound");
+            tracked.put(entry.getKey(), entry);
+        }
+        long threshold = sketch.getTotal() / sketch.getCapacity();
+        for (Map.Entry<Integer, Long> entry : truth.entrySet()) {
+            if (entry.getValue() > threshold) {
+                assertTrue(tracked.containsKey(entry.getKey()), "Frequent key " + entry.getKey() + " is tracked");
+            }
+        }
+        for (int key = 0; key < 10; key++) {
+            assertTrue(tracked.containsKey(key));
+        }
+    }
+
+    @Test
+    @DisplayName("OrderManager keeps top orders, customers and best-sellers up to date")
+    void testOrderManagerLeaderboards() {
+        InventoryManager inventoryManager = new InventoryManager();
+        Product shirt = new Product(1, "T-Shirt", "Clothing", 20.00, 100, Arrays.asList("M"));
+        Product coat = new Product(2, "Coat", "Clothing", 100.00, 100, Arrays.asList("M"));
+        inventoryManager.addProduct(shirt);
+        inventoryManager.addProduct(coat);
+        OrderManager orderManager = new OrderManager(inventoryManager);
+        Customer alice = customer("Alice", 1);
+        Customer bob = customer("Bob", 2);
+
+        Order small = orderManager.createOrder(alice, List.of(new OrderItem(shirt, 1)));
+        Order big = orderManager.createOrder(bob, List.of(new OrderItem(coat, 1)));
+        Order medium = orderManager.createOrder(alice, List.of(new OrderItem(shirt, 3)));
+        orderManager.createOrder(alice, List.of(new OrderItem(shirt, 2)));
+
+        assertEquals(List.of(big, medium), orderManager.getTopOrders(2));
+
+        List<OrderRankings.Ranked<Customer>> customers = orderManager.getTopCustomers(2);
+        assertSame(alice, customers.get(0).getItem());
+        assertEquals(12000, customers.get(0).getScore());
+        assertSame(bob, customers.get(1).getItem());
+
+        List<OrderRankings.Ranked<Product>> bestSellers = orderManager.getBestSellingProducts(5);
+        assertEquals(2, bestSellers.size());
+        assertSame(shirt, bestSellers.get(0).getItem());
+        assertEquals(6, bestSellers.get(0).getScore());
+        assertEquals(0, bestSellers.get(0).getError());
+        assertNotNull(small);
+    }
+
+    private static Customer customer(String name, int id) {
+        Customer customer = new Customer(name, name.toLowerCase() + "@example.com");
+        customer.setId(id);
+        return customer;
+    }
+}
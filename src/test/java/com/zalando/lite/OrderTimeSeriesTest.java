@@ -0,0 +1,130 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link OrderTimeSeries}.
+ *
+ * These tests verify:
+ * - Windows add up exactly the buckets they cover
+ * - Series list every bucket, oldest first, with empty ones as zeros
+ * - Old minute buckets are reused while coarser rings still remember them
+ *
+ * Concepts reinforced:
+ * - Testing time-based code with a controllable Clock
+ */
+public class OrderTimeSeriesTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 17, 12, 30, 20);
+
+    private MutableClock clock;
+    private OrderTimeSeries series;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(NOW);
+        series = new OrderTimeSeries(clock, 60, 48, 30);
+        product = new Product(1, "T-Shirt", "Clothing", 10.00, 100, Arrays.asList("M"));
+    }
+
+    @Test
+    @DisplayName("The last 15 minutes include the current minute and the 14 before it")
+    void testWindow() {
+        record(NOW.minusMinutes(20), 1);
+        record(NOW.minusMinutes(14), 2);
+        record(NOW, 3);
+
+        OrderTimeSeries.Totals last15 = series.summarize(Duration.ofMinutes(15));
+        assertEquals(2, last15.getOrderCount());
+        assertEquals(5, last15.getUnits());
+        assertEquals(5000, last15.getRevenueCents());
+        assertEquals(LocalDateTime.of(2024, 5, 17, 12, 16), last15.getStart());
+
+        assertEquals(3, series.summarize(Duration.ofMinutes(30)).getOrderCount());
+        assertEquals(3, series.summarize(Duration.ofHours(5)).getOrderCount(), "Hour buckets");
+        assertEquals(3, series.summarize(Duration.ofDays(7)).getOrderCount(), "Day buckets");
+    }
+
+    @Test
+    @DisplayName("A series lists every bucket, oldest first")
+    void testSeries() {
+        record(NOW.minusHours(2), 1);
+        record(NOW, 4);
+
+        List<OrderTimeSeries.Totals> hours = series.series(OrderTimeSeries.Resolution.HOUR, 3);
+        assertEquals(3, hours.size());
+        assertEquals(LocalDateTime.of(2024, 5, 17, 10, 0), hours.get(0).getStart());
+        assertEquals(1, hours.get(0).getUnits());
+        assertEquals(0, hours.get(1).getOrderCount());
+        assertEquals(4, hours.get(2).getUnits());
+    }
+
+    @Test
+    @DisplayName("Minute buckets are reused after an hour, hour buckets still have the orders")
+    void testRingReuse() {
+        record(NOW, 1);
+        clock.now = NOW.plusMinutes(60);
+        record(clock.now, 2);
+
+        assertEquals(1, series.summarize(OrderTimeSeries.Resolution.MINUTE, 60).getOrderCount());
+        assertEquals(2, series.summarize(OrderTimeSeries.Resolution.HOUR, 2).getOrderCount());
+
+        record(NOW, 1); // Too old for the minute ring
+        assertEquals(1, series.summarize(OrderTimeSeries.Resolution.MINUTE, 60).getOrderCount());
+        assertEquals(3, series.summarize(OrderTimeSeries.Resolution.HOUR, 2).getOrderCount());
+    }
+
+    @Test
+    @DisplayName("Windows beyond the day ring are rejected")
+    void testWindowTooLong() {
+        assertThrows(IllegalArgumentException.class, () -> series.summarize(Duration.ofDays(31)));
+        assertThrows(IllegalArgumentException.class, () -> series.series(OrderTimeSeries.Resolution.MINUTE, 61));
+    }
+
+    // Records an order of `units` T-Shirts at €10 each
+    private void record(LocalDateTime date, int units) {
+        Order order = new Order(new Customer("Alice", "alice@example.com"),
+                Collections.singletonList(new OrderItem(product, units)));
+        order.setOrderDate(date);
+        series.record(order, order.calculateTotalCents());
+    }
+
+    /**
+     * A clock the test can move.
+     */
+    private static final class MutableClock extends Clock {
+        private LocalDateTime now;
+
+        MutableClock(LocalDateTime now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.toInstant(ZoneOffset.UTC);
+        }
+    }
+}
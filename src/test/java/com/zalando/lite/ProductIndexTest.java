@@ -0,0 +1,90 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ProductIndex}.
+ *
+ * These tests verify:
+ * - Lookups by ID after many inserts (including table growth)
+ * - Removal keeps all other products reachable
+ * - Iteration follows insertion order, even after removals
+ *
+ * Concepts reinforced:
+ * - Hash table invariants
+ * - Testing resize and delete edge cases
+ */
+public class ProductIndexTest {
+
+    private ProductIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductIndex();
+    }
+
+    private static Product product(int id) {
+        return new Product(id, "Product " + id, "Clothing", 10.0, 5, Arrays.asList("M"));
+    }
+
+    @Test
+    @DisplayName("Find every product after the index has grown several times")
+    void testGetAfterGrowth() {
+        for (int id = 0; id < 10_000; id++) {
+            index.put(product(id * 7));
+        }
+
+        assertEquals(10_000, index.size());
+        for (int id = 0; id < 10_000; id++) {
+            assertEquals(id * 7, index.get(id * 7).getId());
+        }
+        assertNull(index.get(3));
+    }
+
+    @Test
+    @DisplayName("Putting an existing ID replaces it in place")
+    void testPutReplacesExistingId() {
+        index.put(product(1));
+        index.put(product(2));
+        Product replacement = product(1);
+
+        assertNotNull(index.put(replacement));
+        assertEquals(2, index.size());
+        assertSame(replacement, index.get(1));
+        assertEquals(1, index.toList().get(0).getId(), "Replaced product keeps its position");
+    }
+
+    @Test
+    @DisplayName("Removing products keeps the others reachable and in order")
+    void testRemoveKeepsOrderAndLookups() {
+        for (int id = 1; id <= 1_000; id++) {
+            index.put(product(id));
+        }
+        for (int id = 2; id <= 1_000; id += 2) {
+            assertNotNull(index.remove(id));
+        }
+        assertNull(index.remove(2), "Removing twice returns null");
+
+        // Re-adding after removals forces compaction of the dense array
+        for (int id = 1_001; id <= 2_000; id++) {
+            index.put(product(id));
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        index.forEach(p -> ids.add(p.getId()));
+        assertEquals(1_500, ids.size());
+        assertEquals(1, (int) ids.get(0));
+        assertEquals(3, (int) ids.get(1));
+        assertEquals(2_000, (int) ids.get(ids.size() - 1));
+        for (int id = 1; id <= 2_000; id++) {
+            boolean removed = id <= 1_000 && id % 2 == 0;
+            assertEquals(!removed, index.contains(id), "id " + id);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark for keyword search over a large catalog.
+ *
+ * Tagged "benchmark", so it only runs with {@code mvn test -Pbench}.
+ *
+ * These tests verify:
+ * - AND and OR searches over one million products take well under a millisecond
+ *
+ * Concepts reinforced:
+ * - Measuring after a warm-up
+ * - Inverted indexes versus full scans
+ */
+@Tag("benchmark")
+public class SearchBenchmarkTest {
+
+    private static final String[] MATERIALS = {"Leather", "Denim", "Cotton", "Wool", "Suede", "Linen",
+            "Silk", "Canvas", "Nylon", "Velvet", "Fleece", "Satin", "Tweed", "Jersey", "Mesh", "Corduroy"};
+    private static final String[] STYLES = {"Slim", "Relaxed", "Classic", "Vintage", "Sport", "Cropped",
+            "Oversized", "Tailored", "Casual", "Formal", "Urban", "Outdoor", "Summer", "Winter", "Basic", "Premium"};
+    private static final String[] ITEMS = {"Jacket", "Boots", "Shirt", "Dress", "Jeans", "Sneakers",
+            "Coat", "Skirt", "Hoodie", "Sweater", "Shorts", "Blazer", "Scarf", "Gloves", "Cap", "Belt"};
+    private static final String[] CATEGORIES = {"Jackets", "Shoes", "Tops", "Dresses", "Trousers",
+            "Knitwear", "Accessories", "Sportswear"};
+
+    @Test
+    @DisplayName("Sub-millisecond search over a million products")
+    void benchmarkSearch() {
+        int catalogSize = 1_000_000;
+        InventoryManager inventoryManager = new InventoryManager();
+        List<String> sizes = Arrays.asList("M");
+        for (int id = 0; id < catalogSize; id++) {
+            String name = MATERIALS[id % 16] + " " + STYLES[(id / 16) % 16] + " " + ITEMS[(id / 256) % 16]
+                    + " " + (id / 4096);
+            inventoryManager.addProduct(new Product(id, name, CATEGORIES[id % 8], 10.0, 1, sizes));
+        }
+
+        String[] queries = {"leather vintage jacket", "suede boots", "wool winter coat 17", "silk dress"};
+        for (SearchIndex.Match match : SearchIndex.Match.values()) {
+            for (int round = 0; round < 50; round++) { // Warm-up
+                for (String query : queries) {
+                    inventoryManager.search(query, match, 20);
+                }
+            }
+            int runs = 500;
+            long begin = System.nanoTime();
+            int found = 0;
+            for (int run = 0; run < runs; run++) {
+                for (String query : queries) {
+                    found += inventoryManager.search(query, match, 20).size();
+                }
+            }
+            double micros = (System.nanoTime() - begin) / 1_000.0 / (runs * queries.length);
+            System.out.printf("search %s over %,d products: %.1f µs per query%n", match, catalogSize, micros);
+            assertTrue(found > 0);
+        }
+
+        List<Product> best = inventoryManager.search("leather vintage jacket", SearchIndex.Match.ALL, 5);
+        assertEquals("Leather Vintage Jacket 0", best.get(0).getName());
+    }
+}
@@ -0,0 +1,126 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SearchIndex}.
+ *
+ * These tests verify:
+ * - Tokenization ignores case and punctuation
+ * - AND queries intersect and OR queries rank by the number of matched words
+ * - Pruned top-N OR results agree with a brute-force ranking
+ * - Postings stay sorted and complete after out-of-order inserts, removals and updates
+ *
+ * Concepts reinforced:
+ * - Inverted indexes
+ * - Testing compressed data structures through their public behaviour
+ */
+public class SearchIndexTest {
+
+    private SearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SearchIndex();
+        index.add(1, "Leather Jacket", "Jackets");
+        index.add(2, "Denim Jacket", "Jackets");
+        index.add(3, "Leather Boots", "Shoes");
+        index.add(4, "Running Shoes", "Shoes");
+    }
+
+    @Test
+    @DisplayName("Tokens are lowercase runs of letters and digits")
+    void testTokens() {
+        assertEquals(Arrays.asList("t", "shirt", "size", "42", "shoes"),
+                Arrays.asList(SearchIndex.tokens("T-Shirt (size 42)", " SHOES ").toArray()));
+    }
+
+    @Test
+    @DisplayName("ALL intersects, ANY ranks by match count then ID")
+    void testAllAndAny() {
+        assertArrayEquals(new int[] {1}, index.search("LEATHER jacket", SearchIndex.Match.ALL, 10));
+        assertArrayEquals(new int[0], index.search("leather sandals", SearchIndex.Match.ALL, 10));
+        assertArrayEquals(new int[] {1, 2, 3}, index.search("leather jacket", SearchIndex.Match.ANY, 10));
+        assertArrayEquals(new int[] {3, 1}, index.search("leather shoes", SearchIndex.Match.ANY, 2));
+        assertArrayEquals(new int[0], index.search("  ...  ", SearchIndex.Match.ANY, 10));
+    }
+
+    @Test
+    @DisplayName("Out-of-order inserts, removals and updates keep postings correct")
+    void testMaintenance() {
+        index.add(-5, "Leather Belt", "Accessories");
+        index.add(100_000, "Leather Bag", "Accessories");
+        index.add(0, "Leather Gloves", "Accessories");
+        assertArrayEquals(new int[] {-5, 0, 1, 3, 100_000}, index.search("leather", SearchIndex.Match.ALL, 10));
+
+        index.remove(1, "Leather Jacket", "Jackets");
+        index.update(3, "Leather Boots", "Shoes", "Suede Boots", "Shoes");
+        assertArrayEquals(new int[] {-5, 0, 100_000}, index.search("leather", SearchIndex.Match.ALL, 10));
+        assertArrayEquals(new int[] {3}, index.search("suede", SearchIndex.Match.ALL, 10));
+        assertArrayEquals(new int[] {2}, index.search("jacket", SearchIndex.Match.ALL, 10));
+    }
+
+    @Test
+    @DisplayName("Large postings lists survive the varint round trip")
+    void testLargeLists() {
+        SearchIndex large = new SearchIndex();
+        for (int id = 0; id < 100_000; id += 3) {
+            large.add(id, "Item " + (id % 2 == 0 ? "even" : "odd"), "Misc");
+        }
+        int[] even = large.search("even misc", SearchIndex.Match.ALL, Integer.MAX_VALUE);
+        assertEquals(16_667, even.length);
+        for (int i = 0; i < even.length; i++) {
+            assertEquals(i * 6, even[i]);
+        }
+        assertEquals(33_334, large.search("item", SearchIndex.Match.ANY, Integer.MAX_VALUE).length);
+    }
+
+    @Test
+    @DisplayName("Ranked ANY results with a limit match a brute-force ranking")
+    void testAnyMatchesBruteForce() {
+        String[] words = {"red", "blue", "green", "wool", "silk", "coat", "hat"};
+        Random random = new Random(42);
+        SearchIndex large = new SearchIndex();
+        List<Set<String>> names = new ArrayList<>();
+        for (int id = 0; id < 5_000; id++) {
+            StringBuilder name = new StringBuilder();
+            for (String word : words) {
+                if (random.nextInt(3) == 0) {
+                    name.append(word).append(' ');
+                }
+            }
+            large.add(id, name.toString(), null);
+            names.add(SearchIndex.tokens(name.toString(), null));
+        }
+
+        for (String query : new String[] {"red wool coat", "hat", "blue green silk hat red", "coat unknown"}) {
+            Set<String> terms = SearchIndex.tokens(query, null);
+            List<int[]> expected = new ArrayList<>();
+            for (int id = 0; id < names.size(); id++) {
+                int score = 0;
+                for (String term : terms) {
+                    score += names.get(id).contains(term) ? 1 : 0;
+                }
+                if (score > 0) {
+                    expected.add(new int[] {score, id});
+                }
+            }
+            expected.sort((a, b) -> a[0] != b[0] ? Integer.compare(b[0], a[0]) : Integer.compare(a[1], b[1]));
+            for (int limit : new int[] {1, 25, 400, Integer.MAX_VALUE}) {
+                int[] actual = large.search(query, SearchIndex.Match.ANY, limit);
+                assertEquals(Math.min(limit, expected.size()), actual.length, query);
+                for (int i = 0; i < actual.length; i++) {
+                    assertEquals(expected.get(i)[1], actual[i], query + " at rank " + i);
+                }
+            }
+        }
+    }
+}
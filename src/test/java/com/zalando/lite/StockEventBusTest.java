@@ -0,0 +1,122 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link StockEventBus} and the stock events published by {@link InventoryManager}.
+ *
+ * These tests verify:
+ * - Events arrive in order and in bounded batches
+ * - A subscriber that falls behind loses events (and counts them) instead of blocking publishers
+ * - Threshold crossings are classified as LOW_STOCK / OUT_OF_STOCK / RESTOCKED
+ * - Background subscribers receive events asynchronously
+ *
+ * Concepts reinforced:
+ * - Testing producer/consumer code
+ * - Counters as observable behavior
+ */
+public class StockEventBusTest {
+
+    private StockEventBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new StockEventBus(8);
+    }
+
+    @Test
+    @DisplayName("Polling returns events in order, in bounded batches")
+    void testPollInOrder() {
+        StockEventBus.Subscription subscription = bus.subscribe();
+        for (int i = 0; i < 5; i++) {
+            bus.publish(1, 10 - i, 9 - i, StockEvent.Type.STOCK_CHANGED);
+        }
+
+        List<StockEvent> first = subscription.poll(3);
+        List<StockEvent> second = subscription.poll(3);
+
+        assertEquals(3, first.size());
+        assertEquals(2, second.size());
+        assertEquals(0, first.get(0).getSequence());
+        assertEquals(4, second.get(1).getSequence());
+        assertEquals(0, subscription.getLag());
+        assertTrue(subscription.poll(3).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A lagging subscriber drops events instead of blocking the publisher")
+    void testSlowSubscriberDropsEvents() {
+        StockEventBus.Subscription slow = bus.subscribe();
+        for (int i = 0; i < 20; i++) {
+            bus.publish(1, i, i + 1, StockEvent.Type.STOCK_CHANGED); // Never blocks, ring holds only 8
+        }
+        assertEquals(20, slow.getLag());
+
+        List<StockEvent> events = slow.poll(100);
+
+        assertFalse(events.isEmpty());
+        assertEquals(19, events.get(events.size() - 1).getSequence(), "Newest event is still delivered");
+        assertEquals(20, slow.getDroppedCount() + events.size(), "Every event is either delivered or counted as dropped");
+        assertEquals(0, slow.getLag());
+    }
+
+    @Test
+    @DisplayName("Inventory stock changes are classified against the low-stock threshold")
+    void testInventoryThresholdEvents() {
+        InventoryManager inventoryManager = new InventoryManager();
+        inventoryManager.setLowStockThreshold(3);
+        inventoryManager.addProduct(new Product(1, "Jacket", "Jackets", 89.99, 5, Arrays.asList("S")));
+        StockEventBus.Subscription subscription = inventoryManager.getStockEvents().subscribe();
+
+        inventoryManager.reduceStock(1, 1);                                   // 5 -> 4
+        inventoryManager.reduceStock(1, 2);                                   // 4 -> 2
+        StockReservation hold = inventoryManager.reserve(1, 2, Duration.ofMinutes(1)); // 2 -> 0
+        inventoryManager.release(hold.getId());                               // 0 -> 2
+        inventoryManager.applyStockBatch(List.of(new StockAdjustment(1, 10)));  // 2 -> 12
+
+        List<StockEvent.Type> types = new ArrayList<>();
+        for (StockEvent event : subscription.poll(10)) {
+            types.add(event.getType());
+        }
+        assertEquals(Arrays.asList(
+                StockEvent.Type.STOCK_CHANGED,
+                StockEvent.Type.LOW_STOCK,
+                StockEvent.Type.OUT_OF_STOCK,
+                StockEvent.Type.STOCK_CHANGED,
+                StockEvent.Type.RESTOCKED), types);
+        subscription.close();
+    }
+
+    @Test
+    @DisplayName("Background subscribers get batches asynchronously")
+    void testAsyncSubscriber() throws Exception {
+        InventoryManager inventoryManager = new InventoryManager();
+        inventoryManager.addProduct(new Product(1, "Jacket", "Jackets", 89.99, 1_000, Arrays.asList("S")));
+        List<StockEvent> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+
+        try (StockEventBus.Subscription subscription = inventoryManager.subscribeToStockEvents(batch -> {
+            assertTrue(batch.size() <= 16);
+            received.addAll(batch);
+            batch.forEach(e -> done.countDown());
+        }, 16)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(inventoryManager.reduceStock(1, 1));
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(0, subscription.getDroppedCount());
+        }
+        assertEquals(100, received.size());
+        assertEquals(900, received.get(99).getNewStock());
+    }
+}
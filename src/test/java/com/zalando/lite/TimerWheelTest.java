@@ -0,0 +1,77 @@
+package com.zalando.lite;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TimerWheel}.
+ *
+ * These tests verify:
+ * - Timeouts expire in the right tick, not before
+ * - Delays longer than one turn of the wheel are honored
+ * - Cancelled timeouts never expire
+ *
+ * Concepts reinforced:
+ * - Controlling time in tests with a fake clock
+ */
+public class TimerWheelTest {
+
+    private static final long TICK = 10;
+
+    private AtomicLong now;
+    private TimerWheel<String> wheel;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(1_000);
+        wheel = new TimerWheel<>(TICK, 8, now::get);
+    }
+
+    @Test
+    @DisplayName("Timeouts expire once their tick has passed")
+    void testExpiresOnTime() {
+        wheel.schedule("a", 25);
+        wheel.schedule("b", 50);
+
+        now.addAndGet(20);
+        assertTrue(wheel.advance().isEmpty());
+
+        now.addAndGet(10);
+        assertEquals(List.of("a"), wheel.advance());
+
+        now.addAndGet(30);
+        assertEquals(List.of("b"), wheel.advance());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Delays longer than one turn wait for the right round")
+    void testLongDelayAndLongPause() {
+        wheel.schedule("late", 8 * TICK * 3 + 5); // Three turns and a bit
+
+        now.addAndGet(8 * TICK * 2);
+        assertTrue(wheel.advance().isEmpty(), "Same bucket, earlier round");
+
+        now.addAndGet(8 * TICK * 10); // A long pause is processed in one turn
+        assertEquals(List.of("late"), wheel.advance());
+    }
+
+    @Test
+    @DisplayName("Cancelled timeouts are removed in O(1) and never expire")
+    void testCancel() {
+        TimerWheel.Timeout<String> first = wheel.schedule("a", 15);
+        wheel.schedule("b", 15);
+        TimerWheel.Timeout<String> third = wheel.schedule("c", 15);
+
+        assertTrue(wheel.cancel(first));
+        assertTrue(wheel.cancel(third));
+        assertFalse(wheel.cancel(third), "Already cancelled");
+
+        now.addAndGet(100);
+        assertEquals(List.of("b"), wheel.advance());
+    }
+}